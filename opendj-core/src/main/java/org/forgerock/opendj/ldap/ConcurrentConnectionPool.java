@@ -0,0 +1,1068 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.forgerock.opendj.ldap.LdapException.*;
+import static org.forgerock.util.promise.Promises.*;
+
+import static com.forgerock.opendj.ldap.CoreMessages.*;
+import static com.forgerock.opendj.util.StaticUtils.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.requests.AbandonRequest;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ExtendedRequest;
+import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.UnbindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.CompareResult;
+import org.forgerock.opendj.ldap.responses.ExtendedResult;
+import org.forgerock.opendj.ldap.responses.GenericExtendedResult;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
+import org.forgerock.opendj.ldif.ChangeRecord;
+import org.forgerock.opendj.ldif.ConnectionEntryReader;
+import org.forgerock.util.Options;
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.ExceptionHandler;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+import org.forgerock.util.time.Duration;
+import org.forgerock.util.time.TimeService;
+
+import com.forgerock.opendj.util.ReferenceCountedObject;
+
+/**
+ * A connection pool implementation which does not serialize the acquisition and
+ * the release of connections on a lock, and which is intended for applications
+ * sharing a pool between many concurrent threads.
+ * <p>
+ * Idle connections are kept in a lock-free stack, so that the most recently
+ * released connections are reused first and the least recently used ones time
+ * out. Requests for a connection which cannot be satisfied immediately are kept
+ * in a lock-free queue and are completed in the order in which they were made.
+ * Connections which have been idle for longer than the health check interval
+ * are checked by sending them a search request before they are handed out.
+ * <p>
+ * The pool provides statistics about its size, the time spent waiting for a
+ * connection and the time during which connections are borrowed.
+ *
+ * @see Connections#newConcurrentConnectionPool(ConnectionFactory, int, int, Options)
+ */
+public final class ConcurrentConnectionPool implements ConnectionPool {
+
+    /**
+     * This success handler is invoked when an attempt to add a new connection
+     * to the pool completes.
+     */
+    private final class ConnectionResultHandler implements ResultHandler<Connection> {
+        @Override
+        public void handleResult(final Connection connection) {
+            logger.debug(LocalizableMessage.raw(
+                    "Connection attempt succeeded: poolSize=%d, maxPoolSize=%d", poolSize.get(), maxPoolSize));
+            pendingConnectionAttempts.decrementAndGet();
+            publishConnection(connection);
+        }
+    }
+
+    /**
+     * This failure handler is invoked when an attempt to add a new connection
+     * to the pool ended in error.
+     */
+    private final class ConnectionFailureHandler implements ExceptionHandler<LdapException> {
+        @Override
+        public void handleException(final LdapException exception) {
+            // Connection attempt failed, so decrease the pool size.
+            pendingConnectionAttempts.decrementAndGet();
+            poolSize.decrementAndGet();
+
+            logger.debug(LocalizableMessage.raw(
+                    "Connection attempt failed: poolSize=%d, maxPoolSize=%d", poolSize.get(), maxPoolSize, exception));
+
+            /*
+             * As in the cached connection pool, a failed connection attempt
+             * fails all the waiting requests: the number of waiting requests
+             * may exceed the number of outstanding connection attempts, and if
+             * one attempt fails then the others are likely to fail as well.
+             */
+            for (Waiter waiter = pollWaiter(); waiter != null; waiter = pollWaiter()) {
+                waiter.promise.tryHandleException(exception);
+            }
+        }
+    }
+
+    /**
+     * A pooled connection is passed to the client. It wraps an underlying
+     * connection obtained from the underlying factory and lasts until the
+     * client application closes this connection.
+     */
+    private final class PooledConnection implements Connection, ConnectionEventListener {
+        private final Connection connection;
+        private final long borrowTimestampMillis;
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+        private final AtomicBoolean isListening = new AtomicBoolean(false);
+        private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+        private volatile LdapException error;
+        private volatile boolean isDisconnectNotification;
+
+        PooledConnection(final Connection connection, final long borrowTimestampMillis) {
+            this.connection = connection;
+            this.borrowTimestampMillis = borrowTimestampMillis;
+        }
+
+        @Override
+        public LdapPromise<Void> abandonAsync(final AbandonRequest request) {
+            return checkState().abandonAsync(request);
+        }
+
+        @Override
+        public Result add(final AddRequest request) throws LdapException {
+            return checkState().add(request);
+        }
+
+        @Override
+        public Result add(final Entry entry) throws LdapException {
+            return checkState().add(entry);
+        }
+
+        @Override
+        public Result add(final String... ldifLines) throws LdapException {
+            return checkState().add(ldifLines);
+        }
+
+        @Override
+        public LdapPromise<Result> addAsync(AddRequest request) {
+            return addAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<Result> addAsync(final AddRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().addAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public void addConnectionEventListener(final ConnectionEventListener listener) {
+            Reject.ifNull(listener);
+            if (isClosed.get()) {
+                listener.handleConnectionClosed();
+                return;
+            }
+
+            /*
+             * Register the listener before checking the state again, so that
+             * it is notified exactly once of a concurrent close.
+             */
+            listeners.add(listener);
+            if (isListening.compareAndSet(false, true)) {
+                connection.addConnectionEventListener(this);
+                if (isClosed.get()) {
+                    // The connection may already be back in the pool.
+                    connection.removeConnectionEventListener(this);
+                }
+            }
+            final LdapException tmpError = error;
+            if (tmpError != null) {
+                listener.handleConnectionError(isDisconnectNotification, tmpError);
+            }
+            if (isClosed.get() && listeners.remove(listener)) {
+                listener.handleConnectionClosed();
+            }
+        }
+
+        @Override
+        public Result applyChange(final ChangeRecord request) throws LdapException {
+            return checkState().applyChange(request);
+        }
+
+        @Override
+        public LdapPromise<Result> applyChangeAsync(final ChangeRecord request) {
+            return checkState().applyChangeAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<Result> applyChangeAsync(final ChangeRecord request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().applyChangeAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public BindResult bind(final BindRequest request) throws LdapException {
+            return checkState().bind(request);
+        }
+
+        @Override
+        public BindResult bind(final String name, final char[] password) throws LdapException {
+            return checkState().bind(name, password);
+        }
+
+        @Override
+        public LdapPromise<BindResult> bindAsync(BindRequest request) {
+            return bindAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<BindResult> bindAsync(final BindRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().bindAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public void close() {
+            if (!isClosed.compareAndSet(false, true)) {
+                // Already closed.
+                return;
+            }
+
+            /*
+             * Remove underlying listener if needed and do this before
+             * subsequent connection events may occur.
+             */
+            if (isListening.get()) {
+                connection.removeConnectionEventListener(this);
+            }
+            releaseConnection(connection, borrowTimestampMillis);
+
+            // Invoke listeners.
+            for (final ConnectionEventListener listener : listeners) {
+                if (listeners.remove(listener)) {
+                    listener.handleConnectionClosed();
+                }
+            }
+        }
+
+        @Override
+        public void close(final UnbindRequest request, final String reason) {
+            close();
+        }
+
+        @Override
+        public CompareResult compare(final CompareRequest request) throws LdapException {
+            return checkState().compare(request);
+        }
+
+        @Override
+        public CompareResult compare(final String name, final String attributeDescription,
+                final String assertionValue) throws LdapException {
+            return checkState().compare(name, attributeDescription, assertionValue);
+        }
+
+        @Override
+        public LdapPromise<CompareResult> compareAsync(CompareRequest request) {
+            return compareAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<CompareResult> compareAsync(final CompareRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().compareAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public Result delete(final DeleteRequest request) throws LdapException {
+            return checkState().delete(request);
+        }
+
+        @Override
+        public Result delete(final String name) throws LdapException {
+            return checkState().delete(name);
+        }
+
+        @Override
+        public LdapPromise<Result> deleteAsync(DeleteRequest request) {
+            return deleteAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<Result> deleteAsync(final DeleteRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().deleteAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public Result deleteSubtree(final String name) throws LdapException {
+            return checkState().deleteSubtree(name);
+        }
+
+        @Override
+        public <R extends ExtendedResult> R extendedRequest(final ExtendedRequest<R> request) throws LdapException {
+            return checkState().extendedRequest(request);
+        }
+
+        @Override
+        public <R extends ExtendedResult> R extendedRequest(final ExtendedRequest<R> request,
+                final IntermediateResponseHandler handler) throws LdapException {
+            return checkState().extendedRequest(request, handler);
+        }
+
+        @Override
+        public GenericExtendedResult extendedRequest(final String requestName,
+                final ByteString requestValue) throws LdapException {
+            return checkState().extendedRequest(requestName, requestValue);
+        }
+
+        @Override
+        public <R extends ExtendedResult> LdapPromise<R> extendedRequestAsync(ExtendedRequest<R> request) {
+            return extendedRequestAsync(request, null);
+        }
+
+        @Override
+        public <R extends ExtendedResult> LdapPromise<R> extendedRequestAsync(final ExtendedRequest<R> request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().extendedRequestAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public void handleConnectionClosed() {
+            /*
+             * The underlying connection was closed by the client. This can only
+             * occur when the pool is being shut down and the underlying
+             * connection is not in use.
+             */
+            throw new IllegalStateException(
+                    "Pooled connection received unexpected close notification");
+        }
+
+        @Override
+        public void handleConnectionError(final boolean isDisconnectNotification, final LdapException error) {
+            this.isDisconnectNotification = isDisconnectNotification;
+            this.error = error;
+            for (final ConnectionEventListener listener : listeners) {
+                listener.handleConnectionError(isDisconnectNotification, error);
+            }
+        }
+
+        @Override
+        public void handleUnsolicitedNotification(final ExtendedResult notification) {
+            for (final ConnectionEventListener listener : listeners) {
+                listener.handleUnsolicitedNotification(notification);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return isClosed.get();
+        }
+
+        @Override
+        public boolean isValid() {
+            return connection.isValid() && !isClosed();
+        }
+
+        @Override
+        public Result modify(final ModifyRequest request) throws LdapException {
+            return checkState().modify(request);
+        }
+
+        @Override
+        public Result modify(final String... ldifLines) throws LdapException {
+            return checkState().modify(ldifLines);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyAsync(ModifyRequest request) {
+            return modifyAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyAsync(final ModifyRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().modifyAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public Result modifyDN(final ModifyDNRequest request) throws LdapException {
+            return checkState().modifyDN(request);
+        }
+
+        @Override
+        public Result modifyDN(final String name, final String newRDN) throws LdapException {
+            return checkState().modifyDN(name, newRDN);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyDNAsync(ModifyDNRequest request) {
+            return modifyDNAsync(request, null);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyDNAsync(final ModifyDNRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return checkState().modifyDNAsync(request, intermediateResponseHandler);
+        }
+
+        @Override
+        public SearchResultEntry readEntry(final DN name, final String... attributeDescriptions)
+                throws LdapException {
+            return checkState().readEntry(name, attributeDescriptions);
+        }
+
+        @Override
+        public SearchResultEntry readEntry(final String name, final String... attributeDescriptions)
+                throws LdapException {
+            return checkState().readEntry(name, attributeDescriptions);
+        }
+
+        @Override
+        public LdapPromise<SearchResultEntry> readEntryAsync(final DN name,
+                final Collection<String> attributeDescriptions) {
+            return checkState().readEntryAsync(name, attributeDescriptions);
+        }
+
+        @Override
+        public void removeConnectionEventListener(final ConnectionEventListener listener) {
+            Reject.ifNull(listener);
+            listeners.remove(listener);
+        }
+
+        @Override
+        public ConnectionEntryReader search(final SearchRequest request) {
+            return checkState().search(request);
+        }
+
+        @Override
+        public Result search(final SearchRequest request, final Collection<? super SearchResultEntry> entries)
+                throws LdapException {
+            return checkState().search(request, entries);
+        }
+
+        @Override
+        public Result search(final SearchRequest request, final Collection<? super SearchResultEntry> entries,
+                final Collection<? super SearchResultReference> references) throws LdapException {
+            return checkState().search(request, entries, references);
+        }
+
+        @Override
+        public Result search(final SearchRequest request, final SearchResultHandler handler)
+                throws LdapException {
+            return checkState().search(request, handler);
+        }
+
+        @Override
+        public ConnectionEntryReader search(final String baseObject, final SearchScope scope, final String filter,
+                final String... attributeDescriptions) {
+            return checkState().search(baseObject, scope, filter, attributeDescriptions);
+        }
+
+        @Override
+        public LdapPromise<Result> searchAsync(SearchRequest request, SearchResultHandler resultHandler) {
+            return searchAsync(request, null, resultHandler);
+        }
+
+        @Override
+        public LdapPromise<Result> searchAsync(final SearchRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler, final SearchResultHandler entryHandler) {
+            return checkState().searchAsync(request, intermediateResponseHandler, entryHandler);
+        }
+
+        @Override
+        public SearchResultEntry searchSingleEntry(final SearchRequest request) throws LdapException {
+            return checkState().searchSingleEntry(request);
+        }
+
+        @Override
+        public SearchResultEntry searchSingleEntry(final String baseObject, final SearchScope scope,
+                final String filter, final String... attributeDescriptions) throws LdapException {
+            return checkState().searchSingleEntry(baseObject, scope, filter, attributeDescriptions);
+        }
+
+        @Override
+        public LdapPromise<SearchResultEntry> searchSingleEntryAsync(final SearchRequest request) {
+            return checkState().searchSingleEntryAsync(request);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append("PooledConnection(");
+            builder.append(connection);
+            builder.append(')');
+            return builder.toString();
+        }
+
+        /** Checks that this pooled connection has not been closed. */
+        private Connection checkState() {
+            if (isClosed()) {
+                throw new IllegalStateException();
+            }
+            return connection;
+        }
+    }
+
+    /** An idle connection, with the time at which it was last known to be usable. */
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long timestampMillis;
+
+        IdleConnection(final Connection connection, final long timestampMillis) {
+            this.connection = connection;
+            this.timestampMillis = timestampMillis;
+        }
+
+        boolean hasTimedOut(final long timeLimitMillis) {
+            return timestampMillis < timeLimitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(connection);
+        }
+    }
+
+    /** A pending connection request. */
+    private static final class Waiter {
+        private final PromiseImpl<Connection, LdapException> promise = PromiseImpl.create();
+        private final long timestampMillis;
+
+        Waiter(final long timestampMillis) {
+            this.timestampMillis = timestampMillis;
+        }
+    }
+
+    /** Accumulates the durations of events, in milli-seconds. */
+    private static final class DurationStatistic {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void add(final long durationMillis) {
+            final long duration = Math.max(durationMillis, 0);
+            count.incrementAndGet();
+            total.addAndGet(duration);
+            for (long current = max.get(); duration > current; current = max.get()) {
+                if (max.compareAndSet(current, duration)) {
+                    break;
+                }
+            }
+        }
+
+        long getAverage() {
+            final long n = count.get();
+            return n != 0 ? total.get() / n : 0;
+        }
+    }
+
+    /**
+     * Scheduled task responsible for purging non-core pooled connections which
+     * have been idle for longer than the idle timeout limit.
+     */
+    private final class PurgeIdleConnectionsTask implements Runnable {
+        @Override
+        public void run() {
+            if (isClosed.get()) {
+                return;
+            }
+
+            // The least recently used connections are at the bottom of the stack.
+            final long timeoutMillis = timeService.now() - idleTimeoutMillis;
+            int closedConnections = 0;
+            while (poolSize.get() > corePoolSize) {
+                final IdleConnection oldest = idleConnections.peekLast();
+                if (oldest == null || !oldest.hasTimedOut(timeoutMillis)) {
+                    break;
+                }
+                if (idleConnections.removeLastOccurrence(oldest)) {
+                    idleConnectionCount.decrementAndGet();
+                    discardConnection(oldest.connection);
+                    closedConnections++;
+                }
+            }
+
+            if (closedConnections > 0) {
+                logger.debug(LocalizableMessage.raw(
+                        "Closed %d idle pooled connections: poolSize=%d, maxPoolSize=%d",
+                        closedConnections, poolSize.get(), maxPoolSize));
+            }
+        }
+    }
+
+    private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+    /**
+     * This is package private in order to allow unit tests to inject fake time
+     * stamps.
+     */
+    TimeService timeService = TimeService.SYSTEM;
+
+    private final ResultHandler<Connection> connectionResultHandler = new ConnectionResultHandler();
+    private final ExceptionHandler<LdapException> connectionFailureHandler = new ConnectionFailureHandler();
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private final ConnectionFactory factory;
+    private final long idleTimeoutMillis;
+    private final long healthCheckIntervalMillis;
+    private final SearchRequest healthCheckRequest;
+    private final ScheduledFuture<?> idleTimeoutFuture;
+    private final ReferenceCountedObject<ScheduledExecutorService>.Reference scheduler;
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /** The idle connections, the most recently released first. */
+    private final ConcurrentLinkedDeque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    /** The pending connection requests, the oldest first. */
+    private final ConcurrentLinkedDeque<Waiter> waiters = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The number of connections which are idle, borrowed, or in the process of
+     * being established.
+     */
+    private final AtomicInteger poolSize = new AtomicInteger();
+    /** The number of new connections which are in the process of being established. */
+    private final AtomicInteger pendingConnectionAttempts = new AtomicInteger();
+    private final AtomicInteger idleConnectionCount = new AtomicInteger();
+    private final AtomicInteger borrowedConnectionCount = new AtomicInteger();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+    private final AtomicLong failedHealthChecks = new AtomicLong();
+    private final DurationStatistic waitTimes = new DurationStatistic();
+    private final DurationStatistic borrowTimes = new DurationStatistic();
+
+    ConcurrentConnectionPool(final ConnectionFactory factory, final int corePoolSize,
+            final int maximumPoolSize, final Options options) {
+        Reject.ifNull(factory, options);
+        Reject.ifFalse(corePoolSize >= 0, "corePoolSize < 0");
+        Reject.ifFalse(maximumPoolSize > 0, "maxPoolSize <= 0");
+        Reject.ifFalse(corePoolSize <= maximumPoolSize, "corePoolSize > maxPoolSize");
+
+        this.factory = factory;
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = maximumPoolSize;
+        this.idleTimeoutMillis = toMillis(options.get(Connections.CONNECTION_POOL_IDLE_TIMEOUT));
+        final Duration healthCheckInterval = options.get(Connections.CONNECTION_POOL_HEALTH_CHECK_INTERVAL);
+        this.healthCheckIntervalMillis =
+                healthCheckInterval.isUnlimited() ? Long.MAX_VALUE : toMillis(healthCheckInterval);
+        this.healthCheckRequest = options.get(Connections.CONNECTION_POOL_HEALTH_CHECK_REQUEST);
+        Reject.ifNull(healthCheckRequest);
+
+        if (corePoolSize < maximumPoolSize && idleTimeoutMillis > 0) {
+            // Dynamic pool.
+            this.scheduler = DEFAULT_SCHEDULER.acquireIfNull(options.get(Connections.CONNECTION_POOL_SCHEDULER));
+            this.idleTimeoutFuture = this.scheduler.get().scheduleWithFixedDelay(new PurgeIdleConnectionsTask(),
+                    idleTimeoutMillis, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        } else {
+            // Fixed pool.
+            this.scheduler = null;
+            this.idleTimeoutFuture = null;
+        }
+    }
+
+    private static long toMillis(final Duration duration) {
+        return duration.isUnlimited() ? 0L : duration.to(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+
+        logger.debug(LocalizableMessage.raw(
+                "Connection pool is closing: poolSize=%d, maxPoolSize=%d", poolSize.get(), maxPoolSize));
+
+        if (idleTimeoutFuture != null) {
+            idleTimeoutFuture.cancel(false);
+            scheduler.release();
+        }
+
+        // Close all idle connections and fail the pending requests.
+        closeIdleConnections();
+        for (Waiter waiter = pollWaiter(); waiter != null; waiter = pollWaiter()) {
+            waiter.promise.tryHandleException(newPoolClosingException());
+        }
+
+        // Close the underlying factory.
+        factory.close();
+    }
+
+    @Override
+    public Connection getConnection() throws LdapException {
+        try {
+            return getConnectionAsync().getOrThrow();
+        } catch (final InterruptedException e) {
+            throw newLdapException(ResultCode.CLIENT_SIDE_USER_CANCELLED, e);
+        }
+    }
+
+    @Override
+    public Promise<Connection, LdapException> getConnectionAsync() {
+        if (isClosed.get()) {
+            throw new IllegalStateException("ConcurrentConnectionPool is already closed");
+        }
+
+        final long now = timeService.now();
+        // Only take an idle connection when nobody is waiting, so that pending requests are served first.
+        if (waiterCount.get() == 0) {
+            for (IdleConnection idle = pollIdleConnection(); idle != null; idle = pollIdleConnection()) {
+                if (!idle.connection.isValid()) {
+                    // Close the stale connection and try again.
+                    discardConnection(idle.connection);
+                } else if (needsHealthCheck(idle, now)) {
+                    final Waiter waiter = new Waiter(now);
+                    checkHealthAndComplete(idle, waiter);
+                    return waiter.promise;
+                } else {
+                    waitTimes.add(0);
+                    borrowedConnectionCount.incrementAndGet();
+                    return newResultPromise((Connection) new PooledConnection(idle.connection, now));
+                }
+            }
+        }
+
+        final Waiter waiter = new Waiter(now);
+        addWaiter(waiter, false);
+        return waiter.promise;
+    }
+
+    /**
+     * Returns the number of connections of this pool, including the idle
+     * connections, the borrowed connections and the connections which are in
+     * the process of being established.
+     *
+     * @return The number of connections of this pool.
+     */
+    public int getPoolSize() {
+        return poolSize.get();
+    }
+
+    /**
+     * Returns the number of idle connections of this pool.
+     *
+     * @return The number of idle connections of this pool.
+     */
+    public int getIdleConnectionCount() {
+        return idleConnectionCount.get();
+    }
+
+    /**
+     * Returns the number of connections which are currently borrowed from this
+     * pool.
+     *
+     * @return The number of connections which are currently borrowed from this
+     *         pool.
+     */
+    public int getBorrowedConnectionCount() {
+        return borrowedConnectionCount.get();
+    }
+
+    /**
+     * Returns the number of connection requests which are waiting for a
+     * connection to become available.
+     *
+     * @return The number of connection requests which are waiting for a
+     *         connection to become available.
+     */
+    public int getPendingRequestCount() {
+        return waiterCount.get();
+    }
+
+    /**
+     * Returns the number of connections which have been obtained from this
+     * pool, whether they were immediately available or not.
+     *
+     * @return The number of connections which have been obtained from this
+     *         pool.
+     */
+    public long getAcquisitionCount() {
+        return waitTimes.count.get();
+    }
+
+    /**
+     * Returns the average time spent waiting for a connection, in
+     * milli-seconds.
+     *
+     * @return The average time spent waiting for a connection, in
+     *         milli-seconds.
+     */
+    public long getAverageWaitTimeMillis() {
+        return waitTimes.getAverage();
+    }
+
+    /**
+     * Returns the longest time spent waiting for a connection, in
+     * milli-seconds.
+     *
+     * @return The longest time spent waiting for a connection, in
+     *         milli-seconds.
+     */
+    public long getMaxWaitTimeMillis() {
+        return waitTimes.max.get();
+    }
+
+    /**
+     * Returns the number of connections which have been released back to this
+     * pool.
+     *
+     * @return The number of connections which have been released back to this
+     *         pool.
+     */
+    public long getReleaseCount() {
+        return borrowTimes.count.get();
+    }
+
+    /**
+     * Returns the average time during which a connection was borrowed from
+     * this pool before being released, in milli-seconds.
+     *
+     * @return The average time during which a connection was borrowed from
+     *         this pool, in milli-seconds.
+     */
+    public long getAverageBorrowTimeMillis() {
+        return borrowTimes.getAverage();
+    }
+
+    /**
+     * Returns the longest time during which a connection was borrowed from
+     * this pool before being released, in milli-seconds.
+     *
+     * @return The longest time during which a connection was borrowed from
+     *         this pool, in milli-seconds.
+     */
+    public long getMaxBorrowTimeMillis() {
+        return borrowTimes.max.get();
+    }
+
+    /**
+     * Returns the number of idle connections which have been closed because
+     * they failed a health check.
+     *
+     * @return The number of idle connections which have been closed because
+     *         they failed a health check.
+     */
+    public long getFailedHealthCheckCount() {
+        return failedHealthChecks.get();
+    }
+
+    @Override
+    public String toString() {
+        final int pending = pendingConnectionAttempts.get();
+        final int idle = idleConnectionCount.get();
+        final int borrowed = borrowedConnectionCount.get();
+        return String.format("ConcurrentConnectionPool(size=%d[idle:%d + borrowed:%d + pending:%d], "
+                + "maxSize=%d, waiting=%d, factory=%s)", poolSize.get(), idle, borrowed, pending,
+                maxPoolSize, waiterCount.get(), String.valueOf(factory));
+    }
+
+    /**
+     * Provide a finalizer because connection pools are expensive resources to
+     * accidentally leave around. Also, since they won't be created all that
+     * frequently, there's little risk of overloading the finalizer.
+     */
+    @Override
+    protected void finalize() throws Throwable {
+        close();
+    }
+
+    private void addWaiter(final Waiter waiter, final boolean first) {
+        if (first) {
+            waiters.offerFirst(waiter);
+        } else {
+            waiters.offerLast(waiter);
+        }
+        waiterCount.incrementAndGet();
+
+        /*
+         * A connection may have been released between the check for idle
+         * connections and the publication of the waiter: releasing threads
+         * publish the connection before looking for waiters, so one of them
+         * sees the other.
+         */
+        dispatchIdleConnections();
+        if (!waiters.isEmpty()) {
+            growPool();
+        }
+        if (isClosed.get() && waiters.remove(waiter)) {
+            waiterCount.decrementAndGet();
+            waiter.promise.tryHandleException(newPoolClosingException());
+        }
+    }
+
+    /** Hands out idle connections to the waiters, the oldest waiter first. */
+    private void dispatchIdleConnections() {
+        while (!waiters.isEmpty() && !idleConnections.isEmpty()) {
+            final IdleConnection idle = pollIdleConnection();
+            if (idle == null) {
+                return;
+            }
+            final Waiter waiter = pollWaiter();
+            if (waiter == null) {
+                // Another thread took the waiter, put back the connection on top of the stack.
+                pushIdleConnection(idle);
+                continue;
+            }
+
+            if (!idle.connection.isValid()) {
+                discardConnection(idle.connection);
+                addWaiter(waiter, true);
+            } else if (needsHealthCheck(idle, timeService.now())) {
+                checkHealthAndComplete(idle, waiter);
+            } else {
+                complete(waiter, idle.connection);
+            }
+        }
+    }
+
+    /**
+     * Checks that the provided idle connection is still usable by sending it
+     * the health check request, and hands it out to the waiter if it is.
+     * Otherwise the connection is closed, and the waiter is put back at the
+     * head of the queue.
+     */
+    private void checkHealthAndComplete(final IdleConnection idle, final Waiter waiter) {
+        idle.connection.searchAsync(healthCheckRequest, null, null)
+                .thenOnResult(new ResultHandler<Result>() {
+                    @Override
+                    public void handleResult(final Result result) {
+                        complete(waiter, idle.connection);
+                    }
+                })
+                .thenOnException(new ExceptionHandler<LdapException>() {
+                    @Override
+                    public void handleException(final LdapException exception) {
+                        failedHealthChecks.incrementAndGet();
+                        logger.debug(LocalizableMessage.raw(
+                                "Pooled connection failed its health check: poolSize=%d, maxPoolSize=%d",
+                                poolSize.get(), maxPoolSize, exception));
+                        discardConnection(idle.connection);
+                        addWaiter(waiter, true);
+                    }
+                });
+    }
+
+    private void complete(final Waiter waiter, final Connection connection) {
+        if (isClosed.get()) {
+            discardConnection(connection);
+            waiter.promise.tryHandleException(newPoolClosingException());
+            return;
+        }
+
+        final long now = timeService.now();
+        borrowedConnectionCount.incrementAndGet();
+        if (waiter.promise.tryHandleResult(new PooledConnection(connection, now))) {
+            waitTimes.add(now - waiter.timestampMillis);
+        } else {
+            // The request has been cancelled.
+            borrowedConnectionCount.decrementAndGet();
+            publishConnection(connection);
+        }
+    }
+
+    private void releaseConnection(final Connection connection, final long borrowTimestampMillis) {
+        borrowTimes.add(timeService.now() - borrowTimestampMillis);
+        borrowedConnectionCount.decrementAndGet();
+
+        // Don't put invalid connections back in the pool.
+        if (connection.isValid()) {
+            publishConnection(connection);
+        } else {
+            /*
+             * The connection may have been disconnected by the remote server,
+             * but the server may still be available. In order to avoid leaving
+             * pending requests hanging indefinitely, we should try to
+             * reconnect immediately.
+             */
+            discardConnection(connection);
+            if (!waiters.isEmpty()) {
+                growPool();
+            }
+        }
+    }
+
+    private void publishConnection(final Connection connection) {
+        if (isClosed.get()) {
+            discardConnection(connection);
+            return;
+        }
+        pushIdleConnection(new IdleConnection(connection, timeService.now()));
+        dispatchIdleConnections();
+        if (isClosed.get()) {
+            // The pool has been closed concurrently, make sure the connection does not stay idle.
+            closeIdleConnections();
+        }
+    }
+
+    /** Starts establishing a new connection, unless the pool has reached its maximum size. */
+    private void growPool() {
+        for (int size = poolSize.get(); size < maxPoolSize; size = poolSize.get()) {
+            if (poolSize.compareAndSet(size, size + 1)) {
+                pendingConnectionAttempts.incrementAndGet();
+                factory.getConnectionAsync().thenOnResult(connectionResultHandler)
+                                            .thenOnException(connectionFailureHandler);
+                return;
+            }
+        }
+    }
+
+    private void discardConnection(final Connection connection) {
+        connection.close();
+        poolSize.decrementAndGet();
+
+        logger.debug(LocalizableMessage.raw(
+                "Closed pooled connection: poolSize=%d, maxPoolSize=%d", poolSize.get(), maxPoolSize));
+    }
+
+    private void closeIdleConnections() {
+        for (IdleConnection idle = pollIdleConnection(); idle != null; idle = pollIdleConnection()) {
+            discardConnection(idle.connection);
+        }
+    }
+
+    private boolean needsHealthCheck(final IdleConnection idle, final long now) {
+        return now - idle.timestampMillis >= healthCheckIntervalMillis;
+    }
+
+    private LdapException newPoolClosingException() {
+        return newLdapException(ResultCode.CLIENT_SIDE_USER_CANCELLED,
+                ERR_CONNECTION_POOL_CLOSING.get(toString()).toString());
+    }
+
+    private void pushIdleConnection(final IdleConnection idle) {
+        idleConnections.offerFirst(idle);
+        idleConnectionCount.incrementAndGet();
+    }
+
+    private IdleConnection pollIdleConnection() {
+        final IdleConnection idle = idleConnections.pollFirst();
+        if (idle != null) {
+            idleConnectionCount.decrementAndGet();
+        }
+        return idle;
+    }
+
+    private Waiter pollWaiter() {
+        final Waiter waiter = waiters.pollFirst();
+        if (waiter != null) {
+            waiterCount.decrementAndGet();
+        }
+        return waiter;
+    }
+}
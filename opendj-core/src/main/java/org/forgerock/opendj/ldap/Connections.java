@@ -82,6 +82,43 @@ public final class Connections {
     public static final Option<ScheduledExecutorService> LOAD_BALANCER_SCHEDULER =
             Option.of(ScheduledExecutorService.class, null);
 
+    /**
+     * Specifies the time out period after which unused non-core connections of a concurrent connection pool are
+     * closed. The default configuration is to close connections which have not been used for sixty seconds. An
+     * unlimited duration means that idle connections are never closed.
+     *
+     * @see #newConcurrentConnectionPool(ConnectionFactory, int, int, Options)
+     */
+    public static final Option<Duration> CONNECTION_POOL_IDLE_TIMEOUT = Option.withDefault(duration("60 seconds"));
+
+    /**
+     * Specifies how long a connection of a concurrent connection pool may stay idle before it is checked again by
+     * sending it the {@link #CONNECTION_POOL_HEALTH_CHECK_REQUEST health check request} when it is handed out. The
+     * default configuration is to check connections which have been idle for more than ten seconds. An unlimited
+     * duration disables health checks.
+     *
+     * @see #newConcurrentConnectionPool(ConnectionFactory, int, int, Options)
+     */
+    public static final Option<Duration> CONNECTION_POOL_HEALTH_CHECK_INTERVAL =
+            Option.withDefault(duration("10 seconds"));
+
+    /**
+     * Specifies the search request which is sent to check the health of idle connections of a concurrent connection
+     * pool. The default health check request is a base object search against the root DSE requesting no attributes.
+     *
+     * @see #CONNECTION_POOL_HEALTH_CHECK_INTERVAL
+     */
+    public static final Option<SearchRequest> CONNECTION_POOL_HEALTH_CHECK_REQUEST =
+            Option.of(SearchRequest.class, Requests.unmodifiableSearchRequest(
+                    Requests.newSearchRequest("", SearchScope.BASE_OBJECT, "(objectClass=*)", "1.1")));
+
+    /**
+     * Specifies the scheduler which will be used for periodically closing the idle connections of a concurrent
+     * connection pool. A system-wide scheduler will be used by default.
+     */
+    public static final Option<ScheduledExecutorService> CONNECTION_POOL_SCHEDULER =
+            Option.of(ScheduledExecutorService.class, null);
+
     /**
      * Creates a new connection pool which creates new connections as needed
      * using the provided connection factory, but will reuse previously
@@ -251,6 +288,104 @@ public final class Connections {
         return new CachedConnectionPool(factory, poolSize, poolSize, 0L, null, null);
     }
 
+    /**
+     * Creates a new connection pool which creates new connections as needed
+     * using the provided connection factory, but will reuse previously
+     * allocated connections when they are available. Unlike the pools returned
+     * by {@link #newCachedConnectionPool(ConnectionFactory, int, int, long, TimeUnit)},
+     * this pool does not serialize the acquisition and the release of
+     * connections on a lock, and is intended for applications sharing a pool
+     * between many concurrent threads.
+     * <p>
+     * Attempts to use more than {@code maximumPoolSize} connections at once
+     * will block until a connection is released back to the pool. Pending
+     * connection requests are completed in the order in which they were made.
+     * <p>
+     * Connections which have not been used for the
+     * {@link #CONNECTION_POOL_IDLE_TIMEOUT idle timeout} period are closed and
+     * removed from the pool, until there are only {@code corePoolSize}
+     * connections remaining. Connections which have been idle for longer than
+     * the {@link #CONNECTION_POOL_HEALTH_CHECK_INTERVAL health check interval}
+     * are checked by sending them the
+     * {@link #CONNECTION_POOL_HEALTH_CHECK_REQUEST health check request} before
+     * being returned to the calling application, and are closed if the request
+     * fails. However, once a pooled connection has been obtained it is the
+     * responsibility of the calling application to handle subsequent
+     * connection failures, these being signaled via a
+     * {@link ConnectionException}.
+     * <p>
+     * The returned pool provides statistics about its size, the time spent
+     * waiting for connections and the time during which connections are
+     * borrowed.
+     *
+     * @param factory
+     *            The connection factory to use for creating new connections.
+     * @param corePoolSize
+     *            The minimum number of connections to keep in the pool, even if
+     *            they are idle.
+     * @param maximumPoolSize
+     *            The maximum number of connections to allow in the pool.
+     * @param options
+     *            The configuration options for the connection pool.
+     * @return The new connection pool.
+     * @throws IllegalArgumentException
+     *             If {@code corePoolSize} is negative, if
+     *             {@code maximumPoolSize} is less than or equal to zero, or if
+     *             {@code corePoolSize} is greater than {@code maximumPoolSize}.
+     * @throws NullPointerException
+     *             If {@code factory} or {@code options} was {@code null}.
+     * @see #CONNECTION_POOL_IDLE_TIMEOUT
+     * @see #CONNECTION_POOL_HEALTH_CHECK_INTERVAL
+     * @see #CONNECTION_POOL_HEALTH_CHECK_REQUEST
+     * @see #CONNECTION_POOL_SCHEDULER
+     */
+    public static ConcurrentConnectionPool newConcurrentConnectionPool(final ConnectionFactory factory,
+            final int corePoolSize, final int maximumPoolSize, final Options options) {
+        return new ConcurrentConnectionPool(factory, corePoolSize, maximumPoolSize, options);
+    }
+
+    /**
+     * Creates a new connection pool which leases the connections created using
+     * the provided connection factory per request rather than per client.
+     * <p>
+     * The connections obtained from this pool are lightweight and do not own
+     * a network connection: each request is sent on the shared connection which
+     * has the fewest outstanding requests, as long as it has less than
+     * {@code maxRequestsPerConnection} outstanding requests. Shared connections
+     * are only established when the existing ones are busy, up to
+     * {@code poolSize} connections. When all the shared connections have
+     * reached the limit, requests are queued and sent in order as soon as a
+     * shared connection completes a request. This allows a few connections to
+     * carry many concurrent asynchronous requests, for example in proxy-style
+     * applications.
+     * <p>
+     * Bind and StartTLS requests change the state of the connection on which
+     * they are sent: the first such request pins the pooled connection to a
+     * dedicated connection obtained from the provided connection factory, on
+     * which all its subsequent requests are sent. The dedicated connection is
+     * not shared and is closed when the pooled connection is closed. Abandon
+     * requests are ignored unless the pooled connection is pinned, because
+     * they cannot be routed to the shared connection of the abandoned request.
+     *
+     * @param factory
+     *            The connection factory to use for creating new connections.
+     * @param poolSize
+     *            The maximum number of shared connections.
+     * @param maxRequestsPerConnection
+     *            The maximum number of outstanding requests on each shared
+     *            connection.
+     * @return The new connection pool.
+     * @throws IllegalArgumentException
+     *             If {@code poolSize} or {@code maxRequestsPerConnection} is
+     *             less than or equal to zero.
+     * @throws NullPointerException
+     *             If {@code factory} was {@code null}.
+     */
+    public static ConnectionPool newMultiplexedConnectionPool(final ConnectionFactory factory, final int poolSize,
+            final int maxRequestsPerConnection) {
+        return new MultiplexedConnectionPool(factory, poolSize, maxRequestsPerConnection);
+    }
+
     /**
      * Creates a new internal client connection which will route requests to the
      * provided {@code RequestHandler}.
@@ -0,0 +1,609 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.forgerock.opendj.ldap.LdapException.newLdapException;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.asPromise;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newFailedLdapPromise;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newSuccessfulLdapPromise;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import static com.forgerock.opendj.ldap.CoreMessages.ERR_CONNECTION_POOL_CLOSING;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.forgerock.opendj.ldap.requests.AbandonRequest;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ExtendedRequest;
+import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.StartTLSExtendedRequest;
+import org.forgerock.opendj.ldap.requests.UnbindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.CompareResult;
+import org.forgerock.opendj.ldap.responses.ExtendedResult;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.spi.ConnectionState;
+import org.forgerock.opendj.ldap.spi.LdapPromiseImpl;
+import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.ExceptionHandler;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.ResultHandler;
+
+/**
+ * A connection pool which leases its connections per request rather than per
+ * client.
+ * <p>
+ * The connections returned by this pool are not bound to a network connection:
+ * each request is sent on the shared connection which has the fewest
+ * outstanding requests, as long as it has less than the maximum number of
+ * outstanding requests per connection. When all the shared connections have
+ * reached this limit, requests are queued and sent in order as soon as a
+ * shared connection completes a request. This allows a few connections to
+ * carry many concurrent asynchronous requests.
+ * <p>
+ * Bind and StartTLS requests change the state of the connection on which they
+ * are sent, so they cannot be sent on shared connections: the first such
+ * request pins the client connection to a dedicated connection obtained from
+ * the underlying factory, and all subsequent requests of the client connection
+ * are sent on it. The dedicated connection is closed when the client
+ * connection is closed.
+ * <p>
+ * The errors of a shared connection are reported to the event listeners of the
+ * client connections which have sent requests on it, which are then no longer
+ * valid.
+ */
+final class MultiplexedConnectionPool implements ConnectionPool {
+
+    /** A client connection, which routes its requests to the shared connections of the pool. */
+    private final class ConnectionImpl extends AbstractAsynchronousConnection implements ConnectionEventListener {
+        private final ConnectionState state = new ConnectionState();
+        /** The dedicated connection, once a request has pinned this connection. */
+        private final AtomicReference<Promise<Connection, LdapException>> pinnedConnection = new AtomicReference<>();
+
+        @Override
+        public String toString() {
+            return "MultiplexedConnectionPoolConnection";
+        }
+
+        @Override
+        public LdapPromise<Void> abandonAsync(final AbandonRequest request) {
+            final Promise<Connection, LdapException> pinned = pinnedConnection.get();
+            if (pinned == null) {
+                // We cannot possibly route these correctly, so just drop them.
+                return newSuccessfulLdapPromise(null);
+            }
+            return execute(new AsyncFunction<Connection, Void, LdapException>() {
+                @Override
+                public Promise<Void, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.abandonAsync(request);
+                }
+            }, false);
+        }
+
+        @Override
+        public LdapPromise<Result> addAsync(
+                final AddRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, Result, LdapException>() {
+                @Override
+                public Promise<Result, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.addAsync(request, intermediateResponseHandler);
+                }
+            }, false);
+        }
+
+        @Override
+        public void addConnectionEventListener(final ConnectionEventListener listener) {
+            state.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<BindResult> bindAsync(
+                final BindRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, BindResult, LdapException>() {
+                @Override
+                public Promise<BindResult, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.bindAsync(request, intermediateResponseHandler);
+                }
+            }, true);
+        }
+
+        @Override
+        public void close(final UnbindRequest request, final String reason) {
+            if (state.notifyConnectionClosed()) {
+                removeClient(this);
+                final Promise<Connection, LdapException> pinned = pinnedConnection.get();
+                if (pinned != null) {
+                    pinned.thenOnResult(new ResultHandler<Connection>() {
+                        @Override
+                        public void handleResult(final Connection connection) {
+                            connection.removeConnectionEventListener(ConnectionImpl.this);
+                            connection.close(request, reason);
+                        }
+                    });
+                }
+            }
+        }
+
+        @Override
+        public LdapPromise<CompareResult> compareAsync(
+                final CompareRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, CompareResult, LdapException>() {
+                @Override
+                public Promise<CompareResult, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.compareAsync(request, intermediateResponseHandler);
+                }
+            }, false);
+        }
+
+        @Override
+        public LdapPromise<Result> deleteAsync(
+                final DeleteRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, Result, LdapException>() {
+                @Override
+                public Promise<Result, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.deleteAsync(request, intermediateResponseHandler);
+                }
+            }, false);
+        }
+
+        @Override
+        public <R extends ExtendedResult> LdapPromise<R> extendedRequestAsync(
+                final ExtendedRequest<R> request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, R, LdapException>() {
+                @Override
+                public Promise<R, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.extendedRequestAsync(request, intermediateResponseHandler);
+                }
+            }, StartTLSExtendedRequest.OID.equals(request.getOID()));
+        }
+
+        @Override
+        public void handleConnectionClosed() {
+            // Nothing to do: the dedicated connection is only closed by this connection.
+        }
+
+        @Override
+        public void handleConnectionError(final boolean isDisconnectNotification, final LdapException error) {
+            state.notifyConnectionError(isDisconnectNotification, error);
+        }
+
+        @Override
+        public void handleUnsolicitedNotification(final ExtendedResult notification) {
+            state.notifyUnsolicitedNotification(notification);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return state.isClosed();
+        }
+
+        @Override
+        public boolean isValid() {
+            return state.isValid() && !isClosed.get();
+        }
+
+        @Override
+        public LdapPromise<Result> modifyAsync(
+                final ModifyRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, Result, LdapException>() {
+                @Override
+                public Promise<Result, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.modifyAsync(request, intermediateResponseHandler);
+                }
+            }, false);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyDNAsync(
+                final ModifyDNRequest request, final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new AsyncFunction<Connection, Result, LdapException>() {
+                @Override
+                public Promise<Result, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.modifyDNAsync(request, intermediateResponseHandler);
+                }
+            }, false);
+        }
+
+        @Override
+        public void removeConnectionEventListener(final ConnectionEventListener listener) {
+            state.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<Result> searchAsync(
+                final SearchRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler,
+                final SearchResultHandler entryHandler) {
+            return execute(new AsyncFunction<Connection, Result, LdapException>() {
+                @Override
+                public Promise<Result, LdapException> apply(final Connection connection) throws LdapException {
+                    return connection.searchAsync(request, intermediateResponseHandler, entryHandler);
+                }
+            }, false);
+        }
+
+        /**
+         * Sends a request on the dedicated connection of this connection if it
+         * is pinned, or on a shared connection otherwise.
+         */
+        private <R> LdapPromise<R> execute(final AsyncFunction<Connection, R, LdapException> requestSender,
+                final boolean pin) {
+            if (state.isClosed()) {
+                throw new IllegalStateException();
+            }
+            final Promise<Connection, LdapException> pinned = pin ? pin() : pinnedConnection.get();
+            if (pinned != null) {
+                return asPromise(pinned.thenAsync(requestSender));
+            }
+            return executeShared(this, requestSender);
+        }
+
+        private Promise<Connection, LdapException> pin() {
+            final Promise<Connection, LdapException> pinned = pinnedConnection.get();
+            if (pinned != null) {
+                return pinned;
+            }
+            final PromiseImpl<Connection, LdapException> promise = PromiseImpl.create();
+            if (!pinnedConnection.compareAndSet(null, promise)) {
+                return pinnedConnection.get();
+            }
+            factory.getConnectionAsync().thenOnResult(new ResultHandler<Connection>() {
+                @Override
+                public void handleResult(final Connection connection) {
+                    connection.addConnectionEventListener(ConnectionImpl.this);
+                    promise.handleResult(connection);
+                    if (state.isClosed()) {
+                        // This connection has been closed while the dedicated connection was being established.
+                        connection.removeConnectionEventListener(ConnectionImpl.this);
+                        connection.close();
+                    }
+                }
+            }).thenOnException(new ExceptionHandler<LdapException>() {
+                @Override
+                public void handleException(final LdapException exception) {
+                    state.notifyConnectionError(false, exception);
+                    promise.handleException(exception);
+                }
+            });
+            return promise;
+        }
+    }
+
+    /** A connection shared between the requests of all the clients of the pool. */
+    private final class SharedConnection implements ConnectionEventListener {
+        private final PromiseImpl<Connection, LdapException> connectionPromise = PromiseImpl.create();
+        /** The number of requests which have been sent, or are about to be sent, on this connection. */
+        private final AtomicInteger activeRequests;
+        /** The client connections which have sent requests on this connection, notified of its errors. */
+        private final Set<ConnectionImpl> clients =
+                Collections.newSetFromMap(new ConcurrentHashMap<ConnectionImpl, Boolean>());
+
+        SharedConnection(final int activeRequests) {
+            this.activeRequests = new AtomicInteger(activeRequests);
+        }
+
+        void connect() {
+            factory.getConnectionAsync().thenOnResult(new ResultHandler<Connection>() {
+                @Override
+                public void handleResult(final Connection connection) {
+                    connection.addConnectionEventListener(SharedConnection.this);
+                    connectionPromise.handleResult(connection);
+                    if (isClosed.get()) {
+                        connection.close();
+                    }
+                }
+            }).thenOnException(new ExceptionHandler<LdapException>() {
+                @Override
+                public void handleException(final LdapException exception) {
+                    connectionPromise.handleException(exception);
+                    handleConnectionError(false, exception);
+                }
+            });
+        }
+
+        @Override
+        public void handleConnectionClosed() {
+            // Nothing to do: shared connections are only closed by the pool.
+        }
+
+        @Override
+        public void handleConnectionError(final boolean isDisconnectNotification, final LdapException error) {
+            for (final ConnectionImpl client : clients) {
+                client.handleConnectionError(isDisconnectNotification, error);
+            }
+        }
+
+        @Override
+        public void handleUnsolicitedNotification(final ExtendedResult notification) {
+            for (final ConnectionImpl client : clients) {
+                client.handleUnsolicitedNotification(notification);
+            }
+        }
+
+        boolean tryAcquire() {
+            for (int active = activeRequests.get(); active < maxRequestsPerConnection; active = activeRequests.get()) {
+                if (activeRequests.compareAndSet(active, active + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns {@code true} if the connection could not be established or is no longer usable. */
+        boolean isStale() {
+            if (!connectionPromise.isDone()) {
+                return false;
+            }
+            try {
+                return !connectionPromise.getOrThrowUninterruptibly().isValid();
+            } catch (final LdapException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            connectionPromise.thenOnResult(new ResultHandler<Connection>() {
+                @Override
+                public void handleResult(final Connection connection) {
+                    connection.close();
+                }
+            });
+        }
+    }
+
+    /** A request waiting for a shared connection to complete one of its requests. */
+    private final class PendingRequest<R> {
+        private final ConnectionImpl client;
+        private final AsyncFunction<Connection, R, LdapException> requestSender;
+        private final LdapPromiseImpl<R> promise = LdapPromiseImpl.newLdapPromiseImpl();
+
+        PendingRequest(final ConnectionImpl client, final AsyncFunction<Connection, R, LdapException> requestSender) {
+            this.client = client;
+            this.requestSender = requestSender;
+        }
+
+        void send(final SharedConnection sharedConnection) {
+            MultiplexedConnectionPool.this.send(sharedConnection, client, requestSender)
+                    .thenOnResult(promise)
+                    .thenOnException(promise);
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final int poolSize;
+    private final int maxRequestsPerConnection;
+    private final AtomicReferenceArray<SharedConnection> sharedConnections;
+    private final ConcurrentLinkedQueue<PendingRequest<?>> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingRequestCount = new AtomicInteger();
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    MultiplexedConnectionPool(final ConnectionFactory factory, final int poolSize,
+            final int maxRequestsPerConnection) {
+        Reject.ifNull(factory);
+        Reject.ifFalse(poolSize > 0, "poolSize <= 0");
+        Reject.ifFalse(maxRequestsPerConnection > 0, "maxRequestsPerConnection <= 0");
+
+        this.factory = factory;
+        this.poolSize = poolSize;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        this.sharedConnections = new AtomicReferenceArray<>(poolSize);
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+
+        for (int i = 0; i < poolSize; i++) {
+            final SharedConnection sharedConnection = sharedConnections.getAndSet(i, null);
+            if (sharedConnection != null) {
+                sharedConnection.close();
+            }
+        }
+        for (PendingRequest<?> pending = pollPendingRequest(); pending != null; pending = pollPendingRequest()) {
+            pending.promise.handleException(newPoolClosingException());
+        }
+
+        // Close the underlying factory.
+        factory.close();
+    }
+
+    @Override
+    public Connection getConnection() throws LdapException {
+        if (isClosed.get()) {
+            throw new IllegalStateException("MultiplexedConnectionPool is already closed");
+        }
+        return new ConnectionImpl();
+    }
+
+    @Override
+    public Promise<Connection, LdapException> getConnectionAsync() {
+        if (isClosed.get()) {
+            throw new IllegalStateException("MultiplexedConnectionPool is already closed");
+        }
+        return newResultPromise((Connection) new ConnectionImpl());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("MultiplexedConnectionPool(activeRequests=[");
+        for (int i = 0; i < poolSize; i++) {
+            final SharedConnection sharedConnection = sharedConnections.get(i);
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(sharedConnection != null ? sharedConnection.activeRequests.get() : 0);
+        }
+        builder.append("], maxRequestsPerConnection=").append(maxRequestsPerConnection);
+        builder.append(", pending=").append(pendingRequestCount.get());
+        builder.append(", factory=").append(factory).append(')');
+        return builder.toString();
+    }
+
+    /** Package private for unit testing. */
+    int getActiveRequests(final int index) {
+        final SharedConnection sharedConnection = sharedConnections.get(index);
+        return sharedConnection != null ? sharedConnection.activeRequests.get() : 0;
+    }
+
+    /** Package private for unit testing. */
+    int getPendingRequestCount() {
+        return pendingRequestCount.get();
+    }
+
+    private <R> LdapPromise<R> executeShared(final ConnectionImpl client,
+            final AsyncFunction<Connection, R, LdapException> requestSender) {
+        if (isClosed.get()) {
+            return newFailedLdapPromise(newPoolClosingException());
+        }
+
+        // Requests already waiting must be sent first.
+        if (pendingRequests.isEmpty()) {
+            final SharedConnection sharedConnection = acquireSharedConnection();
+            if (sharedConnection != null) {
+                return asPromise(send(sharedConnection, client, requestSender));
+            }
+        }
+
+        // All the shared connections have reached the limit, wait for one of them to complete a request.
+        final PendingRequest<R> pending = new PendingRequest<>(client, requestSender);
+        pendingRequests.offer(pending);
+        pendingRequestCount.incrementAndGet();
+        dispatchPendingRequests();
+        return pending.promise;
+    }
+
+    /**
+     * Returns the shared connection with the fewest active requests after
+     * having reserved a request slot on it, or {@code null} if all the shared
+     * connections have reached the maximum number of active requests. New
+     * shared connections are only established when all the existing ones are
+     * busy.
+     */
+    private SharedConnection acquireSharedConnection() {
+        for (;;) {
+            SharedConnection leastActive = null;
+            int leastActiveRequests = Integer.MAX_VALUE;
+            int freeIndex = -1;
+            for (int i = 0; i < poolSize; i++) {
+                SharedConnection sharedConnection = sharedConnections.get(i);
+                if (sharedConnection != null && sharedConnection.isStale()
+                        && sharedConnections.compareAndSet(i, sharedConnection, null)) {
+                    sharedConnection.close();
+                    sharedConnection = null;
+                }
+                if (sharedConnection == null) {
+                    if (freeIndex < 0) {
+                        freeIndex = i;
+                    }
+                } else {
+                    final int activeRequests = sharedConnection.activeRequests.get();
+                    if (activeRequests < leastActiveRequests) {
+                        leastActive = sharedConnection;
+                        leastActiveRequests = activeRequests;
+                    }
+                }
+            }
+
+            if (freeIndex >= 0 && leastActiveRequests > 0) {
+                final SharedConnection newConnection = new SharedConnection(1);
+                if (sharedConnections.compareAndSet(freeIndex, null, newConnection)) {
+                    if (isClosed.get()) {
+                        sharedConnections.compareAndSet(freeIndex, newConnection, null);
+                        return null;
+                    }
+                    newConnection.connect();
+                    return newConnection;
+                }
+            } else if (leastActive == null || leastActiveRequests >= maxRequestsPerConnection) {
+                return null;
+            } else if (leastActive.tryAcquire()) {
+                return leastActive;
+            }
+            // Lost a race with another thread, try again.
+        }
+    }
+
+    private <R> Promise<R, LdapException> send(final SharedConnection sharedConnection, final ConnectionImpl client,
+            final AsyncFunction<Connection, R, LdapException> requestSender) {
+        sharedConnection.clients.add(client);
+        return sharedConnection.connectionPromise.thenAsync(requestSender).thenFinally(new Runnable() {
+            @Override
+            public void run() {
+                sharedConnection.activeRequests.decrementAndGet();
+                dispatchPendingRequests();
+            }
+        });
+    }
+
+    /**
+     * Sends the pending requests, in order, as long as a shared connection can
+     * accept them. Threads queuing a request and threads completing a request
+     * both call this method, so that no request is left waiting.
+     */
+    private void dispatchPendingRequests() {
+        while (!pendingRequests.isEmpty()) {
+            final SharedConnection sharedConnection = acquireSharedConnection();
+            if (sharedConnection == null) {
+                return;
+            }
+            final PendingRequest<?> pending = pollPendingRequest();
+            if (pending == null) {
+                sharedConnection.activeRequests.decrementAndGet();
+                return;
+            }
+            pending.send(sharedConnection);
+        }
+    }
+
+    /** Stops notifying a closed client connection of the errors of the shared connections. */
+    private void removeClient(final ConnectionImpl client) {
+        for (int i = 0; i < poolSize; i++) {
+            final SharedConnection sharedConnection = sharedConnections.get(i);
+            if (sharedConnection != null) {
+                sharedConnection.clients.remove(client);
+            }
+        }
+    }
+
+    private PendingRequest<?> pollPendingRequest() {
+        final PendingRequest<?> pending = pendingRequests.poll();
+        if (pending != null) {
+            pendingRequestCount.decrementAndGet();
+        }
+        return pending;
+    }
+
+    private LdapException newPoolClosingException() {
+        return newLdapException(ResultCode.CLIENT_SIDE_USER_CANCELLED,
+                ERR_CONNECTION_POOL_CLOSING.get(toString()).toString());
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.Connections.*;
+import static org.forgerock.opendj.ldap.LdapException.*;
+import static org.forgerock.opendj.ldap.TestCaseUtils.*;
+import static org.forgerock.util.Options.defaultOptions;
+import static org.forgerock.util.time.Duration.duration;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.Requests;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.responses.Responses;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.spi.LdapPromises;
+import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.time.Duration;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the concurrent connection pool implementation.
+ */
+@SuppressWarnings("javadoc")
+public class ConcurrentConnectionPoolTestCase extends SdkTestCase {
+
+    private static final Options NO_HEALTH_CHECK =
+            defaultOptions().set(CONNECTION_POOL_HEALTH_CHECK_INTERVAL, Duration.UNLIMITED);
+
+    @Test
+    public void testConnectionLifeCycle() throws Exception {
+        final BindRequest bind1 = Requests.newSimpleBindRequest("cn=test1", "password".toCharArray());
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.bind(bind1)).thenReturn(Responses.newBindResult(ResultCode.SUCCESS));
+        when(connection1.isValid()).thenReturn(true);
+
+        final BindRequest bind2 = Requests.newSimpleBindRequest("cn=test2", "password".toCharArray());
+        final Connection connection2 = mock(Connection.class);
+        when(connection2.bind(bind2)).thenReturn(Responses.newBindResult(ResultCode.SUCCESS));
+        when(connection2.isValid()).thenReturn(true);
+
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final ConcurrentConnectionPool pool = newConcurrentConnectionPool(factory, 2, 2, NO_HEALTH_CHECK);
+        verifyZeroInteractions(factory);
+
+        final Connection pc1 = pool.getConnection();
+        assertThat(pc1.bind(bind1).getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        final Connection pc2 = pool.getConnection();
+        assertThat(pc2.bind(bind2).getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        verify(factory, times(2)).getConnection();
+        assertThat(pool.getPoolSize()).isEqualTo(2);
+        assertThat(pool.getBorrowedConnectionCount()).isEqualTo(2);
+
+        // Release pooled connections (should not close underlying connection).
+        pc1.close();
+        assertThat(pc1.isValid()).isFalse();
+        assertThat(pc1.isClosed()).isTrue();
+        pc2.close();
+        verify(connection1, times(0)).close();
+        verify(connection2, times(0)).close();
+        assertThat(pool.getIdleConnectionCount()).isEqualTo(2);
+        assertThat(pool.getBorrowedConnectionCount()).isEqualTo(0);
+
+        // The most recently released connection is reused first.
+        final Connection pc3 = pool.getConnection();
+        pc3.bind(bind2);
+        verify(connection2, times(2)).bind(bind2);
+        pc3.close();
+
+        // Close the pool (should close underlying connections).
+        pool.close();
+        verify(connection1).close();
+        verify(connection2).close();
+        assertThat(pool.getPoolSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPendingRequestsAreCompletedInOrder() throws Exception {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        final ConcurrentConnectionPool pool =
+                newConcurrentConnectionPool(mockConnectionFactory(connection), 1, 1, NO_HEALTH_CHECK);
+
+        final Connection pc1 = pool.getConnection();
+        final Promise<? extends Connection, LdapException> promise1 = pool.getConnectionAsync();
+        final Promise<? extends Connection, LdapException> promise2 = pool.getConnectionAsync();
+        assertThat(promise1.isDone()).isFalse();
+        assertThat(promise2.isDone()).isFalse();
+        assertThat(pool.getPendingRequestCount()).isEqualTo(2);
+
+        pc1.close();
+        assertThat(promise1.isDone()).isTrue();
+        assertThat(promise2.isDone()).isFalse();
+
+        // A new request must not overtake the pending one.
+        final Promise<? extends Connection, LdapException> promise3 = pool.getConnectionAsync();
+        promise1.get().close();
+        assertThat(promise2.isDone()).isTrue();
+        assertThat(promise3.isDone()).isFalse();
+
+        promise2.get().close();
+        assertThat(promise3.isDone()).isTrue();
+        promise3.get().close();
+        assertThat(pool.getPendingRequestCount()).isEqualTo(0);
+        pool.close();
+    }
+
+    @Test
+    public void testSkipStaleConnectionsOnGet() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        final Connection connection2 = mock(Connection.class);
+        when(connection2.isValid()).thenReturn(true);
+
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final ConcurrentConnectionPool pool = newConcurrentConnectionPool(factory, 2, 2, NO_HEALTH_CHECK);
+
+        pool.getConnection().close();
+
+        // Simulate remote disconnect of connection1.
+        when(connection1.isValid()).thenReturn(false);
+        final Connection pc = pool.getConnection();
+        assertThat(pc.isValid()).isTrue();
+        verify(connection1).close();
+        verify(factory, times(2)).getConnection();
+        assertThat(pool.getPoolSize()).isEqualTo(1);
+
+        pc.close();
+        pool.close();
+    }
+
+    @Test
+    public void testIdleConnectionsAreHealthChecked() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        when(connection1.searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class))).thenReturn(
+                        LdapPromises.<Result, LdapException> newFailedLdapPromise(
+                                newLdapException(ResultCode.CLIENT_SIDE_SERVER_DOWN)));
+        final Connection connection2 = mock(Connection.class);
+        when(connection2.isValid()).thenReturn(true);
+
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final Options options = defaultOptions().set(CONNECTION_POOL_HEALTH_CHECK_INTERVAL, duration("100 ms"));
+        final ConcurrentConnectionPool pool = newConcurrentConnectionPool(factory, 1, 1, options);
+        pool.timeService = mockTimeService(0);
+
+        // connection1 has been recently used and is not checked.
+        pool.getConnection().close();
+        when(pool.timeService.now()).thenReturn(50L);
+        pool.getConnection().close();
+        verify(connection1, times(0)).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+
+        // connection1 has been idle for too long: it fails its health check and is replaced by connection2.
+        when(pool.timeService.now()).thenReturn(200L);
+        final Connection pc = pool.getConnection();
+        verify(connection1).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+        verify(connection1).close();
+        verify(factory, times(2)).getConnection();
+        verify(connection2, times(0)).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+        assertThat(pool.getFailedHealthCheckCount()).isEqualTo(1);
+        assertThat(pool.getPoolSize()).isEqualTo(1);
+
+        pc.close();
+        pool.close();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        final ConcurrentConnectionPool pool =
+                newConcurrentConnectionPool(mockConnectionFactory(connection), 1, 1, NO_HEALTH_CHECK);
+        pool.timeService = mockTimeService(0);
+
+        final Connection pc1 = pool.getConnection();
+        final Promise<? extends Connection, LdapException> promise = pool.getConnectionAsync();
+        assertThat(pool.getPendingRequestCount()).isEqualTo(1);
+        assertThat(pool.getBorrowedConnectionCount()).isEqualTo(1);
+
+        when(pool.timeService.now()).thenReturn(30L);
+        pc1.close();
+        when(pool.timeService.now()).thenReturn(100L);
+        promise.get().close();
+
+        assertThat(pool.getAcquisitionCount()).isEqualTo(2);
+        assertThat(pool.getAverageWaitTimeMillis()).isEqualTo(15);
+        assertThat(pool.getMaxWaitTimeMillis()).isEqualTo(30);
+        assertThat(pool.getReleaseCount()).isEqualTo(2);
+        assertThat(pool.getAverageBorrowTimeMillis()).isEqualTo(50);
+        assertThat(pool.getMaxBorrowTimeMillis()).isEqualTo(70);
+        assertThat(pool.getPoolSize()).isEqualTo(1);
+        assertThat(pool.getIdleConnectionCount()).isEqualTo(1);
+        assertThat(pool.getBorrowedConnectionCount()).isEqualTo(0);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(0);
+        pool.close();
+    }
+
+    @Test
+    public void testConnectionKeepAliveExpiration() throws Exception {
+        final Connection connection1 = mock(Connection.class, "connection1");
+        final Connection connection2 = mock(Connection.class, "connection2");
+        final Connection connection3 = mock(Connection.class, "connection3");
+        when(connection1.isValid()).thenReturn(true);
+        when(connection2.isValid()).thenReturn(true);
+        when(connection3.isValid()).thenReturn(true);
+
+        final MockScheduler scheduler = new MockScheduler();
+        final Options options = defaultOptions().set(CONNECTION_POOL_HEALTH_CHECK_INTERVAL, Duration.UNLIMITED)
+                                                .set(CONNECTION_POOL_IDLE_TIMEOUT, duration("100 ms"))
+                                                .set(CONNECTION_POOL_SCHEDULER, scheduler);
+        final ConcurrentConnectionPool pool = newConcurrentConnectionPool(
+                mockConnectionFactory(connection1, connection2, connection3), 1, 3, options);
+        assertThat(scheduler.isScheduled()).isTrue();
+        pool.timeService = mockTimeService(0);
+
+        final Connection c1 = pool.getConnection();
+        final Connection c2 = pool.getConnection();
+        final Connection c3 = pool.getConnection();
+        c1.close();
+        when(pool.timeService.now()).thenReturn(50L);
+        c2.close();
+        c3.close();
+        assertThat(pool.getPoolSize()).isEqualTo(3);
+
+        // Only connection1 has been idle for more than 100ms at time 120.
+        when(pool.timeService.now()).thenReturn(120L);
+        scheduler.runFirstTask();
+        assertThat(pool.getPoolSize()).isEqualTo(2);
+        verify(connection1).close();
+
+        // The core connection is kept.
+        when(pool.timeService.now()).thenReturn(500L);
+        scheduler.runFirstTask();
+        assertThat(pool.getPoolSize()).isEqualTo(1);
+        verify(connection2).close();
+        verify(connection3, times(0)).close();
+
+        pool.close();
+        verify(connection3).close();
+        assertThat(scheduler.isScheduled()).isFalse();
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Test(timeOut = 10000)
+    public void testNewConnectionFailureFlushesAllPendingPromises() throws Exception {
+        final ConnectionFactory factory = mock(ConnectionFactory.class);
+        final int poolSize = 2;
+        final ConnectionPool pool = newConcurrentConnectionPool(factory, poolSize, poolSize, NO_HEALTH_CHECK);
+        final List<PromiseImpl> attempts = new ArrayList<>();
+        doAnswer(new Answer<Promise<Connection, LdapException>>() {
+            @Override
+            public Promise<Connection, LdapException> answer(final InvocationOnMock invocation) throws Throwable {
+                final PromiseImpl<Connection, LdapException> attempt = PromiseImpl.create();
+                attempts.add(attempt);
+                return attempt;
+            }
+        }).when(factory).getConnectionAsync();
+
+        final List<Promise<? extends Connection, LdapException>> promises = new ArrayList<>();
+        for (int i = 0; i < poolSize + 1; i++) {
+            promises.add(pool.getConnectionAsync());
+        }
+        verify(factory, times(poolSize)).getConnectionAsync();
+
+        final LdapException connectError = newLdapException(ResultCode.CLIENT_SIDE_CONNECT_ERROR);
+        attempts.get(0).handleException(connectError);
+        for (Promise<? extends Connection, LdapException> promise : promises) {
+            try {
+                promise.getOrThrow();
+                Assert.fail("Expected an exception to be thrown");
+            } catch (LdapException e) {
+                assertThat(e).isSameAs(connectError);
+            }
+        }
+        pool.close();
+    }
+
+    @Test(timeOut = 60000)
+    public void testConcurrentAcquisitions() throws Exception {
+        final Connection[] connections = new Connection[4];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = mock(Connection.class);
+            when(connections[i].isValid()).thenReturn(true);
+        }
+        final ConnectionFactory factory = mockConnectionFactory(connections[0], connections[1], connections[2],
+                connections[3]);
+        final ConcurrentConnectionPool pool =
+                newConcurrentConnectionPool(factory, 0, connections.length, NO_HEALTH_CHECK);
+
+        final int nbThreads = 16;
+        final int nbIterations = 1000;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < nbThreads; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < nbIterations; j++) {
+                            final Connection connection = pool.getConnection();
+                            assertThat(connection.isValid()).isTrue();
+                            connection.close();
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(error.get()).isNull();
+        assertThat(pool.getAcquisitionCount()).isEqualTo(nbThreads * nbIterations);
+        assertThat(pool.getPoolSize()).isLessThanOrEqualTo(connections.length);
+        assertThat(pool.getIdleConnectionCount()).isEqualTo(pool.getPoolSize());
+        assertThat(pool.getBorrowedConnectionCount()).isEqualTo(0);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(0);
+        verify(factory, atMost(connections.length)).getConnection();
+        pool.close();
+    }
+}
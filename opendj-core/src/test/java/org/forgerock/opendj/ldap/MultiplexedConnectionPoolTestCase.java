@@ -0,0 +1,257 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.Connections.*;
+import static org.forgerock.opendj.ldap.LdapException.*;
+import static org.forgerock.opendj.ldap.TestCaseUtils.*;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.Requests;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.UnbindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.Responses;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.spi.LdapPromiseImpl;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the multiplexed connection pool implementation.
+ */
+@SuppressWarnings("javadoc")
+public class MultiplexedConnectionPoolTestCase extends SdkTestCase {
+
+    private static final SearchRequest SEARCH =
+            Requests.newSearchRequest("dc=example,dc=com", SearchScope.BASE_OBJECT, "(objectClass=*)");
+
+    @Test
+    public void testRequestsAreSpreadByActiveRequests() throws Exception {
+        final List<LdapPromiseImpl<Result>> searches1 = new ArrayList<>();
+        final List<LdapPromiseImpl<Result>> searches2 = new ArrayList<>();
+        final Connection connection1 = mockPendingSearches(searches1);
+        final Connection connection2 = mockPendingSearches(searches2);
+        final MultiplexedConnectionPool pool =
+                (MultiplexedConnectionPool) newMultiplexedConnectionPool(
+                        mockConnectionFactory(connection1, connection2), 2, 2);
+
+        final Connection client1 = pool.getConnection();
+        final Connection client2 = pool.getConnection();
+        final LdapPromise<Result> result1 = client1.searchAsync(SEARCH, null);
+        final LdapPromise<Result> result2 = client2.searchAsync(SEARCH, null);
+        client1.searchAsync(SEARCH, null);
+        client2.searchAsync(SEARCH, null);
+        assertThat(searches1).hasSize(2);
+        assertThat(searches2).hasSize(2);
+        assertThat(pool.getActiveRequests(0)).isEqualTo(2);
+        assertThat(pool.getActiveRequests(1)).isEqualTo(2);
+
+        // Both connections are at the limit, so the next request waits for a request to complete.
+        final LdapPromise<Result> result5 = client1.searchAsync(SEARCH, null);
+        assertThat(result5.isDone()).isFalse();
+        assertThat(pool.getPendingRequestCount()).isEqualTo(1);
+
+        searches2.get(0).handleResult(Responses.newResult(ResultCode.SUCCESS));
+        assertThat(result2.isDone()).isTrue();
+        assertThat(result1.isDone()).isFalse();
+        assertThat(searches2).hasSize(3);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(0);
+
+        searches2.get(2).handleResult(Responses.newResult(ResultCode.SUCCESS));
+        assertThat(result5.get().getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        assertThat(pool.getActiveRequests(1)).isEqualTo(1);
+
+        client1.close();
+        client2.close();
+        verify(connection1, times(0)).close();
+        verify(connection2, times(0)).close();
+        pool.close();
+        verify(connection1).close();
+        verify(connection2).close();
+    }
+
+    @Test
+    public void testSharedConnectionsAreOnlyAddedWhenBusy() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        when(connection1.searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class))).thenReturn(
+                        newSuccessfulLdapPromise(Responses.newResult(ResultCode.SUCCESS)));
+        final ConnectionFactory factory = mockConnectionFactory(connection1);
+        final ConnectionPool pool = newMultiplexedConnectionPool(factory, 4, 10);
+
+        final Connection client = pool.getConnection();
+        for (int i = 0; i < 10; i++) {
+            client.search(SEARCH, new ArrayList<SearchResultEntry>());
+        }
+        verify(factory, times(1)).getConnectionAsync();
+        verify(connection1, times(10)).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+        client.close();
+        pool.close();
+    }
+
+    @Test
+    public void testBindPinsConnection() throws Exception {
+        final Connection shared = mock(Connection.class);
+        when(shared.isValid()).thenReturn(true);
+        when(shared.searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class))).thenReturn(
+                        newSuccessfulLdapPromise(Responses.newResult(ResultCode.SUCCESS)));
+        final BindRequest bind = Requests.newSimpleBindRequest("cn=test", "password".toCharArray());
+        final Connection dedicated = mock(Connection.class);
+        when(dedicated.isValid()).thenReturn(true);
+        when(dedicated.bindAsync(eq(bind), any(IntermediateResponseHandler.class))).thenReturn(
+                newSuccessfulLdapPromise(Responses.newBindResult(ResultCode.SUCCESS)));
+        when(dedicated.searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class))).thenReturn(
+                        newSuccessfulLdapPromise(Responses.newResult(ResultCode.SUCCESS)));
+        final ConnectionPool pool = newMultiplexedConnectionPool(mockConnectionFactory(shared, dedicated), 1, 10);
+
+        final Connection client = pool.getConnection();
+        client.search(SEARCH, new ArrayList<SearchResultEntry>());
+        verify(shared).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+
+        // The bind and all the subsequent requests are sent on the dedicated connection.
+        final BindResult result = client.bind(bind);
+        assertThat(result.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        client.search(SEARCH, new ArrayList<SearchResultEntry>());
+        verify(dedicated).bindAsync(eq(bind), any(IntermediateResponseHandler.class));
+        verify(dedicated).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+        verify(shared, times(0)).bindAsync(any(BindRequest.class), any(IntermediateResponseHandler.class));
+        verify(shared, times(1)).searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class));
+
+        // The dedicated connection is closed with the pooled connection, not the shared one.
+        client.close();
+        verify(dedicated).close(any(UnbindRequest.class), anyString());
+        verify(shared, times(0)).close();
+        pool.close();
+    }
+
+    @Test
+    public void testCloseFailsPendingRequests() throws Exception {
+        final List<LdapPromiseImpl<Result>> searches = new ArrayList<>();
+        final Connection connection = mockPendingSearches(searches);
+        final ConnectionPool pool = newMultiplexedConnectionPool(mockConnectionFactory(connection), 1, 1);
+
+        final Connection client = pool.getConnection();
+        client.searchAsync(SEARCH, null);
+        final LdapPromise<Result> pending = client.searchAsync(SEARCH, null);
+        assertThat(searches).hasSize(1);
+        assertThat(pending.isDone()).isFalse();
+
+        pool.close();
+        verify(connection).close();
+        try {
+            pending.getOrThrow();
+            Assert.fail("Expected an exception to be thrown");
+        } catch (LdapException e) {
+            assertThat(e.getResult().getResultCode()).isEqualTo(ResultCode.CLIENT_SIDE_USER_CANCELLED);
+        }
+    }
+
+    @Test
+    public void testQueuedRequestsAreNotOvertaken() throws Exception {
+        final List<LdapPromiseImpl<Result>> searches1 = new ArrayList<>();
+        final List<LdapPromiseImpl<Result>> searches2 = new ArrayList<>();
+        final Connection connection1 = mockPendingSearches(searches1);
+        final Connection connection2 = mockPendingSearches(searches2);
+        final MultiplexedConnectionPool pool =
+                (MultiplexedConnectionPool) newMultiplexedConnectionPool(
+                        mockConnectionFactory(connection1, connection2), 1, 1);
+
+        final Connection client = pool.getConnection();
+        client.searchAsync(SEARCH, null);
+        final LdapPromise<Result> queued = client.searchAsync(SEARCH, null);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(1);
+
+        // The stale shared connection is replaced, but the queued request is sent before the new one.
+        when(connection1.isValid()).thenReturn(false);
+        final LdapPromise<Result> last = client.searchAsync(SEARCH, null);
+        assertThat(searches2).hasSize(1);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(1);
+
+        searches2.get(0).handleResult(Responses.newResult(ResultCode.SUCCESS));
+        assertThat(queued.isDone()).isTrue();
+        assertThat(last.isDone()).isFalse();
+        assertThat(searches2).hasSize(2);
+        assertThat(pool.getPendingRequestCount()).isEqualTo(0);
+
+        client.close();
+        pool.close();
+    }
+
+    @Test
+    public void testSharedConnectionErrorsAreReportedToClients() throws Exception {
+        final List<ConnectionEventListener> listeners = new ArrayList<>();
+        final Connection connection = mockPendingSearches(new ArrayList<LdapPromiseImpl<Result>>(), listeners);
+        final ConnectionPool pool = newMultiplexedConnectionPool(mockConnectionFactory(connection), 1, 10);
+
+        final Connection client = pool.getConnection();
+        final Connection idleClient = pool.getConnection();
+        final ConnectionEventListener clientListener = mock(ConnectionEventListener.class);
+        client.addConnectionEventListener(clientListener);
+        client.searchAsync(SEARCH, null);
+        assertThat(listeners).hasSize(1);
+
+        final LdapException error = newLdapException(ResultCode.CLIENT_SIDE_SERVER_DOWN);
+        listeners.get(0).handleConnectionError(false, error);
+        verify(clientListener).handleConnectionError(false, error);
+        assertThat(client.isValid()).isFalse();
+        // Only the clients which have sent requests on the failed connection are notified.
+        assertThat(idleClient.isValid()).isTrue();
+
+        client.close();
+        idleClient.close();
+        pool.close();
+    }
+
+    /** Returns a connection whose searches complete when the promises added to the provided list complete. */
+    private static Connection mockPendingSearches(final List<LdapPromiseImpl<Result>> searches) {
+        return mockPendingSearches(searches, new ArrayList<ConnectionEventListener>());
+    }
+
+    /** As {@link #mockPendingSearches(List)}, also storing the connection event listeners in the provided list. */
+    private static Connection mockPendingSearches(final List<LdapPromiseImpl<Result>> searches,
+            final List<ConnectionEventListener> listeners) {
+        final Connection connection = mockConnection(listeners);
+        when(connection.isValid()).thenReturn(true);
+        when(connection.searchAsync(any(SearchRequest.class), any(IntermediateResponseHandler.class),
+                any(SearchResultHandler.class))).thenAnswer(new Answer<LdapPromise<Result>>() {
+                    @Override
+                    public LdapPromise<Result> answer(final InvocationOnMock invocation) throws Throwable {
+                        final LdapPromiseImpl<Result> promise = LdapPromiseImpl.newLdapPromiseImpl();
+                        searches.add(promise);
+                        return promise;
+                    }
+                });
+        return connection;
+    }
+}
@@ -20,6 +20,8 @@ import static org.forgerock.opendj.io.LDAP.*;
 import static org.forgerock.opendj.ldap.spi.LdapMessages.newRequestEnvelope;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import org.forgerock.opendj.io.LDAPWriter;
 import org.forgerock.opendj.ldap.ByteString;
@@ -38,6 +40,8 @@ import org.forgerock.opendj.ldap.spi.LdapMessages.LdapResponseMessage;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 /**
  * Decodes {@link LdapRequestEnvelope} and encodes {@link Response}. This class keeps a state to handler the Ldap V2
@@ -128,18 +132,36 @@ abstract class LdapCodec extends LDAPBaseFilter {
         }
     }
 
+    /**
+     * Encodes either a single {@link LdapResponseMessage} or a {@link List} of them. All the messages of a list are
+     * encoded in the same buffer so that they are sent to the client together.
+     */
     @Override
     public NextAction handleWrite(final FilterChainContext ctx) throws IOException {
-        final LdapResponseMessage response = ctx.<LdapResponseMessage>getMessage();
-        if (response.getMessageType() == OP_TYPE_BIND_RESPONSE && ((BindResult) response.getContent()).isSuccess()) {
-            isLdapV2 = isLdapV2Pending;
-        }
-        final int protocolVersion = isLdapV2 ? 2 : 3;
+        final Object message = ctx.getMessage();
+        final List<LdapResponseMessage> responses = message instanceof List
+                ? ctx.<List<LdapResponseMessage>> getMessage()
+                : Collections.singletonList((LdapResponseMessage) message);
 
-        final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter(ctx.getMemoryManager(), protocolVersion);
+        LDAPWriter<ASN1BufferWriter> writer = null;
         try {
-            final Buffer buffer = toBuffer(writer, ctx.<LdapResponseMessage> getMessage());
-            ctx.setMessage(buffer);
+            Buffer buffer = null;
+            for (final LdapResponseMessage response : responses) {
+                if (response.getMessageType() == OP_TYPE_BIND_RESPONSE
+                        && ((BindResult) response.getContent()).isSuccess()) {
+                    isLdapV2 = isLdapV2Pending;
+                }
+                final int protocolVersion = isLdapV2 ? 2 : 3;
+                if (writer == null || writer.getProtocolVersion() != protocolVersion) {
+                    if (writer != null) {
+                        buffer = appendBuffers(ctx.getMemoryManager(), buffer, writer.getASN1Writer().getBuffer());
+                        GrizzlyUtils.recycleWriter(writer);
+                    }
+                    writer = GrizzlyUtils.getWriter(ctx.getMemoryManager(), protocolVersion);
+                }
+                encode(writer, response);
+            }
+            ctx.setMessage(appendBuffers(ctx.getMemoryManager(), buffer, writer.getASN1Writer().getBuffer()));
             return ctx.getInvokeAction();
         } catch (Exception e) {
             onLdapCodecError(ctx, e);
@@ -148,11 +170,18 @@ abstract class LdapCodec extends LDAPBaseFilter {
             ctx.completeAndRecycle();
             return suspendAction;
         } finally {
-            GrizzlyUtils.recycleWriter(writer);
+            if (writer != null) {
+                GrizzlyUtils.recycleWriter(writer);
+            }
         }
     }
 
-    private Buffer toBuffer(final LDAPWriter<ASN1BufferWriter> writer, final LdapResponseMessage message)
+    private static Buffer appendBuffers(final MemoryManager<?> memoryManager, final Buffer buffer1,
+            final Buffer buffer2) {
+        return buffer1 != null ? Buffers.appendBuffers(memoryManager, buffer1, buffer2) : buffer2;
+    }
+
+    private void encode(final LDAPWriter<ASN1BufferWriter> writer, final LdapResponseMessage message)
             throws IOException {
         final int msgId = message.getMessageId();
         final Response msgContent = message.getContent();
@@ -193,6 +222,5 @@ abstract class LdapCodec extends LDAPBaseFilter {
         default:
             throw new IOException("Unsupported message type '" + message.getMessageType() + "'");
         }
-        return writer.getASN1Writer().getBuffer();
     }
 }
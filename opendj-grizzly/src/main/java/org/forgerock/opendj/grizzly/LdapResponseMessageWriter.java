@@ -15,6 +15,9 @@
  */
 package org.forgerock.opendj.grizzly;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 
 import org.forgerock.opendj.ldap.spi.LdapMessages.LdapResponseMessage;
@@ -25,12 +28,30 @@ import org.reactivestreams.Subscription;
 
 import com.forgerock.reactive.Completable;
 
+/**
+ * Writes the responses of an operation to the connection.
+ * <p>
+ * At most one write is in progress at any time: the responses produced while it completes are batched, then written
+ * together as soon as it is done, so that a busy search sends many entries with each write to the socket.
+ */
 final class LdapResponseMessageWriter implements Subscriber<LdapResponseMessage>, CompletionHandler {
 
+    /** The maximum number of responses which can be requested without having been written. */
+    private static final int MAX_PENDING_RESPONSES = 32;
+
     private final Connection<?> connection;
     private final Completable.Subscriber downstream;
     private Subscription upstream;
 
+    /** The responses waiting for the current write to complete, guarded by {@code this}. */
+    private List<LdapResponseMessage> pending = new ArrayList<>();
+    /** The number of responses being written, or {@code 0} if no write is in progress. */
+    private int writing;
+    /** Whether the upstream has completed while responses were still being written. */
+    private boolean upstreamCompleted;
+    /** Whether the downstream has been notified of the completion or of a failure. */
+    private boolean terminated;
+
     LdapResponseMessageWriter(final Connection<?> connection, final Completable.Subscriber downstream) {
         this.connection = connection;
         this.downstream = downstream;
@@ -43,19 +64,56 @@ final class LdapResponseMessageWriter implements Subscriber<LdapResponseMessage>
             return;
         }
         upstream = s;
-        // We're requesting two response to allow overlap between async I/O and response computation.
-        // (allows to generate a response while we're waiting for the previous message to be written)
-        upstream.request(2);
+        // Allow overlap between async I/O and response computation: the responses generated while we're waiting for
+        // the previous write to complete are batched in the next write.
+        upstream.request(MAX_PENDING_RESPONSES);
     }
 
     @Override
     public void onNext(final LdapResponseMessage message) {
-        connection.write(message, this);
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            if (writing > 0) {
+                pending.add(message);
+                return;
+            }
+            writing = 1;
+        }
+        connection.write(Collections.singletonList(message), this);
     }
 
     @Override
     public void completed(final Object result) {
-        upstream.request(1);
+        final int written;
+        final List<LdapResponseMessage> batch;
+        final boolean complete;
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            written = writing;
+            if (pending.isEmpty()) {
+                writing = 0;
+                batch = null;
+                complete = upstreamCompleted;
+                terminated = complete;
+            } else {
+                batch = pending;
+                pending = new ArrayList<>();
+                writing = batch.size();
+                complete = false;
+            }
+        }
+        if (batch != null) {
+            connection.write(batch, this);
+        } else if (complete) {
+            upstream.cancel();
+            downstream.onComplete();
+            return;
+        }
+        upstream.request(written);
     }
 
     @Override
@@ -75,12 +133,30 @@ final class LdapResponseMessageWriter implements Subscriber<LdapResponseMessage>
 
     @Override
     public void onError(final Throwable error) {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            pending.clear();
+        }
         upstream.cancel();
         downstream.onError(error);
     }
 
     @Override
     public void onComplete() {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            if (writing > 0) {
+                // Complete once the last responses have been written
+                upstreamCompleted = true;
+                return;
+            }
+            terminated = true;
+        }
         upstream.cancel();
         downstream.onComplete();
     }
@@ -34,12 +34,15 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLPeerUnverifiedException;
@@ -531,10 +534,19 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
      *            The search operation with which the entry is associated
      * @param searchEntry
      *            The search result entry to be sent to the client
+     * @throws DirectoryException
+     *             If the client can no longer receive responses and the search should be terminated
      */
     @Override
-    public void sendSearchEntry(final SearchOperation searchOperation, final SearchResultEntry searchEntry) {
-        getAttachedEmitter(searchOperation).onNext(toResponse(searchEntry));
+    public void sendSearchEntry(final SearchOperation searchOperation, final SearchResultEntry searchEntry)
+            throws DirectoryException {
+        final FlowableEmitter<Response> out = getAttachedEmitter(searchOperation);
+        out.onNext(toResponse(searchEntry));
+        if (out.isCancelled()) {
+            // Stop reading entries from the backend rather than producing responses which will never be written
+            throw new DirectoryException(ResultCode.CANCELLED, ERR_LDAP_CLIENT_RESPONSE_STREAM_CLOSED.get(
+                    searchOperation.getOperationID(), getConnectionID()));
+        }
     }
 
     private FlowableEmitter<Response> getAttachedEmitter(final Operation operation) {
@@ -596,7 +608,7 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
 
         // The only reason we shouldn't continue processing is if the
         // connection is closed.
-        return connectionValid;
+        return connectionValid && !emitter.isCancelled();
     }
 
     /**
@@ -959,7 +971,7 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
     @Override
     public Stream<Response> handle(final QueueingStrategy queueingStrategy, final LdapRequestEnvelope message) {
         return streamFromPublisher(
-                new BlockingBackpressureSubscription(connectionHandler.getMaxBlockedWriteTimeLimit(),
+                new DemandDrivenSubscription(connectionHandler.getMaxBlockedWriteTimeLimit(),
                         Flowable.create(new FlowableOnSubscribe<Response>() {
                             @Override
                             public void subscribe(FlowableEmitter<Response> emitter) throws Exception {
@@ -1675,20 +1687,41 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
         return clientContext.getSecurityStrengthFactor();
     }
 
-    /** Upstream -> BlockingBackpressureSubscription -> Downstream. */
-    private final class BlockingBackpressureSubscription implements Subscription, Processor<Response, Response> {
+    /**
+     * Upstream -> DemandDrivenSubscription -> Downstream.
+     * <p>
+     * Responses are forwarded downstream as soon as it requests them, which happens each time a response has been
+     * written to the socket. Responses produced while the downstream has no demand are queued. Once
+     * {@link #MAX_QUEUED_RESPONSES} responses are queued, the producing thread, usually a worker thread processing a
+     * search, is suspended until the socket has drained half of them. The wait uses a {@link Condition}, which lets a
+     * virtual thread release its carrier thread, and ends as soon as the stream is cancelled. A producer which gets no
+     * demand during the write time limit fails the stream: the emitter of the operation then reports it as cancelled,
+     * so that the backend stops reading entries instead of waiting for the write time limit for each of them.
+     */
+    static final class DemandDrivenSubscription implements Subscription, Processor<Response, Response> {
+        /** The number of queued responses from which the producer is suspended. */
+        static final int MAX_QUEUED_RESPONSES = 32;
+        /** The number of queued responses under which a suspended producer is resumed. */
+        static final int RESUME_QUEUED_RESPONSES = MAX_QUEUED_RESPONSES / 2;
+
         private final AtomicLong pendingRequests = new AtomicLong();
         private final AtomicInteger missedDrain = new AtomicInteger();
-        private final BlockingQueue<Response> queue = new LinkedBlockingQueue<>(32);
+        private final Queue<Response> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedResponses = new AtomicInteger();
+        private final Lock producerLock = new ReentrantLock();
+        private final Condition drained = producerLock.newCondition();
         private final Publisher<Response> upstream;
         private final long writeTimeoutMillis;
         private Subscription subscription;
         private Subscriber<? super Response> downstream;
+        private volatile boolean producerSuspended;
         private volatile boolean done;
         private Throwable error;
         private volatile boolean cancelled;
+        /** Whether the completion has been forwarded downstream. Only accessed by the draining thread. */
+        private boolean terminated;
 
-        BlockingBackpressureSubscription(final long maxBlockedWriteTimeLimit, final Publisher<Response> upstream) {
+        DemandDrivenSubscription(final long maxBlockedWriteTimeLimit, final Publisher<Response> upstream) {
             this.upstream = upstream;
             this.writeTimeoutMillis = maxBlockedWriteTimeLimit == 0
                     ? 30000 // Do not wait indefinitely,
@@ -1745,12 +1778,13 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
                 long emitted = 0L;
                 while (emitted != immutablePendingRequests) {
                     // Check if we should early exit because of cancellation
-                    if (cancelled) {
+                    if (cancelled || terminated) {
                         return;
                     }
 
                     final Response response = queue.poll();
                     if (response != null) {
+                        dequeued();
                         downstream.onNext(response);
                         emitted++;
                     } else if (done) {
@@ -1765,7 +1799,7 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
 
                 // Check if an onError/onComplete from upstream arrived.
                 if (emitted == immutablePendingRequests) {
-                    if (cancelled) {
+                    if (cancelled || terminated) {
                         return;
                     }
 
@@ -1788,7 +1822,23 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
             }
         }
 
+        private void dequeued() {
+            if (queuedResponses.decrementAndGet() <= RESUME_QUEUED_RESPONSES && producerSuspended) {
+                resumeProducer();
+            }
+        }
+
+        private void resumeProducer() {
+            producerLock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                producerLock.unlock();
+            }
+        }
+
         private void forwardDoneEvent() {
+            terminated = true;
             final Throwable immutableError = error;
             if (immutableError != null) {
                 downstream.onError(immutableError);
@@ -1799,16 +1849,42 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
 
         @Override
         public void onNext(final Response response) {
+            if (done || cancelled) {
+                // Responses can no longer be written. The producer finds out through its cancelled emitter.
+                return;
+            }
+            queue.offer(response);
+            queuedResponses.incrementAndGet();
+            drain();
+            if (queuedResponses.get() >= MAX_QUEUED_RESPONSES && !awaitDrained()) {
+                // If we've gotten here, then the write timed out.
+                onError(new ClosedChannelException().fillInStackTrace());
+                subscription.cancel();
+            }
+        }
+
+        /**
+         * Suspends the producer until the socket has drained enough queued responses or the stream is cancelled.
+         * Returns {@code false} if no queued response was written during the write time limit.
+         */
+        private boolean awaitDrained() {
+            producerLock.lock();
             try {
-                if (queue.offer(response, writeTimeoutMillis, TimeUnit.MILLISECONDS)) {
-                    drain();
-                } else {
-                    // If we've gotten here, then the write timed out.
-                    onError(new ClosedChannelException().fillInStackTrace());
-                    return;
+                producerSuspended = true;
+                int queued;
+                while ((queued = queuedResponses.get()) > RESUME_QUEUED_RESPONSES && !cancelled) {
+                    if (!drained.await(writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                            && queuedResponses.get() >= queued) {
+                        return false;
+                    }
                 }
+                return true;
             } catch (InterruptedException e) {
-                onError(e);
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                producerSuspended = false;
+                producerLock.unlock();
             }
         }
 
@@ -1829,6 +1905,9 @@ public final class LDAPClientConnection2 extends ClientConnection implements TLS
         public void cancel() {
             cancelled = true;
             subscription.cancel();
+            if (producerSuspended) {
+                resumeProducer();
+            }
         }
     }
 }
@@ -1384,7 +1384,6 @@ public abstract class ClientConnection
   public Set<Group<?>> getGroups(Operation operation)
          throws DirectoryException
   {
-    // FIXME -- This probably isn't the most efficient implementation.
     DN authzDN;
     if (operation == null)
     {
@@ -1413,15 +1412,7 @@ public abstract class ClientConnection
       return Collections.<Group<?>>emptySet();
     }
 
-    HashSet<Group<?>> groupSet = new HashSet<>();
-    for (Group<?> g : DirectoryServer.getGroupManager().getGroupInstances())
-    {
-      if (g.isMember(userEntry))
-      {
-        groupSet.add(g);
-      }
-    }
-    return groupSet;
+    return DirectoryServer.getGroupManager().getGroupsOfMember(userEntry);
   }
 
 
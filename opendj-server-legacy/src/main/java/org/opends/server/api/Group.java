@@ -24,6 +24,7 @@ import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.server.config.server.GroupImplementationCfg;
 import org.opends.server.core.ServerContext;
 import org.opends.server.types.DirectoryException;
@@ -415,6 +416,22 @@ public abstract class Group<T extends GroupImplementationCfg>
    */
   public abstract boolean mayAlterMemberList();
 
+  /**
+   * Retrieves the attribute type which explicitly lists the DNs of
+   * the members of this group in the group entry, if any. Group
+   * memberships defined by such a list are indexed by the group
+   * manager, whereas the membership of other groups is computed by
+   * calling {@link #isMember(DN)}.
+   *
+   * @return  The attribute type listing the DNs of the members of this
+   *          group, or {@code null} if the members of this group are
+   *          not explicitly listed in the group entry.
+   */
+  public AttributeType getMemberListAttributeType()
+  {
+    return null;
+  }
+
   /**
    * Attempt to make multiple changes to the group's member list.
    *
@@ -41,6 +41,11 @@ public class Aci implements Comparable<Aci>
     private final String aciString;
     /** The DN of the entry containing this ACI. */
     private final DN dn;
+    /**
+     * Indicates whether the evaluation of the bind rules of this ACI only
+     * depends on the client identity, computed once when decoding the ACI.
+     */
+    private final boolean clientIdentityOnly;
 
     /** Regular expression matching a word group. */
     public static final String WORD_GROUP="(\\w+)";
@@ -235,6 +240,7 @@ public class Aci implements Comparable<Aci>
         this.dn=dn;
         this.body=body;
         this.targets=targets;
+        this.clientIdentityOnly = body.dependsOnClientIdentityOnly();
     }
 
     /**
@@ -367,6 +373,18 @@ public class Aci implements Comparable<Aci>
                   && matchCtx.hasRights(ACI_SEARCH | ACI_READ));
     }
 
+    /**
+     * Indicates whether the evaluation of the bind rules of this ACI only
+     * depends on the identity of the client and its group memberships, in
+     * which case the result of the evaluation can be reused for any resource
+     * entry.
+     * @return {@code true} if the bind rules only depend on the client
+     * identity.
+     */
+    boolean dependsOnClientIdentityOnly() {
+        return clientIdentityOnly;
+    }
+
     /**
      * Check if the body of the ACI matches the rights specified.
      * @param rights Bit mask representing the rights to match.
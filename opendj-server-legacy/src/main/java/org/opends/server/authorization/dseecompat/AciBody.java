@@ -273,6 +273,21 @@ public class AciBody {
         return res;
     }
 
+    /**
+     * Indicates whether the bind rules of all the permission-bind rule pairs
+     * only depend on the identity of the client.
+     * @return {@code true} if the evaluation of this ACI body only depends on
+     * the client identity and its group memberships.
+     */
+    boolean dependsOnClientIdentityOnly() {
+        for (PermBindRulePair p : getPermBindRulePairs()) {
+            if (!p.getBindRule().dependsOnClientIdentityOnly()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
   /**
    * Returns the name string.
    * @return The name string.
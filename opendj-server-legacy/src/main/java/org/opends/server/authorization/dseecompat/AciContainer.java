@@ -34,6 +34,7 @@ import org.opends.server.api.ClientConnection;
 import org.opends.server.api.Group;
 import org.opends.server.controls.GetEffectiveRightsRequestControl;
 import org.opends.server.core.AddOperation;
+import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.SearchOperation;
 import org.opends.server.types.AuthenticationInfo;
 import org.opends.server.types.AuthenticationType;
@@ -165,6 +166,19 @@ abstract class AciContainer implements AciTargetMatchContext, AciEvalContext {
   /** AuthenticationInfo class to use. */
   private final AuthenticationInfo authInfo;
 
+  /**
+   * The candidate ACIs for the resource entry, gathered once for all the
+   * access checks performed on this resource entry.
+   */
+  private List<Aci> candidateAcis;
+
+  /**
+   * True if the membership of a group which does not only depend on its list
+   * of members was checked since the last call to
+   * {@link #resetComputedMembershipEvaluated()}.
+   */
+  private boolean computedMembershipEvaluated;
+
   /**
      * This constructor is used by all currently supported LDAP operations
      * except the generic access control check that can be used by
@@ -649,6 +663,10 @@ abstract class AciContainer implements AciTargetMatchContext, AciEvalContext {
 
     @Override
     public boolean isMemberOf(Group<?> group) {
+        if (DirectoryServer.getGroupManager().dependsOnComputedMembership(group)) {
+            // membership computed from the contents of other entries
+            computedMembershipEvaluated = true;
+        }
         try {
             if(useAuthzid) {
                 return group.isMember(this.authzid);
@@ -659,10 +677,50 @@ abstract class AciContainer implements AciTargetMatchContext, AciEvalContext {
             }
             return group.isMember(getClientDN());
         } catch (DirectoryException ex) {
+            computedMembershipEvaluated = true;
             return false;
         }
     }
 
+    /**
+     * Indicates whether the membership of a group whose members are not all
+     * explicitly listed, like a dynamic group or a group nesting a dynamic
+     * group, was checked since the last call to
+     * {@link #resetComputedMembershipEvaluated()}. The results of such
+     * checks can change without any change to the groups.
+     *
+     * @return {@code true} if a computed group membership was checked
+     */
+    boolean isComputedMembershipEvaluated() {
+        return computedMembershipEvaluated;
+    }
+
+    /** Starts tracking the group membership checks performed by an evaluation. */
+    void resetComputedMembershipEvaluated() {
+        computedMembershipEvaluated = false;
+    }
+
+    /**
+     * Returns the candidate ACIs for the resource entry, as previously set by
+     * {@link #setCandidateAcis(List)}.
+     *
+     * @return the candidate ACIs, or {@code null} if they were not gathered yet
+     */
+    List<Aci> getCandidateAcis() {
+        return candidateAcis;
+    }
+
+    /**
+     * Sets the candidate ACIs for the resource entry, so that they are reused
+     * by all the access checks performed on this resource entry.
+     *
+     * @param candidateAcis
+     *          the candidate ACIs
+     */
+    void setCandidateAcis(List<Aci> candidateAcis) {
+        this.candidateAcis = candidateAcis;
+    }
+
   /**
    * {@inheritDoc}
    * <p>
@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.authorization.dseecompat;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.core.DirectoryServer;
+
+/**
+ * A bounded cache of the results of evaluating the bind rules of ACIs.
+ * <p>
+ * Only the ACIs whose bind rules depend on nothing but the client identity and its group
+ * memberships are cached (see {@link Aci#dependsOnClientIdentityOnly()}). For these ACIs, the
+ * result of the evaluation is the same for all the entries returned by a search, and for all
+ * the operations of the same client, so that it is kept keyed by client DN, ACI and requested
+ * rights.
+ * <p>
+ * Each result is tagged with the group membership version of the group manager at the time
+ * of the evaluation, and is ignored once the membership of a group has changed. Evaluations
+ * which checked the membership of groups computed from the contents of other entries, like
+ * dynamic groups, are never cached. The cache is cleared when the ACIs change.
+ */
+final class AciDecisionCache
+{
+  /** Maximum number of results kept in the cache, the cache is cleared when it is reached. */
+  static final int MAX_DECISIONS = 100000;
+
+  /** Indicates whether the cache is used. It is package private so it can be modified by test case. */
+  volatile boolean enabled = true;
+
+  private final ConcurrentMap<DecisionKey, Decision> decisions = new ConcurrentHashMap<>();
+
+  /**
+   * Evaluates the bind rules of the provided ACI, reusing the result of a previous evaluation
+   * for the same client if possible.
+   *
+   * @param container
+   *          The container of the access check.
+   * @param aci
+   *          The ACI to evaluate.
+   * @return The result of the evaluation of the ACI.
+   */
+  EnumEvalResult evaluate(AciContainer container, Aci aci)
+  {
+    if (!enabled || !aci.dependsOnClientIdentityOnly() || container.isGetEffectiveRightsEval())
+    {
+      return Aci.evaluate(container, aci);
+    }
+
+    // Read the version before evaluating, so a concurrent membership change makes the result stale
+    final long membershipVersion = DirectoryServer.getGroupManager().getMembershipVersion();
+    final DecisionKey key = new DecisionKey(container.getClientDN(), container.isAnonymousUser(), aci,
+        container.getRights(), container.isDenyEval());
+    final Decision decision = decisions.get(key);
+    if (decision != null && decision.membershipVersion == membershipVersion)
+    {
+      return decision.result;
+    }
+
+    container.resetComputedMembershipEvaluated();
+    final EnumEvalResult result = Aci.evaluate(container, aci);
+    if ((result == EnumEvalResult.TRUE || result == EnumEvalResult.FALSE)
+        && !container.isComputedMembershipEvaluated())
+    {
+      if (decisions.size() >= MAX_DECISIONS)
+      {
+        decisions.clear();
+      }
+      decisions.put(key, new Decision(membershipVersion, result));
+    }
+    return result;
+  }
+
+  /** Removes all the results from the cache, which must be done when the ACIs change. */
+  void clear()
+  {
+    decisions.clear();
+  }
+
+  /**
+   * Returns the number of results in the cache.
+   *
+   * @return the number of results in the cache
+   */
+  int size()
+  {
+    return decisions.size();
+  }
+
+  /** A cached result of the evaluation of an ACI. */
+  private static final class Decision
+  {
+    private final long membershipVersion;
+    private final EnumEvalResult result;
+
+    private Decision(long membershipVersion, EnumEvalResult result)
+    {
+      this.membershipVersion = membershipVersion;
+      this.result = result;
+    }
+  }
+
+  /** Identifies the evaluation of an ACI for a client. */
+  private static final class DecisionKey
+  {
+    private final DN clientDN;
+    private final boolean anonymous;
+    /** ACIs are compared by identity, a modified ACI is a new object. */
+    private final Aci aci;
+    private final int rights;
+    private final boolean denyEval;
+
+    private DecisionKey(DN clientDN, boolean anonymous, Aci aci, int rights, boolean denyEval)
+    {
+      this.clientDN = clientDN;
+      this.anonymous = anonymous;
+      this.aci = aci;
+      this.rights = rights;
+      this.denyEval = denyEval;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof DecisionKey))
+      {
+        return false;
+      }
+      final DecisionKey other = (DecisionKey) obj;
+      return aci == other.aci
+          && rights == other.rights
+          && anonymous == other.anonymous
+          && denyEval == other.denyEval
+          && clientDN.equals(other.clientDN);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (31 * clientDN.hashCode() + System.identityHashCode(aci)) * 31 + rights;
+    }
+  }
+}
@@ -17,7 +17,7 @@
  */
 package org.opends.server.authorization.dseecompat;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -148,6 +148,9 @@ public final class AciHandler extends
    */
   private AciListenerManager aciListenerMgr;
 
+  /** The cache of the results of evaluating the ACIs which only depend on the client identity. */
+  private AciDecisionCache decisionCache;
+
   /** Creates a new DSEE-compatible access control handler. */
   public AciHandler()
   {
@@ -196,7 +199,8 @@ public final class AciHandler extends
     initStatics();
     DN configurationDN = configuration.dn();
     aciList = new AciList(configurationDN);
-    aciListenerMgr = new AciListenerManager(aciList, configurationDN);
+    decisionCache = new AciDecisionCache();
+    aciListenerMgr = new AciListenerManager(aciList, decisionCache, configurationDN);
     processGlobalAcis(configuration);
     DirectoryServer.registerSupportedControl(OID_GET_EFFECTIVE_RIGHTS);
   }
@@ -512,8 +516,13 @@ public final class AciHandler extends
       }
     }
 
-    // First get all allowed candidate ACIs.
-    List<Aci> candidates = aciList.getCandidateAcis(dn);
+    // First get all allowed candidate ACIs, once for all the checks on this resource entry.
+    List<Aci> candidates = container.getCandidateAcis();
+    if (candidates == null)
+    {
+      candidates = aciList.getCandidateAcis(dn);
+      container.setCandidateAcis(candidates);
+    }
     /*
      * Create an applicable list of ACIs by target matching each
      * candidate ACI against the container's target match view.
@@ -872,8 +881,8 @@ public final class AciHandler extends
   private void createApplicableList(List<Aci> candidates,
       AciTargetMatchContext targetMatchCtx)
   {
-    List<Aci> denys = new LinkedList<>();
-    List<Aci> allows = new LinkedList<>();
+    List<Aci> denys = new ArrayList<>();
+    List<Aci> allows = new ArrayList<>();
     for (Aci aci : candidates)
     {
       if (Aci.isApplicable(aci, targetMatchCtx))
@@ -907,7 +916,7 @@ public final class AciHandler extends
    */
   private List<AttributeType> getAllAttrs(Entry e)
   {
-    List<AttributeType> typeList = new LinkedList<>();
+    List<AttributeType> typeList = new ArrayList<>();
     /*
      * When a search is not all attributes returned, the "objectclass"
      * attribute type is missing from the entry.
@@ -939,6 +948,16 @@ public final class AciHandler extends
     return skipAccessCheck(operation) || accessAllowed(container);
   }
 
+  /**
+   * Returns the cache of ACI evaluation results used by this handler.
+   *
+   * @return the cache of ACI evaluation results
+   */
+  AciDecisionCache getDecisionCache()
+  {
+    return decisionCache;
+  }
+
   /**
    * Check if the specified attribute type is a DN by checking if its
    * syntax OID is equal to the DN syntax OID.
@@ -1028,7 +1047,7 @@ public final class AciHandler extends
    *          The evaluation context to use.
    * @return True if access is allowed.
    */
-  private boolean testApplicableLists(AciEvalContext evalCtx)
+  private boolean testApplicableLists(AciContainer evalCtx)
   {
     evalCtx.setEvaluationResult(NO_REASON, null);
 
@@ -1044,7 +1063,7 @@ public final class AciHandler extends
 
     for (Aci denyAci : evalCtx.getDenyList())
     {
-      final EnumEvalResult res = Aci.evaluate(evalCtx, denyAci);
+      final EnumEvalResult res = decisionCache.evaluate(evalCtx, denyAci);
       // Failure could be returned if a system limit is hit or
       // search fails
       if (EnumEvalResult.FAIL.equals(res))
@@ -1065,7 +1084,7 @@ public final class AciHandler extends
 
     for (Aci allowAci : evalCtx.getAllowList())
     {
-      final EnumEvalResult res = Aci.evaluate(evalCtx, allowAci);
+      final EnumEvalResult res = decisionCache.evaluate(evalCtx, allowAci);
       if (EnumEvalResult.TRUE.equals(res))
       {
         if (testAndSetTargAttrOperationMatches(evalCtx, allowAci, false))
@@ -20,43 +20,46 @@ import static org.opends.messages.AccessControlMessages.*;
 import static org.opends.server.authorization.dseecompat.AciHandler.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.RDN;
 import org.opends.server.api.LocalBackend;
-import org.opends.server.api.DITCacheMap;
 import org.opends.server.types.Attribute;
 import org.opends.server.types.Entry;
 
 /**
  * The AciList class performs caching of the ACI attribute values
  * using the entry DN as the key.
+ * <p>
+ * The ACIs are kept in a tree with one node per RDN of the DNs holding ACIs,
+ * the global ACIs being held by the root node. The tree is never modified
+ * once it is published: writers build the next version of the tree by copying
+ * the nodes on the paths they modify, and publish it through a volatile
+ * reference. Readers do not need any lock, and are never blocked by writers.
  */
 public class AciList {
 
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
-
   /**
-   * A map containing all the ACIs.
+   * The root of the current tree of ACIs.
    * We use the copy-on-write technique to avoid locking when reading.
    */
-  private volatile DITCacheMap<List<Aci>> aciList = new DITCacheMap<>();
+  private volatile Node root = new Node(DN.rootDN());
 
-  /**
-   * Lock to protect internal data structures.
-   */
-  private final ReentrantReadWriteLock lock =
-          new ReentrantReadWriteLock();
+  /** Lock serializing the writers, readers never lock. */
+  private final Object writeLock = new Object();
 
   /** The configuration DN used to compare against the global ACI entry DN. */
   private final DN configDN;
@@ -76,57 +79,70 @@ public class AciList {
    * and are included in the candidate set only if they have no
    * "target" keyword rules, or if the target keyword rule matches for
    * the specified base DN.
+   * <p>
+   * The returned list must not be modified, it is shared with the ACI list
+   * when only one entry above the base DN holds ACIs.
    *
    * @param baseDN  The DN to check.
    * @return A list of candidate ACIs that might be applicable.
    */
   public List<Aci> getCandidateAcis(DN baseDN) {
-    List<Aci> candidates = new LinkedList<>();
     if(baseDN == null)
     {
-      return candidates;
+      return Collections.emptyList();
     }
 
-    lock.readLock().lock();
-    try
-    {
-      //Save the baseDN in case we need to evaluate a global ACI.
-      DN entryDN=baseDN;
-      while (baseDN != null) {
-        List<Aci> acis = aciList.get(baseDN);
-        if (acis != null) {
-          //Check if there are global ACIs. Global ACI has a NULL DN.
-          if (baseDN.isRootDN()) {
-            for (Aci aci : acis) {
-              AciTargets targets = aci.getTargets();
-              //If there is a target, evaluate it to see if this ACI should
-              //be included in the candidate set.
-              if (targets != null
-                  && AciTargets.isTargetApplicable(aci, targets, entryDN))
-              {
-                  candidates.add(aci);  //Add this ACI to the candidates.
-              }
-            }
-          } else {
-            candidates.addAll(acis);
-          }
-        }
-        if(baseDN.isRootDN()) {
-          break;
-        }
-        DN parentDN=baseDN.parent();
-        if(parentDN == null) {
-          baseDN=DN.rootDN();
-        } else {
-          baseDN=parentDN;
-        }
+    // Walk down the tree from the root, remembering the nodes holding ACIs
+    final Node rootNode = root;
+    final Node[] nodesWithAcis = new Node[baseDN.size()];
+    int nbNodes = 0;
+    Node node = rootNode;
+    for (int i = baseDN.size() - 1; i >= 0; i--) {
+      node = node.children.get(baseDN.rdn(i));
+      if (node == null) {
+        break;
+      }
+      if (!node.acis.isEmpty()) {
+        nodesWithAcis[nbNodes++] = node;
       }
-      return candidates;
     }
-    finally
-    {
-      lock.readLock().unlock();
+
+    final List<Aci> globalAcis = getApplicableGlobalAcis(rootNode, baseDN);
+    if (nbNodes == 0) {
+      return globalAcis;
+    } else if (nbNodes == 1 && globalAcis.isEmpty()) {
+      return nodesWithAcis[0].acis;
+    }
+
+    // ACIs of the closest entries come first, global ACIs come last.
+    List<Aci> candidates = new ArrayList<>();
+    for (int i = nbNodes - 1; i >= 0; i--) {
+      candidates.addAll(nodesWithAcis[i].acis);
     }
+    candidates.addAll(globalAcis);
+    return candidates;
+  }
+
+  /**
+   * Returns the global ACIs which have a "target" keyword rule matching the
+   * provided entry DN.
+   */
+  private static List<Aci> getApplicableGlobalAcis(Node rootNode, DN entryDN) {
+    List<Aci> candidates = Collections.emptyList();
+    for (Aci aci : rootNode.acis) {
+      AciTargets targets = aci.getTargets();
+      //If there is a target, evaluate it to see if this ACI should
+      //be included in the candidate set.
+      if (targets != null
+          && AciTargets.isTargetApplicable(aci, targets, entryDN))
+      {
+        if (candidates.isEmpty()) {
+          candidates = new ArrayList<>();
+        }
+        candidates.add(aci);  //Add this ACI to the candidates.
+      }
+    }
+    return candidates;
   }
 
   /**
@@ -141,23 +157,20 @@ public class AciList {
   public int addAci(List<? extends Entry> entries,
                                  LinkedList<LocalizableMessage> failedACIMsgs)
   {
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
+      Editor editor = new Editor(root);
       int validAcis = 0;
       for (Entry entry : entries) {
         DN dn=entry.getName();
         List<Attribute> attributeList =
              entry.getOperationalAttribute(AciHandler.aciType);
-        validAcis += addAciAttributeList(aciList, dn, configDN,
+        validAcis += addAciAttributeList(editor, dn, configDN,
                                          attributeList, failedACIMsgs);
       }
+      root = editor.root;
       return validAcis;
     }
-    finally
-    {
-      lock.writeLock().unlock();
-    }
   }
 
   /**
@@ -170,14 +183,11 @@ public class AciList {
    *
    */
   public void addAci(DN dn, SortedSet<Aci> acis) {
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
-      aciList.put(dn, new LinkedList<>(acis));
-    }
-    finally
-    {
-      lock.writeLock().unlock();
+      Editor editor = new Editor(root);
+      editor.setAcis(dn, new ArrayList<>(acis));
+      root = editor.root;
     }
   }
 
@@ -195,30 +205,27 @@ public class AciList {
   public int addAci(Entry entry, boolean hasAci,
                                  boolean hasGlobalAci,
                                  List<LocalizableMessage> failedACIMsgs) {
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
+      Editor editor = new Editor(root);
       int validAcis = 0;
       //Process global "ds-cfg-global-aci" attribute type. The oldentry
       //DN is checked to verify it is equal to the config DN. If not those
       //attributes are skipped.
       if(hasGlobalAci && entry.getName().equals(configDN)) {
           List<Attribute> attributeList = entry.getAllAttributes(globalAciType);
-          validAcis = addAciAttributeList(aciList, DN.rootDN(), configDN,
+          validAcis = addAciAttributeList(editor, DN.rootDN(), configDN,
                                           attributeList, failedACIMsgs);
       }
 
       if(hasAci) {
           List<Attribute> attributeList = entry.getAllAttributes(aciType);
-          validAcis += addAciAttributeList(aciList, entry.getName(), configDN,
+          validAcis += addAciAttributeList(editor, entry.getName(), configDN,
                                            attributeList, failedACIMsgs);
       }
+      root = editor.root;
       return validAcis;
     }
-    finally
-    {
-      lock.writeLock().unlock();
-    }
   }
 
   /**
@@ -226,7 +233,7 @@ public class AciList {
    * an ACI will throw an exception if it has an invalid syntax. If that
    * happens a message will be logged and the ACI skipped.  A count is
    * returned of the number of valid ACIs added.
-   * @param aciList The ACI list to which the ACI is to be added.
+   * @param editor The editor of the ACI tree to which the ACI is to be added.
    * @param dn The DN to use as the key in the ACI list.
    * @param configDN The DN of the configuration entry used to configure the
    *                 ACI handler. Used if a global ACI has an decode exception.
@@ -236,7 +243,7 @@ public class AciList {
    *                      exceptions.
    * @return The number of valid attribute values added to the ACI list.
    */
-  private static int addAciAttributeList(DITCacheMap<List<Aci>> aciList,
+  private static int addAciAttributeList(Editor editor,
                                          DN dn, DN configDN,
                                          List<Attribute> attributeList,
                                          List<LocalizableMessage> failedACIMsgs) {
@@ -260,13 +267,13 @@ public class AciList {
         }
       }
     }
-    addAci(aciList, dn, acis);
+    editor.addAcis(dn, acis);
     return validAcis;
   }
 
   /**
    * Remove all of the ACIs related to the old entry and then add all of the
-   * ACIs related to the new entry. This method locks/unlocks the list.
+   * ACIs related to the new entry. The new ACIs are published at once.
    * In the case of global ACIs the DN of the entry is checked to make sure it
    * is equal to the config DN. If not, the global ACI attribute type is
    * silently skipped.
@@ -282,50 +289,28 @@ public class AciList {
                                              boolean hasAci,
                                              boolean hasGlobalAci) {
 
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
+      Editor editor = new Editor(root);
       List<LocalizableMessage> failedACIMsgs=new LinkedList<>();
       //Process "aci" attribute types.
       if(hasAci) {
-          aciList.remove(oldEntry.getName());
+          editor.removeAcis(oldEntry.getName());
           List<Attribute> attributeList =
                   newEntry.getOperationalAttribute(aciType);
-          addAciAttributeList(aciList,newEntry.getName(), configDN,
+          addAciAttributeList(editor,newEntry.getName(), configDN,
                               attributeList, failedACIMsgs);
       }
       //Process global "ds-cfg-global-aci" attribute type. The oldentry
       //DN is checked to verify it is equal to the config DN. If not those
       //attributes are skipped.
       if(hasGlobalAci && oldEntry.getName().equals(configDN)) {
-          aciList.remove(DN.rootDN());
+          editor.removeAcis(DN.rootDN());
           List<Attribute> attributeList = newEntry.getAllAttributes(globalAciType);
-          addAciAttributeList(aciList, DN.rootDN(), configDN,
+          addAciAttributeList(editor, DN.rootDN(), configDN,
                               attributeList, failedACIMsgs);
       }
-    }
-    finally
-    {
-      lock.writeLock().unlock();
-    }
-  }
-
-  /**
-   * Add ACI using the DN as a key. If the DN already
-   * has ACI(s) on the list, then the new ACI is added to the
-   * end of the array.
-   * @param aciList The set of ACIs to which ACI is to be added.
-   * @param dn The DN to use as the key.
-   * @param acis The ACI to be added.
-   */
-  private static void addAci(DITCacheMap<List<Aci>> aciList, DN dn,
-                             List<Aci> acis)
-  {
-    if(aciList.containsKey(dn)) {
-      List<Aci> tmpAci = aciList.get(dn);
-      tmpAci.addAll(acis);
-    } else {
-      aciList.put(dn, acis);
+      root = editor.root;
     }
   }
 
@@ -343,24 +328,27 @@ public class AciList {
    */
   public boolean removeAci(Entry entry,  boolean hasAci,
                                                       boolean hasGlobalAci) {
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
-      DN entryDN = entry.getName();
-      if (hasGlobalAci && entryDN.equals(configDN) &&
-          aciList.remove(DN.rootDN()) == null)
+      Editor editor = new Editor(root);
+      try
       {
-        return false;
+        DN entryDN = entry.getName();
+        if (hasGlobalAci && entryDN.equals(configDN) &&
+            !editor.removeAcis(DN.rootDN()))
+        {
+          return false;
+        }
+        if (hasAci || !hasGlobalAci)
+        {
+          return editor.removeSubtree(entryDN);
+        }
+        return true;
       }
-      if (hasAci || !hasGlobalAci)
+      finally
       {
-        return aciList.removeSubtree(entryDN, null);
+        root = editor.root;
       }
-      return true;
-    }
-    finally
-    {
-      lock.writeLock().unlock();
     }
   }
 
@@ -371,67 +359,267 @@ public class AciList {
    */
   public void removeAci(LocalBackend<?> backend) {
 
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
-      Iterator<Map.Entry<DN,List<Aci>>> iterator =
-              aciList.entrySet().iterator();
-      while (iterator.hasNext())
+      Editor editor = new Editor(root);
+      for (Node node : getNodesWithAcis(root.children.values()))
       {
-        Map.Entry<DN,List<Aci>> mapEntry = iterator.next();
-        if (backend.handlesEntry(mapEntry.getKey()))
+        if (backend.handlesEntry(node.dn))
         {
-          iterator.remove();
+          editor.removeAcis(node.dn);
         }
       }
-    }
-    finally
-    {
-      lock.writeLock().unlock();
+      root = editor.root;
     }
   }
 
   /**
-   * Rename all ACIs under the specified old DN to the new DN. A simple
-   * interaction over the entire list is performed.
+   * Rename all ACIs under the specified old DN to the new DN. Only the
+   * subtree of the old DN is visited.
    * @param oldDN The DN of the original entry that was moved.
    * @param newDN The DN of the new entry.
    */
   public void renameAci(DN oldDN, DN newDN ) {
 
-    lock.writeLock().lock();
-    try
+    synchronized (writeLock)
     {
-      Map<DN,List<Aci>> tempAciList = new HashMap<>();
-      Iterator<Map.Entry<DN,List<Aci>>> iterator =
-              aciList.entrySet().iterator();
-      while (iterator.hasNext()) {
-        Map.Entry<DN,List<Aci>> hashEntry = iterator.next();
-        DN keyDn = hashEntry.getKey();
-        if (keyDn.isSubordinateOrEqualTo(oldDN)) {
-          DN relocateDN = keyDn.rename(oldDN, newDN);
-          List<Aci> acis = new LinkedList<>();
-          for(Aci aci : hashEntry.getValue()) {
-            try {
-               Aci newAci =
-                 Aci.decode(ByteString.valueOfUtf8(aci.toString()), relocateDN);
-               acis.add(newAci);
-            } catch (AciException ex) {
-              //This should never happen since only a copy of the
-              //ACI with a new DN is being made. Log a message if it does and
-              //keep going.
-              logger.warn(WARN_ACI_ADD_LIST_FAILED_DECODE, aci, relocateDN, ex.getMessage());
-            }
+      Node oldNode = root.find(oldDN);
+      if (oldNode == null) {
+        return;
+      }
+      Editor editor = new Editor(root);
+      editor.removeSubtree(oldDN);
+      for (Node node : getNodesWithAcis(Collections.singletonList(oldNode))) {
+        DN relocateDN = node.dn.rename(oldDN, newDN);
+        List<Aci> acis = new ArrayList<>();
+        for(Aci aci : node.acis) {
+          try {
+             Aci newAci =
+               Aci.decode(ByteString.valueOfUtf8(aci.toString()), relocateDN);
+             acis.add(newAci);
+          } catch (AciException ex) {
+            //This should never happen since only a copy of the
+            //ACI with a new DN is being made. Log a message if it does and
+            //keep going.
+            logger.warn(WARN_ACI_ADD_LIST_FAILED_DECODE, aci, relocateDN, ex.getMessage());
           }
-          tempAciList.put(relocateDN, acis);
-          iterator.remove();
         }
+        editor.setAcis(relocateDN, acis);
       }
-      aciList.putAll(tempAciList);
+      root = editor.root;
     }
-    finally
-    {
-      lock.writeLock().unlock();
+  }
+
+  /**
+   * Returns the nodes holding ACIs in the subtrees of the provided nodes.
+   *
+   * @param nodes the roots of the subtrees to visit
+   * @return the nodes holding ACIs in the subtrees of the provided nodes
+   */
+  private static List<Node> getNodesWithAcis(Iterable<Node> nodes) {
+    List<Node> results = new ArrayList<>();
+    LinkedList<Node> toVisit = new LinkedList<>();
+    for (Node node : nodes) {
+      toVisit.add(node);
+    }
+    while (!toVisit.isEmpty()) {
+      Node node = toVisit.removeFirst();
+      if (!node.acis.isEmpty()) {
+        results.add(node);
+      }
+      toVisit.addAll(node.children.values());
+    }
+    return results;
+  }
+
+  /**
+   * A node of the tree of ACIs. A node only exists if it, or one of its
+   * descendants, holds ACIs, except for the root node.
+   * <p>
+   * Nodes must not be modified once they are reachable from the published
+   * root: they are only modified by the editor which created them.
+   */
+  private static final class Node {
+    /** The DN of the entry holding the ACIs of this node. */
+    private final DN dn;
+    /** The child nodes, keyed by RDN. */
+    private final Map<RDN, Node> children;
+    /** The unmodifiable list of the ACIs held by the entry, possibly empty. */
+    private List<Aci> acis;
+
+    private Node(DN dn) {
+      this.dn = dn;
+      this.children = new HashMap<>();
+      this.acis = Collections.emptyList();
+    }
+
+    private Node(Node node) {
+      this.dn = node.dn;
+      this.children = new HashMap<>(node.children);
+      this.acis = node.acis;
+    }
+
+    /**
+     * Returns the node with the provided DN in the subtree of this node.
+     *
+     * @param targetDN the DN of the node to find, subordinate or equal to the DN of this node
+     * @return the node with the provided DN, or {@code null} if there is none
+     */
+    private Node find(DN targetDN) {
+      Node node = this;
+      for (int i = targetDN.size() - dn.size() - 1; i >= 0 && node != null; i--) {
+        node = node.children.get(targetDN.rdn(i));
+      }
+      return node;
+    }
+
+    private boolean isEmpty() {
+      return acis.isEmpty() && children.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return dn + "=" + acis;
+    }
+  }
+
+  /**
+   * Builds the next version of the tree of ACIs. The nodes of the current
+   * tree are copied the first time they need to be modified, the nodes which
+   * were already copied are modified in place.
+   */
+  private static final class Editor {
+    /** The nodes created by this editor, which can be modified. */
+    private final Set<Node> copies = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+    /** The root of the next version of the tree. */
+    private Node root;
+
+    private Editor(Node root) {
+      this.root = root;
+    }
+
+    /**
+     * Adds the provided ACIs to the ACIs already held by the provided DN.
+     *
+     * @param dn the DN to add the ACIs under
+     * @param acis the ACIs to add
+     */
+    private void addAcis(DN dn, List<Aci> acis) {
+      final Node node = getModifiablePath(dn).get(dn.size());
+      if (node.acis.isEmpty()) {
+        node.acis = Collections.unmodifiableList(acis);
+      } else {
+        List<Aci> allAcis = new ArrayList<>(node.acis);
+        allAcis.addAll(acis);
+        node.acis = Collections.unmodifiableList(allAcis);
+      }
+      removeIfEmpty(dn);
+    }
+
+    /**
+     * Replaces the ACIs held by the provided DN.
+     *
+     * @param dn the DN to set the ACIs under
+     * @param acis the ACIs held by the DN
+     */
+    private void setAcis(DN dn, List<Aci> acis) {
+      getModifiablePath(dn).get(dn.size()).acis = Collections.unmodifiableList(acis);
+      removeIfEmpty(dn);
+    }
+
+    /**
+     * Removes the ACIs held by the provided DN, but not the ACIs held by its
+     * subordinates.
+     *
+     * @param dn the DN whose ACIs must be removed
+     * @return {@code true} if the DN held ACIs
+     */
+    private boolean removeAcis(DN dn) {
+      final Node node = root.find(dn);
+      if (node == null || node.acis.isEmpty()) {
+        return false;
+      }
+      getModifiablePath(dn).get(dn.size()).acis = Collections.emptyList();
+      removeIfEmpty(dn);
+      return true;
+    }
+
+    /**
+     * Removes the ACIs held by the provided DN and all its subordinates.
+     *
+     * @param dn the base DN of the subtree whose ACIs must be removed
+     * @return {@code true} if the DN or its subordinates held ACIs
+     */
+    private boolean removeSubtree(DN dn) {
+      final Node node = root.find(dn);
+      if (node == null || node.isEmpty()) {
+        return false;
+      }
+      final Node copy = getModifiablePath(dn).get(dn.size());
+      copy.acis = Collections.emptyList();
+      copy.children.clear();
+      removeIfEmpty(dn);
+      return true;
+    }
+
+    /**
+     * Returns the modifiable nodes from the root to the provided DN, copying
+     * or creating them if needed.
+     *
+     * @param dn the DN of the last node
+     * @return the modifiable nodes from the root, at index 0, to the provided DN
+     */
+    private List<Node> getModifiablePath(DN dn) {
+      final List<Node> path = new ArrayList<>(dn.size() + 1);
+      root = getModifiableNode(root);
+      Node node = root;
+      path.add(node);
+      for (int i = dn.size() - 1; i >= 0; i--) {
+        final RDN rdn = dn.rdn(i);
+        final Node child = node.children.get(rdn);
+        final Node modifiableChild = child != null ? getModifiableNode(child) : newNode(dn.parent(i));
+        node.children.put(rdn, modifiableChild);
+        node = modifiableChild;
+        path.add(node);
+      }
+      return path;
+    }
+
+    private Node getModifiableNode(Node node) {
+      if (copies.contains(node)) {
+        return node;
+      }
+      return newNode(node);
+    }
+
+    private Node newNode(DN dn) {
+      final Node node = new Node(dn);
+      copies.add(node);
+      return node;
+    }
+
+    private Node newNode(Node node) {
+      final Node copy = new Node(node);
+      copies.add(copy);
+      return copy;
+    }
+
+    /**
+     * Removes the node of the provided DN, and then its ancestors, as long as
+     * they neither hold ACIs nor have children. The nodes on the path must
+     * already be modifiable.
+     */
+    private void removeIfEmpty(DN dn) {
+      DN currentDN = dn;
+      while (!currentDN.isRootDN()) {
+        final Node parent = root.find(currentDN.parent());
+        final Node node = parent.children.get(currentDN.rdn());
+        if (!node.isEmpty()) {
+          return;
+        }
+        parent.children.remove(currentDN.rdn());
+        currentDN = currentDN.parent();
+      }
     }
   }
 }
@@ -208,6 +208,7 @@ public class AciListenerManager implements
         List<LocalizableMessage> failedACIMsgs = new LinkedList<>();
 
         aciList.addAci(addedEntry, hasAci, hasGlobalAci, failedACIMsgs);
+        decisionCache.clear();
       }
     }
 
@@ -219,11 +220,16 @@ public class AciListenerManager implements
       boolean hasGlobalAci = deletedEntry.hasAttribute(
               AciHandler.globalAciType);
       aciList.removeAci(deletedEntry, hasAci, hasGlobalAci);
+      if (hasAci || hasGlobalAci)
+      {
+        decisionCache.clear();
+      }
     }
 
     private void doPostModifyDN(DN fromDN, DN toDN)
     {
       aciList.renameAci(fromDN, toDN);
+      decisionCache.clear();
     }
 
     private void doPostModify(List<Modification> mods, Entry oldEntry,
@@ -256,6 +262,7 @@ public class AciListenerManager implements
       {
         aciList.modAciOldNewEntry(oldEntry, newEntry, hasAci,
             hasGlobalAci);
+        decisionCache.clear();
       }
     }
   }
@@ -269,6 +276,9 @@ public class AciListenerManager implements
   /** The AciList caches the ACIs. */
   private final AciList aciList;
 
+  /** The cache of ACI evaluation results, cleared when the ACIs change. */
+  private final AciDecisionCache decisionCache;
+
   /** Search filter used in context search for "aci" attribute types. */
   private final static SearchFilter aciFilter = buildAciFilter();
   private static SearchFilter buildAciFilter()
@@ -299,12 +309,15 @@ public class AciListenerManager implements
    *
    * @param aciList
    *          The list object created and loaded by the handler.
+   * @param decisionCache
+   *          The cache of ACI evaluation results used by the handler.
    * @param cfgDN
    *          The DN of the access control configuration entry.
    */
-  public AciListenerManager(AciList aciList, DN cfgDN)
+  AciListenerManager(AciList aciList, AciDecisionCache decisionCache, DN cfgDN)
   {
     this.aciList = aciList;
+    this.decisionCache = decisionCache;
     this.configurationDN = cfgDN;
     this.plugin = new AciChangeListenerPlugin();
 
@@ -392,6 +405,7 @@ public class AciListenerManager implements
       if (!internalSearch.getSearchEntries().isEmpty())
       {
         int validAcis = aciList.addAci(internalSearch.getSearchEntries(), failedACIMsgs);
+        decisionCache.clear();
         if (!failedACIMsgs.isEmpty())
         {
           logMsgsSetLockDownMode(failedACIMsgs);
@@ -411,6 +425,7 @@ public class AciListenerManager implements
   public void performBackendPostFinalizationProcessing(LocalBackend<?> backend)
   {
     aciList.removeAci(backend);
+    decisionCache.clear();
   }
 
   @Override
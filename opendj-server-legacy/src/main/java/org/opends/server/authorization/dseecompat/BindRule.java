@@ -471,6 +471,25 @@ public class BindRule {
         return EnumEvalResult.negateIfNeeded(ret, negate);
     }
 
+    /**
+     * Indicates whether the evaluation of this bind rule only depends on the
+     * identity of the client, which is the case when it is only made of
+     * "userdn" keywords using the client DN and "groupdn" keywords.
+     * @return {@code true} if the bind rule is evaluated from the client
+     * identity and its group memberships only.
+     */
+    boolean dependsOnClientIdentityOnly() {
+        if (this.booleanType == null) {
+            if (keyword == EnumBindRuleKeyword.GROUPDN) {
+                return true;
+            } else if (keyword == EnumBindRuleKeyword.USERDN) {
+                return ((UserDN) keywordRuleMap.get(keyword.toString())).dependsOnClientDNOnly();
+            }
+            return false;
+        }
+        return left.dependsOnClientIdentityOnly() && right.dependsOnClientIdentityOnly();
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
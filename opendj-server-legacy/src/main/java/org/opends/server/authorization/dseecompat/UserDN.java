@@ -56,6 +56,21 @@ public class UserDN implements KeywordBindRule {
        this.urlList=urlList;
     }
 
+    /**
+     * Indicates whether the evaluation of this userdn bind rule only depends
+     * on the DN of the client.
+     * @return {@code true} if all the URLs of this bind rule are evaluated
+     * from the client DN only.
+     */
+    boolean dependsOnClientDNOnly() {
+        for (UserDNTypeURL dnTypeURL : urlList) {
+            if (!dnTypeURL.dependsOnClientDNOnly()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Decodes an expression string representing a userdn bind rule.
      * @param expression The string representation of the userdn bind rule
@@ -215,7 +230,7 @@ public class UserDN implements KeywordBindRule {
                 DN parentDN = resDN.parent();
                 return parentDN != null && parentDN.equals(clientDN);
             case DNPATTERN:
-                return evalDNPattern(evalCtx, url);
+                return evalDNPattern(evalCtx, dnTypeURL);
             case DN:
                 return evalDN(clientDN, url);
             default:
@@ -256,18 +271,12 @@ public class UserDN implements KeywordBindRule {
     /**
      * This method evaluates a DN pattern userdn expression.
      * @param evalCtx  The evaluation context to use.
-     * @param url The LDAP URL containing the pattern.
+     * @param dnTypeURL The URL containing the pattern.
      * @return An enumeration evaluation result.
      */
-    private boolean evalDNPattern(AciEvalContext evalCtx, LDAPURL url) {
-        PatternDN pattern;
-        try {
-          pattern = PatternDN.decode(url.getRawBaseDN());
-        } catch (DirectoryException ex) {
-          return false;
-        }
-
-        return pattern.matchesDN(evalCtx.getClientDN());
+    private boolean evalDNPattern(AciEvalContext evalCtx, UserDNTypeURL dnTypeURL) {
+        PatternDN pattern = dnTypeURL.getDNPattern();
+        return pattern != null && pattern.matchesDN(evalCtx.getClientDN());
     }
 
 
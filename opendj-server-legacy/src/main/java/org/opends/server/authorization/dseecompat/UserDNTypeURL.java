@@ -16,6 +16,7 @@
  */
 package org.opends.server.authorization.dseecompat;
 
+import org.opends.server.types.DirectoryException;
 import org.opends.server.types.LDAPURL;
 
 /**
@@ -28,6 +29,11 @@ public class UserDNTypeURL {
     private final EnumUserDNType dnType;
     /** The URL value. Maybe a dummy value for types such as ANYONE or SELF. */
     private final LDAPURL url;
+    /**
+     * The DN pattern of a DNPATTERN type URL, decoded once instead of on each
+     * evaluation. It is {@code null} for other types, or if the pattern is invalid.
+     */
+    private final PatternDN dnPattern;
 
     /**
      * Create a class representing the "userdn" URL decoded by the
@@ -39,6 +45,16 @@ public class UserDNTypeURL {
     UserDNTypeURL(EnumUserDNType dnType, LDAPURL url) {
         this.url=url;
         this.dnType=dnType;
+        this.dnPattern = dnType == EnumUserDNType.DNPATTERN ? decodePattern(url) : null;
+    }
+
+    private static PatternDN decodePattern(LDAPURL url) {
+        try {
+            return PatternDN.decode(url.getRawBaseDN());
+        } catch (DirectoryException ex) {
+            // the pattern never matches
+            return null;
+        }
     }
 
     /**
@@ -55,4 +71,31 @@ public class UserDNTypeURL {
     public LDAPURL getURL() {
         return this.url;
     }
+
+    /**
+     * Returns the DN pattern of a DNPATTERN type URL.
+     * @return The DN pattern, or {@code null} if the URL is not a valid DN
+     * pattern.
+     */
+    PatternDN getDNPattern() {
+        return this.dnPattern;
+    }
+
+    /**
+     * Indicates whether the evaluation of this URL only depends on the DN of
+     * the client, and not on the resource entry or on the client entry
+     * contents.
+     * @return {@code true} if only the client DN is used to evaluate this URL.
+     */
+    boolean dependsOnClientDNOnly() {
+        switch (dnType) {
+        case DN:
+        case DNPATTERN:
+        case ALL:
+        case ANYONE:
+            return true;
+        default:
+            return false;
+        }
+    }
 }
@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -454,6 +455,27 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       }
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName treeName, final List<? extends ByteSequence> keys)
+    {
+      // A single cursor searching the keys in ascending order mostly visits the same bottom internal nodes
+      final ByteString[] values = new ByteString[keys.size()];
+      try (com.sleepycat.je.Cursor cursor = getOrOpenTree(treeName).openCursor(txn, CursorConfig.READ_COMMITTED))
+      {
+        final DatabaseEntry dbValue = new DatabaseEntry();
+        for (int i : ascendingKeyOrder(keys))
+        {
+          final boolean isDefined = cursor.getSearchKey(db(keys.get(i)), dbValue, null) == SUCCESS;
+          values[i] = valueToBytes(dbValue, isDefined);
+        }
+      }
+      catch (DatabaseException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+      return Arrays.asList(values);
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -537,6 +559,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return delegate.readAll(treeName, keys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
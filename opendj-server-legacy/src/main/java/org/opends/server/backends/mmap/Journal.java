@@ -0,0 +1,177 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * An append-only file holding the committed transactions which have not been written to a segment yet.
+ * <p>
+ * Each transaction is appended as a single record made of the length of the encoded transaction, its CRC and
+ * the encoded transaction itself, as encoded by {@link Layer#encode(ByteStringBuilder)}. A record which has
+ * not been completely written when the server stops is detected and discarded when the journal is replayed.
+ */
+final class Journal implements Closeable
+{
+  private static final int RECORD_HEADER_SIZE = 12;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final ByteStringBuilder buffer = new ByteStringBuilder();
+  private final CRC32 crc = new CRC32();
+
+  /**
+   * Opens a new journal file, ready for appending.
+   *
+   * @param file
+   *          the journal file
+   * @throws IOException
+   *           if the file cannot be opened
+   */
+  Journal(File file) throws IOException
+  {
+    this.file = file;
+    this.raf = new RandomAccessFile(file, "rw");
+    this.channel = raf.getChannel();
+    channel.position(channel.size());
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Appends the changes of a transaction to this journal.
+   *
+   * @param changes
+   *          the changes of the transaction
+   * @param sync
+   *          whether the changes must be durably written before this method returns
+   * @throws IOException
+   *           if the changes cannot be written
+   */
+  void append(Layer changes, boolean sync) throws IOException
+  {
+    buffer.clear();
+    buffer.appendInt(0).appendLong(0);
+    changes.encode(buffer);
+    final int length = buffer.length() - RECORD_HEADER_SIZE;
+    crc.reset();
+    crc.update(buffer.getBackingArray(), RECORD_HEADER_SIZE, length);
+
+    final ByteBuffer record = ByteBuffer.wrap(buffer.getBackingArray(), 0, buffer.length());
+    record.putInt(0, length);
+    record.putLong(4, crc.getValue());
+    while (record.hasRemaining())
+    {
+      channel.write(record);
+    }
+    if (sync)
+    {
+      channel.force(false);
+    }
+    buffer.clearAndTruncate(BUFFER_SIZE, BUFFER_SIZE);
+  }
+
+  /**
+   * Flushes the content of this journal to disk.
+   *
+   * @throws IOException
+   *           if the content cannot be written
+   */
+  void sync() throws IOException
+  {
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    raf.close();
+  }
+
+  /**
+   * Replays the transactions of a journal file.
+   *
+   * @param file
+   *          the journal file
+   * @param layer
+   *          the layer where the transactions are applied
+   * @return {@code true} if the whole file could be replayed, {@code false} if it ends with an incomplete or
+   *         corrupted record which has been ignored
+   * @throws IOException
+   *           if the file cannot be read
+   */
+  static boolean replay(File file, Layer layer) throws IOException
+  {
+    final CRC32 crc = new CRC32();
+    long remaining = file.length();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+    {
+      for (;;)
+      {
+        final int length;
+        try
+        {
+          length = in.readInt();
+        }
+        catch (EOFException e)
+        {
+          return true;
+        }
+        try
+        {
+          final long expectedCrc = in.readLong();
+          remaining -= RECORD_HEADER_SIZE;
+          if (length < 0 || length > remaining)
+          {
+            return false;
+          }
+          remaining -= length;
+          final byte[] record = new byte[length];
+          in.readFully(record);
+          crc.reset();
+          crc.update(record, 0, length);
+          if (crc.getValue() != expectedCrc)
+          {
+            return false;
+          }
+          layer.apply(Layer.decode(ByteString.wrap(record).asReader()));
+        }
+        catch (EOFException e)
+        {
+          return false;
+        }
+      }
+    }
+  }
+}
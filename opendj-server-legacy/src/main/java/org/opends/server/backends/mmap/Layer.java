@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * A level of the storage held in memory.
+ * <p>
+ * Layers hold the changes of a write transaction until it commits, and the committed changes until they are
+ * written to a new segment file. Concurrent layers may be read while they are being updated: each record is
+ * updated atomically, and the tree of a layer is replaced rather than modified when it is cleared.
+ */
+final class Layer implements Level
+{
+  private static final byte CLEARED = 0x01;
+  private static final byte DELETED = 0x02;
+  /** Estimated memory used by a record, on top of its key and value. */
+  private static final int RECORD_OVERHEAD = 96;
+
+  private final boolean concurrent;
+  private final ConcurrentMap<TreeName, LayerTree> trees = new ConcurrentHashMap<>();
+  private final AtomicLong memorySize = new AtomicLong();
+
+  /**
+   * Creates a new empty layer.
+   *
+   * @param concurrent
+   *          whether the layer may be read and written by several threads at once
+   */
+  Layer(boolean concurrent)
+  {
+    this.concurrent = concurrent;
+  }
+
+  @Override
+  public LayerTree getTree(TreeName treeName)
+  {
+    return trees.get(treeName);
+  }
+
+  @Override
+  public Set<TreeName> getTreeNames()
+  {
+    return trees.keySet();
+  }
+
+  boolean isEmpty()
+  {
+    return trees.isEmpty();
+  }
+
+  /**
+   * Returns the estimated amount of memory used by the records of this layer.
+   *
+   * @return the estimated amount of memory used by the records of this layer
+   */
+  long getMemorySize()
+  {
+    return memorySize.get();
+  }
+
+  /**
+   * Adds, replaces or deletes a record.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param existsBelow
+   *          whether the tree exists in the older levels, only used if this layer does not contain the tree
+   * @param key
+   *          the key of the record
+   * @param value
+   *          the value of the record, or {@link Level#TOMBSTONE} to delete the record
+   */
+  void put(TreeName treeName, boolean existsBelow, ByteString key, ByteString value)
+  {
+    getWritableTree(treeName, existsBelow).records.put(key, value);
+    memorySize.addAndGet(key.length() + value.length() + RECORD_OVERHEAD);
+  }
+
+  /** Returns the tree where records can be written, creating it if it is missing or deleted. */
+  private LayerTree getWritableTree(TreeName treeName, boolean existsBelow)
+  {
+    LayerTree tree = trees.get(treeName);
+    while (tree == null || tree.deleted)
+    {
+      // Writing to a missing tree creates it. Trees may be concurrently created by importer threads.
+      final LayerTree newTree = new LayerTree(tree != null || !existsBelow, false, newRecords());
+      final boolean created =
+          tree == null ? trees.putIfAbsent(treeName, newTree) == null : trees.replace(treeName, tree, newTree);
+      tree = created ? newTree : trees.get(treeName);
+    }
+    return tree;
+  }
+
+  private NavigableMap<ByteString, ByteString> newRecords()
+  {
+    return concurrent ? new ConcurrentSkipListMap<ByteString, ByteString>() : new TreeMap<ByteString, ByteString>();
+  }
+
+  /**
+   * Replaces a tree by an empty tree, hiding the content of the tree in older levels.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param delete
+   *          whether the tree must be deleted rather than emptied
+   */
+  void clearTree(TreeName treeName, boolean delete)
+  {
+    trees.put(treeName, new LayerTree(true, delete, newRecords()));
+  }
+
+  /**
+   * Applies the changes of a newer layer to this layer.
+   *
+   * @param changes
+   *          the newer layer
+   */
+  void apply(Layer changes)
+  {
+    for (Map.Entry<TreeName, LayerTree> entry : changes.trees.entrySet())
+    {
+      final LayerTree source = entry.getValue();
+      final LayerTree target;
+      if (source.cleared)
+      {
+        target = new LayerTree(true, source.deleted, newRecords());
+        target.records.putAll(source.records);
+        trees.put(entry.getKey(), target);
+      }
+      else
+      {
+        target = getWritableTree(entry.getKey(), true);
+        target.records.putAll(source.records);
+      }
+    }
+    memorySize.addAndGet(changes.getMemorySize());
+  }
+
+  /**
+   * Encodes the content of this layer, for instance to write it to the journal.
+   *
+   * @param builder
+   *          the builder where to append the encoded layer
+   */
+  void encode(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(trees.size());
+    for (Map.Entry<TreeName, LayerTree> entry : trees.entrySet())
+    {
+      final LayerTree tree = entry.getValue();
+      final ByteString name = ByteString.valueOfUtf8(entry.getKey().toString());
+      builder.appendCompactUnsigned(name.length());
+      builder.appendBytes(name);
+      builder.appendByte((tree.cleared ? CLEARED : 0) | (tree.deleted ? DELETED : 0));
+      builder.appendCompactUnsigned(tree.records.size());
+      for (Map.Entry<ByteString, ByteString> record : tree.records.entrySet())
+      {
+        final ByteString key = record.getKey();
+        final ByteString value = record.getValue();
+        builder.appendCompactUnsigned(key.length());
+        builder.appendBytes(key);
+        if (value == TOMBSTONE)
+        {
+          builder.appendCompactUnsigned(0);
+        }
+        else
+        {
+          builder.appendCompactUnsigned(value.length() + 1L);
+          builder.appendBytes(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decodes a layer encoded by {@link #encode(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader of the encoded layer
+   * @return the decoded layer
+   */
+  static Layer decode(ByteSequenceReader reader)
+  {
+    final Layer layer = new Layer(false);
+    final int nbTrees = reader.readCompactUnsignedInt();
+    for (int i = 0; i < nbTrees; i++)
+    {
+      final TreeName treeName = TreeName.valueOf(reader.readStringUtf8(reader.readCompactUnsignedInt()));
+      final int flags = reader.readByte();
+      final LayerTree tree = new LayerTree((flags & CLEARED) != 0, (flags & DELETED) != 0, layer.newRecords());
+      layer.trees.put(treeName, tree);
+      final int nbRecords = reader.readCompactUnsignedInt();
+      for (int j = 0; j < nbRecords; j++)
+      {
+        final ByteString key = reader.readByteString(reader.readCompactUnsignedInt());
+        final int valueLength = reader.readCompactUnsignedInt();
+        final ByteString value = valueLength == 0 ? TOMBSTONE : reader.readByteString(valueLength - 1);
+        tree.records.put(key, value);
+        layer.memorySize.addAndGet(key.length() + value.length() + RECORD_OVERHEAD);
+      }
+    }
+    return layer;
+  }
+
+  /** The content of a tree in a layer. */
+  static final class LayerTree implements TreeSource
+  {
+    private final boolean cleared;
+    private final boolean deleted;
+    private final NavigableMap<ByteString, ByteString> records;
+
+    private LayerTree(boolean cleared, boolean deleted, NavigableMap<ByteString, ByteString> records)
+    {
+      this.cleared = cleared;
+      this.deleted = deleted;
+      this.records = records;
+    }
+
+    @Override
+    public boolean isCleared()
+    {
+      return cleared;
+    }
+
+    @Override
+    public boolean isDeleted()
+    {
+      return deleted;
+    }
+
+    @Override
+    public ByteString get(ByteSequence key)
+    {
+      return records.get(key.toByteString());
+    }
+
+    @Override
+    public SourceCursor openCursor()
+    {
+      return new LayerCursor(records);
+    }
+  }
+
+  /**
+   * Cursor over the records of a layer. The cursor navigates by key, so that it is not disturbed by the
+   * concurrent updates of the layer.
+   */
+  private static final class LayerCursor implements SourceCursor
+  {
+    private final NavigableMap<ByteString, ByteString> records;
+    private Map.Entry<ByteString, ByteString> current;
+
+    private LayerCursor(NavigableMap<ByteString, ByteString> records)
+    {
+      this.records = records;
+    }
+
+    @Override
+    public boolean first()
+    {
+      current = records.firstEntry();
+      return current != null;
+    }
+
+    @Override
+    public boolean last()
+    {
+      current = records.lastEntry();
+      return current != null;
+    }
+
+    @Override
+    public boolean ceiling(ByteSequence key)
+    {
+      current = records.ceilingEntry(key.toByteString());
+      return current != null;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (current != null)
+      {
+        current = records.higherEntry(current.getKey());
+      }
+      return current != null;
+    }
+
+    @Override
+    public boolean previous()
+    {
+      if (current != null)
+      {
+        current = records.lowerEntry(current.getKey());
+      }
+      return current != null;
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return current != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return current.getKey();
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      return current.getValue();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * A level of the storage, either held in memory or mapped from a file.
+ * <p>
+ * The content of the storage is the superposition of its levels: the records of newer levels hide the records
+ * of older levels having the same key. Deleted records are represented by {@link #TOMBSTONE} values, and a tree
+ * which has been cleared or deleted in a level hides the whole tree of older levels.
+ */
+interface Level
+{
+  /** The value representing a deleted record. It must only ever be compared by reference. */
+  ByteString TOMBSTONE = ByteString.wrap(new byte[0]);
+
+  /**
+   * Returns the content of a tree in this level.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @return the content of the tree, or {@code null} if this level does not contain the tree
+   */
+  TreeSource getTree(TreeName treeName);
+
+  /**
+   * Returns the names of the trees contained in this level, deleted trees included.
+   *
+   * @return the names of the trees contained in this level
+   */
+  Set<TreeName> getTreeNames();
+
+  /** The content of a tree in a level. */
+  interface TreeSource
+  {
+    /**
+     * Indicates whether this tree hides the same tree in older levels.
+     *
+     * @return {@code true} if this tree hides the same tree in older levels
+     */
+    boolean isCleared();
+
+    /**
+     * Indicates whether this tree has been deleted. Deleted trees are cleared and empty.
+     *
+     * @return {@code true} if this tree has been deleted
+     */
+    boolean isDeleted();
+
+    /**
+     * Returns the value of the record with the provided key.
+     *
+     * @param key
+     *          the key of the record
+     * @return the value of the record, {@link Level#TOMBSTONE} if it has been deleted in this level, or
+     *         {@code null} if this level does not contain the key
+     */
+    ByteString get(ByteSequence key);
+
+    /**
+     * Opens a cursor on the records of this tree, deleted records included.
+     *
+     * @return a new cursor, initially unpositioned
+     */
+    SourceCursor openCursor();
+  }
+
+  /** Iterates over the records of a tree in a level. Cursors are not thread safe. */
+  interface SourceCursor
+  {
+    boolean first();
+
+    boolean last();
+
+    /**
+     * Positions this cursor to the provided key, or to the next one if the key does not exist.
+     *
+     * @param key
+     *          the key where to position this cursor
+     * @return {@code true} if this cursor could be positioned
+     */
+    boolean ceiling(ByteSequence key);
+
+    boolean next();
+
+    boolean previous();
+
+    boolean isDefined();
+
+    ByteString getKey();
+
+    /**
+     * Returns the value of the current record.
+     *
+     * @return the value of the current record, {@link Level#TOMBSTONE} for deleted records
+     */
+    ByteString getValue();
+  }
+
+  /** Helper methods for stacks of levels, newest level first. */
+  final class Levels
+  {
+    private Levels()
+    {
+      // Utility class.
+    }
+
+    /**
+     * Returns the contents of a tree which are visible through the provided levels.
+     *
+     * @param levels
+     *          the levels, newest first
+     * @param treeName
+     *          the name of the tree
+     * @return the contents of the tree, newest first, the last one possibly hiding older levels
+     */
+    static List<TreeSource> getTreeSources(List<? extends Level> levels, TreeName treeName)
+    {
+      final List<TreeSource> sources = new ArrayList<>(levels.size());
+      for (Level level : levels)
+      {
+        final TreeSource tree = level.getTree(treeName);
+        if (tree != null)
+        {
+          sources.add(tree);
+          if (tree.isCleared())
+          {
+            break;
+          }
+        }
+      }
+      return sources;
+    }
+
+    static boolean treeExists(List<? extends Level> levels, TreeName treeName)
+    {
+      for (Level level : levels)
+      {
+        final TreeSource tree = level.getTree(treeName);
+        if (tree != null)
+        {
+          return !tree.isDeleted();
+        }
+      }
+      return false;
+    }
+
+    static ByteString read(List<? extends Level> levels, TreeName treeName, ByteSequence key)
+    {
+      for (Level level : levels)
+      {
+        final TreeSource tree = level.getTree(treeName);
+        if (tree != null)
+        {
+          final ByteString value = tree.get(key);
+          if (value != null)
+          {
+            return value != TOMBSTONE ? value : null;
+          }
+          if (tree.isCleared())
+          {
+            return null;
+          }
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+
+/**
+ * A read-only file mapped in memory.
+ * <p>
+ * Files larger than 2GB cannot be mapped by a single buffer, so the file is mapped by chunks. All the reads
+ * are absolute, which makes this class thread safe. The mapping is released when this object is garbage
+ * collected, so readers still using an older file are never exposed to an unmapped buffer.
+ */
+final class MappedFile
+{
+  private static final int CHUNK_SHIFT = 30;
+  private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+  private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final File file;
+  private final long size;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Maps the provided file in memory.
+   *
+   * @param file
+   *          the file to map
+   * @throws IOException
+   *           if the file cannot be mapped
+   */
+  MappedFile(File file) throws IOException
+  {
+    this.file = file;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel())
+    {
+      size = channel.size();
+      chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+      for (int i = 0; i < chunks.length; i++)
+      {
+        final long position = i * CHUNK_SIZE;
+        chunks[i] = channel.map(MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+      }
+    }
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  long size()
+  {
+    return size;
+  }
+
+  byte get(long position)
+  {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+  }
+
+  int getInt(long position)
+  {
+    final int offset = (int) (position & CHUNK_MASK);
+    if (offset <= CHUNK_SIZE - 4)
+    {
+      return chunks[(int) (position >>> CHUNK_SHIFT)].getInt(offset);
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++)
+    {
+      value = (value << 8) | (get(position + i) & 0xFF);
+    }
+    return value;
+  }
+
+  long getLong(long position)
+  {
+    final int offset = (int) (position & CHUNK_MASK);
+    if (offset <= CHUNK_SIZE - 8)
+    {
+      return chunks[(int) (position >>> CHUNK_SHIFT)].getLong(offset);
+    }
+    return ((long) getInt(position) << 32) | (getInt(position + 4) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Copies bytes of the file to a new byte string.
+   *
+   * @param position
+   *          the position of the first byte to copy
+   * @param length
+   *          the number of bytes to copy
+   * @return a byte string holding a copy of the bytes
+   */
+  ByteString getByteString(long position, int length)
+  {
+    final byte[] bytes = new byte[length];
+    long pos = position;
+    int copied = 0;
+    while (copied < length)
+    {
+      final ByteBuffer chunk = chunks[(int) (pos >>> CHUNK_SHIFT)].duplicate();
+      final int offset = (int) (pos & CHUNK_MASK);
+      final int n = Math.min(length - copied, chunk.limit() - offset);
+      chunk.position(offset);
+      chunk.get(bytes, copied, n);
+      copied += n;
+      pos += n;
+    }
+    return ByteString.wrap(bytes);
+  }
+
+  /**
+   * Compares bytes of the file with a byte sequence, in place, using the ordering of {@link ByteSequence}.
+   *
+   * @param position
+   *          the position of the bytes to compare
+   * @param length
+   *          the number of bytes to compare
+   * @param key
+   *          the byte sequence to compare with
+   * @return a negative integer, zero, or a positive integer as the bytes of the file are less than, equal to,
+   *         or greater than the byte sequence
+   */
+  int compare(long position, int length, ByteSequence key)
+  {
+    final int keyLength = key.length();
+    final int minLength = Math.min(length, keyLength);
+    for (int i = 0; i < minLength; i++)
+    {
+      final int b1 = get(position + i) & 0xFF;
+      final int b2 = key.byteAt(i) & 0xFF;
+      if (b1 != b2)
+      {
+        return b1 - b2;
+      }
+    }
+    return length - keyLength;
+  }
+}
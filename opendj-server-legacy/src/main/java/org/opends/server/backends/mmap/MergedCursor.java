@@ -0,0 +1,309 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import static org.opends.server.backends.mmap.Level.TOMBSTONE;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.mmap.Level.SourceCursor;
+import org.opends.server.backends.mmap.Level.TreeSource;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * Cursor over the records of a tree visible through several levels.
+ * <p>
+ * When the cursor moves forward, each source cursor is positioned on its first key greater than or equal to the
+ * current key. The current key is the smallest key of the source cursors, and its value is read from the newest
+ * source holding it. When moving backward, the source cursors are positioned on their last key lower than or
+ * equal to the current key.
+ */
+final class MergedCursor implements Cursor<ByteString, ByteString>
+{
+  /** The position of the source cursors relative to the current key. */
+  private enum State
+  {
+    UNPOSITIONED, FORWARD, BACKWARD
+  }
+
+  private final SourceCursor[] cursors;
+  private final boolean skipTombstones;
+  private final TreeName treeName;
+  private final WriteableTransaction txn;
+  private State state = State.UNPOSITIONED;
+  private ByteString currentKey;
+  private ByteString currentValue;
+
+  /**
+   * Creates a new cursor.
+   *
+   * @param sources
+   *          the contents of the tree, newest first
+   * @param skipTombstones
+   *          whether deleted records must be hidden, which is always the case except when merging levels
+   * @param treeName
+   *          the name of the tree
+   * @param txn
+   *          the transaction used to delete records, or {@code null} if the cursor is read-only
+   */
+  MergedCursor(List<TreeSource> sources, boolean skipTombstones, TreeName treeName, WriteableTransaction txn)
+  {
+    this.cursors = new SourceCursor[sources.size()];
+    for (int i = 0; i < cursors.length; i++)
+    {
+      cursors[i] = sources.get(i).openCursor();
+    }
+    this.skipTombstones = skipTombstones;
+    this.treeName = treeName;
+    this.txn = txn;
+  }
+
+  @Override
+  public boolean next()
+  {
+    switch (state)
+    {
+    case UNPOSITIONED:
+      for (SourceCursor cursor : cursors)
+      {
+        cursor.first();
+      }
+      state = State.FORWARD;
+      return resolveForward();
+
+    case BACKWARD:
+      if (currentKey == null)
+      {
+        return false;
+      }
+      seekForward(currentKey);
+      // Fall through to move past the current key
+    default:
+      if (currentKey != null)
+      {
+        advance(currentKey);
+      }
+      return resolveForward();
+    }
+  }
+
+  @Override
+  public boolean positionToKey(ByteSequence key)
+  {
+    seekForward(key);
+    if (resolveForward() && currentKey.equals(key))
+    {
+      return true;
+    }
+    // Keep the source cursors where they are, so that next() returns the next key
+    clearCurrent();
+    return false;
+  }
+
+  @Override
+  public boolean positionToKeyOrNext(ByteSequence key)
+  {
+    seekForward(key);
+    return resolveForward();
+  }
+
+  @Override
+  public boolean positionToLastKey()
+  {
+    for (SourceCursor cursor : cursors)
+    {
+      cursor.last();
+    }
+    state = State.BACKWARD;
+    return resolveBackward();
+  }
+
+  @Override
+  public boolean positionToIndex(int index)
+  {
+    state = State.UNPOSITIONED;
+    clearCurrent();
+    for (int i = 0; i <= index; i++)
+    {
+      if (!next())
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isDefined()
+  {
+    return currentKey != null;
+  }
+
+  @Override
+  public ByteString getKey()
+  {
+    throwIfUndefined();
+    return currentKey;
+  }
+
+  @Override
+  public ByteString getValue()
+  {
+    throwIfUndefined();
+    return currentValue;
+  }
+
+  @Override
+  public void delete()
+  {
+    throwIfUndefined();
+    if (txn == null)
+    {
+      throw new UnsupportedOperationException();
+    }
+    txn.delete(treeName, currentKey);
+  }
+
+  @Override
+  public void close()
+  {
+    // Nothing to release: the levels are released when they are not referenced anymore
+  }
+
+  private void seekForward(ByteSequence key)
+  {
+    for (SourceCursor cursor : cursors)
+    {
+      cursor.ceiling(key);
+    }
+    state = State.FORWARD;
+  }
+
+  /** Moves the source cursors positioned on the provided key to their next key. */
+  private void advance(ByteString key)
+  {
+    for (SourceCursor cursor : cursors)
+    {
+      if (cursor.isDefined() && cursor.getKey().equals(key))
+      {
+        cursor.next();
+      }
+    }
+  }
+
+  private void retreat(ByteString key)
+  {
+    for (SourceCursor cursor : cursors)
+    {
+      if (cursor.isDefined() && cursor.getKey().equals(key))
+      {
+        cursor.previous();
+      }
+    }
+  }
+
+  private boolean resolveForward()
+  {
+    for (;;)
+    {
+      final SourceCursor newest = findNewest(true);
+      if (newest == null)
+      {
+        clearCurrent();
+        return false;
+      }
+      if (!skipTombstones || newest.getValue() != TOMBSTONE)
+      {
+        return setCurrent(newest);
+      }
+      advance(newest.getKey());
+    }
+  }
+
+  private boolean resolveBackward()
+  {
+    for (;;)
+    {
+      final SourceCursor newest = findNewest(false);
+      if (newest == null)
+      {
+        clearCurrent();
+        return false;
+      }
+      if (!skipTombstones || newest.getValue() != TOMBSTONE)
+      {
+        return setCurrent(newest);
+      }
+      retreat(newest.getKey());
+    }
+  }
+
+  /**
+   * Returns the newest source cursor positioned on the smallest key when moving forward, or on the greatest key
+   * when moving backward.
+   */
+  private SourceCursor findNewest(boolean forward)
+  {
+    SourceCursor newest = null;
+    for (SourceCursor cursor : cursors)
+    {
+      if (!cursor.isDefined())
+      {
+        continue;
+      }
+      if (newest == null)
+      {
+        newest = cursor;
+      }
+      else
+      {
+        // Strict comparison: the newest source wins when several sources hold the same key
+        final int c = cursor.getKey().compareTo(newest.getKey());
+        if (forward ? c < 0 : c > 0)
+        {
+          newest = cursor;
+        }
+      }
+    }
+    return newest;
+  }
+
+  private boolean setCurrent(SourceCursor cursor)
+  {
+    currentKey = cursor.getKey();
+    currentValue = cursor.getValue();
+    return true;
+  }
+
+  private void clearCurrent()
+  {
+    currentKey = null;
+    currentValue = null;
+  }
+
+  private void throwIfUndefined()
+  {
+    if (!isDefined())
+    {
+      throw new NoSuchElementException();
+    }
+  }
+}
@@ -0,0 +1,1289 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import static java.nio.file.StandardCopyOption.*;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.messages.UtilityMessages.*;
+import static org.opends.server.backends.mmap.Level.Levels.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MmapBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
+import org.opends.server.api.DiskSpaceMonitorHandler;
+import org.opends.server.backends.mmap.Level.TreeSource;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+import org.opends.server.util.BackupManager;
+
+/**
+ * Memory-mapped implementation of the {@link Storage} engine, optimized for read-mostly backends such as the
+ * backends of replicas.
+ * <p>
+ * The content of the storage is made of immutable sorted files, the segments, mapped in memory, and of an
+ * in-memory layer holding the latest changes. Readers never take locks: each transaction works on the levels
+ * which were current when it started. Write transactions are serialized: their changes are appended to a journal
+ * and then applied to the in-memory layer. When the in-memory layer becomes too large, it is written to a new
+ * segment in the background, and small segments are merged together into larger ones.
+ */
+public final class MmapStorage implements Storage, Backupable, ConfigurationChangeListener<MmapBackendCfg>,
+  DiskSpaceMonitorHandler
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final String MANIFEST_NAME = "manifest";
+  private static final String SEGMENT_PREFIX = "segment.";
+  private static final String JOURNAL_PREFIX = "journal.";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final Pattern STORAGE_FILE_NAME = Pattern.compile("(segment|journal)\\.(\\d+)");
+  private static final long MANIFEST_MAGIC = 0x4F444A4D4D41504DL;
+  private static final int MANIFEST_VERSION = 1;
+
+  /** The levels of the storage at a given time, newest first. Versions are immutable. */
+  private static final class Version
+  {
+    private final Layer active;
+    /** The previous active layer while it is written to a segment, otherwise {@code null}. */
+    private final Layer frozen;
+    private final List<Segment> segments;
+    private final List<Level> levels;
+
+    private Version(Layer active, Layer frozen, List<Segment> segments)
+    {
+      this.active = active;
+      this.frozen = frozen;
+      this.segments = segments;
+      final List<Level> allLevels = new ArrayList<>(segments.size() + 2);
+      allLevels.add(active);
+      if (frozen != null)
+      {
+        allLevels.add(frozen);
+      }
+      allLevels.addAll(segments);
+      this.levels = Collections.unmodifiableList(allLevels);
+    }
+  }
+
+  /** Transaction reading the levels which were current when it started. */
+  private class ReadTransaction implements WriteableTransaction
+  {
+    final List<Level> levels;
+
+    ReadTransaction(List<Level> levels)
+    {
+      this.levels = levels;
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      return Level.Levels.read(levels, treeName, key);
+    }
+
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      // Resolve the tree once, and read the keys in ascending order to touch the mapped pages sequentially
+      final List<TreeSource> sources = getTreeSources(levels, treeName);
+      final ByteString[] values = new ByteString[keys.size()];
+      for (int i : ascendingKeyOrder(keys))
+      {
+        for (TreeSource source : sources)
+        {
+          final ByteString value = source.get(keys.get(i));
+          if (value != null)
+          {
+            values[i] = value != Level.TOMBSTONE ? value : null;
+            break;
+          }
+        }
+      }
+      return Arrays.asList(values);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new MergedCursor(getTreeSources(levels, treeName), true, treeName, this);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      final List<TreeSource> sources = getTreeSources(levels, treeName);
+      if (sources.size() == 1 && sources.get(0) instanceof Segment.SegmentTree)
+      {
+        return ((Segment.SegmentTree) sources.get(0)).getLiveRecordCount();
+      }
+      try (final Cursor<?, ?> cursor = openCursor(treeName))
+      {
+        long count = 0;
+        while (cursor.next())
+        {
+          count++;
+        }
+        return count;
+      }
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      throw new ReadOnlyStorageException();
+    }
+  }
+
+  /** Transaction holding its changes in a private layer on top of the levels, until it commits. */
+  private final class WriteTransaction extends ReadTransaction
+  {
+    private final Layer changes;
+    private final List<Level> committedLevels;
+
+    private WriteTransaction(Version version)
+    {
+      this(new Layer(false), version.levels);
+    }
+
+    private WriteTransaction(Layer changes, List<Level> committedLevels)
+    {
+      super(prepend(changes, committedLevels));
+      this.changes = changes;
+      this.committedLevels = committedLevels;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand && !treeExists(levels, treeName))
+      {
+        changes.clearTree(treeName, false);
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      changes.clearTree(treeName, true);
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      changes.put(treeName, treeExists(committedLevels, treeName), key.toByteString(), value.toByteString());
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      final ByteString oldValue = read(treeName, key);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (Objects.equals(newValue, oldValue))
+      {
+        return false;
+      }
+      final ByteString newRecord = newValue != null ? newValue.toByteString() : Level.TOMBSTONE;
+      changes.put(treeName, treeExists(committedLevels, treeName), key.toByteString(), newRecord);
+      return true;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      if (read(treeName, key) == null)
+      {
+        return false;
+      }
+      changes.put(treeName, treeExists(committedLevels, treeName), key.toByteString(), Level.TOMBSTONE);
+      return true;
+    }
+  }
+
+  /** Memory-mapped implementation of the {@link Importer} interface. */
+  private final class ImporterImpl implements Importer
+  {
+    @Override
+    public void clearTree(TreeName treeName)
+    {
+      importLock.readLock().lock();
+      try
+      {
+        version.active.clearTree(treeName, false);
+      }
+      finally
+      {
+        importLock.readLock().unlock();
+      }
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      final Layer active;
+      importLock.readLock().lock();
+      try
+      {
+        final Version current = version;
+        active = current.active;
+        active.put(treeName, treeExists(current.segments, treeName), key.toByteString(), value.toByteString());
+      }
+      finally
+      {
+        importLock.readLock().unlock();
+      }
+      if (active.getMemorySize() >= config.getDBWriteBufferSize())
+      {
+        try
+        {
+          flushActiveLayer(active);
+        }
+        catch (IOException e)
+        {
+          throw new StorageRuntimeException(e);
+        }
+      }
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      return Level.Levels.read(version.levels, treeName, key);
+    }
+
+    @Override
+    public SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new MergedCursor(getTreeSources(version.levels, treeName), true, treeName, null);
+    }
+
+    @Override
+    public void close()
+    {
+      try
+      {
+        flushActiveLayer(null);
+        maintenanceLock.lock();
+        try
+        {
+          final List<Segment> segments = version.segments;
+          if (segments.size() > 1)
+          {
+            merge(segments, segments.size());
+          }
+        }
+        finally
+        {
+          maintenanceLock.unlock();
+        }
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+      finally
+      {
+        MmapStorage.this.close();
+      }
+    }
+  }
+
+  private final ServerContext serverContext;
+  private final File backendDirectory;
+  private MmapBackendCfg config;
+  private AccessMode accessMode;
+  private DiskSpaceMonitor diskMonitor;
+  private StorageStatus storageStatus = StorageStatus.working();
+
+  /** The current levels of the storage, {@code null} when the storage is not open. */
+  private volatile Version version;
+  /** Protects the replacement of {@link #version} and {@link #flushPending}. */
+  private final Object versionLock = new Object();
+  /** Whether a flush of the frozen layer has been submitted and has not completed yet. */
+  private boolean flushPending;
+  /** Serializes the write transactions. */
+  private final ReentrantLock writeLock = new ReentrantLock();
+  /** Serializes the tasks writing or deleting segments, and the backups. */
+  private final ReentrantLock maintenanceLock = new ReentrantLock();
+  /** Prevents importer threads from writing to the active layer while it is written to a segment. */
+  private final ReadWriteLock importLock = new ReentrantReadWriteLock();
+  private ExecutorService flushExecutor;
+  /** The journal of the active layer, {@code null} when importing or in read-only mode. */
+  private Journal journal;
+  private long journalSeq;
+  /** The first journal holding changes which are not in the frozen layer. */
+  private volatile long frozenReplayFrom;
+  /** The first journal holding changes which are not in the segments. */
+  private long replayFrom;
+  private long nextSegmentId;
+
+  /**
+   * Creates a new memory-mapped storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   * @param serverContext
+   *          This server instance context
+   */
+  public MmapStorage(final MmapBackendCfg cfg, ServerContext serverContext)
+  {
+    this.serverContext = serverContext;
+    backendDirectory = getBackendDirectory(cfg);
+    config = cfg;
+    cfg.addMmapChangeListener(this);
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    this.accessMode = accessMode;
+    if (!accessMode.isWriteable() && !backendDirectory.exists())
+    {
+      // Do not create the backend directory
+      version = new Version(new Layer(true), null, Collections.<Segment> emptyList());
+      return;
+    }
+    open0(accessMode.isWriteable());
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    accessMode = AccessMode.READ_WRITE;
+    open0(false);
+    return new ImporterImpl();
+  }
+
+  private void open0(boolean journaling) throws ConfigException
+  {
+    if (version != null)
+    {
+      throw new IllegalStateException(
+          "Storage is already open, either the backend is enabled or an import is currently running.");
+    }
+    setupStorageFiles(backendDirectory, config.getDBDirectoryPermissions(), config.dn());
+    try
+    {
+      load();
+      if (accessMode.isWriteable())
+      {
+        deleteStaleFiles();
+      }
+      if (journaling)
+      {
+        journal = new Journal(getJournalFile(journalSeq));
+        flushExecutor = Executors.newSingleThreadExecutor(
+            newThreadFactory(null, "Storage flusher %d for " + config.getBackendId(), true));
+      }
+    }
+    catch (IOException e)
+    {
+      version = null;
+      throw new StorageRuntimeException(e);
+    }
+    diskMonitor = serverContext.getDiskSpaceMonitor();
+    registerMonitoredDirectory(config);
+  }
+
+  /** Maps the segments listed in the manifest and replays the journals in a new active layer. */
+  private void load() throws IOException
+  {
+    final List<Segment> segments = new ArrayList<>();
+    replayFrom = 0;
+    nextSegmentId = 0;
+    final File manifest = new File(backendDirectory, MANIFEST_NAME);
+    if (manifest.exists())
+    {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest))))
+      {
+        if (in.readLong() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION)
+        {
+          throw corruptFile(manifest, "invalid header");
+        }
+        replayFrom = in.readLong();
+        final int nbSegments = in.readInt();
+        for (int i = 0; i < nbSegments; i++)
+        {
+          final long id = in.readLong();
+          segments.add(openSegment(id));
+          nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+      }
+    }
+
+    final Layer active = new Layer(true);
+    long lastJournalSeq = replayFrom - 1;
+    for (Long seq : listStorageFiles(JOURNAL_PREFIX))
+    {
+      if (seq >= replayFrom)
+      {
+        final File journalFile = getJournalFile(seq);
+        if (!Journal.replay(journalFile, active))
+        {
+          logger.warn(WARN_MMAP_STORAGE_JOURNAL_TRUNCATED, journalFile, config.getBackendId());
+        }
+      }
+      lastJournalSeq = Math.max(lastJournalSeq, seq);
+    }
+    journalSeq = lastJournalSeq + 1;
+    version = new Version(active, null, Collections.unmodifiableList(segments));
+  }
+
+  private Segment openSegment(long id) throws IOException
+  {
+    final File file = getSegmentFile(id);
+    try
+    {
+      return Segment.open(id, file);
+    }
+    catch (IOException e)
+    {
+      throw corruptFile(file, e.getMessage());
+    }
+  }
+
+  private StorageRuntimeException corruptFile(File file, String reason)
+  {
+    return new StorageRuntimeException(
+        ERR_MMAP_STORAGE_CORRUPT_FILE.get(file, config.getBackendId(), reason).toString());
+  }
+
+  /** Deletes the files left over by an interrupted flush or merge. */
+  private void deleteStaleFiles()
+  {
+    final Set<Long> liveSegments = new HashSet<>();
+    for (Segment segment : version.segments)
+    {
+      liveSegments.add(segment.getID());
+    }
+    for (Long id : listStorageFiles(SEGMENT_PREFIX))
+    {
+      if (!liveSegments.contains(id))
+      {
+        getSegmentFile(id).delete();
+      }
+    }
+    deleteJournalsBefore(replayFrom);
+    final File[] tmpFiles = backendDirectory.listFiles(new FileFilter()
+    {
+      @Override
+      public boolean accept(File file)
+      {
+        return file.getName().endsWith(TMP_SUFFIX) || file.getName().endsWith(TMP_SUFFIX + ".index");
+      }
+    });
+    if (tmpFiles != null)
+    {
+      for (File file : tmpFiles)
+      {
+        file.delete();
+      }
+    }
+  }
+
+  private void deleteJournalsBefore(long seq)
+  {
+    for (Long journalSeq : listStorageFiles(JOURNAL_PREFIX))
+    {
+      if (journalSeq < seq)
+      {
+        getJournalFile(journalSeq).delete();
+      }
+    }
+  }
+
+  /** Returns the identifiers of the segment or journal files, in ascending order. */
+  private Set<Long> listStorageFiles(String prefix)
+  {
+    final TreeMap<Long, File> files = new TreeMap<>();
+    final File[] allFiles = backendDirectory.listFiles();
+    if (allFiles != null)
+    {
+      for (File file : allFiles)
+      {
+        final Matcher matcher = STORAGE_FILE_NAME.matcher(file.getName());
+        if (matcher.matches() && prefix.equals(matcher.group(1) + "."))
+        {
+          files.put(Long.valueOf(matcher.group(2)), file);
+        }
+      }
+    }
+    return files.keySet();
+  }
+
+  private File getSegmentFile(long id)
+  {
+    return new File(backendDirectory, SEGMENT_PREFIX + id);
+  }
+
+  private File getJournalFile(long seq)
+  {
+    return new File(backendDirectory, JOURNAL_PREFIX + seq);
+  }
+
+  @Override
+  public void close()
+  {
+    if (version != null)
+    {
+      if (flushExecutor != null)
+      {
+        flushExecutor.shutdown();
+        try
+        {
+          flushExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+        flushExecutor = null;
+      }
+      if (accessMode.isWriteable())
+      {
+        writeLock.lock();
+        try
+        {
+          closeSilently(journal);
+          journal = null;
+          flushActiveLayer(null);
+        }
+        catch (IOException | RuntimeException e)
+        {
+          // The changes will be replayed from the journal when the storage is opened again
+          logger.error(ERR_MMAP_STORAGE_FLUSH_FAILED, config.getBackendId(), stackTraceToSingleLineString(e));
+        }
+        finally
+        {
+          writeLock.unlock();
+        }
+      }
+      version = null;
+    }
+    config.removeMmapChangeListener(this);
+    if (diskMonitor != null)
+    {
+      diskMonitor.deregisterMonitoredDirectory(getDirectory(), this);
+    }
+  }
+
+  @Override
+  public <T> T read(final ReadOperation<T> operation) throws Exception
+  {
+    try
+    {
+      return operation.run(new ReadTransaction(getLevels()));
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  @Override
+  public void write(final WriteOperation operation) throws Exception
+  {
+    if (journal == null)
+    {
+      // Read-only storage, or storage opened for an import
+      try
+      {
+        operation.run(new ReadTransaction(getLevels()));
+        return;
+      }
+      catch (final StorageRuntimeException e)
+      {
+        throw unwrap(e);
+      }
+    }
+
+    writeLock.lock();
+    try
+    {
+      final WriteTransaction txn = new WriteTransaction(version);
+      try
+      {
+        operation.run(txn);
+      }
+      catch (final StorageRuntimeException e)
+      {
+        throw unwrap(e);
+      }
+      commit(txn.changes);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+    waitForFlushIfTooManyChanges();
+  }
+
+  private List<Level> getLevels()
+  {
+    final Version current = version;
+    return current != null ? current.levels : Collections.<Level> emptyList();
+  }
+
+  private Exception unwrap(StorageRuntimeException e) throws Exception
+  {
+    if (e.getCause() != null)
+    {
+      throw (Exception) e.getCause();
+    }
+    throw e;
+  }
+
+  /** Writes the changes of a transaction to the journal and makes them visible to the readers. */
+  private void commit(Layer changes) throws IOException
+  {
+    if (changes.isEmpty())
+    {
+      return;
+    }
+    journal.append(changes, !config.isDBTxnNoSync());
+    version.active.apply(changes);
+
+    synchronized (versionLock)
+    {
+      final Version current = version;
+      if (current.active.getMemorySize() < config.getDBWriteBufferSize())
+      {
+        return;
+      }
+      if (current.frozen == null)
+      {
+        // Changes committed from now on go to a new journal, which will be replayed if the server stops
+        // before the frozen layer is written
+        final Journal newJournal = new Journal(getJournalFile(journalSeq + 1));
+        closeSilently(journal);
+        journal = newJournal;
+        journalSeq++;
+        frozenReplayFrom = journalSeq;
+        version = new Version(new Layer(true), current.active, current.segments);
+      }
+      else if (flushPending)
+      {
+        return;
+      }
+      // Either a new frozen layer, or a previous flush failed and must be retried
+      flushPending = true;
+      flushExecutor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          flushFrozenLayer();
+        }
+      });
+    }
+  }
+
+  /** Slows down the writers when the changes are committed faster than they can be written to segments. */
+  private void waitForFlushIfTooManyChanges()
+  {
+    synchronized (versionLock)
+    {
+      try
+      {
+        while (flushPending && version != null
+            && version.active.getMemorySize() >= 2 * config.getDBWriteBufferSize())
+        {
+          versionLock.wait();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Writes the frozen layer to a new segment, then merges the small segments. */
+  private void flushFrozenLayer()
+  {
+    maintenanceLock.lock();
+    try
+    {
+      try
+      {
+        final Layer frozen = version.frozen;
+        if (frozen == null)
+        {
+          return;
+        }
+        final Segment segment = writeSegment(Collections.<Level> singletonList(frozen), false);
+        synchronized (versionLock)
+        {
+          final Version current = version;
+          final List<Segment> segments = prepend(segment, current.segments);
+          writeManifest(frozenReplayFrom, segments);
+          version = new Version(current.active, null, segments);
+          flushPending = false;
+          versionLock.notifyAll();
+        }
+        deleteJournalsBefore(replayFrom);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        logger.error(ERR_MMAP_STORAGE_FLUSH_FAILED, config.getBackendId(), stackTraceToSingleLineString(e));
+        synchronized (versionLock)
+        {
+          flushPending = false;
+          versionLock.notifyAll();
+        }
+        return;
+      }
+
+      try
+      {
+        compact();
+      }
+      catch (IOException | RuntimeException e)
+      {
+        logger.error(ERR_MMAP_STORAGE_FLUSH_FAILED, config.getBackendId(), stackTraceToSingleLineString(e));
+      }
+    }
+    finally
+    {
+      maintenanceLock.unlock();
+    }
+  }
+
+  /**
+   * Writes the active layer to a new segment, while no other thread writes to it. This is used when importing,
+   * and when closing the storage.
+   *
+   * @param expectedActive
+   *          the active layer which has to be written, or {@code null} to write the current active layer
+   */
+  private void flushActiveLayer(Layer expectedActive) throws IOException
+  {
+    importLock.writeLock().lock();
+    maintenanceLock.lock();
+    try
+    {
+      final Version current = version;
+      if ((expectedActive != null && current.active != expectedActive)
+          || (current.active.isEmpty() && current.frozen == null))
+      {
+        // Already written by another importer thread, or nothing to write
+        return;
+      }
+      final List<Level> layers = new ArrayList<>(2);
+      layers.add(current.active);
+      if (current.frozen != null)
+      {
+        layers.add(current.frozen);
+      }
+      final Segment segment = writeSegment(layers, false);
+      synchronized (versionLock)
+      {
+        final List<Segment> segments = prepend(segment, current.segments);
+        // There is no journal when importing, and the current journal is closed when closing the storage
+        writeManifest(journalSeq + 1, segments);
+        version = new Version(new Layer(true), null, segments);
+      }
+      deleteJournalsBefore(replayFrom);
+    }
+    finally
+    {
+      maintenanceLock.unlock();
+      importLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Merges the newest segments as long as their accumulated size is comparable to the size of the next segment,
+   * so that each record is rewritten a logarithmic number of times.
+   */
+  private void compact() throws IOException
+  {
+    for (;;)
+    {
+      final List<Segment> segments = version.segments;
+      final int nbSegments = segments.size();
+      if (nbSegments < 2)
+      {
+        return;
+      }
+      long totalSize = segments.get(0).size();
+      int count = 1;
+      while (count < nbSegments && totalSize * 2 >= segments.get(count).size())
+      {
+        totalSize += segments.get(count).size();
+        count++;
+      }
+      if (count < 2)
+      {
+        return;
+      }
+      merge(segments, count);
+    }
+  }
+
+  /** Replaces the newest segments by a single segment. Must be called while holding the maintenance lock. */
+  private void merge(List<Segment> segments, int count) throws IOException
+  {
+    final List<Segment> merged = segments.subList(0, count);
+    final Segment segment = writeSegment(merged, count == segments.size());
+    synchronized (versionLock)
+    {
+      // Segments are only added while holding the maintenance lock: the newest segments are the merged ones
+      final Version current = version;
+      final List<Segment> oldSegments = current.segments;
+      final List<Segment> newSegments = prepend(segment, oldSegments.subList(count, oldSegments.size()));
+      writeManifest(replayFrom, newSegments);
+      version = new Version(current.active, current.frozen, newSegments);
+    }
+    for (Segment oldSegment : merged)
+    {
+      // Readers may still use the mapping, which remains valid after the file is deleted
+      oldSegment.getFile().delete();
+    }
+  }
+
+  /**
+   * Writes the content of levels to a new segment.
+   *
+   * @param levels
+   *          the levels to write, newest first
+   * @param fullMerge
+   *          whether the levels are all the levels of the storage, in which case deleted records and trees are
+   *          dropped
+   * @return the new segment, or {@code null} if the levels contain no trees
+   */
+  private Segment writeSegment(List<? extends Level> levels, boolean fullMerge) throws IOException
+  {
+    final Set<TreeName> treeNames = new HashSet<>();
+    for (Level level : levels)
+    {
+      treeNames.addAll(level.getTreeNames());
+    }
+
+    final long id = nextSegmentId++;
+    final File file = getSegmentFile(id);
+    final File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+    boolean empty = true;
+    try (Segment.Writer writer = new Segment.Writer(tmpFile))
+    {
+      for (TreeName treeName : treeNames)
+      {
+        final List<TreeSource> sources = getTreeSources(levels, treeName);
+        final boolean deleted = sources.get(0).isDeleted();
+        if (fullMerge && deleted)
+        {
+          continue;
+        }
+        // Deleted records must be kept as long as they may hide records of older segments
+        final boolean cleared = fullMerge || sources.get(sources.size() - 1).isCleared();
+        writer.beginTree(treeName, cleared, deleted);
+        try (MergedCursor cursor = new MergedCursor(sources, cleared, treeName, null))
+        {
+          while (cursor.next())
+          {
+            writer.add(cursor.getKey(), cursor.getValue());
+          }
+        }
+        writer.endTree();
+        empty = false;
+      }
+      if (!empty)
+      {
+        writer.finish();
+      }
+    }
+    if (empty)
+    {
+      tmpFile.delete();
+      return null;
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), ATOMIC_MOVE);
+    return openSegment(id);
+  }
+
+  /** Durably replaces the manifest, which lists the segments and the first journal to replay. */
+  private void writeManifest(long newReplayFrom, List<Segment> segments) throws IOException
+  {
+    final File manifest = new File(backendDirectory, MANIFEST_NAME);
+    final File tmpFile = new File(backendDirectory, MANIFEST_NAME + TMP_SUFFIX);
+    try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut)))
+    {
+      out.writeLong(MANIFEST_MAGIC);
+      out.writeInt(MANIFEST_VERSION);
+      out.writeLong(newReplayFrom);
+      out.writeInt(segments.size());
+      for (Segment segment : segments)
+      {
+        out.writeLong(segment.getID());
+      }
+      out.flush();
+      fileOut.getChannel().force(true);
+    }
+    Files.move(tmpFile.toPath(), manifest.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    replayFrom = newReplayFrom;
+  }
+
+  private static <T> List<T> prepend(T first, List<? extends T> others)
+  {
+    final List<T> list = new ArrayList<>(others.size() + 1);
+    if (first != null)
+    {
+      list.add(first);
+    }
+    list.addAll(others);
+    return Collections.unmodifiableList(list);
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    StorageUtils.removeStorageFiles(backendDirectory);
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return storageStatus;
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    final List<Level> levels = getLevels();
+    final Set<TreeName> results = new HashSet<>();
+    for (Level level : levels)
+    {
+      results.addAll(level.getTreeNames());
+    }
+    for (Iterator<TreeName> it = results.iterator(); it.hasNext();)
+    {
+      if (!treeExists(levels, it.next()))
+      {
+        it.remove();
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return true;
+  }
+
+  @Override
+  public File getDirectory()
+  {
+    return getBackendDirectory(config);
+  }
+
+  private static File getBackendDirectory(MmapBackendCfg cfg)
+  {
+    return getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId());
+  }
+
+  /** Filter to retrieve the storage files to backup. */
+  private static final FileFilter BACKUP_FILES_FILTER = new FileFilter()
+  {
+    @Override
+    public boolean accept(File file)
+    {
+      return MANIFEST_NAME.equals(file.getName()) || STORAGE_FILE_NAME.matcher(file.getName()).matches();
+    }
+  };
+
+  @Override
+  public ListIterator<Path> getFilesToBackup() throws DirectoryException
+  {
+    final Version current = version;
+    if (current == null)
+    {
+      return BackupManager.getFiles(getDirectory(), BACKUP_FILES_FILTER, config.getBackendId()).listIterator();
+    }
+    final List<Path> files = new ArrayList<>();
+    final File manifest = new File(backendDirectory, MANIFEST_NAME);
+    if (manifest.exists())
+    {
+      files.add(manifest.toPath());
+    }
+    for (Segment segment : current.segments)
+    {
+      files.add(segment.getFile().toPath());
+    }
+    for (Long seq : listStorageFiles(JOURNAL_PREFIX))
+    {
+      if (seq >= replayFrom)
+      {
+        files.add(getJournalFile(seq).toPath());
+      }
+    }
+    return files.listIterator();
+  }
+
+  @Override
+  public Path beforeRestore() throws DirectoryException
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isDirectRestore()
+  {
+    // restore is done in an intermediate directory
+    return false;
+  }
+
+  @Override
+  public void afterRestore(Path restoreDirectory, Path saveDirectory) throws DirectoryException
+  {
+    // intermediate directory content is moved to database directory
+    File targetDirectory = getDirectory();
+    recursiveDelete(targetDirectory);
+    try
+    {
+      Files.move(restoreDirectory, targetDirectory.toPath());
+    }
+    catch(IOException e)
+    {
+      LocalizableMessage msg = ERR_CANNOT_RENAME_RESTORE_DIRECTORY.get(restoreDirectory, targetDirectory.getPath());
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), msg);
+    }
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    // Segments are neither written nor deleted while the backup is running, and a partially written
+    // journal record is ignored when the journal is replayed
+    maintenanceLock.lock();
+    try
+    {
+      new BackupManager(config.getBackendId()).createBackup(this, backupConfig);
+    }
+    finally
+    {
+      maintenanceLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).restoreBackup(this, restoreConfig);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(MmapBackendCfg newCfg,
+      List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(newCfg, unacceptableReasons);
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(MmapBackendCfg cfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(cfg, unacceptableReasons);
+  }
+
+  private static boolean checkConfigurationDirectories(MmapBackendCfg cfg,
+    List<LocalizableMessage> unacceptableReasons)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    File newBackendDirectory = getBackendDirectory(cfg);
+
+    checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, true);
+    checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(MmapBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+
+    try
+    {
+      File newBackendDirectory = getBackendDirectory(cfg);
+
+      // Create the directory if it doesn't exist.
+      if(!cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, false);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        ccr.setAdminActionRequired(true);
+        ccr.addMessage(NOTE_CONFIG_DB_DIR_REQUIRES_RESTART.get(config.getDBDirectory(), cfg.getDBDirectory()));
+      }
+
+      if (!cfg.getDBDirectoryPermissions().equalsIgnoreCase(config.getDBDirectoryPermissions())
+          || !cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        setDBDirPermissions(newBackendDirectory, cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+      }
+      if (diskMonitor != null)
+      {
+        registerMonitoredDirectory(cfg);
+      }
+      config = cfg;
+    }
+    catch (Exception e)
+    {
+      addErrorMessage(ccr, LocalizableMessage.raw(stackTraceToSingleLineString(e)));
+    }
+    return ccr;
+  }
+
+  private void registerMonitoredDirectory(MmapBackendCfg cfg)
+  {
+    diskMonitor.registerMonitoredDirectory(
+      cfg.getBackendId() + " backend",
+      getDirectory(),
+      cfg.getDiskLowThreshold(),
+      cfg.getDiskFullThreshold(),
+      this);
+  }
+
+  @Override
+  public void diskFullThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskLowThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceLow(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskSpaceRestored(File directory, long lowThresholdInBytes, long fullThresholdInBytes) {
+    storageStatus = StorageStatus.working();
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import static org.forgerock.util.Utils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * A level of the storage mapped from an immutable file.
+ * <p>
+ * The records of each tree are stored sorted by key, followed by an index holding the position of each record.
+ * Keys are looked up by a binary search of the index, comparing the keys in place in the mapped file, and
+ * records are read directly from the mapping without going through a buffer pool. The file layout is:
+ * <pre>
+ * MAGIC
+ * for each tree: RECORD* RECORD_POSITION*
+ * DIRECTORY
+ * DIRECTORY_POSITION MAGIC
+ *
+ * RECORD    = KEY_LENGTH VALUE_LENGTH KEY VALUE, with VALUE_LENGTH = -1 for deleted records
+ * DIRECTORY = TREE_COUNT (TREE_NAME FLAGS RECORD_COUNT DELETED_RECORD_COUNT INDEX_POSITION)*
+ * </pre>
+ */
+final class Segment implements Level
+{
+  private static final long MAGIC = 0x4F444A4D4D415031L;
+  private static final byte CLEARED = 0x01;
+  private static final byte DELETED = 0x02;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int FOOTER_SIZE = 16;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final long id;
+  private final MappedFile file;
+  private final Map<TreeName, SegmentTree> trees;
+
+  private Segment(long id, MappedFile file, Map<TreeName, SegmentTree> trees)
+  {
+    this.id = id;
+    this.file = file;
+    this.trees = trees;
+  }
+
+  /**
+   * Maps a segment file in memory.
+   *
+   * @param id
+   *          the identifier of the segment
+   * @param file
+   *          the segment file
+   * @return the segment
+   * @throws IOException
+   *           if the file cannot be mapped or is not a valid segment file
+   */
+  static Segment open(long id, File file) throws IOException
+  {
+    final MappedFile mappedFile = new MappedFile(file);
+    final long size = mappedFile.size();
+    if (size < 8 + FOOTER_SIZE || mappedFile.getLong(0) != MAGIC || mappedFile.getLong(size - 8) != MAGIC)
+    {
+      throw new IOException("invalid header or footer");
+    }
+    final long directoryPosition = mappedFile.getLong(size - FOOTER_SIZE);
+    if (directoryPosition < 8 || directoryPosition > size - FOOTER_SIZE)
+    {
+      throw new IOException("invalid directory position " + directoryPosition);
+    }
+
+    final Map<TreeName, SegmentTree> trees = new HashMap<>();
+    final Segment segment = new Segment(id, mappedFile, trees);
+    final ByteString directory =
+        mappedFile.getByteString(directoryPosition, (int) (size - FOOTER_SIZE - directoryPosition));
+    try (DataInputStream in = new DataInputStream(directory.asReader().asInputStream()))
+    {
+      final int nbTrees = in.readInt();
+      for (int i = 0; i < nbTrees; i++)
+      {
+        final TreeName treeName = TreeName.valueOf(in.readUTF());
+        final int flags = in.readByte();
+        final int count = in.readInt();
+        final int deletedCount = in.readInt();
+        final long indexPosition = in.readLong();
+        if (indexPosition + 8L * count > directoryPosition)
+        {
+          throw new IOException("invalid index position for tree " + treeName);
+        }
+        trees.put(treeName, segment.new SegmentTree(flags, count, deletedCount, indexPosition));
+      }
+    }
+    return segment;
+  }
+
+  long getID()
+  {
+    return id;
+  }
+
+  File getFile()
+  {
+    return file.getFile();
+  }
+
+  long size()
+  {
+    return file.size();
+  }
+
+  @Override
+  public SegmentTree getTree(TreeName treeName)
+  {
+    return trees.get(treeName);
+  }
+
+  @Override
+  public Set<TreeName> getTreeNames()
+  {
+    return Collections.unmodifiableSet(trees.keySet());
+  }
+
+  @Override
+  public String toString()
+  {
+    return getFile().getName();
+  }
+
+  /** The content of a tree in a segment. */
+  final class SegmentTree implements TreeSource
+  {
+    private final int flags;
+    private final int count;
+    private final int deletedCount;
+    private final long indexPosition;
+
+    private SegmentTree(int flags, int count, int deletedCount, long indexPosition)
+    {
+      this.flags = flags;
+      this.count = count;
+      this.deletedCount = deletedCount;
+      this.indexPosition = indexPosition;
+    }
+
+    @Override
+    public boolean isCleared()
+    {
+      return (flags & CLEARED) != 0;
+    }
+
+    @Override
+    public boolean isDeleted()
+    {
+      return (flags & DELETED) != 0;
+    }
+
+    /**
+     * Returns the number of records of this tree which are not deleted.
+     *
+     * @return the number of records of this tree which are not deleted
+     */
+    int getLiveRecordCount()
+    {
+      return count - deletedCount;
+    }
+
+    @Override
+    public ByteString get(ByteSequence key)
+    {
+      final int index = search(key);
+      return index >= 0 ? value(index) : null;
+    }
+
+    @Override
+    public SourceCursor openCursor()
+    {
+      return new SegmentCursor(this);
+    }
+
+    /**
+     * Searches for a key.
+     *
+     * @return the index of the key, or {@code -(insertion point) - 1} if the key is not found
+     */
+    private int search(ByteSequence key)
+    {
+      int low = 0;
+      int high = count - 1;
+      while (low <= high)
+      {
+        final int middle = (low + high) >>> 1;
+        final long position = recordPosition(middle);
+        final int c = file.compare(position + RECORD_HEADER_SIZE, file.getInt(position), key);
+        if (c < 0)
+        {
+          low = middle + 1;
+        }
+        else if (c > 0)
+        {
+          high = middle - 1;
+        }
+        else
+        {
+          return middle;
+        }
+      }
+      return -(low + 1);
+    }
+
+    private long recordPosition(int index)
+    {
+      return file.getLong(indexPosition + 8L * index);
+    }
+
+    private ByteString key(int index)
+    {
+      final long position = recordPosition(index);
+      return file.getByteString(position + RECORD_HEADER_SIZE, file.getInt(position));
+    }
+
+    private ByteString value(int index)
+    {
+      final long position = recordPosition(index);
+      final int keyLength = file.getInt(position);
+      final int valueLength = file.getInt(position + 4);
+      if (valueLength < 0)
+      {
+        return TOMBSTONE;
+      }
+      return file.getByteString(position + RECORD_HEADER_SIZE + keyLength, valueLength);
+    }
+  }
+
+  /** Cursor over the records of a segment tree, which only copies the keys and values which are read. */
+  private static final class SegmentCursor implements SourceCursor
+  {
+    private final SegmentTree tree;
+    private int index = -1;
+    private ByteString key;
+    private ByteString value;
+
+    private SegmentCursor(SegmentTree tree)
+    {
+      this.tree = tree;
+    }
+
+    private boolean moveTo(int newIndex)
+    {
+      key = null;
+      value = null;
+      index = newIndex >= 0 && newIndex < tree.count ? newIndex : -1;
+      return index >= 0;
+    }
+
+    @Override
+    public boolean first()
+    {
+      return moveTo(0);
+    }
+
+    @Override
+    public boolean last()
+    {
+      return moveTo(tree.count - 1);
+    }
+
+    @Override
+    public boolean ceiling(ByteSequence key)
+    {
+      final int i = tree.search(key);
+      return moveTo(i >= 0 ? i : -(i + 1));
+    }
+
+    @Override
+    public boolean next()
+    {
+      return index >= 0 && moveTo(index + 1);
+    }
+
+    @Override
+    public boolean previous()
+    {
+      return index >= 0 && moveTo(index - 1);
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return index >= 0;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      if (key == null)
+      {
+        key = tree.key(index);
+      }
+      return key;
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      if (value == null)
+      {
+        value = tree.value(index);
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Writes a new segment file. Trees must be written one after the other, and the records of each tree must be
+   * added in ascending key order.
+   */
+  static final class Writer implements Closeable
+  {
+    private final File file;
+    private final File indexFile;
+    private final FileOutputStream fileOutputStream;
+    private final DataOutputStream out;
+    /** The flags, record count, deleted record count and index position of each tree. */
+    private final Map<TreeName, long[]> directory = new HashMap<>();
+    private long position;
+
+    private TreeName currentTree;
+    private int currentFlags;
+    private DataOutputStream indexOut;
+    private int count;
+    private int deletedCount;
+
+    /**
+     * Creates a new segment file.
+     *
+     * @param file
+     *          the file to create
+     * @throws IOException
+     *           if the file cannot be created
+     */
+    Writer(File file) throws IOException
+    {
+      this.file = file;
+      this.indexFile = new File(file.getPath() + ".index");
+      this.fileOutputStream = new FileOutputStream(file);
+      this.out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, BUFFER_SIZE));
+      out.writeLong(MAGIC);
+      position = 8;
+    }
+
+    void beginTree(TreeName treeName, boolean cleared, boolean deleted) throws IOException
+    {
+      currentTree = treeName;
+      currentFlags = (cleared ? CLEARED : 0) | (deleted ? DELETED : 0);
+      count = 0;
+      deletedCount = 0;
+      // The record positions are only known once the records are written: keep them in a side file
+      indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), BUFFER_SIZE));
+    }
+
+    void add(ByteSequence key, ByteString value) throws IOException
+    {
+      indexOut.writeLong(position);
+      out.writeInt(key.length());
+      if (value == TOMBSTONE)
+      {
+        out.writeInt(-1);
+        key.copyTo(out);
+        deletedCount++;
+      }
+      else
+      {
+        out.writeInt(value.length());
+        key.copyTo(out);
+        value.copyTo(out);
+        position += value.length();
+      }
+      position += RECORD_HEADER_SIZE + key.length();
+      count++;
+    }
+
+    void endTree() throws IOException
+    {
+      indexOut.close();
+      indexOut = null;
+      final long indexPosition = position;
+      try (InputStream in = new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE))
+      {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+        {
+          out.write(buffer, 0, n);
+          position += n;
+        }
+      }
+      directory.put(currentTree, new long[] { currentFlags, count, deletedCount, indexPosition });
+      currentTree = null;
+    }
+
+    /**
+     * Writes the directory of the segment and durably closes the file.
+     *
+     * @throws IOException
+     *           if the file cannot be written
+     */
+    void finish() throws IOException
+    {
+      final long directoryPosition = position;
+      out.writeInt(directory.size());
+      for (Map.Entry<TreeName, long[]> entry : directory.entrySet())
+      {
+        final long[] treeInfo = entry.getValue();
+        out.writeUTF(entry.getKey().toString());
+        out.writeByte((int) treeInfo[0]);
+        out.writeInt((int) treeInfo[1]);
+        out.writeInt((int) treeInfo[2]);
+        out.writeLong(treeInfo[3]);
+      }
+      out.writeLong(directoryPosition);
+      out.writeLong(MAGIC);
+      out.flush();
+      fileOutputStream.getChannel().force(true);
+      close();
+    }
+
+    @Override
+    public void close()
+    {
+      closeSilently(indexOut, out);
+      indexFile.delete();
+    }
+
+    File getFile()
+    {
+      return file;
+    }
+  }
+}
@@ -520,6 +520,28 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       }
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName treeName, final List<? extends ByteSequence> keys)
+    {
+      try
+      {
+        // Fetching the keys in ascending order lets the exchange re-use the pages it has just visited
+        final Exchange ex = getExchangeFromCache(treeName);
+        final ByteString[] values = new ByteString[keys.size()];
+        for (int i : ascendingKeyOrder(keys))
+        {
+          bytesToKey(ex.getKey(), keys.get(i));
+          ex.fetch();
+          values[i] = valueToBytes(ex.getValue());
+        }
+        return asList(values);
+      }
+      catch (final PersistitException | RollbackException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -676,6 +698,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return delegate.readAll(treeName, keys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
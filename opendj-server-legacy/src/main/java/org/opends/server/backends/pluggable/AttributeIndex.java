@@ -104,6 +104,11 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
       this.indexType = indexType;
     }
 
+    IndexType getIndexType()
+    {
+      return indexType;
+    }
+
     @Override
     public String toString()
     {
@@ -517,6 +522,11 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     return config.getIndexType().contains(indexType);
   }
 
+  int getIndexEntryLimit()
+  {
+    return config.getIndexEntryLimit();
+  }
+
   /**
    * Update the attribute index for a new entry.
    *
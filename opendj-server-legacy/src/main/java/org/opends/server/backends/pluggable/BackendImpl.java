@@ -744,6 +744,12 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     // underlying root container
     boolean openRootContainer = mustOpenRootContainer();
 
+    if (openRootContainer && rebuildConfig.isOnline())
+    {
+      throw new DirectoryException(
+          serverContext.getCoreConfigManager().getServerErrorResultCode(), ERR_REBUILD_ONLINE_BACKEND_DISABLED.get());
+    }
+
     /*
      * If the rootContainer is open, the backend is initialized by something else.
      * We can't do any rebuild of system indexes while others are using this backend.
@@ -80,17 +80,20 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
   private final HashMap<SearchFilter, FilterStats> filterToStats = new HashMap<>();
   private final AtomicInteger indexedSearchCount = new AtomicInteger();
   private final AtomicInteger unindexedSearchCount = new AtomicInteger();
+  private final IndexAdvisor indexAdvisor;
 
   /**
    * Creates a new backend monitor.
    * @param name The monitor instance name.
    * @param rootContainer A root container handle for the backend to be
    * monitored.
+   * @param indexAdvisor The index advisor of the backend to be monitored.
    */
-  BackendMonitor(String name, RootContainer rootContainer)
+  BackendMonitor(String name, RootContainer rootContainer, IndexAdvisor indexAdvisor)
   {
     this.name = name;
     this.rootContainer = rootContainer;
+    this.indexAdvisor = indexAdvisor;
   }
 
   @Override
@@ -118,6 +121,14 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
       monitorAttrs.add("filter-use-unindexed", unindexedSearchCount);
     }
 
+    if (indexAdvisor.isEnabled())
+    {
+      monitorAttrs.add("index-advisor-startTime", indexAdvisor.getStartTimeStamp());
+      monitorAttrs.add("index-advisor-filter-shapes", indexAdvisor.getFilterShapeValues());
+      monitorAttrs.add("index-advisor-indexes", indexAdvisor.getIndexValues());
+      monitorAttrs.add("index-advisor-recommendations", indexAdvisor.getRecommendations());
+    }
+
     return monitorAttrs;
   }
 
@@ -253,6 +264,16 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
     return filterUseEnabled;
   }
 
+  /**
+   * Returns the index advisor gathering the statistics used to recommend index changes.
+   *
+   * @return the index advisor of the monitored backend
+   */
+  IndexAdvisor getIndexAdvisor()
+  {
+    return indexAdvisor;
+  }
+
   /**
    * Sets the maximum number of search filters statistics entries to keep
    * before ones with the least hits will be removed.
@@ -128,6 +128,35 @@ class DN2ID extends AbstractTree
     return value != null ? new EntryID(value) : null;
   }
 
+  /**
+   * Fetch the entry IDs of several DNs with a single read of the DN tree.
+   * @param txn a non null transaction
+   * @param dns The DNs for which the entry IDs are desired. Null DNs are allowed.
+   * @return The entry IDs, in the order of the provided DNs, with null for the DNs which are null or which are not
+   * in the DN tree.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<EntryID> get(ReadableTransaction txn, List<DN> dns) throws StorageRuntimeException
+  {
+    final List<ByteString> keys = new ArrayList<>(dns.size());
+    for (DN dn : dns)
+    {
+      if (dn != null)
+      {
+        keys.add(toKey(dn));
+      }
+    }
+    final List<ByteString> values = txn.readAll(getName(), keys);
+    final List<EntryID> entryIDs = new ArrayList<>(dns.size());
+    int i = 0;
+    for (DN dn : dns)
+    {
+      final ByteString value = dn != null ? values.get(i++) : null;
+      entryIDs.add(value != null ? new EntryID(value) : null);
+    }
+    return entryIDs;
+  }
+
   <V> SequentialCursor<ByteString, ByteString> openCursor(SequentialCursor<ByteString, ByteString> dn2IdCursor,
       TreeVisitor<V> treeVisitor)
   {
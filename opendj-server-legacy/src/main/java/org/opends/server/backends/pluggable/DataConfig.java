@@ -16,6 +16,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionCodec;
 import org.forgerock.util.Reject;
 import org.opends.server.api.CompressedSchema;
 import org.opends.server.crypto.CryptoSuite;
@@ -33,6 +34,8 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private EntriesCompressionCodec compressionCodec = EntriesCompressionCodec.DEFLATE;
+    private boolean compressionDictionary;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +58,18 @@ final class DataConfig
       return this;
     }
 
+    public Builder compressionCodec(EntriesCompressionCodec codec)
+    {
+      this.compressionCodec = codec != null ? codec : EntriesCompressionCodec.DEFLATE;
+      return this;
+    }
+
+    public Builder compressionDictionary(boolean enabled)
+    {
+      this.compressionDictionary = enabled;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -80,6 +95,10 @@ final class DataConfig
   }
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
+  /** The codec used to compress the data. */
+  private final EntriesCompressionCodec compressionCodec;
+  /** Indicates whether data should be compressed with a dictionary shared by all the entries. */
+  private final boolean compressionDictionary;
 
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
@@ -95,6 +114,8 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.compressionCodec = builder.compressionCodec;
+    this.compressionDictionary = builder.compressionDictionary;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +136,16 @@ final class DataConfig
     return compressed;
   }
 
+  EntriesCompressionCodec getCompressionCodec()
+  {
+    return compressionCodec;
+  }
+
+  boolean isCompressionDictionaryEnabled()
+  {
+    return compressionDictionary;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +167,13 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    if (compressed)
+    {
+      builder.append(", compressionCodec=");
+      builder.append(compressionCodec);
+      builder.append(", compressionDictionary=");
+      builder.append(compressionDictionary);
+    }
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -67,6 +67,13 @@ class DefaultIndex extends AbstractTree implements Index
    */
   private volatile boolean trusted;
 
+  /**
+   * A flag to indicate if this index is being rebuilt while the backend is online. The records of the index are then
+   * incomplete: reads return undefined entryIDSets, while updates add entryIDs to non-existing keys as if the index
+   * was trusted, so that the index is complete once all the entries have been indexed again.
+   */
+  private volatile boolean rebuilding;
+
   /**
    * Create a new index object.
    *
@@ -96,12 +103,23 @@ class DefaultIndex extends AbstractTree implements Index
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
     final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
+    if (createOnDemand && !flags.contains(BITMAP) && entryContainer.isIndexBitmapEncodingEnabled())
+    {
+      // Existing records are converted lazily, as they get updated
+      state.addFlagsToIndex(txn, getName(), BITMAP);
+      flags.add(BITMAP);
+    }
     codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    if (flags.contains(BITMAP))
+    {
+      codec = newEntryIDSetCodecV4(codec);
+    }
     if (cryptoSuite.isEncrypted())
     {
       codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
     }
     trusted = flags.contains(TRUSTED);
+    rebuilding = flags.contains(REBUILDING);
     if (createOnDemand && !trusted && entryContainer.isEmpty(txn))
     {
       // If there are no entries in the entry container then there
@@ -179,7 +197,7 @@ class DefaultIndex extends AbstractTree implements Index
      * Avoid taking a write lock on a record which has hit all IDs because it is likely to be a
      * point of contention.
      */
-    if (!get(txn, key).isDefined())
+    if (!read(txn, key).isDefined())
     {
       return;
     }
@@ -200,9 +218,9 @@ class DefaultIndex extends AbstractTree implements Index
            */
           return entryIDSet.size() == 0 ? null : toValue(entryIDSet);
         }
-        else if (trusted)
+        else if (trusted || rebuilding)
         {
-          if (deletedIDs != null)
+          if (deletedIDs != null && trusted)
           {
             logIndexCorruptError(txn, key);
           }
@@ -268,6 +286,11 @@ class DefaultIndex extends AbstractTree implements Index
 
   @Override
   public final EntryIDSet get(ReadableTransaction txn, ByteSequence key)
+  {
+    return rebuilding ? newUndefinedSet() : read(txn, key);
+  }
+
+  private EntryIDSet read(ReadableTransaction txn, ByteSequence key)
   {
     try
     {
@@ -276,7 +299,7 @@ class DefaultIndex extends AbstractTree implements Index
       {
         return decodeValue(key, value);
       }
-      return trusted ? newDefinedSet() : newUndefinedSet();
+      return trusted || rebuilding ? newDefinedSet() : newUndefinedSet();
     }
     catch (StorageRuntimeException e)
     {
@@ -312,6 +335,11 @@ class DefaultIndex extends AbstractTree implements Index
     if (trusted)
     {
       state.addFlagsToIndex(txn, getName(), TRUSTED);
+      if (rebuilding)
+      {
+        state.removeFlagsFromIndex(txn, getName(), REBUILDING);
+        rebuilding = false;
+      }
     }
     else
     {
@@ -325,6 +353,28 @@ class DefaultIndex extends AbstractTree implements Index
     return trusted;
   }
 
+  /**
+   * Marks this index as being rebuilt while the backend is online. The index is not trusted anymore and its records
+   * cannot be read until it is marked as trusted again, while updates keep maintaining it as if it was trusted.
+   *
+   * @param txn
+   *          a non null transaction
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  final synchronized void setRebuilding(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    rebuilding = true;
+    trusted = false;
+    state.removeFlagsFromIndex(txn, getName(), TRUSTED);
+    state.addFlagsToIndex(txn, getName(), REBUILDING);
+  }
+
+  final boolean isRebuilding()
+  {
+    return rebuilding;
+  }
+
   final boolean isEncrypted()
   {
     return cryptoSuite.isEncrypted();
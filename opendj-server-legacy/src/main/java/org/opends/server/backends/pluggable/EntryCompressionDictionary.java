@@ -0,0 +1,195 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A dictionary shared by all the entries of a backend, used to compress entries which are too small to compress
+ * well on their own.
+ * <p>
+ * The dictionary contains the byte sequences which are the most common among a sample of encoded entries, the
+ * most common ones being at the end of the dictionary where they are cheaper to reference. Dictionaries are
+ * identified by a strictly positive integer, stored in each record compressed with them.
+ */
+final class EntryCompressionDictionary
+{
+  /** The maximum size of a dictionary, which is the window size of deflate. */
+  static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  /** The length of the byte sequences counted to find the common content of the samples. */
+  private static final int KMER_LENGTH = 8;
+  /** The length of the segments of the samples copied in the dictionary. */
+  private static final int SEGMENT_LENGTH = 64;
+  private static final int FREQUENCY_TABLE_LOG = 20;
+
+  private final int id;
+  private final byte[] bytes;
+  private final int[] lz4HashTable;
+
+  EntryCompressionDictionary(int id, byte[] bytes)
+  {
+    this.id = id;
+    this.bytes = bytes;
+    this.lz4HashTable = LZ4BlockCodec.newHashTable(bytes);
+  }
+
+  int getID()
+  {
+    return id;
+  }
+
+  byte[] getBytes()
+  {
+    return bytes;
+  }
+
+  int[] getLZ4HashTable()
+  {
+    return lz4HashTable;
+  }
+
+  /**
+   * Trains a dictionary from a sample of encoded entries.
+   * <p>
+   * The samples are cut in segments which are scored by the number of samples containing each of their
+   * byte sequences. The best segments are greedily added to the dictionary, the sequences of a selected segment
+   * no longer contributing to the score of the remaining segments.
+   *
+   * @param samples
+   *          the encoded entries
+   * @param maxSize
+   *          the maximum size of the dictionary
+   * @return the content of the dictionary, empty if the samples have nothing in common
+   */
+  static byte[] train(List<byte[]> samples, int maxSize)
+  {
+    final int[] frequencies = new int[1 << FREQUENCY_TABLE_LOG];
+    final int[] lastSample = new int[1 << FREQUENCY_TABLE_LOG];
+    for (int s = 0; s < samples.size(); s++)
+    {
+      final byte[] sample = samples.get(s);
+      for (int i = 0; i + KMER_LENGTH <= sample.length; i++)
+      {
+        // Count the number of samples containing each sequence, rather than its number of occurrences.
+        final int h = hashKmer(sample, i);
+        if (lastSample[h] != s + 1)
+        {
+          lastSample[h] = s + 1;
+          frequencies[h]++;
+        }
+      }
+    }
+
+    final PriorityQueue<Segment> candidates = new PriorityQueue<>();
+    for (byte[] sample : samples)
+    {
+      for (int start = 0; start + SEGMENT_LENGTH <= sample.length; start += SEGMENT_LENGTH / 2)
+      {
+        final Segment segment = new Segment(sample, start);
+        segment.score = segment.score(frequencies);
+        if (segment.score > 0)
+        {
+          candidates.add(segment);
+        }
+      }
+    }
+
+    final List<Segment> selected = new ArrayList<>();
+    int size = 0;
+    while (size + SEGMENT_LENGTH <= maxSize && !candidates.isEmpty())
+    {
+      final Segment best = candidates.poll();
+      // Scores only decrease as segments are selected: recompute the score of the best candidate and only
+      // select it if it is still better than the others.
+      final long score = best.score(frequencies);
+      if (score <= 0)
+      {
+        continue;
+      }
+      if (!candidates.isEmpty() && score < candidates.peek().score)
+      {
+        best.score = score;
+        candidates.add(best);
+        continue;
+      }
+      for (int i = best.start; i + KMER_LENGTH <= best.start + SEGMENT_LENGTH; i++)
+      {
+        frequencies[hashKmer(best.sample, i)] = 0;
+      }
+      selected.add(best);
+      size += SEGMENT_LENGTH;
+    }
+
+    // The best segments go at the end of the dictionary, closest to the compressed data.
+    final byte[] dictionary = new byte[size];
+    int position = size;
+    for (Segment segment : selected)
+    {
+      position -= SEGMENT_LENGTH;
+      System.arraycopy(segment.sample, segment.start, dictionary, position, SEGMENT_LENGTH);
+    }
+    return dictionary;
+  }
+
+  private static int hashKmer(byte[] bytes, int start)
+  {
+    long kmer = 0;
+    for (int i = start; i < start + KMER_LENGTH; i++)
+    {
+      kmer = (kmer << 8) | (bytes[i] & 0xFF);
+    }
+    return (int) ((kmer * 0x9E3779B97F4A7C15L) >>> (64 - FREQUENCY_TABLE_LOG));
+  }
+
+  /** A segment of a sample, candidate for being added to the dictionary. */
+  private static final class Segment implements Comparable<Segment>
+  {
+    private final byte[] sample;
+    private final int start;
+    private long score;
+
+    Segment(byte[] sample, int start)
+    {
+      this.sample = sample;
+      this.start = start;
+    }
+
+    long score(int[] frequencies)
+    {
+      long total = 0;
+      for (int i = start; i + KMER_LENGTH <= start + SEGMENT_LENGTH; i++)
+      {
+        // Sequences found in a single sample are not worth sharing.
+        final int frequency = frequencies[hashKmer(sample, i)];
+        if (frequency > 1)
+        {
+          total += frequency;
+        }
+      }
+      return total;
+    }
+
+    @Override
+    public int compareTo(Segment o)
+    {
+      // Highest score first
+      return Long.compare(o.score, score);
+    }
+  }
+}
@@ -27,6 +27,7 @@ import static org.opends.server.protocols.ldap.LDAPResultCode.*;
 import static org.opends.server.types.AdditionalLogItem.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,7 +37,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -124,6 +130,10 @@ public class EntryContainer
   private static final String REFERRAL_TREE_NAME = REFERRAL_INDEX_NAME;
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
+  /** The number of candidates in the first batch fetched by the search entry fetch threads. */
+  private static final int MIN_FETCH_BATCH_SIZE = 32;
+  /** The maximum number of candidates in a batch fetched by the search entry fetch threads. */
+  private static final int MAX_FETCH_BATCH_SIZE = 512;
 
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
@@ -388,6 +398,8 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .compressionCodec(config.getEntriesCompressionCodec())
+        .compressionDictionary(config.isEntriesCompressionDictionaryEnabled())
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -798,7 +810,8 @@ public class EntryContainer
               try
               {
                 List<SortKey> sortKeys = sortRequest.getSortKeys();
-                reorderedCandidateEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
+                reorderedCandidateEntryIDs =
+                    sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
               }
               catch (DirectoryException de)
               {
@@ -853,11 +866,15 @@ public class EntryContainer
           if (reorderedCandidateEntryIDs != null)
           {
             rootContainer.getMonitorProvider().incrementIndexedSearchCount();
+            rootContainer.getMonitorProvider().getIndexAdvisor().recordSearch(
+                EntryContainer.this, searchOperation.getFilter(), true);
             searchIndexed(txn, reorderedCandidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
           }
           else
           {
             rootContainer.getMonitorProvider().incrementUnindexedSearchCount();
+            rootContainer.getMonitorProvider().getIndexAdvisor().recordSearch(
+                EntryContainer.this, searchOperation.getFilter(), false);
 
             searchOperation.addAdditionalLogItem(keyOnly(getClass(), "unindexed"));
 
@@ -1318,31 +1335,20 @@ public class EntryContainer
     // Iterate through the index candidates.
     if (continueSearch)
     {
-      final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      final int startIndex = findStartIndex(beginEntryID, entryIDReorderedSet);
+      try (CandidateEntryFetcher fetcher = new CandidateEntryFetcher(txn, entryIDReorderedSet, startIndex,
+          candidatesAreInScope, searchOperation, manageDsaIT))
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
-        Entry entry;
-        try
+        for (int i = startIndex; i < entryIDReorderedSet.length; i++)
         {
-          entry = getEntry(txn, entryID);
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
-          continue;
-        }
-
-        // Process the candidate entry.
-        if (entry != null
-              && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
-              && (manageDsaIT || entry.getReferralURLs() == null)
-              && filter.matchesEntry(entry))
+          // Process the candidate entry.
+          final Entry entry = fetcher.getMatchingEntry(i);
+          if (entry != null)
           {
             if (isPageFull(searchOperation, pageRequest))
             {
               // Set the cookie to remember where we were.
-              addPagedResultsControl(searchOperation, pageRequest, entryID.toByteString());
+              addPagedResultsControl(searchOperation, pageRequest, new EntryID(entryIDReorderedSet[i]).toByteString());
               return;
             }
 
@@ -1353,6 +1359,7 @@ public class EntryContainer
               break;
             }
           }
+        }
       }
       searchOperation.checkIfCanceled(false);
     }
@@ -1423,6 +1430,261 @@ public class EntryContainer
     }
     return false;
   }
+  /**
+   * Fetches the candidate entries of an indexed search in the order of the candidate list, and tells whether they
+   * match the search.
+   * <p>
+   * When the backend has search entry fetch threads, the records of the candidates are read by batches, in
+   * ascending entry ID order, by the search thread which owns the transaction. Decoding the records and matching
+   * the entries against the search is delegated to the fetch threads, while the search thread reads the next batch
+   * and returns the entries of the previous one. Batches start small and grow, so that searches returning only a
+   * few entries do not fetch many more entries than needed.
+   */
+  private final class CandidateEntryFetcher implements Closeable
+  {
+    private final ReadableTransaction txn;
+    private final long[] entryIDs;
+    private final boolean candidatesAreInScope;
+    private final SearchOperation searchOperation;
+    private final boolean manageDsaIT;
+    /** The fetch threads, or {@code null} if the entries are fetched by the search thread. */
+    private final ExecutorService executor;
+    private final int nbChunks;
+    private int batchSize = MIN_FETCH_BATCH_SIZE;
+    /** The batch containing the entries being returned. */
+    private FetchBatch currentBatch;
+    /** The batch being decoded while the entries of the current batch are returned. */
+    private FetchBatch nextBatch;
+
+    CandidateEntryFetcher(ReadableTransaction txn, long[] entryIDs, int startIndex, boolean candidatesAreInScope,
+        SearchOperation searchOperation, boolean manageDsaIT)
+    {
+      this.txn = txn;
+      this.entryIDs = entryIDs;
+      this.candidatesAreInScope = candidatesAreInScope;
+      this.searchOperation = searchOperation;
+      this.manageDsaIT = manageDsaIT;
+      this.executor =
+          entryIDs.length - startIndex > MIN_FETCH_BATCH_SIZE ? rootContainer.getSearchFetchExecutor() : null;
+      this.nbChunks = Math.max(1, rootContainer.getSearchFetchThreads());
+    }
+
+    /**
+     * Returns the candidate entry at the provided index of the candidate list if it matches the search.
+     * Indexes must be provided in increasing order.
+     *
+     * @param index
+     *          the index of the candidate in the candidate list
+     * @return the candidate entry if it matches the search, {@code null} otherwise
+     * @throws DirectoryException
+     *           If an error occurs while matching the entry against the search
+     * @throws CanceledOperationException
+     *           If the search has been canceled
+     */
+    Entry getMatchingEntry(int index) throws DirectoryException, CanceledOperationException
+    {
+      if (executor == null)
+      {
+        final Entry entry;
+        try
+        {
+          entry = getEntry(txn, new EntryID(entryIDs[index]));
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+          return null;
+        }
+        return entry != null && matches(entry) ? entry : null;
+      }
+
+      if (currentBatch == null || index >= currentBatch.end)
+      {
+        currentBatch = nextBatch != null && index < nextBatch.end ? nextBatch : readBatch(index);
+        nextBatch = currentBatch.end < entryIDs.length ? readBatch(currentBatch.end) : null;
+      }
+      return currentBatch.getMatchingEntry(index);
+    }
+
+    private boolean matches(Entry entry) throws DirectoryException
+    {
+      return isInScope(candidatesAreInScope, searchOperation.getScope(), searchOperation.getBaseDN(), entry)
+          && (manageDsaIT || entry.getReferralURLs() == null)
+          && searchOperation.getFilter().matchesEntry(entry);
+    }
+
+    /** Reads the records of the next batch of candidates, and submits them to the fetch threads. */
+    private FetchBatch readBatch(int start) throws CanceledOperationException
+    {
+      searchOperation.checkIfCanceled(false);
+
+      final FetchBatch batch = new FetchBatch(start, Math.min(start + batchSize, entryIDs.length));
+      batchSize = Math.min(batchSize * 2, MAX_FETCH_BATCH_SIZE);
+
+      // Read the records missing from the entry cache all at once, which lets the storage read them in key order
+      final EntryCache<?> entryCache = getEntryCache();
+      final List<Integer> missing = new ArrayList<>(batch.entries.length);
+      final List<EntryID> missingIDs = new ArrayList<>(batch.entries.length);
+      for (int i = 0; i < batch.entries.length; i++)
+      {
+        batch.entries[i] = entryCache.getEntry(backendID, entryIDs[start + i]);
+        if (batch.entries[i] == null)
+        {
+          missing.add(i);
+          missingIDs.add(new EntryID(entryIDs[start + i]));
+        }
+      }
+      try
+      {
+        final List<ByteString> records = id2entry.readAll(txn, missingIDs);
+        for (int i = 0; i < records.size(); i++)
+        {
+          batch.records[missing.get(i)] = records.get(i);
+        }
+      }
+      catch (Exception e)
+      {
+        // Read the records one by one, so that a single unreadable record does not discard the whole batch
+        logger.traceException(e);
+        for (int i = 0; i < missingIDs.size(); i++)
+        {
+          try
+          {
+            batch.records[missing.get(i)] = id2entry.read(txn, missingIDs.get(i));
+          }
+          catch (Exception e2)
+          {
+            logger.traceException(e2);
+          }
+        }
+      }
+
+      for (int from = 0; from < batch.entries.length; from += batch.chunkSize)
+      {
+        batch.submitChunk(from, Math.min(from + batch.chunkSize, batch.entries.length));
+      }
+      return batch;
+    }
+
+    @Override
+    public void close()
+    {
+      for (FetchBatch batch : new FetchBatch[] { currentBatch, nextBatch })
+      {
+        if (batch != null)
+        {
+          batch.cancel();
+        }
+      }
+    }
+
+    /** A batch of consecutive candidates of the candidate list. */
+    private final class FetchBatch
+    {
+      private final int start;
+      private final int end;
+      /** The candidate entries, replaced by {@code null} by the fetch threads when they do not match the search. */
+      private final Entry[] entries;
+      /** The records of the entries which were not found in the entry cache. */
+      private final ByteString[] records;
+      /** The number of entries decoded by each fetch thread. */
+      private final int chunkSize;
+      private final List<Future<Void>> chunks = new ArrayList<>();
+
+      FetchBatch(int start, int end)
+      {
+        this.start = start;
+        this.end = end;
+        this.entries = new Entry[end - start];
+        this.records = new ByteString[end - start];
+        this.chunkSize = (entries.length + nbChunks - 1) / nbChunks;
+      }
+
+      private void submitChunk(final int from, final int to)
+      {
+        final FutureTask<Void> chunk = new FutureTask<>(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            decodeAndMatch(from, to);
+            return null;
+          }
+        });
+        chunks.add(chunk);
+        try
+        {
+          executor.execute(chunk);
+        }
+        catch (RejectedExecutionException e)
+        {
+          // The fetch threads have been reconfigured, run the chunk in the search thread
+          chunk.run();
+        }
+      }
+
+      private void decodeAndMatch(int from, int to) throws DirectoryException
+      {
+        final EntryCache<?> entryCache = getEntryCache();
+        for (int i = from; i < to; i++)
+        {
+          Entry entry = entries[i];
+          if (entry == null && records[i] != null)
+          {
+            final EntryID entryID = new EntryID(entryIDs[start + i]);
+            try
+            {
+              entry = id2entry.decode(entryID, records[i]);
+              // Put the entry in the cache making sure not to overwrite a newer copy
+              // that may have been inserted since the time we read the cache.
+              entryCache.putEntryIfAbsent(entry, backendID, entryID.longValue());
+            }
+            catch (Exception e)
+            {
+              logger.traceException(e);
+            }
+            records[i] = null;
+          }
+          entries[i] = entry != null && matches(entry) ? entry : null;
+        }
+      }
+
+      Entry getMatchingEntry(int index) throws DirectoryException
+      {
+        final int i = index - start;
+        final Future<Void> chunk = chunks.get(i / chunkSize);
+        try
+        {
+          chunk.get();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+              ERR_INTERRUPTED_ERROR.get(getExceptionMessage(e)), e);
+        }
+        catch (ExecutionException e)
+        {
+          if (e.getCause() instanceof DirectoryException)
+          {
+            throw (DirectoryException) e.getCause();
+          }
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+              ERR_EXECUTION_ERROR.get(getExceptionMessage(e.getCause())), e.getCause());
+        }
+        return entries[i];
+      }
+
+      void cancel()
+      {
+        for (Future<Void> chunk : chunks)
+        {
+          chunk.cancel(false);
+        }
+      }
+    }
+  }
+
 
   /**
    * Adds the provided entry to this tree.  This method must ensure that the
@@ -1461,20 +1723,20 @@ public class EntryContainer
           // No need to call indexBuffer.reset() since IndexBuffer content will be the same for each retry attempt.
           try
           {
+            final List<EntryID> ids = dn2id.get(txn, Arrays.asList(entry.getName(), parentDN));
             // Check whether the entry already exists.
-            if (dn2id.get(txn, entry.getName()) != null)
+            if (ids.get(0) != null)
             {
               throw new DirectoryException(ResultCode.ENTRY_ALREADY_EXISTS,
                   ERR_ADD_ENTRY_ALREADY_EXISTS.get(entry.getName()));
             }
             // Check that the parent entry exists.
-            EntryID parentID = null;
+            final EntryID parentID = ids.get(1);
             if (parentDN != null)
             {
               // Check for referral entries above the target.
               dn2uri.targetEntryReferrals(txn, entry.getName(), null);
 
-              parentID = dn2id.get(txn, parentDN);
               if (parentID == null)
               {
                 throw new DirectoryException(ResultCode.NO_SUCH_OBJECT,
@@ -1967,8 +2229,10 @@ public class EntryContainer
             final DN oldSuperiorDN = getParentWithinBase(oldTargetDN);
             final DN newSuperiorDN = getParentWithinBase(newTargetDN);
 
-            final EntryID oldSuperiorID = oldSuperiorDN != null ? dn2id.get(txn, oldSuperiorDN) : null;
-            final EntryID oldTargetID = dn2id.get(txn, oldTargetDN);
+            final List<EntryID> ids =
+                dn2id.get(txn, Arrays.asList(oldSuperiorDN, oldTargetDN, newSuperiorDN, newTargetDN));
+            final EntryID oldSuperiorID = ids.get(0);
+            final EntryID oldTargetID = ids.get(1);
             if ((oldSuperiorDN != null && oldSuperiorID == null) || oldTargetID == null)
             {
               // Check for referral entries above the target entry.
@@ -1979,7 +2243,7 @@ public class EntryContainer
                                            null);
             }
 
-            final EntryID newSuperiorID = newSuperiorDN != null ? dn2id.get(txn, newSuperiorDN) : null;
+            final EntryID newSuperiorID = ids.get(2);
             if (newSuperiorDN != null && newSuperiorID == null)
             {
               throw new DirectoryException(ResultCode.NO_SUCH_OBJECT,
@@ -1990,7 +2254,7 @@ public class EntryContainer
 
             // Check that an entry with the new name does not already exist, but take care to handle the case where
             // the user is renaming the entry with an equivalent name, e.g. "cn=matt" to "cn=Matt".
-            if (!oldTargetDN.equals(newTargetDN) && dn2id.get(txn, newTargetDN) != null)
+            if (!oldTargetDN.equals(newTargetDN) && ids.get(3) != null)
             {
               throw new DirectoryException(ResultCode.ENTRY_ALREADY_EXISTS,
                                            ERR_MODIFYDN_ALREADY_EXISTS.get(newTargetDN));
@@ -2514,6 +2778,11 @@ public class EntryContainer
     return config.isConfidentialityEnabled();
   }
 
+  boolean isIndexBitmapEncodingEnabled()
+  {
+    return config.isIndexBitmapEncodingEnabled();
+  }
+
   /**
    * Fetch the base Entry of the EntryContainer.
    * @param searchBaseDN the DN for the base entry
@@ -2548,71 +2817,116 @@ public class EntryContainer
     final SearchScope scope = searchOperation.getScope();
     final SearchFilter filter = searchOperation.getFilter();
 
-    final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
-    for (EntryID id : entryIDSet)
+    try (VLVKeySorter sorter = new VLVKeySorter(rootContainer.getSortDirectory(),
+        config.getSortMemoryLimit(), getSortLimit(entryIDSet, searchOperation, vlvRequest)))
     {
-      try
+      for (EntryID id : entryIDSet)
       {
-        Entry e = getEntry(txn, id);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        final ByteString vlvKey;
+        try
+        {
+          Entry e = getEntry(txn, id);
+          if (!e.matchesBaseAndScope(baseDN, scope) || !filter.matchesEntry(e))
+          {
+            continue;
+          }
+          vlvKey = encodeVLVKey(sortKeys, e, id.longValue());
+        }
+        catch (Exception e)
         {
-          sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
         }
+        sorter.add(vlvKey);
       }
-      catch (Exception e)
+
+      // See if there is a VLV request to further pare down the set of results, and if there is where it should be
+      // processed by offset or assertion value.
+      if (vlvRequest == null)
       {
-        LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
-        throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+        return toArray(sorter);
       }
-    }
 
-    // See if there is a VLV request to further pare down the set of results, and if there is where it should be
-    // processed by offset or assertion value.
-    if (vlvRequest == null)
+      if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+      {
+        return sortByOffset(searchOperation, vlvRequest, sorter);
+      }
+      return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sorter);
+    }
+    catch (StorageRuntimeException e)
     {
-      return toArray(sortMap.values());
+      logger.traceException(e);
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_ENTRYIDSORTER_CANNOT_SORT.get(getExceptionMessage(e)), e);
     }
+  }
 
-    if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
+  /**
+   * Returns the number of sorted entries which need to be retained to process the request, so that the sort can
+   * keep only the smallest keys when the client is only interested in the beginning of the sorted list.
+   * <p>
+   * Paged requests always retain all the keys: a page is full once enough entries have been sent, and entries
+   * which are not returned to the client, for instance because of access controls, do not count.
+   */
+  private static int getSortLimit(EntryIDSet entryIDSet, SearchOperation searchOperation,
+      VLVRequestControl vlvRequest)
+  {
+    // The lookthrough limit is enforced on the number of sorted entries, they must all be retained to check it
+    final int lookthroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
+    if (lookthroughLimit > 0 && entryIDSet.size() > lookthroughLimit)
+    {
+      return Integer.MAX_VALUE;
+    }
+    if (vlvRequest != null)
     {
-      return sortByOffset(searchOperation, vlvRequest, sortMap);
+      if (vlvRequest.getTargetType() != VLVRequestControl.TYPE_TARGET_BYOFFSET || vlvRequest.getOffset() < 0)
+      {
+        return Integer.MAX_VALUE;
+      }
+      // The window ends afterCount entries after the target offset, VLV offsets start at 1
+      final long windowEnd = (long) Math.max(vlvRequest.getOffset(), 1) + vlvRequest.getAfterCount();
+      return (int) Math.min(windowEnd, Integer.MAX_VALUE);
     }
-    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
+    return Integer.MAX_VALUE;
   }
 
-  private static final long[] toArray(Collection<EntryID> entryIDs)
+  private static final long[] toArray(VLVKeySorter sorter)
   {
-    final long[] array = new long[entryIDs.size()];
+    // The sorter may return fewer entries than it was given, grow the array as needed
+    long[] array = new long[Math.min(sorter.size(), 1024)];
     int i = 0;
-    for (EntryID entryID : entryIDs)
+    for (ByteString vlvKey : sorter)
     {
-      array[i++] = entryID.longValue();
+      if (i == array.length)
+      {
+        array = Arrays.copyOf(array, (int) Math.min(sorter.size(), 2L * array.length));
+      }
+      array[i++] = decodeEntryIDFromVLVKey(vlvKey);
     }
-    return array;
+    return i < array.length ? Arrays.copyOf(array, i) : array;
   }
 
   private static final long[] sortByGreaterThanOrEqualAssertion(SearchOperation searchOperation,
-      VLVRequestControl vlvRequest, List<SortKey> sortKeys, final TreeMap<ByteString, EntryID> sortMap)
+      VLVRequestControl vlvRequest, List<SortKey> sortKeys, VLVKeySorter sorter)
       throws DirectoryException
   {
     ByteString assertionValue = vlvRequest.getGreaterThanOrEqualAssertion();
     ByteSequence encodedTargetAssertion =
-        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, sortMap.size());
+        encodeTargetAssertion(sortKeys, assertionValue, searchOperation, sorter.size());
 
+    // Only remember the beforeCount entries preceding the target
+    final long[] before = new long[Math.max(0, Math.min(vlvRequest.getBeforeCount(), sorter.size()))];
+    final int beforeCount = before.length;
+    final List<Long> window = new ArrayList<>();
     boolean targetFound = false;
-    int index = 0;
     int targetIndex = 0;
-    int startIndex = 0;
     int includedAfterCount = 0;
-    long[] idSet = new long[sortMap.size()];
-    for (Map.Entry<ByteString, EntryID> entry : sortMap.entrySet())
+    for (ByteString vlvKey : sorter)
     {
-      ByteString vlvKey = entry.getKey();
-      EntryID id = entry.getValue();
-      idSet[index++] = id.longValue();
-
+      final long id = decodeEntryIDFromVLVKey(vlvKey);
       if (targetFound)
       {
+        window.add(id);
         includedAfterCount++;
         if (includedAfterCount >= vlvRequest.getAfterCount())
         {
@@ -2624,7 +2938,15 @@ public class EntryContainer
         targetFound = vlvKey.compareTo(encodedTargetAssertion) >= 0;
         if (targetFound)
         {
-          startIndex = Math.max(0, targetIndex - vlvRequest.getBeforeCount());
+          for (int i = Math.max(0, targetIndex - beforeCount); i < targetIndex; i++)
+          {
+            window.add(before[i % beforeCount]);
+          }
+          window.add(id);
+        }
+        else if (beforeCount > 0)
+        {
+          before[targetIndex % beforeCount] = id;
         }
         targetIndex++;
       }
@@ -2633,9 +2955,11 @@ public class EntryContainer
     final long[] result;
     if (targetFound)
     {
-      final long[] array = new long[index - startIndex];
-      System.arraycopy(idSet, startIndex, array, 0, array.length);
-      result = array;
+      result = new long[window.size()];
+      for (int i = 0; i < result.length; i++)
+      {
+        result[i] = window.get(i);
+      }
     }
     else
     {
@@ -2643,21 +2967,22 @@ public class EntryContainer
        * No entry was found to be greater than or equal to the sort key, so the target offset will
        * be one greater than the content count.
        */
-      targetIndex = sortMap.size() + 1;
+      targetIndex = sorter.size() + 1;
       result = new long[0];
     }
-    addVLVResponseControl(searchOperation, targetIndex, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetIndex, sorter.size(), SUCCESS);
     return result;
   }
 
   private static final long[] sortByOffset(SearchOperation searchOperation, VLVRequestControl vlvRequest,
-      TreeMap<ByteString, EntryID> sortMap) throws DirectoryException
+      VLVKeySorter sorter) throws DirectoryException
   {
+    final int contentCount = sorter.size();
     int targetOffset = vlvRequest.getOffset();
     if (targetOffset < 0)
     {
       // The client specified a negative target offset. This should never be allowed.
-      addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), OFFSET_RANGE_ERROR);
+      addVLVResponseControl(searchOperation, targetOffset, contentCount, OFFSET_RANGE_ERROR);
 
       LocalizableMessage message = ERR_ENTRYIDSORTER_NEGATIVE_START_POS.get();
       throw new DirectoryException(ResultCode.VIRTUAL_LIST_VIEW_ERROR, message);
@@ -2678,12 +3003,12 @@ public class EntryContainer
       startPos = 0;
       beforeCount = listOffset;
     }
-    else if (startPos >= sortMap.size())
+    else if (startPos >= contentCount)
     {
       // The start position is beyond the end of the list. In this case, we'll assume that the start position was
       // one greater than the size of the list and will only return the beforeCount entries.
-      targetOffset = sortMap.size() + 1;
-      listOffset = sortMap.size();
+      targetOffset = contentCount + 1;
+      listOffset = contentCount;
       startPos = listOffset - beforeCount;
       afterCount = 0;
     }
@@ -2692,14 +3017,14 @@ public class EntryContainer
     long[] sortedIDs = new long[count];
     int treePos = 0;
     int arrayPos = 0;
-    for (EntryID id : sortMap.values())
+    for (ByteString vlvKey : sorter)
     {
       if (treePos++ < startPos)
       {
         continue;
       }
 
-      sortedIDs[arrayPos++] = id.longValue();
+      sortedIDs[arrayPos++] = decodeEntryIDFromVLVKey(vlvKey);
       if (arrayPos >= count)
       {
         break;
@@ -2712,7 +3037,7 @@ public class EntryContainer
       sortedIDs = Arrays.copyOf(sortedIDs, arrayPos);
     }
 
-    addVLVResponseControl(searchOperation, targetOffset, sortMap.size(), SUCCESS);
+    addVLVResponseControl(searchOperation, targetOffset, contentCount, SUCCESS);
     return sortedIDs;
   }
 
@@ -0,0 +1,1001 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compressed bitmap of entry IDs, organized like a Roaring bitmap.
+ * <p>
+ * Entry IDs are partitioned on their upper 48 bits into chunks of 65536 consecutive IDs. Each non-empty chunk is held
+ * in a container chosen according to its density: a sorted array of the lower 16 bits for sparse chunks and a plain
+ * 65536 bits bitmap for dense ones. Set operations are performed container by container so that intersections and
+ * unions never need to inflate the set into a flat array of longs.
+ * <p>
+ * This class is not thread safe.
+ */
+final class EntryIDBitmap implements Iterable<EntryID>
+{
+  /** Maximum cardinality of an array container. Above this threshold a bitmap container is smaller. */
+  private static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+  /** Number of 64 bits words in a bitmap container. */
+  private static final int BITMAP_CONTAINER_WORDS = 1024;
+  private static final int INITIAL_CAPACITY = 4;
+
+  /** Upper 48 bits of the IDs held by each container, in ascending order. */
+  private long[] keys;
+  /** Containers holding the lower 16 bits of the IDs, in the same order as the keys. */
+  private Container[] containers;
+  private int nbContainers;
+  private long cardinality;
+
+  /** Creates a new empty bitmap. */
+  EntryIDBitmap()
+  {
+    this(INITIAL_CAPACITY);
+  }
+
+  private EntryIDBitmap(int capacity)
+  {
+    keys = new long[capacity];
+    containers = new Container[capacity];
+  }
+
+  /**
+   * Creates a new bitmap holding the provided entry IDs.
+   *
+   * @param entryIDs
+   *          the entry IDs, preferably sorted in ascending order
+   * @return a new bitmap holding the provided entry IDs.
+   */
+  static EntryIDBitmap valueOf(long... entryIDs)
+  {
+    checkNotNull(entryIDs, "entryIDs must not be null");
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    int start = 0;
+    while (start < entryIDs.length)
+    {
+      final long key = highBits(entryIDs[start]);
+      int end = start + 1;
+      while (end < entryIDs.length && highBits(entryIDs[end]) == key && entryIDs[end] > entryIDs[end - 1])
+      {
+        end++;
+      }
+      if (bitmap.nbContainers > 0 && key <= bitmap.keys[bitmap.nbContainers - 1])
+      {
+        // Unsorted input: fall back to individual insertions.
+        for (int i = start; i < end; i++)
+        {
+          bitmap.add(entryIDs[i]);
+        }
+      }
+      else
+      {
+        bitmap.append(key, newContainer(entryIDs, start, end));
+      }
+      start = end;
+    }
+    return bitmap;
+  }
+
+  /**
+   * Reads a bitmap previously serialized with {@link #writeTo(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader positioned on the serialized bitmap
+   * @return the decoded bitmap
+   */
+  static EntryIDBitmap readFrom(ByteSequenceReader reader)
+  {
+    checkNotNull(reader, "reader must not be null");
+    final int nbContainers = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(Math.max(nbContainers, 1));
+    long key = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      key += reader.readCompactUnsignedLong();
+      final int containerCardinality = reader.readCompactUnsignedInt();
+      bitmap.append(key, containerCardinality <= ARRAY_CONTAINER_MAX_SIZE
+          ? ArrayContainer.readFrom(reader, containerCardinality)
+          : BitmapContainer.readFrom(reader, containerCardinality));
+    }
+    return bitmap;
+  }
+
+  /**
+   * Serializes this bitmap. The container keys are delta encoded and the content of array containers is delta
+   * encoded using the compact long representation.
+   *
+   * @param builder
+   *          the builder where to append this bitmap
+   * @return the provided builder
+   */
+  ByteStringBuilder writeTo(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbContainers);
+    long previousKey = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      builder.appendCompactUnsigned(keys[i] - previousKey);
+      builder.appendCompactUnsigned(containers[i].cardinality());
+      containers[i].writeTo(builder);
+      previousKey = keys[i];
+    }
+    return builder;
+  }
+
+  /**
+   * Returns an upper bound of the number of bytes written by {@link #writeTo(ByteStringBuilder)}.
+   *
+   * @return an upper bound of the serialized size of this bitmap
+   */
+  int getEstimatedSize()
+  {
+    int size = ByteStringBuilder.MAX_COMPACT_SIZE;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      size += 2 * ByteStringBuilder.MAX_COMPACT_SIZE + containers[i].getEstimatedSize();
+    }
+    return size;
+  }
+
+  long cardinality()
+  {
+    return cardinality;
+  }
+
+  boolean isEmpty()
+  {
+    return cardinality == 0;
+  }
+
+  long first()
+  {
+    if (isEmpty())
+    {
+      throw new NoSuchElementException();
+    }
+    return toEntryID(keys[0], containers[0].first());
+  }
+
+  long last()
+  {
+    if (isEmpty())
+    {
+      throw new NoSuchElementException();
+    }
+    return toEntryID(keys[nbContainers - 1], containers[nbContainers - 1].last());
+  }
+
+  boolean contains(long entryID)
+  {
+    final int index = indexOf(highBits(entryID));
+    return index >= 0 && containers[index].contains(lowBits(entryID));
+  }
+
+  boolean add(long entryID)
+  {
+    final long key = highBits(entryID);
+    final int index = indexOf(key);
+    if (index >= 0)
+    {
+      final Container container = containers[index];
+      final int before = container.cardinality();
+      containers[index] = container.add(lowBits(entryID));
+      return updateCardinality(containers[index].cardinality() - before);
+    }
+    insert(-(index + 1), key, new ArrayContainer(lowBits(entryID)));
+    cardinality++;
+    return true;
+  }
+
+  boolean remove(long entryID)
+  {
+    final int index = indexOf(highBits(entryID));
+    if (index < 0)
+    {
+      return false;
+    }
+    final Container container = containers[index];
+    final int before = container.cardinality();
+    final Container updated = container.remove(lowBits(entryID));
+    if (updated.cardinality() == 0)
+    {
+      delete(index);
+    }
+    else
+    {
+      containers[index] = updated;
+    }
+    return updateCardinality(updated.cardinality() - before);
+  }
+
+  /**
+   * Adds all the IDs of the provided bitmap to this one.
+   *
+   * @param that
+   *          the bitmap to merge into this one, it is left untouched
+   */
+  void or(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbContainers + that.nbContainers);
+    int i = 0, j = 0;
+    while (i < nbContainers && j < that.nbContainers)
+    {
+      if (keys[i] < that.keys[j])
+      {
+        result.append(keys[i], containers[i]);
+        i++;
+      }
+      else if (keys[i] > that.keys[j])
+      {
+        result.append(that.keys[j], that.containers[j].copy());
+        j++;
+      }
+      else
+      {
+        result.append(keys[i], containers[i].or(that.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    for (; i < nbContainers; i++)
+    {
+      result.append(keys[i], containers[i]);
+    }
+    for (; j < that.nbContainers; j++)
+    {
+      result.append(that.keys[j], that.containers[j].copy());
+    }
+    replaceWith(result);
+  }
+
+  /**
+   * Retains only the IDs of this bitmap which are also contained in the provided bitmap.
+   *
+   * @param that
+   *          the bitmap to intersect with this one, it is left untouched
+   */
+  void and(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.max(Math.min(nbContainers, that.nbContainers), 1));
+    int i = 0, j = 0;
+    while (i < nbContainers && j < that.nbContainers)
+    {
+      if (keys[i] < that.keys[j])
+      {
+        i++;
+      }
+      else if (keys[i] > that.keys[j])
+      {
+        j++;
+      }
+      else
+      {
+        final Container container = containers[i].and(that.containers[j]);
+        if (container.cardinality() > 0)
+        {
+          result.append(keys[i], container);
+        }
+        i++;
+        j++;
+      }
+    }
+    replaceWith(result);
+  }
+
+  /**
+   * Removes from this bitmap all the IDs contained in the provided bitmap.
+   *
+   * @param that
+   *          the bitmap holding the IDs to remove, it is left untouched
+   */
+  void andNot(EntryIDBitmap that)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.max(nbContainers, 1));
+    int j = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      while (j < that.nbContainers && that.keys[j] < keys[i])
+      {
+        j++;
+      }
+      final Container container =
+          j < that.nbContainers && that.keys[j] == keys[i] ? containers[i].andNot(that.containers[j]) : containers[i];
+      if (container.cardinality() > 0)
+      {
+        result.append(keys[i], container);
+      }
+    }
+    replaceWith(result);
+  }
+
+  /**
+   * Returns a deep copy of this bitmap.
+   *
+   * @return a deep copy of this bitmap
+   */
+  EntryIDBitmap copy()
+  {
+    final EntryIDBitmap copy = new EntryIDBitmap(Math.max(nbContainers, 1));
+    for (int i = 0; i < nbContainers; i++)
+    {
+      copy.append(keys[i], containers[i].copy());
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the IDs held by this bitmap as a new array sorted in ascending order.
+   *
+   * @return the IDs held by this bitmap
+   */
+  long[] toArray()
+  {
+    final long[] entryIDs = new long[(int) cardinality];
+    int offset = 0;
+    for (int i = 0; i < nbContainers; i++)
+    {
+      offset = containers[i].copyTo(keys[i] << 16, entryIDs, offset);
+    }
+    return entryIDs;
+  }
+
+  @Override
+  public Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator();
+  }
+
+  private boolean updateCardinality(int delta)
+  {
+    cardinality += delta;
+    return delta != 0;
+  }
+
+  private int indexOf(long key)
+  {
+    if (nbContainers > 0 && keys[nbContainers - 1] == key)
+    {
+      // Fast path for the common case of appending increasing IDs.
+      return nbContainers - 1;
+    }
+    return Arrays.binarySearch(keys, 0, nbContainers, key);
+  }
+
+  private void append(long key, Container container)
+  {
+    ensureCapacity(nbContainers + 1);
+    keys[nbContainers] = key;
+    containers[nbContainers] = container;
+    nbContainers++;
+    cardinality += container.cardinality();
+  }
+
+  private void insert(int index, long key, Container container)
+  {
+    ensureCapacity(nbContainers + 1);
+    System.arraycopy(keys, index, keys, index + 1, nbContainers - index);
+    System.arraycopy(containers, index, containers, index + 1, nbContainers - index);
+    keys[index] = key;
+    containers[index] = container;
+    nbContainers++;
+  }
+
+  private void delete(int index)
+  {
+    System.arraycopy(keys, index + 1, keys, index, nbContainers - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, nbContainers - index - 1);
+    nbContainers--;
+    containers[nbContainers] = null;
+  }
+
+  private void ensureCapacity(int capacity)
+  {
+    if (capacity > keys.length)
+    {
+      final int newCapacity = Math.max(capacity, keys.length * 2);
+      keys = Arrays.copyOf(keys, newCapacity);
+      containers = Arrays.copyOf(containers, newCapacity);
+    }
+  }
+
+  private void replaceWith(EntryIDBitmap that)
+  {
+    keys = that.keys;
+    containers = that.containers;
+    nbContainers = that.nbContainers;
+    cardinality = that.cardinality;
+  }
+
+  private static Container newContainer(long[] entryIDs, int start, int end)
+  {
+    final int size = end - start;
+    if (size <= ARRAY_CONTAINER_MAX_SIZE)
+    {
+      final char[] values = new char[size];
+      for (int i = 0; i < size; i++)
+      {
+        values[i] = lowBits(entryIDs[start + i]);
+      }
+      return new ArrayContainer(values, size);
+    }
+    final BitmapContainer container = new BitmapContainer(new long[BITMAP_CONTAINER_WORDS], 0);
+    for (int i = start; i < end; i++)
+    {
+      container.set(lowBits(entryIDs[i]));
+    }
+    return container;
+  }
+
+  private static long highBits(long entryID)
+  {
+    return entryID >>> 16;
+  }
+
+  private static char lowBits(long entryID)
+  {
+    return (char) entryID;
+  }
+
+  private static long toEntryID(long key, int lowBits)
+  {
+    return key << 16 | lowBits;
+  }
+
+  /** Iterates over the IDs in ascending order. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private int containerIndex;
+    private int nextLowBits = nbContainers > 0 ? containers[0].nextValue(0) : -1;
+
+    @Override
+    public boolean hasNext()
+    {
+      return nextLowBits >= 0;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final EntryID entryID = new EntryID(toEntryID(keys[containerIndex], nextLowBits));
+      nextLowBits = nextLowBits < 0xFFFF ? containers[containerIndex].nextValue(nextLowBits + 1) : -1;
+      if (nextLowBits < 0 && ++containerIndex < nbContainers)
+      {
+        nextLowBits = containers[containerIndex].nextValue(0);
+      }
+      return entryID;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Holds the lower 16 bits of the IDs sharing the same upper bits. Binary operations never modify their operands,
+   * whereas {@link #add(char)} and {@link #remove(char)} may modify the container in place.
+   */
+  private abstract static class Container
+  {
+    abstract int cardinality();
+
+    abstract boolean contains(char lowBits);
+
+    abstract Container add(char lowBits);
+
+    abstract Container remove(char lowBits);
+
+    abstract Container and(Container that);
+
+    abstract Container or(Container that);
+
+    abstract Container andNot(Container that);
+
+    abstract Container copy();
+
+    /** Returns the smallest value greater or equal to the provided one, or -1 if there is none. */
+    abstract int nextValue(int fromLowBits);
+
+    abstract int first();
+
+    abstract int last();
+
+    abstract int copyTo(long base, long[] target, int offset);
+
+    abstract void writeTo(ByteStringBuilder builder);
+
+    abstract int getEstimatedSize();
+  }
+
+  /** Container for sparse chunks, storing the lower bits in a sorted array. */
+  private static final class ArrayContainer extends Container
+  {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer(char value)
+    {
+      this(new char[] { value }, 1);
+    }
+
+    ArrayContainer(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    static ArrayContainer readFrom(ByteSequenceReader reader, int cardinality)
+    {
+      final char[] values = new char[cardinality];
+      int value = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        value += reader.readCompactUnsignedInt();
+        values[i] = (char) value;
+      }
+      return new ArrayContainer(values, cardinality);
+    }
+
+    @Override
+    void writeTo(ByteStringBuilder builder)
+    {
+      int previous = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        builder.appendCompactUnsigned(values[i] - previous);
+        previous = values[i];
+      }
+    }
+
+    @Override
+    int getEstimatedSize()
+    {
+      // Deltas lower than 0x4000 are encoded on at most 2 bytes, greater ones on 3 bytes.
+      return cardinality * 3;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char lowBits)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, lowBits) >= 0;
+    }
+
+    @Override
+    Container add(char lowBits)
+    {
+      int pos = Arrays.binarySearch(values, 0, cardinality, lowBits);
+      if (pos >= 0)
+      {
+        return this;
+      }
+      if (cardinality >= ARRAY_CONTAINER_MAX_SIZE)
+      {
+        return toBitmapContainer().add(lowBits);
+      }
+      pos = -(pos + 1);
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, INITIAL_CAPACITY), ARRAY_CONTAINER_MAX_SIZE));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = lowBits;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char lowBits)
+    {
+      final int pos = Arrays.binarySearch(values, 0, cardinality, lowBits);
+      if (pos >= 0)
+      {
+        System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      final char[] result = new char[cardinality];
+      int size = 0;
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        for (int i = 0, j = 0; i < cardinality && j < other.cardinality;)
+        {
+          if (values[i] < other.values[j])
+          {
+            i++;
+          }
+          else if (values[i] > other.values[j])
+          {
+            j++;
+          }
+          else
+          {
+            result[size++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      }
+      else
+      {
+        for (int i = 0; i < cardinality; i++)
+        {
+          if (that.contains(values[i]))
+          {
+            result[size++] = values[i];
+          }
+        }
+      }
+      return new ArrayContainer(result, size);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      if (!(that instanceof ArrayContainer))
+      {
+        return that.or(this);
+      }
+      final ArrayContainer other = (ArrayContainer) that;
+      final char[] result = new char[cardinality + other.cardinality];
+      int i = 0, j = 0, size = 0;
+      while (i < cardinality && j < other.cardinality)
+      {
+        if (values[i] < other.values[j])
+        {
+          result[size++] = values[i++];
+        }
+        else if (values[i] > other.values[j])
+        {
+          result[size++] = other.values[j++];
+        }
+        else
+        {
+          result[size++] = values[i];
+          i++;
+          j++;
+        }
+      }
+      System.arraycopy(values, i, result, size, cardinality - i);
+      size += cardinality - i;
+      System.arraycopy(other.values, j, result, size, other.cardinality - j);
+      size += other.cardinality - j;
+      final ArrayContainer union = new ArrayContainer(result, size);
+      return size <= ARRAY_CONTAINER_MAX_SIZE ? union : union.toBitmapContainer();
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      final char[] result = new char[cardinality];
+      int size = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        if (!that.contains(values[i]))
+        {
+          result[size++] = values[i];
+        }
+      }
+      return new ArrayContainer(result, size);
+    }
+
+    @Override
+    Container copy()
+    {
+      return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    int nextValue(int fromLowBits)
+    {
+      int pos = Arrays.binarySearch(values, 0, cardinality, (char) fromLowBits);
+      if (pos < 0)
+      {
+        pos = -(pos + 1);
+      }
+      return pos < cardinality ? values[pos] : -1;
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    int copyTo(long base, long[] target, int offset)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        target[offset++] = base | values[i];
+      }
+      return offset;
+    }
+
+    private BitmapContainer toBitmapContainer()
+    {
+      final BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_CONTAINER_WORDS], 0);
+      for (int i = 0; i < cardinality; i++)
+      {
+        bitmap.set(values[i]);
+      }
+      return bitmap;
+    }
+  }
+
+  /** Container for dense chunks, storing one bit per possible value. */
+  private static final class BitmapContainer extends Container
+  {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    static BitmapContainer readFrom(ByteSequenceReader reader, int cardinality)
+    {
+      final long[] words = new long[BITMAP_CONTAINER_WORDS];
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+      {
+        words[i] = reader.readLong();
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+
+    @Override
+    void writeTo(ByteStringBuilder builder)
+    {
+      for (long word : words)
+      {
+        builder.appendLong(word);
+      }
+    }
+
+    @Override
+    int getEstimatedSize()
+    {
+      return BITMAP_CONTAINER_WORDS * 8;
+    }
+
+    void set(char lowBits)
+    {
+      final long mask = 1L << lowBits;
+      final int index = lowBits >>> 6;
+      if ((words[index] & mask) == 0)
+      {
+        words[index] |= mask;
+        cardinality++;
+      }
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char lowBits)
+    {
+      return (words[lowBits >>> 6] & (1L << lowBits)) != 0;
+    }
+
+    @Override
+    Container add(char lowBits)
+    {
+      set(lowBits);
+      return this;
+    }
+
+    @Override
+    Container remove(char lowBits)
+    {
+      final long mask = 1L << lowBits;
+      final int index = lowBits >>> 6;
+      if ((words[index] & mask) != 0)
+      {
+        words[index] &= ~mask;
+        cardinality--;
+      }
+      return cardinality > ARRAY_CONTAINER_MAX_SIZE ? this : toArrayContainer();
+    }
+
+    @Override
+    Container and(Container that)
+    {
+      if (that instanceof ArrayContainer)
+      {
+        return that.and(this);
+      }
+      final long[] otherWords = ((BitmapContainer) that).words;
+      final long[] result = new long[BITMAP_CONTAINER_WORDS];
+      int resultCardinality = 0;
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+      {
+        result[i] = words[i] & otherWords[i];
+        resultCardinality += Long.bitCount(result[i]);
+      }
+      return newContainer(result, resultCardinality);
+    }
+
+    @Override
+    Container or(Container that)
+    {
+      final BitmapContainer union = new BitmapContainer(words.clone(), cardinality);
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        for (int i = 0; i < other.cardinality; i++)
+        {
+          union.set(other.values[i]);
+        }
+        return union;
+      }
+      final long[] otherWords = ((BitmapContainer) that).words;
+      union.cardinality = 0;
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+      {
+        union.words[i] |= otherWords[i];
+        union.cardinality += Long.bitCount(union.words[i]);
+      }
+      return union;
+    }
+
+    @Override
+    Container andNot(Container that)
+    {
+      final long[] result = words.clone();
+      int resultCardinality = cardinality;
+      if (that instanceof ArrayContainer)
+      {
+        final ArrayContainer other = (ArrayContainer) that;
+        for (int i = 0; i < other.cardinality; i++)
+        {
+          final char value = other.values[i];
+          final long mask = 1L << value;
+          if ((result[value >>> 6] & mask) != 0)
+          {
+            result[value >>> 6] &= ~mask;
+            resultCardinality--;
+          }
+        }
+      }
+      else
+      {
+        final long[] otherWords = ((BitmapContainer) that).words;
+        resultCardinality = 0;
+        for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+        {
+          result[i] &= ~otherWords[i];
+          resultCardinality += Long.bitCount(result[i]);
+        }
+      }
+      return newContainer(result, resultCardinality);
+    }
+
+    @Override
+    Container copy()
+    {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int nextValue(int fromLowBits)
+    {
+      int index = fromLowBits >>> 6;
+      long word = words[index] & (-1L << fromLowBits);
+      while (word == 0)
+      {
+        if (++index == BITMAP_CONTAINER_WORDS)
+        {
+          return -1;
+        }
+        word = words[index];
+      }
+      return index * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int first()
+    {
+      return nextValue(0);
+    }
+
+    @Override
+    int last()
+    {
+      for (int i = BITMAP_CONTAINER_WORDS - 1; i >= 0; i--)
+      {
+        if (words[i] != 0)
+        {
+          return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int copyTo(long base, long[] target, int offset)
+    {
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          target[offset++] = base | (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    private Container toArrayContainer()
+    {
+      final char[] values = new char[cardinality];
+      int size = 0;
+      for (int i = 0; i < BITMAP_CONTAINER_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          values[size++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values, size);
+    }
+
+    private static Container newContainer(long[] words, int cardinality)
+    {
+      final BitmapContainer container = new BitmapContainer(words, cardinality);
+      return cardinality > ARRAY_CONTAINER_MAX_SIZE ? container : container.toArrayContainer();
+    }
+  }
+}
@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4(CODEC_V2);
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -272,6 +273,109 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs held in a compressed bitmap. Set operations between two
+   * such sets are performed container by container without inflating the sets into arrays.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    private final EntryIDBitmap bitmap;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      this.bitmap = checkNotNull(bitmap, "bitmap must not be null");
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      return bitmap.add(entryID.longValue());
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      return bitmap.remove(entryID.longValue());
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      if (that.size() != 0)
+      {
+        bitmap.or(toBitmap(that));
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      if (that.size() != 0)
+      {
+        bitmap.andNot(toBitmap(that));
+      }
+    }
+
+    void retainAll(EntryIDSet that)
+    {
+      bitmap.and(toBitmap(that));
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (!bitmap.isEmpty())
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    /** Returns a new array holding the IDs of the bitmap: prefer set operations over this method. */
+    @Override
+    public long[] getIDs()
+    {
+      return bitmap.toArray();
+    }
+
+    private static EntryIDBitmap toBitmap(EntryIDSet idSet)
+    {
+      return idSet.concreteImpl instanceof BitmapImpl
+          ? ((BitmapImpl) idSet.concreteImpl).bitmap
+          : EntryIDBitmap.valueOf(idSet.getIDs());
+    }
+  }
+
   /**
    * Concrete implementation where the EntryIDs are not defined, for example when the index entry
    * limit has been exceeded.
@@ -539,7 +643,56 @@ final class EntryIDSet implements Iterable<EntryID>
   }
 
   /**
-   * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
+   * Compressed bitmap EntryIDSet codec implementation. Defined sets are stored as an {@link EntryIDBitmap} prefixed
+   * with a tag which can never start a value written by the legacy codecs. Values without this tag are decoded with
+   * the legacy codec, so an index can be switched to this codec without being rebuilt: its records are converted as
+   * they get updated.
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    /** Neither used by the compact unsigned encoding of an int, nor by V2 undefined sets, nor by V3. */
+    private static final byte BITMAP_TAG = (byte) 0xFE;
+    /** Understood as an undefined set by both V1 (top bit set) and V2. */
+    private static final byte UNDEFINED_SET = (byte) 0xFF;
+    private final EntryIDSetCodec legacyCodec;
+
+    EntryIDSetCodecV4(EntryIDSetCodec legacyCodec)
+    {
+      this.legacyCodec = checkNotNull(legacyCodec, "legacyCodec must not be null");
+    }
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (!idSet.isDefined())
+      {
+        return ByteString.valueOfBytes(new byte[] { UNDEFINED_SET });
+      }
+      final EntryIDBitmap bitmap = BitmapImpl.toBitmap(idSet);
+      final ByteStringBuilder builder = new ByteStringBuilder(bitmap.getEstimatedSize() + 1);
+      builder.appendByte(BITMAP_TAG);
+      bitmap.writeTo(builder);
+      return ByteString.wrap(builder.getBackingArray(), 0, builder.length());
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.isEmpty() || value.byteAt(0) != BITMAP_TAG)
+      {
+        return legacyCodec.decode(key, value);
+      }
+      final ByteSequenceReader reader = value.asReader();
+      reader.skip(1);
+      return newBitmapSet(EntryIDBitmap.readFrom(reader));
+    }
+  }
+
+  /**
+   * Decorate a V1, V2 or V4 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
    * The first is tag zero (unused in other encodings), followed by a byte
    * indicating version 1 of encryption.
@@ -601,6 +754,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return new EntryIDSetCodecV3(codec, cs);
   }
 
+  /**
+   * Returns a codec writing compressed bitmaps and able to read the values written by the provided legacy codec.
+   *
+   * @param legacyCodec
+   *          the codec used to decode values not written as compressed bitmaps
+   * @return a new codec
+   */
+  static EntryIDSetCodec newEntryIDSetCodecV4(EntryIDSetCodec legacyCodec)
+  {
+    return new EntryIDSetCodecV4(legacyCodec);
+  }
+
   static EntryIDSet newUndefinedSet()
   {
     return newUndefinedSetWithKey(NO_KEY);
@@ -628,6 +793,20 @@ final class EntryIDSet implements Iterable<EntryID>
     return new EntryIDSet(new DefinedImpl(entryIDs));
   }
 
+  /**
+   * Creates a new defined entry ID set backed by the provided compressed bitmap.
+   *
+   * @param bitmap
+   *          The bitmap holding the entry IDs, it is not copied.
+   * @return A new defined {@link EntryIDSet} backed by the provided bitmap
+   * @throws NullPointerException
+   *           if bitmap is null
+   */
+  static EntryIDSet newBitmapSet(EntryIDBitmap bitmap)
+  {
+    return new EntryIDSet(new BitmapImpl(bitmap));
+  }
+
   private static long[] intersection(long[] set1, long[] set2)
   {
     long[] target = new long[Math.min(set1.length, set2.length)];
@@ -689,6 +868,19 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    if (containsBitmapSet(sets))
+    {
+      final EntryIDBitmap union = new EntryIDBitmap();
+      for (EntryIDSet l : sets)
+      {
+        if (l.size() != 0)
+        {
+          union.or(BitmapImpl.toBitmap(l));
+        }
+      }
+      return newBitmapSet(union);
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +915,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static boolean containsBitmapSet(List<EntryIDSet> sets)
+  {
+    for (EntryIDSet l : sets)
+    {
+      if (l.isBitmap())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -799,7 +1003,8 @@ final class EntryIDSet implements Iterable<EntryID>
       return null;
     }
     final long[] entryIDs = concreteImpl.getIDs();
-    return Arrays.copyOf(entryIDs, entryIDs.length);
+    // Bitmaps already return a new array
+    return isBitmap() ? entryIDs : Arrays.copyOf(entryIDs, entryIDs.length);
   }
 
   /**
@@ -812,6 +1017,16 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.isDefined();
   }
 
+  /**
+   * Determine whether this set of IDs is undefined because the index entry limit of its key has been exceeded.
+   *
+   * @return true if the index entry limit has been exceeded, false if the set is defined or was not read from an index.
+   */
+  boolean isLimitExceeded()
+  {
+    return concreteImpl instanceof UndefinedImpl && ((UndefinedImpl) concreteImpl).treeKey != NO_KEY;
+  }
+
   /**
    * Insert an ID into this set.
    *
@@ -873,6 +1088,11 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (that.isBitmap() && concreteImpl instanceof DefinedImpl)
+    {
+      // Merge into a bitmap rather than inflating that set.
+      concreteImpl = new BitmapImpl(EntryIDBitmap.valueOf(concreteImpl.getIDs()));
+    }
     concreteImpl.addAll(that);
   }
 
@@ -889,7 +1109,9 @@ final class EntryIDSet implements Iterable<EntryID>
     checkNotNull(that, "that must not be null");
     if (!concreteImpl.isDefined())
     {
-      if ( that.isDefined() ) {
+      if (that.isBitmap()) {
+        concreteImpl = new BitmapImpl(((BitmapImpl) that.concreteImpl).bitmap.copy());
+      } else if ( that.isDefined() ) {
         // NOTE: It's ok to share the same array instance here thanks to the copy-on-write
         // performed by the implementation.
         concreteImpl = new DefinedImpl(that.getIDs());
@@ -903,6 +1125,25 @@ final class EntryIDSet implements Iterable<EntryID>
       return;
     }
 
+    if (isBitmap())
+    {
+      if (that.isBitmap())
+      {
+        ((BitmapImpl) concreteImpl).retainAll(that);
+      }
+      else
+      {
+        // The result cannot be larger than that set, which is already an array.
+        concreteImpl = new DefinedImpl(filter(that.getIDs(), this, true));
+      }
+      return;
+    }
+    else if (that.isBitmap())
+    {
+      concreteImpl = new DefinedImpl(filter(concreteImpl.getIDs(), that, true));
+      return;
+    }
+
     final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
     if (thatSetOverlap)
     {
@@ -928,6 +1169,11 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (that.isBitmap() && concreteImpl instanceof DefinedImpl)
+    {
+      concreteImpl = new DefinedImpl(filter(concreteImpl.getIDs(), that, false));
+      return;
+    }
     concreteImpl.removeAll(that);
   }
 
@@ -947,6 +1193,26 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.getIDs();
   }
 
+  private boolean isBitmap()
+  {
+    return concreteImpl instanceof BitmapImpl;
+  }
+
+  /** Returns the IDs from the sorted array which are (or are not) contained in the provided set. */
+  private static long[] filter(long[] entryIDs, EntryIDSet idSet, boolean contained)
+  {
+    final long[] filtered = new long[entryIDs.length];
+    int size = 0;
+    for (long entryID : entryIDs)
+    {
+      if (idSet.contains(new EntryID(entryID)) == contained)
+      {
+        filtered[size++] = entryID;
+      }
+    }
+    return size == filtered.length ? filtered : Arrays.copyOf(filtered, size);
+  }
+
   private long[] getRange()
   {
     return concreteImpl.getRange();
@@ -26,8 +26,14 @@ import static org.opends.server.core.DirectoryServer.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.InflaterOutputStream;
 
@@ -39,6 +45,7 @@ import org.forgerock.opendj.ldap.ByteSequenceReader;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionCodec;
 import org.forgerock.util.Function;
 import org.forgerock.util.Reject;
 import org.opends.server.api.CompressedSchema;
@@ -92,6 +99,15 @@ class ID2Entry extends AbstractTree
     }
   };
 
+  /**
+   * The maximum number of idle raw deflate compressors, and of decompressors, kept for the V3 format. They are
+   * shared by all the threads, rather than cached with the thread local codecs, so that their native memory is
+   * neither allocated again for each short-lived thread nor retained by idle threads.
+   */
+  private static final int MAX_IDLE_ZLIB_STREAMS = 2 * Runtime.getRuntime().availableProcessors();
+  private static final BlockingQueue<Deflater> IDLE_DEFLATERS = new ArrayBlockingQueue<>(MAX_IDLE_ZLIB_STREAMS);
+  private static final BlockingQueue<Inflater> IDLE_INFLATERS = new ArrayBlockingQueue<>(MAX_IDLE_ZLIB_STREAMS);
+
   private static EntryCodec acquireEntryCodec()
   {
     EntryCodec codec = ENTRY_CODEC_CACHE.get();
@@ -119,14 +135,20 @@ class ID2Entry extends AbstractTree
     private static final byte PLAIN_ENTRY = 0x00;
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
+    private static final byte LZ4_COMPRESS_ENTRY = 0x04;
 
     /** The format version for entry encoding. */
     static final byte FORMAT_VERSION_V2 = 0x02;
+    /** The format version for entries compressed with a dictionary or with LZ4. */
+    static final byte FORMAT_VERSION_V3 = 0x03;
+    private static final int DEFLATE_BUFFER_SIZE = 4096;
 
     private final ByteStringBuilder encodedBuffer = new ByteStringBuilder();
     private final ByteStringBuilder entryBuffer = new ByteStringBuilder();
     private final ByteStringBuilder compressedEntryBuffer = new ByteStringBuilder();
     private final int maxBufferSize;
+    /** Output buffer of the raw deflate compressor for the V3 format, lazily created. */
+    private byte[] deflateBuffer;
 
     private EntryCodec()
     {
@@ -150,6 +172,8 @@ class ID2Entry extends AbstractTree
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
         return decodeV2(bytes, compressedSchema);
+      case FORMAT_VERSION_V3:
+        return decodeV3(bytes, compressedSchema);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -291,6 +315,139 @@ class ID2Entry extends AbstractTree
       }
     }
 
+    /**
+     * Decodes an entry compressed with a dictionary or with LZ4.
+     * Entries are encoded according to the sequence
+     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH, COMPACT_DICTIONARY_ID, ID2ENTRY_VALUE}
+     * where
+     *
+     * VERSION_BYTE = 0x3
+     * FLAG_BYTE = bit field of OR'ed values indicating post-encoding processing.
+     *     possible meaningful flags are COMPRESS_ENTRY (raw deflate), LZ4_COMPRESS_ENTRY and ENCRYPT_ENTRY.
+     * COMPACT_INTEGER_LENGTH = length of the encoded entry before compression
+     * COMPACT_DICTIONARY_ID = identifier of the dictionary used to compress the entry, 0 for none
+     * ID2ENTRY_VALUE = encoded entry, optionally compressed, then optionally encrypted
+     *
+     * @param bytes A byte array containing the encoded tree value.
+     * @param compressedSchema The compressed schema manager holding the compression dictionaries.
+     * @return The decoded entry.
+     * @throws DecodeException If the data is not in the expected format, references an unknown
+     * dictionary or a decryption error occurs.
+     * @throws DirectoryException If a Directory Server error occurs.
+     * @throws IOException if an error occurs while reading the encrypted data.
+     */
+    private Entry decodeV3(ByteString bytes, CompressedSchema compressedSchema)
+        throws DirectoryException, DecodeException, IOException
+    {
+      ByteSequenceReader reader = bytes.asReader();
+      // skip version byte
+      reader.position(1);
+      int format = reader.readByte();
+      int encodedEntryLen = reader.readCompactUnsignedInt();
+      int dictionaryID = reader.readCompactUnsignedInt();
+      if (format == PLAIN_ENTRY)
+      {
+        return Entry.decode(reader, compressedSchema);
+      }
+
+      try
+      {
+        compressedEntryBuffer.clear();
+        if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
+        {
+          InputStream is = getCryptoManager().getCipherInputStream(reader.asInputStream());
+          while (compressedEntryBuffer.appendBytes(is, DEFLATE_BUFFER_SIZE) != -1)
+          {
+            // Read the whole decrypted value
+          }
+        }
+        else
+        {
+          compressedEntryBuffer.appendBytes(reader, reader.remaining());
+        }
+        if ((format & (COMPRESS_ENTRY | LZ4_COMPRESS_ENTRY)) == 0)
+        {
+          return Entry.decode(compressedEntryBuffer.asReader(), compressedSchema);
+        }
+        final int compressedLength = compressedEntryBuffer.length();
+        compressedEntryBuffer.appendByte(0);
+
+        final byte[] dictionary = getDictionary(compressedSchema, dictionaryID);
+        final byte[] data = new byte[encodedEntryLen];
+        if ((format & LZ4_COMPRESS_ENTRY) == LZ4_COMPRESS_ENTRY)
+        {
+          LZ4BlockCodec.decompress(dictionary, compressedEntryBuffer.getBackingArray(), compressedLength, data);
+        }
+        else
+        {
+          inflate(dictionary, compressedLength, data);
+        }
+        return Entry.decode(ByteString.wrap(data).asReader(), compressedSchema);
+      }
+      catch (CryptoManagerException cme)
+      {
+        logger.traceException(cme);
+        throw DecodeException.error(cme.getMessageObject());
+      }
+      catch (DataFormatException e)
+      {
+        logger.traceException(e);
+        throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get(), e);
+      }
+    }
+
+    private byte[] getDictionary(CompressedSchema compressedSchema, int dictionaryID) throws DecodeException
+    {
+      if (dictionaryID == 0)
+      {
+        return new byte[0];
+      }
+      final EntryCompressionDictionary dictionary = compressedSchema instanceof PersistentCompressedSchema
+          ? ((PersistentCompressedSchema) compressedSchema).getEntryDictionary(dictionaryID)
+          : null;
+      if (dictionary == null)
+      {
+        throw DecodeException.error(ERR_UNKNOWN_ENTRY_COMPRESSION_DICTIONARY.get(dictionaryID));
+      }
+      return dictionary.getBytes();
+    }
+
+    private void inflate(byte[] dictionary, int compressedLength, byte[] data) throws DataFormatException
+    {
+      Inflater inflater = IDLE_INFLATERS.poll();
+      if (inflater == null)
+      {
+        inflater = new Inflater(true);
+      }
+      try
+      {
+        if (dictionary.length > 0)
+        {
+          inflater.setDictionary(dictionary);
+        }
+        // The extra byte appended after the compressed data is required by the raw inflater
+        inflater.setInput(compressedEntryBuffer.getBackingArray(), 0, compressedLength + 1);
+        int position = 0;
+        while (position < data.length)
+        {
+          final int inflated = inflater.inflate(data, position, data.length - position);
+          if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+          {
+            throw new DataFormatException(ERR_CANNOT_DECODE_ENTRY.get().toString());
+          }
+          position += inflated;
+        }
+      }
+      finally
+      {
+        inflater.reset();
+        if (!IDLE_INFLATERS.offer(inflater))
+        {
+          inflater.end();
+        }
+      }
+    }
+
     private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
     {
       encodeVolatile(entry, dataConfig);
@@ -300,6 +457,13 @@ class ID2Entry extends AbstractTree
     private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
+      if (dataConfig.isCompressed()
+          && (dataConfig.isCompressionDictionaryEnabled()
+              || dataConfig.getCompressionCodec() == EntriesCompressionCodec.LZ4))
+      {
+        encodeV3(dataConfig);
+        return;
+      }
 
       OutputStream os = encodedBuffer.asOutputStream();
       try
@@ -339,6 +503,99 @@ class ID2Entry extends AbstractTree
         }
       }
     }
+
+    private void encodeV3(DataConfig dataConfig) throws DirectoryException
+    {
+      EntryCompressionDictionary dictionary = null;
+      final CompressedSchema compressedSchema = dataConfig.getEntryEncodeConfig().getCompressedSchema();
+      if (dataConfig.isCompressionDictionaryEnabled() && compressedSchema instanceof PersistentCompressedSchema)
+      {
+        dictionary = ((PersistentCompressedSchema) compressedSchema).getEntryDictionaryForCompression(entryBuffer);
+      }
+      final byte[] dictionaryBytes = dictionary != null ? dictionary.getBytes() : new byte[0];
+
+      compressedEntryBuffer.clear();
+      byte format;
+      if (dataConfig.getCompressionCodec() == EntriesCompressionCodec.LZ4)
+      {
+        final int[] hashTable =
+            dictionary != null ? dictionary.getLZ4HashTable() : LZ4BlockCodec.newHashTable(dictionaryBytes);
+        LZ4BlockCodec.compress(
+            dictionaryBytes, hashTable, entryBuffer.getBackingArray(), entryBuffer.length(), compressedEntryBuffer);
+        format = LZ4_COMPRESS_ENTRY;
+      }
+      else
+      {
+        deflate(dictionaryBytes);
+        format = COMPRESS_ENTRY;
+      }
+      ByteSequence value = compressedEntryBuffer;
+      if (compressedEntryBuffer.length() >= entryBuffer.length())
+      {
+        // Small entries may not compress at all.
+        value = entryBuffer;
+        format = PLAIN_ENTRY;
+        dictionary = null;
+      }
+      if (dataConfig.isEncrypted())
+      {
+        format |= ENCRYPT_ENTRY;
+      }
+
+      encodedBuffer.appendByte(FORMAT_VERSION_V3);
+      encodedBuffer.appendByte(format);
+      encodedBuffer.appendCompactUnsigned(entryBuffer.length());
+      encodedBuffer.appendCompactUnsigned(dictionary != null ? dictionary.getID() : 0);
+      if (!dataConfig.isEncrypted())
+      {
+        encodedBuffer.appendBytes(value);
+        return;
+      }
+      try (OutputStream os = dataConfig.getCryptoSuite().getCipherOutputStream(encodedBuffer.asOutputStream()))
+      {
+        value.copyTo(os);
+      }
+      catch (CryptoManagerException | IOException e)
+      {
+        logger.traceException(e);
+        throw new DirectoryException(UNWILLING_TO_PERFORM, ERR_CANNOT_ENCODE_ENTRY.get(e.getLocalizedMessage()));
+      }
+    }
+
+    private void deflate(byte[] dictionary)
+    {
+      if (deflateBuffer == null)
+      {
+        deflateBuffer = new byte[DEFLATE_BUFFER_SIZE];
+      }
+      Deflater deflater = IDLE_DEFLATERS.poll();
+      if (deflater == null)
+      {
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      }
+      try
+      {
+        if (dictionary.length > 0)
+        {
+          deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(entryBuffer.getBackingArray(), 0, entryBuffer.length());
+        deflater.finish();
+        while (!deflater.finished())
+        {
+          final int deflated = deflater.deflate(deflateBuffer);
+          compressedEntryBuffer.appendBytes(deflateBuffer, 0, deflated);
+        }
+      }
+      finally
+      {
+        deflater.reset();
+        if (!IDLE_DEFLATERS.offer(deflater))
+        {
+          deflater.end();
+        }
+      }
+    }
   }
 
   /**
@@ -469,6 +726,62 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Fetch the encoded record of an entry, without decoding it.
+   *
+   * @param txn a non null transaction
+   * @param entryID The desired entry ID which forms the key.
+   * @return The encoded record, or null if there is no such record.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @see #decode(EntryID, ByteString)
+   */
+  ByteString read(ReadableTransaction txn, EntryID entryID) throws StorageRuntimeException
+  {
+    return txn.read(getName(), entryID.toByteString());
+  }
+
+  /**
+   * Fetch the encoded records of several entries with a single read of the entry tree, without decoding them.
+   *
+   * @param txn a non null transaction
+   * @param entryIDs The desired entry IDs, in any order.
+   * @return The encoded records, in the order of the provided entry IDs, with null for the records which do not
+   *         exist.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @see #decode(EntryID, ByteString)
+   */
+  List<ByteString> readAll(ReadableTransaction txn, List<EntryID> entryIDs) throws StorageRuntimeException
+  {
+    final List<ByteString> keys = new ArrayList<>(entryIDs.size());
+    for (EntryID entryID : entryIDs)
+    {
+      keys.add(entryID.toByteString());
+    }
+    return txn.readAll(getName(), keys);
+  }
+
+  /**
+   * Decodes an encoded record fetched from the entry tree. This method may be called from any thread.
+   *
+   * @param entryID The entry ID of the record.
+   * @param value The encoded record, may be null.
+   * @return The decoded entry, or null if the record is null.
+   * @throws DirectoryException If a problem occurs while decoding the entry.
+   * @see #read(ReadableTransaction, EntryID)
+   */
+  Entry decode(EntryID entryID, ByteString value) throws DirectoryException
+  {
+    try
+    {
+      return get0(value);
+    }
+    catch (Exception e)
+    {
+      throw new DirectoryException(
+          DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_ENTRY_DATABASE_CORRUPT.get(entryID));
+    }
+  }
+
   Cursor<EntryID, Entry> openCursor(ReadableTransaction txn)
   {
     return transformKeysAndValues(txn.openCursor(getName()), TO_ENTRY_ID, TO_ENTRY);
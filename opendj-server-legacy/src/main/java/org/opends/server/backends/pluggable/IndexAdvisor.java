@@ -0,0 +1,538 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.config.ConfigConstants.*;
+import static org.opends.server.util.ServerConstants.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
+import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
+import org.opends.server.core.AddOperation;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.tasks.RebuildTask;
+import org.opends.server.types.FilterType;
+import org.opends.server.types.RawAttribute;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.TimeThread;
+
+/**
+ * Gathers statistics about the search filters processed by a backend and derives index recommendations from them.
+ * <p>
+ * Statistics are kept for each filter shape, which is a search filter without its assertion values, and for each
+ * attribute and index type used by the simple components of the filters. From the latter, the advisor recommends:
+ * <ul>
+ * <li>creating the indexes missing for components of unindexed searches,</li>
+ * <li>rebuilding the configured indexes which cannot be used because they have not been built,</li>
+ * <li>raising the index entry limit of the indexes whose lookups mostly exceed it.</li>
+ * </ul>
+ */
+final class IndexAdvisor
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of unindexed searches or of lookups exceeding the limit from which a recommendation is made. */
+  static final int RECOMMENDATION_THRESHOLD = 10;
+  private static final String OC_REBUILD_TASK = "ds-task-rebuild";
+
+  /** Statistics of the searches having the same filter shape. */
+  private static final class ShapeStats
+  {
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong unindexedSearches = new AtomicLong();
+  }
+
+  /** Statistics of the lookups of an index type of an attribute. */
+  private static final class IndexStats
+  {
+    private final DN baseDN;
+    private final AttributeType attributeType;
+    private final IndexType indexType;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong limitExceededLookups = new AtomicLong();
+    private final AtomicLong unindexedSearches = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private long maxCandidates;
+    /** The state of the index when it was last used. */
+    private volatile boolean configured;
+    private volatile boolean trusted;
+    private volatile int indexEntryLimit;
+
+    private IndexStats(DN baseDN, AttributeType attributeType, IndexType indexType)
+    {
+      this.baseDN = baseDN;
+      this.attributeType = attributeType;
+      this.indexType = indexType;
+    }
+
+    private void refresh(AttributeIndex attributeIndex)
+    {
+      configured = attributeIndex != null && attributeIndex.isIndexed(indexType);
+      trusted = configured && attributeIndex.isTrusted();
+      indexEntryLimit = attributeIndex != null ? attributeIndex.getIndexEntryLimit() : 0;
+    }
+
+    private synchronized void updateMaxCandidates(long candidates)
+    {
+      maxCandidates = Math.max(maxCandidates, candidates);
+    }
+
+    private synchronized long getMaxCandidates()
+    {
+      return maxCandidates;
+    }
+
+    private boolean isNeverIndexed()
+    {
+      // (objectClass=*) matches all the entries and does not need any index
+      return indexType == IndexType.PRESENCE && attributeType.isObjectClass();
+    }
+
+    private StringBuilder describe(StringBuilder builder)
+    {
+      return builder.append("base-dn:").append(baseDN)
+          .append(" attribute:").append(attributeType.getNameOrOID())
+          .append(" index-type:").append(indexType);
+    }
+  }
+
+  private final String backendID;
+  /** Adds the rebuild tasks, which must not be done by the threads processing the searches. */
+  private final Executor executor;
+  private final ConcurrentMap<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, IndexStats> indexes = new ConcurrentHashMap<>();
+  private volatile boolean enabled;
+  private volatile boolean autoRebuildEnabled;
+  private volatile int maxShapes = 25;
+  private String startTimeStamp;
+
+  /**
+   * Creates a new index advisor.
+   *
+   * @param backendID the identifier of the backend whose searches are analyzed
+   * @param executor the executor adding the rebuild tasks
+   */
+  IndexAdvisor(String backendID, Executor executor)
+  {
+    this.backendID = backendID;
+    this.executor = executor;
+  }
+
+  /**
+   * Enables or disables the gathering of statistics.
+   *
+   * @param enabled {@code true} to gather statistics
+   * @param autoRebuildEnabled {@code true} to schedule the rebuild of the indexes recommended for rebuild
+   */
+  void setEnabled(boolean enabled, boolean autoRebuildEnabled)
+  {
+    if (enabled && !this.enabled)
+    {
+      startTimeStamp = TimeThread.getGMTTime();
+    }
+    else if (!enabled)
+    {
+      shapes.clear();
+      indexes.clear();
+    }
+    this.enabled = enabled;
+    this.autoRebuildEnabled = autoRebuildEnabled;
+  }
+
+  boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Sets the maximum number of filter shapes to keep statistics for, before the least used ones are removed.
+   *
+   * @param maxShapes the maximum number of filter shapes
+   */
+  void setMaxShapes(int maxShapes)
+  {
+    this.maxShapes = maxShapes;
+  }
+
+  /**
+   * Records the lookup of an index for a simple component of a search filter.
+   *
+   * @param entryContainer the entry container where the search is processed
+   * @param filterType the type of the filter component
+   * @param attributeType the attribute type of the filter component
+   * @param candidates the candidate entries returned by the index lookup
+   */
+  void recordLookup(EntryContainer entryContainer, IndexFilterType filterType, AttributeType attributeType,
+      EntryIDSet candidates)
+  {
+    if (!enabled || (!candidates.isDefined() && !candidates.isLimitExceeded()))
+    {
+      // The index type is not configured: the search is recorded as unindexed by recordSearch()
+      return;
+    }
+    final IndexStats stats = getIndexStats(entryContainer, attributeType, filterType.getIndexType());
+    stats.lookups.incrementAndGet();
+    if (candidates.isDefined())
+    {
+      stats.updateMaxCandidates(candidates.size());
+    }
+    else
+    {
+      stats.limitExceededLookups.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records a search, once it is known whether the indexes could be used to find its candidate entries.
+   *
+   * @param entryContainer the entry container where the search is processed
+   * @param filter the search filter
+   * @param indexed {@code false} if all the entries under the base DN of the search must be read
+   */
+  void recordSearch(EntryContainer entryContainer, SearchFilter filter, boolean indexed)
+  {
+    if (!enabled)
+    {
+      return;
+    }
+    final ShapeStats shapeStats = getShapeStats(toShape(filter, new StringBuilder()).toString());
+    shapeStats.searches.incrementAndGet();
+    if (indexed)
+    {
+      return;
+    }
+    shapeStats.unindexedSearches.incrementAndGet();
+
+    final List<IndexStats> components = new ArrayList<>();
+    collectComponents(entryContainer, filter, components);
+    for (IndexStats stats : components)
+    {
+      final long unindexedSearches = stats.unindexedSearches.incrementAndGet();
+      if (autoRebuildEnabled && needsRebuild(stats, unindexedSearches)
+          && stats.rebuildScheduled.compareAndSet(false, true))
+      {
+        scheduleRebuild(stats, unindexedSearches);
+      }
+    }
+  }
+
+  private void collectComponents(EntryContainer entryContainer, SearchFilter filter, List<IndexStats> components)
+  {
+    switch (filter.getFilterType())
+    {
+    case AND:
+    case OR:
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        collectComponents(entryContainer, component, components);
+      }
+      break;
+
+    case EQUALITY:
+      components.add(getIndexStats(entryContainer, filter.getAttributeType(), IndexType.EQUALITY));
+      break;
+
+    case PRESENT:
+      components.add(getIndexStats(entryContainer, filter.getAttributeType(), IndexType.PRESENCE));
+      break;
+
+    case SUBSTRING:
+      components.add(getIndexStats(entryContainer, filter.getAttributeType(), IndexType.SUBSTRING));
+      break;
+
+    case GREATER_OR_EQUAL:
+    case LESS_OR_EQUAL:
+      components.add(getIndexStats(entryContainer, filter.getAttributeType(), IndexType.ORDERING));
+      break;
+
+    case APPROXIMATE_MATCH:
+      components.add(getIndexStats(entryContainer, filter.getAttributeType(), IndexType.APPROXIMATE));
+      break;
+
+    default:
+      // NOT filters cannot use indexes, extensible filters are only counted with their filter shape
+      break;
+    }
+  }
+
+  private IndexStats getIndexStats(EntryContainer entryContainer, AttributeType attributeType, IndexType indexType)
+  {
+    final DN baseDN = entryContainer.getBaseDN();
+    final String key = baseDN + "\u0000" + attributeType.getNameOrOID() + "\u0000" + indexType;
+    IndexStats stats = indexes.get(key);
+    if (stats == null)
+    {
+      final IndexStats newStats = new IndexStats(baseDN, attributeType, indexType);
+      stats = indexes.putIfAbsent(key, newStats);
+      if (stats == null)
+      {
+        stats = newStats;
+      }
+    }
+    stats.refresh(entryContainer.getAttributeIndex(attributeType));
+    return stats;
+  }
+
+  private ShapeStats getShapeStats(String shape)
+  {
+    ShapeStats stats = shapes.get(shape);
+    if (stats == null)
+    {
+      synchronized (shapes)
+      {
+        stats = shapes.get(shape);
+        if (stats == null)
+        {
+          removeLeastSearchedShape();
+          stats = new ShapeStats();
+          shapes.put(shape, stats);
+        }
+      }
+    }
+    return stats;
+  }
+
+  private void removeLeastSearchedShape()
+  {
+    while (!shapes.isEmpty() && shapes.size() >= maxShapes)
+    {
+      Map.Entry<String, ShapeStats> lowest = null;
+      for (Map.Entry<String, ShapeStats> entry : shapes.entrySet())
+      {
+        if (lowest == null || entry.getValue().searches.get() < lowest.getValue().searches.get())
+        {
+          lowest = entry;
+        }
+      }
+      shapes.remove(lowest.getKey());
+    }
+  }
+
+  /**
+   * Returns the shape of a search filter, where the assertion values are replaced by question marks.
+   *
+   * @param filter the search filter
+   * @param builder the builder where the shape is appended
+   * @return the provided builder
+   */
+  static StringBuilder toShape(SearchFilter filter, StringBuilder builder)
+  {
+    switch (filter.getFilterType())
+    {
+    case AND:
+    case OR:
+      builder.append(filter.getFilterType() == FilterType.AND ? "(&" : "(|");
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        toShape(component, builder);
+      }
+      return builder.append(')');
+    case NOT:
+      builder.append("(!");
+      return toShape(filter.getNotComponent(), builder).append(')');
+    case EQUALITY:
+      return appendAttribute(filter, builder).append("=?)");
+    case PRESENT:
+      return appendAttribute(filter, builder).append("=*)");
+    case SUBSTRING:
+      return appendAttribute(filter, builder).append("=?*)");
+    case GREATER_OR_EQUAL:
+      return appendAttribute(filter, builder).append(">=?)");
+    case LESS_OR_EQUAL:
+      return appendAttribute(filter, builder).append("<=?)");
+    case APPROXIMATE_MATCH:
+      return appendAttribute(filter, builder).append("~=?)");
+    default:
+      builder.append('(');
+      if (filter.getAttributeType() != null)
+      {
+        builder.append(filter.getAttributeType().getNameOrOID().toLowerCase());
+      }
+      if (filter.getDNAttributes())
+      {
+        builder.append(":dn");
+      }
+      if (filter.getMatchingRuleID() != null)
+      {
+        builder.append(':').append(filter.getMatchingRuleID());
+      }
+      return builder.append(":=?)");
+    }
+  }
+
+  private static StringBuilder appendAttribute(SearchFilter filter, StringBuilder builder)
+  {
+    return builder.append('(').append(filter.getAttributeType().getNameOrOID().toLowerCase());
+  }
+
+  private static boolean needsRebuild(IndexStats stats, long unindexedSearches)
+  {
+    return stats.configured && !stats.trusted && unindexedSearches >= RECOMMENDATION_THRESHOLD;
+  }
+
+  private void scheduleRebuild(final IndexStats stats, final long unindexedSearches)
+  {
+    try
+    {
+      executor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          addRebuildTask(stats, unindexedSearches);
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The server is shutting down: a later search will schedule the rebuild again
+      logger.traceException(e);
+      stats.rebuildScheduled.set(false);
+    }
+  }
+
+  private void addRebuildTask(IndexStats stats, long unindexedSearches)
+  {
+    final String taskID = "index-advisor-" + UUID.randomUUID();
+    final String attributeName = stats.attributeType.getNameOrOID();
+    final List<RawAttribute> attributes = new ArrayList<>();
+    final ArrayList<ByteString> objectClasses = new ArrayList<>();
+    objectClasses.add(ByteString.valueOfUtf8(OC_TOP));
+    objectClasses.add(ByteString.valueOfUtf8(OC_TASK));
+    objectClasses.add(ByteString.valueOfUtf8(OC_REBUILD_TASK));
+    attributes.add(RawAttribute.create(ATTR_OBJECTCLASS, objectClasses));
+    attributes.add(RawAttribute.create(ATTR_TASK_ID, taskID));
+    attributes.add(RawAttribute.create(ATTR_TASK_CLASS, RebuildTask.class.getName()));
+    attributes.add(RawAttribute.create(ATTR_REBUILD_BASE_DN, stats.baseDN.toString()));
+    attributes.add(RawAttribute.create(ATTR_REBUILD_INDEX, attributeName));
+    attributes.add(RawAttribute.create(ATTR_REBUILD_ONLINE, "true"));
+
+    final String taskDN = ATTR_TASK_ID + "=" + taskID + "," + SCHEDULED_TASK_BASE_RDN + "," + DN_TASK_ROOT;
+    final AddOperation addOperation = InternalClientConnection.getRootConnection().processAdd(taskDN, attributes);
+    if (addOperation.getResultCode() == ResultCode.SUCCESS)
+    {
+      logger.info(NOTE_INDEX_ADVISOR_REBUILD_SCHEDULED, backendID, taskID, attributeName, stats.baseDN,
+          unindexedSearches);
+    }
+    else
+    {
+      logger.error(ERR_INDEX_ADVISOR_CANNOT_SCHEDULE_REBUILD, backendID, attributeName, stats.baseDN,
+          addOperation.getErrorMessage());
+    }
+  }
+
+  String getStartTimeStamp()
+  {
+    return startTimeStamp;
+  }
+
+  /**
+   * Returns the statistics of each filter shape, for the monitor entry.
+   *
+   * @return the statistics of each filter shape
+   */
+  List<String> getFilterShapeValues()
+  {
+    final List<String> values = new ArrayList<>();
+    for (Map.Entry<String, ShapeStats> entry : shapes.entrySet())
+    {
+      values.add(entry.getKey()
+          + " searches:" + entry.getValue().searches.get()
+          + " unindexed:" + entry.getValue().unindexedSearches.get());
+    }
+    return values;
+  }
+
+  /**
+   * Returns the statistics of each attribute and index type, for the monitor entry.
+   *
+   * @return the statistics of each attribute and index type
+   */
+  List<String> getIndexValues()
+  {
+    final List<String> values = new ArrayList<>();
+    for (IndexStats stats : indexes.values())
+    {
+      values.add(stats.describe(new StringBuilder())
+          .append(" lookups:").append(stats.lookups.get())
+          .append(" limit-exceeded:").append(stats.limitExceededLookups.get())
+          .append(" max-candidates:").append(stats.getMaxCandidates())
+          .append(" unindexed-searches:").append(stats.unindexedSearches.get())
+          .toString());
+    }
+    return values;
+  }
+
+  /**
+   * Returns the index recommendations derived from the statistics, for the monitor entry.
+   *
+   * @return the index recommendations
+   */
+  List<String> getRecommendations()
+  {
+    final List<String> values = new ArrayList<>();
+    for (IndexStats stats : indexes.values())
+    {
+      final long unindexedSearches = stats.unindexedSearches.get();
+      if (!stats.configured && unindexedSearches >= RECOMMENDATION_THRESHOLD && !stats.isNeverIndexed())
+      {
+        values.add(stats.describe(new StringBuilder("create-index "))
+            .append(" unindexed-searches:").append(unindexedSearches).toString());
+      }
+      else if (needsRebuild(stats, unindexedSearches))
+      {
+        values.add(stats.describe(new StringBuilder("rebuild-index "))
+            .append(" unindexed-searches:").append(unindexedSearches)
+            .append(" rebuild-scheduled:").append(stats.rebuildScheduled.get()).toString());
+      }
+
+      final long limitExceeded = stats.limitExceededLookups.get();
+      if (stats.trusted && stats.indexEntryLimit > 0
+          && limitExceeded >= RECOMMENDATION_THRESHOLD && 2 * limitExceeded >= stats.lookups.get())
+      {
+        values.add(stats.describe(new StringBuilder("raise-index-entry-limit "))
+            .append(" index-entry-limit:").append(stats.indexEntryLimit)
+            .append(" recommended-index-entry-limit:").append(recommendedIndexEntryLimit(stats))
+            .append(" limit-exceeded:").append(limitExceeded)
+            .append(" lookups:").append(stats.lookups.get()).toString());
+      }
+    }
+    return values;
+  }
+
+  /** The keys exceeding the limit are not counted anymore: at least double the limit. */
+  private static long recommendedIndexEntryLimit(IndexStats stats)
+  {
+    final long limit = Math.max(2L * stats.indexEntryLimit, 2 * stats.getMaxCandidates());
+    return Math.min(Long.highestOneBit(limit - 1) << 1, Integer.MAX_VALUE);
+  }
+}
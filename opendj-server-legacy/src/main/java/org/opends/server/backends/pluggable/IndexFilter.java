@@ -238,6 +238,8 @@ class IndexFilter
 
         final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
         EntryIDSet set = attributeIndex.evaluateBoundedRange(indexQueryFactory, filter1, filter2, buffer, monitor);
+        monitor.getIndexAdvisor().recordLookup(
+            entryContainer, IndexFilterType.GREATER_OR_EQUAL, rangeEntry.getKey(), set);
         if(monitor.isFilterUseEnabled() && set.isDefined())
         {
           monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
@@ -313,7 +315,10 @@ class IndexFilter
     if (attributeIndex != null)
     {
       final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
-      return attributeIndex.evaluateFilter(indexQueryFactory, indexFilterType, filter, buffer, monitor);
+      final EntryIDSet candidates =
+          attributeIndex.evaluateFilter(indexQueryFactory, indexFilterType, filter, buffer, monitor);
+      monitor.getIndexAdvisor().recordLookup(entryContainer, indexFilterType, filter.getAttributeType(), candidates);
+      return candidates;
     }
 
     if (monitor.isFilterUseEnabled())
@@ -0,0 +1,287 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compresses data in the LZ4 block format, optionally using a preset dictionary.
+ * <p>
+ * LZ4 trades some compression ratio for much faster compression and decompression than deflate: the
+ * compressed data is a sequence of literals and back references which are simply copied when decompressing.
+ * When a dictionary is used, back references may point into the dictionary, as if it immediately preceded
+ * the data.
+ * <p>
+ * This class is thread safe.
+ */
+final class LZ4BlockCodec
+{
+  private static final int MIN_MATCH = 4;
+  /** The last literals of a block are never compressed. */
+  private static final int LAST_LITERALS = 5;
+  /** A match cannot start within the last bytes of a block. */
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 0xFFFF;
+  private static final int HASH_LOG = 12;
+  private static final int RUN_MASK = 0xF;
+  private static final int ML_MASK = 0xF;
+  private static final int SKIP_TRIGGER = 6;
+
+  private LZ4BlockCodec()
+  {
+    // Utility class.
+  }
+
+  /**
+   * Returns the hash table used to find the matches in a dictionary.
+   *
+   * @param dictionary
+   *          the dictionary, may be empty
+   * @return the positions of the 4-byte sequences of the dictionary, indexed by hash
+   */
+  static int[] newHashTable(byte[] dictionary)
+  {
+    final int[] hashTable = new int[1 << HASH_LOG];
+    Arrays.fill(hashTable, -1);
+    // Only the last MAX_DISTANCE bytes of the dictionary can be referenced.
+    for (int i = Math.max(0, dictionary.length - MAX_DISTANCE); i + MIN_MATCH <= dictionary.length; i++)
+    {
+      hashTable[hash(readInt(dictionary, i))] = i;
+    }
+    return hashTable;
+  }
+
+  /**
+   * Compresses data, appending the compressed block to the provided buffer.
+   *
+   * @param dictionary
+   *          the dictionary, may be empty
+   * @param dictionaryHashTable
+   *          the hash table of the dictionary, as returned by {@link #newHashTable(byte[])}
+   * @param src
+   *          the data to compress
+   * @param srcLength
+   *          the number of bytes to compress
+   * @param dst
+   *          the buffer where the compressed block is appended
+   */
+  static void compress(byte[] dictionary, int[] dictionaryHashTable, byte[] src, int srcLength,
+      ByteStringBuilder dst)
+  {
+    // Matches are looked up in the concatenation of the dictionary and the data.
+    final int dictLength = dictionary.length;
+    final byte[] buf;
+    if (dictLength == 0)
+    {
+      buf = src;
+    }
+    else
+    {
+      buf = new byte[dictLength + srcLength];
+      System.arraycopy(dictionary, 0, buf, 0, dictLength);
+      System.arraycopy(src, 0, buf, dictLength, srcLength);
+    }
+    final int end = dictLength + srcLength;
+    int anchor = dictLength;
+
+    if (srcLength >= MF_LIMIT + 1)
+    {
+      final int[] hashTable = dictionaryHashTable.clone();
+      final int matchLimit = end - MF_LIMIT;
+      int ip = dictLength;
+      int searchCount = 1 << SKIP_TRIGGER;
+      while (ip < matchLimit)
+      {
+        final int sequence = readInt(buf, ip);
+        final int h = hash(sequence);
+        int ref = hashTable[h];
+        hashTable[h] = ip;
+        if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(buf, ref) != sequence)
+        {
+          ip += searchCount++ >>> SKIP_TRIGGER;
+          continue;
+        }
+        searchCount = 1 << SKIP_TRIGGER;
+
+        // Extend the match backwards, then forwards.
+        while (ip > anchor && ref > 0 && buf[ip - 1] == buf[ref - 1])
+        {
+          ip--;
+          ref--;
+        }
+        int matchLength = MIN_MATCH;
+        while (ip + matchLength < end - LAST_LITERALS && buf[ip + matchLength] == buf[ref + matchLength])
+        {
+          matchLength++;
+        }
+
+        writeSequence(buf, anchor, ip - anchor, ip - ref, matchLength, dst);
+        ip += matchLength;
+        anchor = ip;
+        if (ip - 2 + MIN_MATCH <= end)
+        {
+          hashTable[hash(readInt(buf, ip - 2))] = ip - 2;
+        }
+      }
+    }
+    writeLastLiterals(buf, anchor, end - anchor, dst);
+  }
+
+  private static void writeSequence(byte[] buf, int literalStart, int literalLength, int offset, int matchLength,
+      ByteStringBuilder dst)
+  {
+    final int encodedMatchLength = matchLength - MIN_MATCH;
+    final int token = (Math.min(literalLength, RUN_MASK) << 4) | Math.min(encodedMatchLength, ML_MASK);
+    dst.appendByte(token);
+    writeLength(literalLength, RUN_MASK, dst);
+    dst.appendBytes(buf, literalStart, literalLength);
+    dst.appendByte(offset & 0xFF);
+    dst.appendByte(offset >>> 8);
+    writeLength(encodedMatchLength, ML_MASK, dst);
+  }
+
+  private static void writeLastLiterals(byte[] buf, int literalStart, int literalLength, ByteStringBuilder dst)
+  {
+    dst.appendByte(Math.min(literalLength, RUN_MASK) << 4);
+    writeLength(literalLength, RUN_MASK, dst);
+    dst.appendBytes(buf, literalStart, literalLength);
+  }
+
+  private static void writeLength(int length, int mask, ByteStringBuilder dst)
+  {
+    if (length >= mask)
+    {
+      int remaining = length - mask;
+      while (remaining >= 0xFF)
+      {
+        dst.appendByte(0xFF);
+        remaining -= 0xFF;
+      }
+      dst.appendByte(remaining);
+    }
+  }
+
+  /**
+   * Decompresses a block compressed by {@link #compress(byte[], int[], byte[], int, ByteStringBuilder)}.
+   *
+   * @param dictionary
+   *          the dictionary used to compress the block, may be empty
+   * @param src
+   *          the compressed block
+   * @param srcLength
+   *          the length of the compressed block
+   * @param dst
+   *          the array receiving the decompressed data, whose length must be the decompressed length
+   * @throws DataFormatException
+   *           if the block is malformed or does not decompress to the expected length
+   */
+  static void decompress(byte[] dictionary, byte[] src, int srcLength, byte[] dst) throws DataFormatException
+  {
+    try
+    {
+      final int dictLength = dictionary.length;
+      int ip = 0;
+      int op = 0;
+      while (true)
+      {
+        final int token = src[ip++] & 0xFF;
+
+        // Copy the literals.
+        int literalLength = token >>> 4;
+        if (literalLength == RUN_MASK)
+        {
+          int b;
+          do
+          {
+            b = src[ip++] & 0xFF;
+            literalLength += b;
+          }
+          while (b == 0xFF);
+        }
+        System.arraycopy(src, ip, dst, op, literalLength);
+        ip += literalLength;
+        op += literalLength;
+        if (ip >= srcLength)
+        {
+          break;
+        }
+
+        // Copy the match.
+        final int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+        int matchLength = token & ML_MASK;
+        if (matchLength == ML_MASK)
+        {
+          int b;
+          do
+          {
+            b = src[ip++] & 0xFF;
+            matchLength += b;
+          }
+          while (b == 0xFF);
+        }
+        matchLength += MIN_MATCH;
+        int ref = op - offset;
+        if (offset == 0 || ref < -dictLength || op + matchLength > dst.length)
+        {
+          throw new DataFormatException("Invalid LZ4 match at offset " + ip);
+        }
+        if (ref < 0)
+        {
+          // The match starts in the dictionary, and may continue in the decompressed data.
+          final int fromDictionary = Math.min(-ref, matchLength);
+          System.arraycopy(dictionary, dictLength + ref, dst, op, fromDictionary);
+          op += fromDictionary;
+          matchLength -= fromDictionary;
+          ref = 0;
+        }
+        if (matchLength <= op - ref)
+        {
+          System.arraycopy(dst, ref, dst, op, matchLength);
+          op += matchLength;
+        }
+        else
+        {
+          // Overlapping copy, byte by byte.
+          for (int i = 0; i < matchLength; i++)
+          {
+            dst[op++] = dst[ref++];
+          }
+        }
+      }
+      if (op != dst.length || ip != srcLength)
+      {
+        throw new DataFormatException("Invalid LZ4 block length");
+      }
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      throw new DataFormatException("Truncated LZ4 block");
+    }
+  }
+
+  private static int readInt(byte[] buf, int i)
+  {
+    return (buf[i] & 0xFF) | ((buf[i + 1] & 0xFF) << 8) | ((buf[i + 2] & 0xFF) << 16) | ((buf[i + 3] & 0xFF) << 24);
+  }
+
+  private static int hash(int sequence)
+  {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+}
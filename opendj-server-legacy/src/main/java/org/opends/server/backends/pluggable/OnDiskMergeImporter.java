@@ -314,6 +314,10 @@ final class OnDiskMergeImporter
         clearDegradedState(entryContainer, indexesToRebuild);
         logger.info(NOTE_REBUILD_CLEARDEGRADEDSTATE_FINAL_STATUS, rebuildConfig.getRebuildList());
       }
+      else if (rebuildConfig.isOnline())
+      {
+        rebuildIndexOnline(entryContainer, indexesToRebuild);
+      }
       else
       {
         rebuildIndex(entryContainer, rebuildConfig.getTmpDirectory(), indexesToRebuild, totalEntries);
@@ -340,6 +344,42 @@ final class OnDiskMergeImporter
       }
     }
 
+    private void rebuildIndexOnline(EntryContainer entryContainer, Set<String> indexIds)
+        throws InitializationException, ExecutionException
+    {
+      final Set<String> remainingIndexIds = new HashSet<>(indexIds);
+      final List<MatchingRuleIndex> indexes = new ArrayList<>();
+      for (AttributeIndex attributeIndex : entryContainer.getAttributeIndexes())
+      {
+        for (MatchingRuleIndex index : attributeIndex.getNameToIndexes().values())
+        {
+          if (remainingIndexIds.remove(index.getName().getIndexId()))
+          {
+            indexes.add(index);
+          }
+        }
+      }
+      if (!remainingIndexIds.isEmpty())
+      {
+        throw new InitializationException(
+            ERR_REBUILD_ONLINE_UNSUPPORTED_INDEX.get(remainingIndexIds.iterator().next()));
+      }
+      if (indexes.isEmpty())
+      {
+        logger.info(NOTE_REBUILD_NOTHING_TO_REBUILD);
+        return;
+      }
+
+      try
+      {
+        new OnlineIndexRebuilder(rootContainer, entryContainer, indexes).rebuild();
+      }
+      catch (Exception e)
+      {
+        throw new ExecutionException(e);
+      }
+    }
+
     private void rebuildIndex(EntryContainer entryContainer, String tmpDirectory, Set<String> indexesToRebuild,
         long totalEntries) throws InitializationException, ConfigException, InterruptedException, ExecutionException
     {
@@ -3894,6 +3934,18 @@ final class OnDiskMergeImporter
       return importer.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      // Importer cursors cannot be positioned: read the records one by one
+      final List<ByteString> values = new ArrayList<>(keys.size());
+      for (ByteSequence key : keys)
+      {
+        values.add(importer.read(treeName, key));
+      }
+      return values;
+    }
+
     @Override
     public void put(TreeName treeName, ByteSequence key, ByteSequence value)
     {
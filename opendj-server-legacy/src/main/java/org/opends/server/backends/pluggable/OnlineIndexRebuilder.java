@@ -0,0 +1,313 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.util.Utils;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.Entry;
+
+/**
+ * Rebuilds attribute indexes while the backend keeps processing operations.
+ * <p>
+ * The rebuilt indexes are first marked as {@link DefaultIndex#setRebuilding(WriteableTransaction) rebuilding}:
+ * searches stop using them, while write operations keep maintaining them as if they were trusted. Their content is
+ * then cleared and the entries of id2entry are indexed again by small batches of consecutive entry IDs:
+ * <ul>
+ * <li>the entry IDs of a batch are read in a short read transaction,</li>
+ * <li>the entries are read again and indexed in a short write transaction, so that an entry which has been
+ * modified or deleted in between is indexed in its latest state.</li>
+ * </ul>
+ * Write operations which happen after an entry has been indexed update the rebuilt indexes themselves, so that
+ * the indexes are complete once all the entries have been processed, and are marked as trusted in a single write
+ * transaction. The number of records processed per second is limited by the
+ * online-index-rebuild-max-entries-per-second property of the backend.
+ */
+final class OnlineIndexRebuilder
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of records read or written by each transaction. */
+  private static final int BATCH_SIZE = 500;
+  /** The interval between two progress reports. */
+  private static final long PROGRESS_INTERVAL_MS = SECONDS.toMillis(10);
+
+  private final RootContainer rootContainer;
+  private final Storage storage;
+  private final EntryContainer entryContainer;
+  private final Collection<MatchingRuleIndex> indexes;
+  private final CompressedSchema schema;
+  /** Start time and number of records processed by the current phase, used to throttle it. */
+  private long phaseStartTime;
+  private long phaseRecords;
+
+  /**
+   * Creates a new online rebuilder.
+   *
+   * @param rootContainer
+   *          the root container of the backend
+   * @param entryContainer
+   *          the entry container of the base DN whose indexes are rebuilt
+   * @param indexes
+   *          the indexes to rebuild
+   */
+  OnlineIndexRebuilder(RootContainer rootContainer, EntryContainer entryContainer,
+      Collection<MatchingRuleIndex> indexes)
+  {
+    this.rootContainer = rootContainer;
+    this.storage = rootContainer.getStorage();
+    this.entryContainer = entryContainer;
+    this.indexes = indexes;
+    this.schema = rootContainer.getCompressedSchema();
+  }
+
+  /**
+   * Rebuilds the indexes.
+   *
+   * @throws Exception
+   *           if an entry cannot be decoded or indexed, or if the storage cannot be accessed. The indexes then remain
+   *           unusable by searches until they are rebuilt again.
+   */
+  void rebuild() throws Exception
+  {
+    final long startTime = System.currentTimeMillis();
+    final long totalEntries = storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return entryContainer.getID2Entry().getRecordCount(txn);
+      }
+    });
+    logger.info(NOTE_REBUILD_ONLINE_START, getIndexNames(), totalEntries,
+        rootContainer.getOnlineIndexRebuildMaxEntriesPerSecond());
+
+    setRebuilding();
+    for (MatchingRuleIndex index : indexes)
+    {
+      clear(index.getName());
+    }
+
+    startPhase();
+    long entriesProcessed = 0;
+    long lastReportTime = System.currentTimeMillis();
+    long lastReportCount = 0;
+    EntryID nextEntryID = new EntryID(0);
+    for (;;)
+    {
+      final List<EntryID> entryIDs = readEntryIDs(nextEntryID);
+      if (entryIDs.isEmpty())
+      {
+        break;
+      }
+      indexEntries(entryIDs);
+      nextEntryID = new EntryID(entryIDs.get(entryIDs.size() - 1).longValue() + 1);
+      entriesProcessed += entryIDs.size();
+
+      final long now = System.currentTimeMillis();
+      if (now - lastReportTime >= PROGRESS_INTERVAL_MS)
+      {
+        final float rate = 1000f * (entriesProcessed - lastReportCount) / (now - lastReportTime);
+        final float completed = totalEntries > 0 ? 100f * entriesProcessed / totalEntries : 100f;
+        logger.info(NOTE_REBUILD_PROGRESS_REPORT, Math.min(completed, 100f), entriesProcessed, totalEntries, rate);
+        lastReportTime = now;
+        lastReportCount = entriesProcessed;
+      }
+      throttle(entryIDs.size());
+    }
+
+    setTrusted();
+    final long duration = System.currentTimeMillis() - startTime;
+    final float rate = duration > 0 ? 1000f * entriesProcessed / duration : 0;
+    logger.info(NOTE_REBUILD_FINAL_STATUS, entriesProcessed, MILLISECONDS.toSeconds(duration), rate);
+  }
+
+  private String getIndexNames()
+  {
+    final List<String> names = new ArrayList<>(indexes.size());
+    for (MatchingRuleIndex index : indexes)
+    {
+      names.add(index.getName().getIndexId());
+    }
+    return Utils.joinAsString(", ", names);
+  }
+
+  private void setRebuilding() throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (MatchingRuleIndex index : indexes)
+        {
+          index.setRebuilding(txn);
+        }
+      }
+    });
+  }
+
+  private void setTrusted() throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (MatchingRuleIndex index : indexes)
+        {
+          index.setTrusted(txn, true);
+        }
+      }
+    });
+  }
+
+  /**
+   * Removes the records of an index by batches, rather than deleting the whole tree which is concurrently updated
+   * by write operations.
+   */
+  private void clear(final TreeName treeName) throws Exception
+  {
+    startPhase();
+    for (;;)
+    {
+      final List<ByteString> keys = storage.read(new ReadOperation<List<ByteString>>()
+      {
+        @Override
+        public List<ByteString> run(ReadableTransaction txn) throws Exception
+        {
+          final List<ByteString> keys = new ArrayList<>(BATCH_SIZE);
+          try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+          {
+            while (keys.size() < BATCH_SIZE && cursor.next())
+            {
+              keys.add(cursor.getKey());
+            }
+          }
+          return keys;
+        }
+      });
+      if (keys.isEmpty())
+      {
+        return;
+      }
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (ByteString key : keys)
+          {
+            txn.delete(treeName, key);
+          }
+        }
+      });
+      throttle(keys.size());
+    }
+  }
+
+  private List<EntryID> readEntryIDs(final EntryID first) throws Exception
+  {
+    return storage.read(new ReadOperation<List<EntryID>>()
+    {
+      @Override
+      public List<EntryID> run(ReadableTransaction txn) throws Exception
+      {
+        final List<EntryID> entryIDs = new ArrayList<>(BATCH_SIZE);
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(entryContainer.getID2Entry().getName()))
+        {
+          boolean found = cursor.positionToKeyOrNext(first.toByteString());
+          while (found && entryIDs.size() < BATCH_SIZE)
+          {
+            entryIDs.add(new EntryID(cursor.getKey()));
+            found = cursor.next();
+          }
+        }
+        return entryIDs;
+      }
+    });
+  }
+
+  private void indexEntries(final List<EntryID> entryIDs) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        final List<ByteString> values = entryContainer.getID2Entry().readAll(txn, entryIDs);
+        final IndexBuffer buffer = new IndexBuffer();
+        for (int i = 0; i < entryIDs.size(); i++)
+        {
+          final ByteString value = values.get(i);
+          if (value == null)
+          {
+            // The entry has been deleted since its ID has been read
+            continue;
+          }
+          final Entry entry = entryContainer.getID2Entry().entryFromDatabase(value, schema);
+          for (MatchingRuleIndex index : indexes)
+          {
+            for (ByteString key : index.indexEntry(entry))
+            {
+              buffer.put(index, key, entryIDs.get(i));
+            }
+          }
+        }
+        buffer.flush(txn);
+      }
+    });
+  }
+
+  private void startPhase()
+  {
+    phaseStartTime = System.nanoTime();
+    phaseRecords = 0;
+  }
+
+  /** Waits as long as needed for the current phase not to exceed the configured rate. */
+  private void throttle(int records) throws InterruptedException
+  {
+    phaseRecords += records;
+    final int maxRecordsPerSecond = rootContainer.getOnlineIndexRebuildMaxEntriesPerSecond();
+    if (maxRecordsPerSecond > 0)
+    {
+      final long expectedDuration = SECONDS.toNanos(phaseRecords) / maxRecordsPerSecond;
+      final long duration = System.nanoTime() - phaseStartTime;
+      if (expectedDuration > duration)
+      {
+        NANOSECONDS.sleep(expectedDuration - duration);
+      }
+    }
+  }
+}
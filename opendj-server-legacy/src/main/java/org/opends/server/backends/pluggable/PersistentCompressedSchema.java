@@ -19,14 +19,18 @@ package org.opends.server.backends.pluggable;
 import static org.opends.messages.BackendMessages.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
 import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.api.CompressedSchema;
@@ -54,11 +58,20 @@ final class PersistentCompressedSchema extends CompressedSchema
   private static final String DB_NAME_AD = "compressed_attributes";
   /** The name of the tree used to store compressed object class set definitions. */
   private static final String DB_NAME_OC = "compressed_object_classes";
+  /** The name of the tree used to store the dictionaries used to compress entries. */
+  private static final String DB_NAME_DICTIONARIES = "compressed_entry_dictionaries";
+
+  /** The number of encoded entries sampled to train an entry compression dictionary. */
+  private static final int DICTIONARY_SAMPLE_COUNT = 2000;
+  /** The maximum total size of the encoded entries sampled to train an entry compression dictionary. */
+  private static final int DICTIONARY_SAMPLE_MAX_SIZE = 4 * 1024 * 1024;
 
   /** The compressed attribute description schema tree. */
   private static final TreeName adTreeName = new TreeName("compressed_schema", DB_NAME_AD);
   /** The compressed object class set schema tree. */
   private static final TreeName ocTreeName = new TreeName("compressed_schema", DB_NAME_OC);
+  /** The entry compression dictionaries tree. */
+  private static final TreeName dictionaryTreeName = new TreeName("compressed_schema", DB_NAME_DICTIONARIES);
 
   /** The storage in which the trees are held. */
   private final Storage storage;
@@ -68,6 +81,14 @@ final class PersistentCompressedSchema extends CompressedSchema
   private final ByteStringBuilder storeObjectClassesWriterBuffer = new ByteStringBuilder();
   private final ASN1Writer storeObjectClassesWriter = ASN1.getWriter(storeObjectClassesWriterBuffer);
 
+  /** The entry compression dictionaries, by identifier. */
+  private final Map<Integer, EntryCompressionDictionary> entryDictionaries = new ConcurrentHashMap<>();
+  /** The dictionary used to compress new entries, null until a dictionary has been trained. */
+  private volatile EntryCompressionDictionary currentEntryDictionary;
+  /** The encoded entries sampled to train the first dictionary, guarded by this list. */
+  private final List<byte[]> dictionarySamples = new ArrayList<>();
+  private int dictionarySamplesSize;
+
   /**
    * Creates a new instance of this compressed schema manager.
    *
@@ -142,6 +163,7 @@ final class PersistentCompressedSchema extends CompressedSchema
   {
     txn.openTree(adTreeName, shouldCreate);
     txn.openTree(ocTreeName, shouldCreate);
+    txn.openTree(dictionaryTreeName, shouldCreate);
 
     // Cursor through the object class database and load the object class set
     // definitions. At the same time, figure out the highest token value and
@@ -191,6 +213,98 @@ final class PersistentCompressedSchema extends CompressedSchema
       logger.traceException(e);
       throw new InitializationException(ERR_COMPSCHEMA_CANNOT_DECODE_AD_TOKEN.get(e.getMessage()), e);
     }
+
+    loadEntryDictionaries(txn, shouldCreate);
+  }
+
+  private void loadEntryDictionaries(WriteableTransaction txn, boolean shouldCreate)
+  {
+    try (Cursor<ByteString, ByteString> dictionaryCursor = txn.openCursor(dictionaryTreeName))
+    {
+      while (dictionaryCursor.next())
+      {
+        final EntryCompressionDictionary dictionary = new EntryCompressionDictionary(
+            dictionaryCursor.getKey().toInt(), dictionaryCursor.getValue().toByteArray());
+        entryDictionaries.put(dictionary.getID(), dictionary);
+        currentEntryDictionary = dictionary;
+      }
+    }
+    catch (final StorageRuntimeException e)
+    {
+      if (shouldCreate)
+      {
+        throw e;
+      }
+      // Storages written by previous versions opened read-only have no dictionaries tree, hence no dictionaries.
+      logger.traceException(e);
+    }
+  }
+
+  /**
+   * Returns the dictionary with the provided identifier.
+   *
+   * @param id
+   *          the identifier of the dictionary
+   * @return the dictionary with the provided identifier, or {@code null} if there is no such dictionary
+   */
+  EntryCompressionDictionary getEntryDictionary(int id)
+  {
+    return entryDictionaries.get(id);
+  }
+
+  /**
+   * Returns the dictionary to use to compress new entries. Until a dictionary has been trained, the provided
+   * encoded entry is kept as a sample, and a dictionary is trained and stored once enough samples have been
+   * collected.
+   *
+   * @param encodedEntry
+   *          the encoded entry about to be compressed
+   * @return the dictionary to use to compress the entry, or {@code null} if no dictionary has been trained yet
+   */
+  EntryCompressionDictionary getEntryDictionaryForCompression(ByteSequence encodedEntry)
+  {
+    final EntryCompressionDictionary dictionary = currentEntryDictionary;
+    if (dictionary != null)
+    {
+      return dictionary;
+    }
+
+    final List<byte[]> samples;
+    synchronized (dictionarySamples)
+    {
+      if (currentEntryDictionary != null)
+      {
+        return currentEntryDictionary;
+      }
+      dictionarySamples.add(encodedEntry.toByteArray());
+      dictionarySamplesSize += encodedEntry.length();
+      if (dictionarySamples.size() < DICTIONARY_SAMPLE_COUNT && dictionarySamplesSize < DICTIONARY_SAMPLE_MAX_SIZE)
+      {
+        return null;
+      }
+      samples = new ArrayList<>(dictionarySamples);
+      dictionarySamples.clear();
+      dictionarySamplesSize = 0;
+
+      try
+      {
+        final int id = entryDictionaries.size() + 1;
+        final byte[] bytes = EntryCompressionDictionary.train(samples, EntryCompressionDictionary.MAX_DICTIONARY_SIZE);
+        store(dictionaryTreeName, ByteString.valueOfInt(id).toByteArray(), new ByteStringBuilder().appendBytes(bytes));
+        final EntryCompressionDictionary newDictionary = new EntryCompressionDictionary(id, bytes);
+        entryDictionaries.put(id, newDictionary);
+        currentEntryDictionary = newDictionary;
+        logger.info(NOTE_COMPSCHEMA_ENTRY_DICTIONARY_TRAINED, id, bytes.length, samples.size());
+        return newDictionary;
+      }
+      catch (final DirectoryException e)
+      {
+        // Entries are compressed without dictionary, training will be attempted again with new samples.
+        logger.traceException(e);
+        logger.error(e.getMessageObject());
+        return null;
+      }
+    }
   }
 
   private boolean store(final TreeName treeName, final byte[] key, final ByteStringBuilder value)
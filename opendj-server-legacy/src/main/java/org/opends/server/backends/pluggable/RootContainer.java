@@ -16,9 +16,11 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,6 +28,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -35,6 +39,7 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
+import org.opends.server.api.Backupable;
 import org.opends.server.api.CompressedSchema;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -61,8 +66,13 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The directory of the sort runs of the backends whose storage has no directory of its own. */
+  private static final String DEFAULT_SORT_DIR = "sort-tmp";
+
   /** The tree storage. */
   private final Storage storage;
+  /** The directory where the unindexed sorted searches spill their sorted runs. */
+  private final File sortDirectory;
 
   /** The ID of the backend to which this entry root container belongs. */
   private final String backendId;
@@ -82,6 +92,11 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 
   private final ServerContext serverContext;
 
+  /** The threads decoding the candidate entries of indexed searches, null if the search threads decode them. */
+  private volatile ExecutorService searchFetchExecutor;
+  /** The number of threads of the search fetch executor. */
+  private int searchFetchThreads;
+
   /**
    * Creates a new RootContainer object representing a storage.
    *
@@ -99,13 +114,58 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     this.serverContext = serverContext;
     this.storage = storage;
     this.config = config;
+    this.sortDirectory = getSortDirectory(storage, backendID);
 
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    getMonitorProvider().getIndexAdvisor().setEnabled(
+        config.isIndexAdvisorEnabled(), config.isIndexAdvisorAutoRebuildEnabled());
+    getMonitorProvider().getIndexAdvisor().setMaxShapes(config.getIndexFilterAnalyzerMaxFilters());
+    configureSearchFetchExecutor(config.getSearchEntryFetchThreads());
 
     config.addPluggableChangeListener(this);
   }
 
+  /**
+   * Returns the executor decoding the candidate entries of indexed searches.
+   *
+   * @return the executor decoding the candidate entries of indexed searches, or {@code null} if the search
+   *         threads must decode them
+   */
+  ExecutorService getSearchFetchExecutor()
+  {
+    return searchFetchExecutor;
+  }
+
+  /**
+   * Returns the number of threads of the executor decoding the candidate entries of indexed searches.
+   *
+   * @return the number of threads of the search fetch executor, 0 if there is no such executor
+   */
+  int getSearchFetchThreads()
+  {
+    return searchFetchThreads;
+  }
+
+  private synchronized void configureSearchFetchExecutor(int threadCount)
+  {
+    if (threadCount == searchFetchThreads)
+    {
+      return;
+    }
+    // Searches still using the previous executor fall back to decoding entries themselves once it is shut down
+    final ExecutorService previousExecutor = searchFetchExecutor;
+    searchFetchThreads = threadCount;
+    searchFetchExecutor = threadCount > 0
+        ? Executors.newFixedThreadPool(
+            threadCount, newThreadFactory(null, "Search entry fetcher %d for " + backendId, true))
+        : null;
+    if (previousExecutor != null)
+    {
+      previousExecutor.shutdown();
+    }
+  }
+
   /**
    * Returns the underlying storage engine.
    *
@@ -116,6 +176,39 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     return storage;
   }
 
+  /**
+   * Returns the directory where the unindexed sorted searches spill their sorted runs. The runs contain the sort
+   * keys of the entries, therefore they are written to the database directory of the backend, whose permissions
+   * already protect the entries.
+   *
+   * @return the directory where the unindexed sorted searches spill their sorted runs
+   */
+  File getSortDirectory()
+  {
+    return sortDirectory;
+  }
+
+  private static File getSortDirectory(Storage storage, String backendID)
+  {
+    final Storage tracedStorage = storage instanceof TracedStorage ? ((TracedStorage) storage).getTracedStorage()
+                                                                   : storage;
+    if (tracedStorage instanceof Backupable)
+    {
+      return ((Backupable) tracedStorage).getDirectory();
+    }
+    return new File(getFileForPath(DEFAULT_SORT_DIR), backendID);
+  }
+
+  /**
+   * Returns the maximum number of entries per second read by online index rebuilds.
+   *
+   * @return the maximum number of entries per second, or 0 if there is no limit
+   */
+  int getOnlineIndexRebuildMaxEntriesPerSecond()
+  {
+    return config.getOnlineIndexRebuildMaxEntriesPerSecond();
+  }
+
   /**
    * Opens the root container.
    *
@@ -264,7 +357,8 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   {
     if (monitor == null)
     {
-      monitor = new BackendMonitor(backendId + " Storage", this);
+      monitor = new BackendMonitor(backendId + " Storage", this,
+          new IndexAdvisor(backendId, serverContext.getCronExecutorService()));
     }
     return monitor;
   }
@@ -333,6 +427,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       }
     }
     config.removePluggableChangeListener(this);
+    configureSearchFetchExecutor(0);
     if (storage != null)
     {
       storage.close();
@@ -452,6 +547,10 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     config = configuration;
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    getMonitorProvider().getIndexAdvisor().setEnabled(
+        config.isIndexAdvisorEnabled(), config.isIndexAdvisorAutoRebuildEnabled());
+    getMonitorProvider().getIndexAdvisor().setMaxShapes(config.getIndexFilterAnalyzerMaxFilters());
+    configureSearchFetchExecutor(config.getSearchEntryFetchThreads());
 
     return new ConfigChangeResult();
   }
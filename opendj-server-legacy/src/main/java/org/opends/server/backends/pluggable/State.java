@@ -55,7 +55,19 @@ class State extends AbstractTree
     TRUSTED(0x01),
 
     /** Use compact encoding for indexes' ID storage. */
-    COMPACTED(0x02);
+    COMPACTED(0x02),
+
+    /**
+     * Use compressed bitmaps for indexes' ID storage. Records written before this flag was set remain readable with
+     * the codec selected by {@link #COMPACTED}.
+     */
+    BITMAP(0x04),
+
+    /**
+     * The index is being rebuilt while the backend is online: its records are incomplete and must not be read,
+     * but write operations update it as if it was trusted.
+     */
+    REBUILDING(0x08);
 
     static final EnumSet<IndexFlag> ALL_FLAGS = EnumSet.allOf(IndexFlag.class);
 
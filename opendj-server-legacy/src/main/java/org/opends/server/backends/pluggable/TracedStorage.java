@@ -15,6 +15,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -296,6 +297,15 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> keys)
+    {
+      traceEnter("readAll", "name", name, "keys", keys.size());
+      final List<ByteString> values = txn.readAll(name, keys);
+      traceLeave("readAll", "name", name, "keys", keys.size());
+      return values;
+    }
+
     private int id()
     {
       return System.identityHashCode(this);
@@ -382,6 +392,15 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> readAll(final TreeName name, final List<? extends ByteSequence> keys)
+    {
+      traceEnter("readAll", "name", name, "keys", keys.size());
+      final List<ByteString> values = txn.readAll(name, keys);
+      traceLeave("readAll", "name", name, "keys", keys.size());
+      return values;
+    }
+
     @Override
     public boolean update(final TreeName name, final ByteSequence key, final UpdateFunction f)
     {
@@ -416,6 +435,16 @@ final class TracedStorage implements Storage
     this.backendId = backendId;
   }
 
+  /**
+   * Returns the traced storage.
+   *
+   * @return the traced storage
+   */
+  Storage getTracedStorage()
+  {
+    return storage;
+  }
+
   private void trace(String type, int id, String method, Object... args)
   {
     StringBuilder builder = new StringBuilder();
@@ -0,0 +1,430 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * Sorts the VLV keys of the candidate entries of a sorted search within a bounded amount of memory.
+ * <p>
+ * When only the first keys of the sorted list are needed, for instance to return a small VLV window or the
+ * first page of a paged search, the sorter only retains the smallest keys in a bounded heap. Otherwise, keys
+ * are buffered until the memory budget is reached, and the buffer is then sorted and spilled as a run to a
+ * temporary file. The runs are merged when the sorted keys are read.
+ * <p>
+ * The runs contain the sort keys, hence the attribute values, of the entries in clear. They are only readable by
+ * their owner, they are created in a directory provided by the backend rather than in the system temporary
+ * directory, and they are deleted when the sorter is closed or when they cannot be completely written.
+ * <p>
+ * The total number of keys added to the sorter is always tracked, so that the content count of a VLV response
+ * is exact even when some of the keys have been discarded.
+ */
+final class VLVKeySorter implements Iterable<ByteString>, Closeable
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Estimated heap overhead of a buffered key, on top of its bytes. */
+  private static final int KEY_OVERHEAD = 64;
+  /** Size of the buffers used to write and read the runs. */
+  private static final int RUN_BUFFER_SIZE = 64 * 1024;
+  /** Prefix of the names of the run files. */
+  private static final String RUN_FILE_PREFIX = "vlv-sort";
+  /** Suffix of the names of the run files. */
+  private static final String RUN_FILE_SUFFIX = ".run";
+  /** Whether the file system supports POSIX permissions. */
+  private static final boolean IS_POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+  /** The directory where the runs are spilled. */
+  private final File directory;
+  /** The maximum amount of memory used by the buffered keys. */
+  private final long memoryLimit;
+  /** The maximum number of sorted keys which will be read, {@code Integer.MAX_VALUE} for all of them. */
+  private final int limit;
+  /** The smallest keys seen so far, largest first, or {@code null} once the sorter spills to disk. */
+  private PriorityQueue<ByteString> topKeys;
+  /** The keys which have not been spilled yet, when the sorter is not retaining the top keys. */
+  private List<ByteString> buffer;
+  /** The estimated amount of memory used by the buffered keys. */
+  private long bufferSize;
+  /** The files containing the sorted runs spilled to disk. */
+  private final List<File> runFiles = new ArrayList<>();
+  /** The readers of the runs opened by the current iterator. */
+  private final List<RunReader> runReaders = new ArrayList<>();
+  /** The total number of keys added to this sorter. */
+  private int size;
+
+  /**
+   * Creates a new sorter.
+   *
+   * @param directory
+   *          the directory where the runs are spilled, which is created if needed
+   * @param memoryLimit
+   *          the maximum amount of memory which may be used by the buffered keys
+   * @param limit
+   *          the maximum number of sorted keys which will be read, {@code Integer.MAX_VALUE} for all of them
+   */
+  VLVKeySorter(File directory, long memoryLimit, int limit)
+  {
+    this.directory = directory;
+    this.memoryLimit = memoryLimit;
+    this.limit = limit;
+    if (limit < Integer.MAX_VALUE)
+    {
+      topKeys = new PriorityQueue<>(Math.min(limit, 1024) + 1, Collections.<ByteString> reverseOrder());
+    }
+    else
+    {
+      buffer = new ArrayList<>();
+    }
+  }
+
+  /**
+   * Adds a key to this sorter.
+   *
+   * @param key
+   *          the VLV key to add, which must be unique
+   * @throws StorageRuntimeException
+   *           if the keys could not be spilled to disk
+   */
+  void add(ByteString key) throws StorageRuntimeException
+  {
+    size++;
+    if (topKeys != null)
+    {
+      addTopKey(key);
+      return;
+    }
+    buffer.add(key);
+    bufferSize += memorySize(key);
+    if (bufferSize > memoryLimit)
+    {
+      spill();
+    }
+  }
+
+  private void addTopKey(ByteString key)
+  {
+    if (topKeys.size() < limit)
+    {
+      topKeys.add(key);
+      bufferSize += memorySize(key);
+      if (bufferSize > memoryLimit)
+      {
+        // The window does not fit in memory: fall back to an external sort, still reading at most limit keys.
+        buffer = new ArrayList<>(topKeys);
+        topKeys = null;
+        spill();
+      }
+    }
+    else if (key.compareTo(topKeys.peek()) < 0)
+    {
+      bufferSize -= memorySize(topKeys.poll());
+      topKeys.add(key);
+      bufferSize += memorySize(key);
+    }
+  }
+
+  /**
+   * Returns the total number of keys added to this sorter.
+   *
+   * @return the total number of keys added to this sorter
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns an iterator over the sorted keys, which returns at most as many keys as the limit of this sorter.
+   * Iterating over the keys may throw a {@link StorageRuntimeException} if the spilled runs cannot be read.
+   *
+   * @return an iterator over the sorted keys
+   */
+  @Override
+  public Iterator<ByteString> iterator()
+  {
+    closeRunReaders();
+    if (topKeys != null)
+    {
+      final List<ByteString> keys = new ArrayList<>(topKeys);
+      Collections.sort(keys);
+      return keys.iterator();
+    }
+    Collections.sort(buffer);
+    if (runFiles.isEmpty())
+    {
+      return limit < buffer.size() ? buffer.subList(0, limit).iterator() : buffer.iterator();
+    }
+    try
+    {
+      final PriorityQueue<RunReader> runs = new PriorityQueue<>(runFiles.size() + 1);
+      for (File runFile : runFiles)
+      {
+        addRun(runs, new FileRunReader(runFile));
+      }
+      addRun(runs, new MemoryRunReader(buffer.iterator()));
+      return new MergingIterator(runs, limit);
+    }
+    catch (IOException e)
+    {
+      closeRunReaders();
+      throw new StorageRuntimeException(e.getMessage(), e);
+    }
+  }
+
+  private void addRun(PriorityQueue<RunReader> runs, RunReader run) throws IOException
+  {
+    runReaders.add(run);
+    if (run.advance())
+    {
+      runs.add(run);
+    }
+  }
+
+  /** Sorts the buffered keys and writes them to a new run file, which is deleted if it cannot be written. */
+  private void spill()
+  {
+    Collections.sort(buffer);
+    File runFile = null;
+    boolean spilled = false;
+    try
+    {
+      runFile = createRunFile();
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), RUN_BUFFER_SIZE)))
+      {
+        // Keys beyond the limit can never be read back.
+        final int count = Math.min(buffer.size(), limit);
+        for (int i = 0; i < count; i++)
+        {
+          final ByteString key = buffer.get(i);
+          out.writeInt(key.length());
+          out.write(key.toByteArray());
+        }
+      }
+      runFiles.add(runFile);
+      spilled = true;
+    }
+    catch (IOException e)
+    {
+      throw new StorageRuntimeException(e.getMessage(), e);
+    }
+    finally
+    {
+      if (!spilled && runFile != null)
+      {
+        deleteRunFile(runFile);
+      }
+    }
+    buffer.clear();
+    bufferSize = 0;
+  }
+
+  /** Creates a new empty run file, only readable and writable by its owner. */
+  private File createRunFile() throws IOException
+  {
+    final Path dir = directory.toPath();
+    if (IS_POSIX)
+    {
+      Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+      return Files.createTempFile(dir, RUN_FILE_PREFIX, RUN_FILE_SUFFIX,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))).toFile();
+    }
+    // The files inherit the access control lists of the directory
+    Files.createDirectories(dir);
+    return Files.createTempFile(dir, RUN_FILE_PREFIX, RUN_FILE_SUFFIX).toFile();
+  }
+
+  /** Closes the runs and deletes the temporary files used by this sorter. */
+  @Override
+  public void close()
+  {
+    closeRunReaders();
+    for (File runFile : runFiles)
+    {
+      deleteRunFile(runFile);
+    }
+    runFiles.clear();
+  }
+
+  private static void deleteRunFile(File runFile)
+  {
+    if (!runFile.delete())
+    {
+      logger.trace("Unable to delete the sort run file %s", runFile);
+    }
+  }
+
+  private void closeRunReaders()
+  {
+    closeSilently(runReaders);
+    runReaders.clear();
+  }
+
+  private static long memorySize(ByteString key)
+  {
+    return key.length() + KEY_OVERHEAD;
+  }
+
+  /** A sorted run of keys, ordered by its current key. */
+  private static abstract class RunReader implements Comparable<RunReader>, Closeable
+  {
+    ByteString current;
+
+    /** Moves to the next key of the run, returning {@code false} when the run is exhausted. */
+    abstract boolean advance() throws IOException;
+
+    @Override
+    public int compareTo(RunReader o)
+    {
+      return current.compareTo(o.current);
+    }
+
+    @Override
+    public void close()
+    {
+      // Nothing to do by default.
+    }
+  }
+
+  /** Reads a run of keys which has not been spilled to disk. */
+  private static final class MemoryRunReader extends RunReader
+  {
+    private final Iterator<ByteString> keys;
+
+    MemoryRunReader(Iterator<ByteString> keys)
+    {
+      this.keys = keys;
+    }
+
+    @Override
+    boolean advance()
+    {
+      current = keys.hasNext() ? keys.next() : null;
+      return current != null;
+    }
+  }
+
+  /** Reads a run of keys from a file, each key being prefixed by its length. */
+  private static final class FileRunReader extends RunReader
+  {
+    private final DataInputStream in;
+
+    FileRunReader(File runFile) throws IOException
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), RUN_BUFFER_SIZE));
+    }
+
+    @Override
+    boolean advance() throws IOException
+    {
+      final int length;
+      try
+      {
+        length = in.readInt();
+      }
+      catch (EOFException e)
+      {
+        current = null;
+        return false;
+      }
+      final byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      current = ByteString.wrap(bytes);
+      return true;
+    }
+
+    @Override
+    public void close()
+    {
+      closeSilently(in);
+    }
+  }
+
+  /** Performs a k-way merge of sorted runs. */
+  private static final class MergingIterator implements Iterator<ByteString>
+  {
+    private final PriorityQueue<RunReader> runs;
+    private int remaining;
+
+    MergingIterator(PriorityQueue<RunReader> runs, int limit)
+    {
+      this.runs = runs;
+      this.remaining = limit;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return remaining > 0 && !runs.isEmpty();
+    }
+
+    @Override
+    public ByteString next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final RunReader run = runs.poll();
+      final ByteString key = run.current;
+      try
+      {
+        if (run.advance())
+        {
+          runs.add(run);
+        }
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e.getMessage(), e);
+      }
+      remaining--;
+      return key;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package org.opends.server.backends.pluggable.spi;
 
+import java.util.List;
+
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 
@@ -34,6 +36,26 @@ public interface ReadableTransaction
    */
   ByteString read(TreeName treeName, ByteSequence key);
 
+  /**
+   * Reads the records' values associated to the provided keys, in the tree whose name is provided.
+   * <p>
+   * The keys are read in ascending order, whatever the order of the provided keys, so that neighbouring records
+   * can be read without searching the whole tree again. The default implementation positions a single cursor on
+   * each key with {@link StorageUtils#readAll(ReadableTransaction, TreeName, List)}: implementations with a faster
+   * way of doing this, or whose cursors cannot be positioned, should override it.
+   *
+   * @param treeName
+   *          the tree name
+   * @param keys
+   *          the records' keys, in any order
+   * @return the records' values, in the order of the provided keys, with {@code null} for the keys which do not
+   *         exist
+   */
+  default List<ByteString> readAll(TreeName treeName, List<? extends ByteSequence> keys)
+  {
+    return StorageUtils.readAll(this, treeName, keys);
+  }
+
   /**
    * Opens a cursor on the tree whose name is provided.
    *
@@ -20,10 +20,15 @@ import static org.opends.messages.ConfigMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.core.DirectoryServer;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.FilePermission;
@@ -238,4 +243,63 @@ public final class StorageUtils
     return StorageStatus.lockedDown(WARN_DISK_SPACE_LOW_THRESHOLD_CROSSED.get(
         directory.getFreeSpace(), directory.getAbsolutePath(), thresholdInBytes, backendId));
   }
+
+  /**
+   * Reads the values of several records with a single cursor, positioned on the keys in ascending order.
+   *
+   * @param txn
+   *          the transaction used to open the cursor
+   * @param treeName
+   *          the tree name
+   * @param keys
+   *          the records' keys, in any order
+   * @return the records' values, in the order of the provided keys, with {@code null} for the keys which do not
+   *         exist
+   * @see ReadableTransaction#readAll(TreeName, List)
+   */
+  public static List<ByteString> readAll(ReadableTransaction txn, TreeName treeName, List<? extends ByteSequence> keys)
+  {
+    final ByteString[] values = new ByteString[keys.size()];
+    if (!keys.isEmpty())
+    {
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+      {
+        for (int i : ascendingKeyOrder(keys))
+        {
+          values[i] = cursor.positionToKey(keys.get(i)) ? cursor.getValue() : null;
+        }
+      }
+    }
+    return Arrays.asList(values);
+  }
+
+  /**
+   * Returns the positions of the provided keys, sorted in ascending key order.
+   *
+   * @param keys
+   *          the keys to sort
+   * @return the positions of the keys in the provided list, the position of the smallest key first
+   */
+  public static int[] ascendingKeyOrder(final List<? extends ByteSequence> keys)
+  {
+    final Integer[] positions = new Integer[keys.size()];
+    for (int i = 0; i < positions.length; i++)
+    {
+      positions[i] = i;
+    }
+    Arrays.sort(positions, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer i1, Integer i2)
+      {
+        return keys.get(i1).compareTo(keys.get(i2));
+      }
+    });
+    final int[] order = new int[positions.length];
+    for (int i = 0; i < order.length; i++)
+    {
+      order[i] = positions[i];
+    }
+    return order;
+  }
 }
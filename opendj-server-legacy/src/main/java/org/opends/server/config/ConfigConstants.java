@@ -4321,6 +4321,13 @@ public final class ConfigConstants
   public static final String ATTR_REBUILD_INDEX_CLEARDEGRADEDSTATE =
       ATTR_REBUILD_INDEX + "-clear-degraded-state";
 
+  /**
+   * The name of the attribute in an rebuild task definition that specifies
+   * whether the indexes are rebuilt while the backend remains enabled.
+   */
+  public static final String ATTR_REBUILD_ONLINE =
+      NAME_PREFIX_TASK + "rebuild-online";
+
 
   /**
    * The name of the attribute in an rebuild task definition that specifies the
@@ -29,9 +29,12 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -57,6 +60,7 @@ import org.opends.server.api.plugin.InternalDirectoryServerPlugin;
 import org.opends.server.api.plugin.PluginResult;
 import org.opends.server.api.plugin.PluginResult.PostOperation;
 import org.opends.server.api.plugin.PluginType;
+import org.opends.server.monitors.GroupMembershipIndexMonitor;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
@@ -102,12 +106,25 @@ public class GroupManager extends InternalDirectoryServerPlugin
   /** Used by group instances to determine if new groups have been registered or groups deleted. */
   private volatile long refreshToken;
 
+  /**
+   * Incremented after each change which may alter the membership of the registered groups,
+   * so that the results of membership checks can be cached until it changes.
+   */
+  private final AtomicLong membershipVersion = new AtomicLong();
+
   /** A mapping between the DNs of the config entries and the associated group implementations. */
   private ConcurrentMap<DN, Group<?>> groupImplementations;
 
   /** A mapping between the DNs of all group entries and the corresponding group instances. */
   private DITCacheMap<Group<?>> groupInstances;
 
+  /** The reverse index from member DNs to the groups listing them. */
+  private final GroupMembershipIndex membershipIndex = new GroupMembershipIndex();
+
+  /** The monitor provider publishing the statistics of the membership index. */
+  private final GroupMembershipIndexMonitor membershipIndexMonitor =
+      new GroupMembershipIndexMonitor(membershipIndex);
+
   /** Lock to protect internal data structures. */
   private final ReadWriteLock lock;
 
@@ -163,6 +180,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
     RootCfg rootConfiguration = serverContext.getRootConfig();
     rootConfiguration.addGroupImplementationAddListener(this);
     rootConfiguration.addGroupImplementationDeleteListener(this);
+    DirectoryServer.registerMonitorProvider(membershipIndexMonitor);
 
     //Initialize the existing group implementations.
     for (String name : rootConfiguration.listGroupImplementations())
@@ -270,8 +288,10 @@ public class GroupManager extends InternalDirectoryServerPlugin
           if (g.getClass().getName().equals(group.getClass().getName()))
           {
             iterator.remove();
+            membershipIndex.removeGroup(g.getGroupDN());
           }
         }
+        membershipVersion.incrementAndGet();
       }
       finally
       {
@@ -331,8 +351,10 @@ public class GroupManager extends InternalDirectoryServerPlugin
               if (g.getClass().getName().equals(group.getClass().getName()))
               {
                 iterator.remove();
+                membershipIndex.removeGroup(g.getGroupDN());
               }
             }
+            membershipVersion.incrementAndGet();
           }
           finally
           {
@@ -443,6 +465,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
   public void finalizeGroupManager()
   {
     DirectoryServer.deregisterInternalPlugin(this);
+    DirectoryServer.deregisterMonitorProvider(membershipIndexMonitor);
     serverContext.getBackendConfigManager().deregisterLocalBackendInitializationListener(this);
 
     deregisterAllGroups();
@@ -581,7 +604,9 @@ public class GroupManager extends InternalDirectoryServerPlugin
             {
               Group<?> groupInstance = groupImplementation.newInstance(serverContext, entry);
               groupInstances.put(entry.getName(), groupInstance);
+              membershipIndex.addGroup(groupInstance, entry);
               refreshToken++;
+              membershipVersion.incrementAndGet();
             }
             catch (DirectoryException e)
             {
@@ -616,8 +641,10 @@ public class GroupManager extends InternalDirectoryServerPlugin
         if (backend.handlesEntry(groupEntryDN))
         {
           iterator.remove();
+          membershipIndex.removeGroup(groupEntryDN);
         }
       }
+      membershipVersion.incrementAndGet();
     }
     finally
     {
@@ -680,9 +707,15 @@ public class GroupManager extends InternalDirectoryServerPlugin
     lock.writeLock().lock();
     try
     {
-      if (groupInstances.removeSubtree(entry.getName(), null))
+      List<Group<?>> removedGroups = new ArrayList<>();
+      if (groupInstances.removeSubtree(entry.getName(), removedGroups))
       {
+        for (Group<?> group : removedGroups)
+        {
+          membershipIndex.removeGroup(group.getGroupDN());
+        }
         refreshToken++;
+        membershipVersion.incrementAndGet();
       }
     }
     finally
@@ -752,12 +785,15 @@ public class GroupManager extends InternalDirectoryServerPlugin
             || updatesObjectClass(modifications))
         {
           groupInstances.remove(oldEntry.getName());
+          membershipIndex.removeGroup(oldEntry.getName());
           // This updates the refreshToken
           createAndRegisterGroup(newEntry);
         }
         else
         {
           group.updateMembers(modifications);
+          membershipIndex.updateMembers(group, newEntry, modifications);
+          membershipVersion.incrementAndGet();
         }
       }
     }
@@ -799,10 +835,12 @@ public class GroupManager extends InternalDirectoryServerPlugin
         final DN renamedGroupDN = groupDN.rename(oldDN, newDN);
         group.setGroupDN(renamedGroupDN);
         groupInstances.put(renamedGroupDN, group);
+        membershipIndex.renameGroup(groupDN, renamedGroupDN);
       }
       if (!groupSet.isEmpty())
       {
         refreshToken++;
+        membershipVersion.incrementAndGet();
       }
     }
     finally
@@ -943,7 +981,9 @@ public class GroupManager extends InternalDirectoryServerPlugin
           try
           {
             groupInstances.put(entry.getName(), groupInstance);
+            membershipIndex.addGroup(groupInstance, entry);
             refreshToken++;
+            membershipVersion.incrementAndGet();
           }
           finally
           {
@@ -969,6 +1009,8 @@ public class GroupManager extends InternalDirectoryServerPlugin
     try
     {
       groupInstances.clear();
+      membershipIndex.clear();
+      membershipVersion.incrementAndGet();
     }
     finally
     {
@@ -999,4 +1041,155 @@ public class GroupManager extends InternalDirectoryServerPlugin
   public long refreshToken() {
     return this.refreshToken;
   }
+
+  /**
+   * Returns the current version of the membership of the registered groups. The version changes
+   * each time a group is registered, deregistered or has its list of members updated.
+   * <p>
+   * The membership of groups computed from the contents of other entries, like dynamic groups,
+   * is not tracked by this version.
+   *
+   * @return The current membership version.
+   */
+  public long getMembershipVersion()
+  {
+    return membershipVersion.get();
+  }
+
+  /**
+   * Indicates that a member was added to a registered group outside of the operations processed
+   * by this group manager.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   * @param memberDN
+   *          The DN of the new member.
+   */
+  public void memberAdded(DN groupDN, DN memberDN)
+  {
+    membershipIndex.addMember(groupDN, memberDN);
+    membershipVersion.incrementAndGet();
+  }
+
+  /**
+   * Indicates that a member was removed from a registered group outside of the operations
+   * processed by this group manager.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   * @param memberDN
+   *          The DN of the removed member.
+   */
+  public void memberRemoved(DN groupDN, DN memberDN)
+  {
+    membershipIndex.removeMember(groupDN, memberDN);
+    membershipVersion.incrementAndGet();
+  }
+
+  /**
+   * Indicates whether the provided user is a member of the provided group through nested groups.
+   * The groups listing their members are looked up in the membership index, only the groups whose
+   * membership is computed and which are nested in the provided group are checked one by one.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   * @param userDN
+   *          The DN of the user.
+   * @param examinedGroups
+   *          The set of groups already examined, used to detect loops in nested groups.
+   * @return {@code true} if the user is a member of one of the groups nested in the provided group
+   * @throws DirectoryException
+   *           If a problem occurs while checking the membership of a nested group.
+   */
+  public boolean isNestedMember(DN groupDN, DN userDN, AtomicReference<Set<DN>> examinedGroups)
+      throws DirectoryException
+  {
+    if (membershipIndex.getGroups(userDN).contains(groupDN))
+    {
+      return true;
+    }
+    for (DN computedGroupDN : membershipIndex.getComputedGroups())
+    {
+      if (membershipIndex.getGroups(computedGroupDN).contains(groupDN))
+      {
+        Group<?> group = getGroupInstance(computedGroupDN);
+        if (group != null && group.isMember(userDN, examinedGroups))
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether the membership of the provided group depends on groups whose membership is
+   * computed from the contents of the user entries, like dynamic groups, either because it is such
+   * a group or because such groups are nested in it. The membership of other groups only changes
+   * when the {@link #getMembershipVersion() membership version} changes.
+   *
+   * @param group
+   *          The group.
+   * @return {@code true} if the membership of the group is computed from the contents of entries
+   */
+  public boolean dependsOnComputedMembership(Group<?> group)
+  {
+    if (group.getMemberListAttributeType() == null)
+    {
+      return true;
+    }
+    for (DN computedGroupDN : membershipIndex.getComputedGroups())
+    {
+      if (membershipIndex.getGroups(computedGroupDN).contains(group.getGroupDN()))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Retrieves the groups the provided user is a member of, directly or through nested groups.
+   * <p>
+   * The groups listing their members are looked up in the membership index, only the groups whose
+   * membership is computed are checked one by one.
+   *
+   * @param userEntry
+   *          The entry of the user.
+   * @return The groups the user is a member of.
+   */
+  public Set<Group<?>> getGroupsOfMember(Entry userEntry)
+  {
+    Set<Group<?>> groups = new LinkedHashSet<>();
+    addGroupInstances(groups, membershipIndex.getGroups(userEntry.getName()));
+    for (DN computedGroupDN : membershipIndex.getComputedGroups())
+    {
+      Group<?> group = getGroupInstance(computedGroupDN);
+      try
+      {
+        if (group != null && group.isMember(userEntry))
+        {
+          groups.add(group);
+          addGroupInstances(groups, membershipIndex.getGroups(computedGroupDN));
+        }
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return groups;
+  }
+
+  private void addGroupInstances(Set<Group<?>> groups, Set<DN> groupDNs)
+  {
+    for (DN groupDN : groupDNs)
+    {
+      Group<?> group = getGroupInstance(groupDN);
+      if (group != null)
+      {
+        groups.add(group);
+      }
+    }
+  }
 }
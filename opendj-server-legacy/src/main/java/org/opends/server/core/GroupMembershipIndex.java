@@ -0,0 +1,625 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.core;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.opends.server.api.Group;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Entry;
+import org.opends.server.types.Modification;
+
+/**
+ * A reverse index of the memberships of the groups registered with the group manager.
+ * <p>
+ * For each group which explicitly lists its members in the group entry (see
+ * {@link Group#getMemberListAttributeType()}), the index maps the DN of each member to the
+ * groups listing it. The groups a DN belongs to, directly or through nested groups, are computed
+ * by walking the index up from the DN, and are cached until the memberships change. The index is
+ * updated incrementally by the group manager, which increments its membership version at the
+ * same time.
+ * <p>
+ * The membership of the other groups, like dynamic groups, is computed from the contents of the
+ * user entry and cannot be indexed: these groups are only remembered so that the group manager
+ * can check them separately.
+ */
+public final class GroupMembershipIndex
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Maximum number of closures kept in the cache, the cache is cleared when it is reached. */
+  static final int MAX_CACHED_CLOSURES = 100000;
+
+  /** Lock protecting the index, the cache of closures can be read without it. */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** The normalized DNs of the members listed by each indexed group. */
+  private final Map<DN, Set<ByteString>> membersByGroup = new HashMap<>();
+
+  /** The indexed groups listing each normalized member DN. */
+  private final Map<ByteString, Set<DN>> groupsByMember = new HashMap<>();
+
+  /** The normalized DNs of all the groups, indexed or not. */
+  private final Set<ByteString> groupKeys = new HashSet<>();
+
+  /** The DNs of the groups whose membership cannot be indexed, replaced on each change. */
+  private volatile Set<DN> computedGroups = Collections.emptySet();
+
+  /** The groups each normalized DN belongs to, directly or through nested groups. */
+  private final ConcurrentMap<ByteString, Set<DN>> closures = new ConcurrentHashMap<>();
+
+  private final AtomicLong closureComputations = new AtomicLong();
+  private final AtomicLong closureComputeTimeNanos = new AtomicLong();
+  private final AtomicLong maxClosureComputeTimeNanos = new AtomicLong();
+
+  /**
+   * Returns the DNs of the indexed groups the provided DN belongs to, directly or through
+   * nested indexed groups.
+   *
+   * @param memberDN
+   *          The DN of the member.
+   * @return The unmodifiable set of the DNs of the groups.
+   */
+  Set<DN> getGroups(DN memberDN)
+  {
+    final ByteString memberKey = memberDN.toNormalizedByteString();
+    Set<DN> groups = closures.get(memberKey);
+    if (groups != null)
+    {
+      return groups;
+    }
+
+    lock.readLock().lock();
+    try
+    {
+      groups = closures.get(memberKey);
+      if (groups == null)
+      {
+        final long startTime = System.nanoTime();
+        groups = computeClosure(memberKey);
+        recordClosureComputation(System.nanoTime() - startTime);
+        if (closures.size() >= MAX_CACHED_CLOSURES)
+        {
+          closures.clear();
+        }
+        closures.put(memberKey, groups);
+      }
+      return groups;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Walks the index up from the provided member, the read lock must be held. */
+  private Set<DN> computeClosure(ByteString memberKey)
+  {
+    Set<DN> groups = null;
+    final ArrayDeque<ByteString> toVisit = new ArrayDeque<>();
+    toVisit.add(memberKey);
+    while (!toVisit.isEmpty())
+    {
+      final Set<DN> directGroups = groupsByMember.get(toVisit.poll());
+      if (directGroups == null)
+      {
+        continue;
+      }
+      for (DN groupDN : directGroups)
+      {
+        if (groups == null)
+        {
+          groups = new LinkedHashSet<>();
+        }
+        if (groups.add(groupDN))
+        {
+          toVisit.add(groupDN.toNormalizedByteString());
+        }
+      }
+    }
+    return groups != null ? Collections.unmodifiableSet(groups) : Collections.<DN> emptySet();
+  }
+
+  private void recordClosureComputation(long durationNanos)
+  {
+    closureComputations.incrementAndGet();
+    closureComputeTimeNanos.addAndGet(durationNanos);
+    long max = maxClosureComputeTimeNanos.get();
+    while (durationNanos > max && !maxClosureComputeTimeNanos.compareAndSet(max, durationNanos))
+    {
+      max = maxClosureComputeTimeNanos.get();
+    }
+  }
+
+  /**
+   * Returns the DNs of the groups whose membership cannot be indexed.
+   *
+   * @return The unmodifiable set of the DNs of the groups whose membership is computed.
+   */
+  Set<DN> getComputedGroups()
+  {
+    return computedGroups;
+  }
+
+  /**
+   * Indexes the members of the provided group, replacing any group registered with the same DN.
+   *
+   * @param group
+   *          The group.
+   * @param groupEntry
+   *          The entry defining the group.
+   */
+  void addGroup(Group<?> group, Entry groupEntry)
+  {
+    final DN groupDN = groupEntry.getName();
+    lock.writeLock().lock();
+    try
+    {
+      removeGroup0(groupDN);
+      groupKeys.add(groupDN.toNormalizedByteString());
+      final AttributeType memberAttributeType = group.getMemberListAttributeType();
+      if (memberAttributeType == null)
+      {
+        final Set<DN> newComputedGroups = new HashSet<>(computedGroups);
+        newComputedGroups.add(groupDN);
+        computedGroups = Collections.unmodifiableSet(newComputedGroups);
+      }
+      else
+      {
+        final Set<ByteString> members = new HashSet<>();
+        for (ByteString memberKey : getMemberKeys(groupEntry.getAllAttributes(memberAttributeType), groupDN))
+        {
+          addMember0(groupDN, members, memberKey);
+        }
+        membersByGroup.put(groupDN, members);
+      }
+      closures.clear();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the provided group from the index.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   */
+  void removeGroup(DN groupDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      removeGroup0(groupDN);
+      closures.clear();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeGroup0(DN groupDN)
+  {
+    groupKeys.remove(groupDN.toNormalizedByteString());
+    if (computedGroups.contains(groupDN))
+    {
+      final Set<DN> newComputedGroups = new HashSet<>(computedGroups);
+      newComputedGroups.remove(groupDN);
+      computedGroups = Collections.unmodifiableSet(newComputedGroups);
+    }
+    final Set<ByteString> members = membersByGroup.remove(groupDN);
+    if (members != null)
+    {
+      for (ByteString memberKey : members)
+      {
+        removeGroupOfMember(groupDN, memberKey);
+      }
+    }
+  }
+
+  /**
+   * Renames a group in the index, keeping its members.
+   *
+   * @param oldGroupDN
+   *          The old DN of the group.
+   * @param newGroupDN
+   *          The new DN of the group.
+   */
+  void renameGroup(DN oldGroupDN, DN newGroupDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      final boolean isComputedGroup = computedGroups.contains(oldGroupDN);
+      final Set<ByteString> members = membersByGroup.get(oldGroupDN);
+      removeGroup0(oldGroupDN);
+      groupKeys.add(newGroupDN.toNormalizedByteString());
+      if (isComputedGroup)
+      {
+        final Set<DN> newComputedGroups = new HashSet<>(computedGroups);
+        newComputedGroups.add(newGroupDN);
+        computedGroups = Collections.unmodifiableSet(newComputedGroups);
+      }
+      if (members != null)
+      {
+        for (ByteString memberKey : members)
+        {
+          addGroupOfMember(newGroupDN, memberKey);
+        }
+        membersByGroup.put(newGroupDN, members);
+      }
+      closures.clear();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Applies the modifications of the member list of a group to the index.
+   *
+   * @param group
+   *          The modified group.
+   * @param newEntry
+   *          The entry defining the group, after the modifications.
+   * @param modifications
+   *          The modifications applied to the entry defining the group.
+   */
+  void updateMembers(Group<?> group, Entry newEntry, List<Modification> modifications)
+  {
+    final AttributeType memberAttributeType = group.getMemberListAttributeType();
+    if (memberAttributeType == null)
+    {
+      return;
+    }
+
+    final DN groupDN = newEntry.getName();
+    lock.writeLock().lock();
+    try
+    {
+      final Set<ByteString> members = membersByGroup.get(groupDN);
+      if (members == null)
+      {
+        return;
+      }
+      for (Modification mod : modifications)
+      {
+        final Attribute attribute = mod.getAttribute();
+        if (!attribute.getAttributeDescription().getAttributeType().equals(memberAttributeType))
+        {
+          continue;
+        }
+        switch (mod.getModificationType().asEnum())
+        {
+        case ADD:
+          for (ByteString memberKey : getMemberKeys(Collections.singletonList(attribute), groupDN))
+          {
+            addMember0(groupDN, members, memberKey);
+          }
+          break;
+        case DELETE:
+          if (attribute.isEmpty())
+          {
+            replaceMembers0(groupDN, members, getMemberKeys(newEntry.getAllAttributes(memberAttributeType), groupDN));
+          }
+          else
+          {
+            for (ByteString memberKey : getMemberKeys(Collections.singletonList(attribute), groupDN))
+            {
+              removeMember0(groupDN, members, memberKey);
+            }
+          }
+          break;
+        default:
+          replaceMembers0(groupDN, members, getMemberKeys(newEntry.getAllAttributes(memberAttributeType), groupDN));
+          break;
+        }
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void replaceMembers0(DN groupDN, Set<ByteString> members, Set<ByteString> newMembers)
+  {
+    for (ByteString memberKey : new HashSet<>(members))
+    {
+      if (!newMembers.contains(memberKey))
+      {
+        removeMember0(groupDN, members, memberKey);
+      }
+    }
+    for (ByteString memberKey : newMembers)
+    {
+      addMember0(groupDN, members, memberKey);
+    }
+  }
+
+  /**
+   * Adds a member to an indexed group.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   * @param memberDN
+   *          The DN of the new member.
+   */
+  void addMember(DN groupDN, DN memberDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      final Set<ByteString> members = membersByGroup.get(groupDN);
+      if (members != null)
+      {
+        addMember0(groupDN, members, memberDN.toNormalizedByteString());
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a member from an indexed group.
+   *
+   * @param groupDN
+   *          The DN of the group.
+   * @param memberDN
+   *          The DN of the removed member.
+   */
+  void removeMember(DN groupDN, DN memberDN)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      final Set<ByteString> members = membersByGroup.get(groupDN);
+      if (members != null)
+      {
+        removeMember0(groupDN, members, memberDN.toNormalizedByteString());
+      }
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void addMember0(DN groupDN, Set<ByteString> members, ByteString memberKey)
+  {
+    if (members.add(memberKey))
+    {
+      addGroupOfMember(groupDN, memberKey);
+      invalidateClosures(memberKey);
+    }
+  }
+
+  private void removeMember0(DN groupDN, Set<ByteString> members, ByteString memberKey)
+  {
+    if (members.remove(memberKey))
+    {
+      removeGroupOfMember(groupDN, memberKey);
+      invalidateClosures(memberKey);
+    }
+  }
+
+  private void addGroupOfMember(DN groupDN, ByteString memberKey)
+  {
+    Set<DN> groups = groupsByMember.get(memberKey);
+    if (groups == null)
+    {
+      groups = new HashSet<>(2);
+      groupsByMember.put(memberKey, groups);
+    }
+    groups.add(groupDN);
+  }
+
+  private void removeGroupOfMember(DN groupDN, ByteString memberKey)
+  {
+    final Set<DN> groups = groupsByMember.get(memberKey);
+    if (groups != null && groups.remove(groupDN) && groups.isEmpty())
+    {
+      groupsByMember.remove(memberKey);
+    }
+  }
+
+  /**
+   * Removes the cached closures which may depend on the memberships of the provided member: only
+   * its own closure, unless it is a group, in which case the closures of its members change too.
+   */
+  private void invalidateClosures(ByteString memberKey)
+  {
+    if (groupKeys.contains(memberKey))
+    {
+      closures.clear();
+    }
+    else
+    {
+      closures.remove(memberKey);
+    }
+  }
+
+  private static Set<ByteString> getMemberKeys(Collection<Attribute> attributes, DN groupDN)
+  {
+    final Set<ByteString> memberKeys = new HashSet<>();
+    for (Attribute attribute : attributes)
+    {
+      for (ByteString value : attribute)
+      {
+        try
+        {
+          memberKeys.add(DN.valueOf(value).toNormalizedByteString());
+        }
+        catch (LocalizedIllegalArgumentException e)
+        {
+          // The group ignores this value too
+          logger.traceException(e, "Ignoring member %s of group %s", value, groupDN);
+        }
+      }
+    }
+    return memberKeys;
+  }
+
+  /** Removes all the groups from the index. */
+  void clear()
+  {
+    lock.writeLock().lock();
+    try
+    {
+      membersByGroup.clear();
+      groupsByMember.clear();
+      groupKeys.clear();
+      computedGroups = Collections.emptySet();
+      closures.clear();
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of groups whose members are indexed.
+   *
+   * @return the number of indexed groups
+   */
+  public int getIndexedGroupCount()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return membersByGroup.size();
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of distinct DNs listed as members of the indexed groups.
+   *
+   * @return the number of indexed members
+   */
+  public int getIndexedMemberCount()
+  {
+    lock.readLock().lock();
+    try
+    {
+      return groupsByMember.size();
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of groups whose membership cannot be indexed.
+   *
+   * @return the number of groups whose membership is computed
+   */
+  public int getComputedGroupCount()
+  {
+    return computedGroups.size();
+  }
+
+  /**
+   * Returns the number of closures currently cached.
+   *
+   * @return the number of cached closures
+   */
+  public int getCachedClosureCount()
+  {
+    return closures.size();
+  }
+
+  /**
+   * Returns the sizes of the cached closures, as an array containing the average size and the
+   * maximum size.
+   *
+   * @return the average and maximum number of groups of the cached closures
+   */
+  public long[] getCachedClosureSizes()
+  {
+    long total = 0;
+    long max = 0;
+    long count = 0;
+    for (Set<DN> groups : closures.values())
+    {
+      total += groups.size();
+      max = Math.max(max, groups.size());
+      count++;
+    }
+    return new long[] { count > 0 ? total / count : 0, max };
+  }
+
+  /**
+   * Returns the number of closures computed since the server started.
+   *
+   * @return the number of closures computed
+   */
+  public long getClosureComputationCount()
+  {
+    return closureComputations.get();
+  }
+
+  /**
+   * Returns the average time spent computing a closure.
+   *
+   * @return the average time spent computing a closure, in microseconds
+   */
+  public long getAverageClosureComputeTimeMicros()
+  {
+    final long count = closureComputations.get();
+    return count > 0 ? TimeUnit.NANOSECONDS.toMicros(closureComputeTimeNanos.get() / count) : 0;
+  }
+
+  /**
+   * Returns the longest time spent computing a closure.
+   *
+   * @return the longest time spent computing a closure, in microseconds
+   */
+  public long getMaxClosureComputeTimeMicros()
+  {
+    return TimeUnit.NANOSECONDS.toMicros(maxClosureComputeTimeNanos.get());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+/**
+ * A count-min sketch estimating the popularity of the keys seen by an entry cache.
+ * <p>
+ * Each key is mapped to four 4-bit counters, packed sixteen per {@code long}. The estimated frequency of
+ * a key is the minimum of its counters, so it saturates at 15. Once the number of increments reaches ten
+ * times the width of the table, all the counters are halved so that the sketch ages the history and keeps
+ * tracking the recent popularity of the keys.
+ * <p>
+ * This class is not thread safe: callers are expected to serialize all the accesses.
+ */
+final class FrequencySketch
+{
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  /** The counters, sixteen 4-bit counters per slot. */
+  private final long[] table;
+  /** The mask used to select a slot of the table. */
+  private final int tableMask;
+  /** The number of increments after which the counters are halved. */
+  private final int sampleSize;
+  /** The number of increments since the last reset. */
+  private int size;
+
+  /**
+   * Creates a new frequency sketch.
+   *
+   * @param expectedSize
+   *          the expected number of distinct keys the owner will hold at the same time
+   */
+  FrequencySketch(long expectedSize)
+  {
+    final int capacity = ceilingPowerOfTwo((int) Math.max(16, Math.min(expectedSize, MAXIMUM_CAPACITY)));
+    table = new long[capacity];
+    tableMask = capacity - 1;
+    sampleSize = capacity <= MAXIMUM_CAPACITY / 10 ? capacity * 10 : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the estimated number of occurrences of the provided key, capped at 15.
+   *
+   * @param hashCode
+   *          the hash code of the key
+   * @return the estimated frequency of the key
+   */
+  int frequency(int hashCode)
+  {
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++)
+    {
+      final int index = indexOf(hash, i);
+      final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an occurrence of the provided key, aging the whole sketch when the sample size is reached.
+   *
+   * @param hashCode
+   *          the hash code of the key
+   */
+  void increment(int hashCode)
+  {
+    final int hash = spread(hashCode);
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++)
+    {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize)
+    {
+      reset();
+    }
+  }
+
+  /** Increments the specified 4-bit counter unless it is already saturated. */
+  private boolean incrementAt(int index, int counter)
+  {
+    final int offset = counter << 2;
+    final long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask)
+    {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter and adjusts the sample size by the remainders lost in the division. */
+  private void reset()
+  {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++)
+    {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(int hash, int depth)
+  {
+    long h = (hash + SEEDS[depth]) * SEEDS[depth];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  /** Applies a supplemental hash function to defend against poor quality hash codes. */
+  private static int spread(int x)
+  {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private static int ceilingPowerOfTwo(int x)
+  {
+    return 1 << -Integer.numberOfLeadingZeros(x - 1);
+  }
+}
@@ -0,0 +1,1002 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache which stores the cached
+ * entries outside of the JVM heap, so that large caches do not increase the
+ * garbage collection pauses.
+ * <BR><BR>
+ * Entries are serialized with the compact encoding used by the backends to
+ * store them, and appended to fixed size slabs allocated either in direct
+ * memory or in a memory mapped file. The only per entry structures kept on the
+ * heap are two primitive hash indexes, mapping the hash of the normalized DN
+ * and the backend/entry ID to the location of the entry in the slabs. Entries
+ * are decoded on each cache hit.
+ * <BR><BR>
+ * Slabs are filled in a circular order: when all slabs are full, the oldest
+ * one is recycled and the entries it contains are evicted. Space used by
+ * entries which have been removed or replaced is only reclaimed when their
+ * slab is recycled, the proportion of such space is published as the slab
+ * fragmentation.
+ * <BR><BR>
+ * Other configurable parameters for this cache include a set of filters that
+ * may be used to define criteria for determining which entries are stored in
+ * the cache.
+ */
+public class OffHeapEntryCache
+       extends EntryCache<OffHeapEntryCacheCfg>
+       implements ConfigurationChangeListener<OffHeapEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The name of the file holding the slabs when they are memory mapped. */
+  private static final String SLAB_FILE_NAME = "entry-cache.slabs";
+
+  /** Record layout: length, DN hash, backend index, entry ID, normalized DN length and DN length. */
+  private static final int LENGTH_OFFSET = 0;
+  private static final int DN_HASH_OFFSET = 4;
+  private static final int BACKEND_OFFSET = 12;
+  private static final int ENTRY_ID_OFFSET = 14;
+  private static final int NORMALIZED_DN_LENGTH_OFFSET = 22;
+  private static final int DN_LENGTH_OFFSET = 26;
+  private static final int RECORD_HEADER_SIZE = 30;
+
+  /** The lock used to provide threadsafe access to the slabs and the indexes. */
+  private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
+  private final Lock cacheWriteLock = cacheLock.writeLock();
+  private final Lock cacheReadLock = cacheLock.readLock();
+
+  // The following fields are guarded by the cache lock.
+  /** The slabs, allocated on demand and filled in a circular order. */
+  private Slab[] slabs = new Slab[0];
+  /** The index of the slab records are currently appended to. */
+  private int currentSlab = -1;
+  /** The mapping between normalized DN hashes and record locations. */
+  private final LongToLongIndex dnIndex = new LongToLongIndex();
+  /** The mapping between entry backends/IDs and record locations. */
+  private final Map<String, LongToLongIndex> idIndexes = new HashMap<>();
+  /** The backend IDs, identified in the records by their position in this list. */
+  private final List<String> backendIDs = new ArrayList<>();
+  /** The channel of the file holding the slabs, or {@code null} if they are allocated in direct memory. */
+  private FileChannel slabChannel;
+  /** The file holding the slabs, or {@code null} if they are allocated in direct memory. */
+  private File slabFile;
+
+  /** The number of entries evicted when recycling slabs. */
+  private final AtomicLong evictions = new AtomicLong();
+  /** The number of entries decoded on cache hits. */
+  private final AtomicLong decodedEntries = new AtomicLong();
+  /** The total time spent decoding entries on cache hits, in nanoseconds. */
+  private final AtomicLong decodeTime = new AtomicLong();
+
+  /** The size of a slab in bytes. */
+  private int slabSize;
+  /** The compressed schema used to encode and decode the cached entries. */
+  private CompressedSchema compressedSchema;
+  /** The configuration used to encode the cached entries. */
+  private EntryEncodeConfig encodeConfig;
+
+  /** Currently registered configuration object. */
+  private OffHeapEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this off-heap entry cache. */
+  public OffHeapEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, OffHeapEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addOffHeapChangeListener(this);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler)) {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    cacheWriteLock.lock();
+    try {
+      registeredConfiguration.removeOffHeapChangeListener(this);
+
+      // Release all memory currently in use by this cache.
+      dnIndex.clear();
+      idIndexes.clear();
+      slabs = new Slab[0];
+      currentSlab = -1;
+      if (slabChannel != null) {
+        close(slabChannel);
+        slabChannel = null;
+        slabFile.delete();
+      }
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    if (entryDN == null) {
+      return false;
+    }
+
+    ByteString normalizedDN = entryDN.toNormalizedByteString();
+    cacheReadLock.lock();
+    try {
+      return find(normalizedDN, hash(normalizedDN)) != 0;
+    } finally {
+      cacheReadLock.unlock();
+    }
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    ByteString normalizedDN = entryDN.toNormalizedByteString();
+    byte[] record;
+    cacheReadLock.lock();
+    try {
+      long location = find(normalizedDN, hash(normalizedDN));
+      record = location != 0 ? readRecord(location) : null;
+    } finally {
+      cacheReadLock.unlock();
+    }
+
+    Entry entry = record != null ? decodeEntry(record) : null;
+    if (entry == null) {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    return entry;
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    ByteString normalizedDN = entryDN.toNormalizedByteString();
+    cacheReadLock.lock();
+    try {
+      long location = find(normalizedDN, hash(normalizedDN));
+      return location != 0 ? slab(location).getLong(offset(location) + ENTRY_ID_OFFSET) : -1;
+    } finally {
+      cacheReadLock.unlock();
+    }
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    byte[] dn;
+    cacheReadLock.lock();
+    try {
+      LongToLongIndex idIndex = idIndexes.get(backendID);
+      long location = idIndex != null ? idIndex.get(entryID) : 0;
+      if (location == 0) {
+        return null;
+      }
+      ByteBuffer slab = slab(location);
+      int offset = offset(location);
+      int normalizedDNLength = slab.getInt(offset + NORMALIZED_DN_LENGTH_OFFSET);
+      dn = new byte[slab.getInt(offset + DN_LENGTH_OFFSET)];
+      read(slab, offset + RECORD_HEADER_SIZE + normalizedDNLength, dn);
+    } finally {
+      cacheReadLock.unlock();
+    }
+    return DN.valueOf(ByteString.wrap(dn).toString());
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    putEntry(entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    return putEntry(entry, backendID, entryID, true);
+  }
+
+  /**
+   * Stores the provided entry in the cache.
+   *
+   * @return {@code false} if the entry was not stored because it is already present,
+   *         or if a conflict could not be ruled out
+   */
+  private boolean putEntry(Entry entry, String backendID, long entryID, boolean onlyIfAbsent)
+  {
+    // Serialize the entry before acquiring the lock.
+    ByteString normalizedDN = entry.getName().toNormalizedByteString();
+    long dnHash = hash(normalizedDN);
+    ByteStringBuilder record;
+    try {
+      record = encodeRecord(entry, normalizedDN, dnHash, entryID);
+    } catch (DirectoryException e) {
+      logger.traceException(e);
+      return false;
+    }
+
+    // Do not make worker threads wait for the cache, caching is optional.
+    if (!cacheWriteLock.tryLock()) {
+      return false;
+    }
+    try {
+      if (onlyIfAbsent && find(normalizedDN, dnHash) != 0) {
+        return false;
+      }
+
+      long location = allocate(record.length());
+      if (location == 0) {
+        // We'll always return true in this case, even if we didn't actually add
+        // the entry due to memory constraints.
+        return true;
+      }
+      ByteBuffer slab = slab(location);
+      int offset = offset(location);
+      write(slab, offset, record);
+      slab.putShort(offset + BACKEND_OFFSET, (short) getBackendIndex(backendID));
+
+      // Drop the records previously cached for this DN or this entry ID.
+      long previous = dnIndex.put(dnHash, location);
+      if (previous != 0) {
+        unindexID(previous);
+        markDead(previous);
+      }
+      LongToLongIndex idIndex = idIndexes.get(backendID);
+      if (idIndex == null) {
+        idIndex = new LongToLongIndex();
+        idIndexes.put(backendID, idIndex);
+      }
+      previous = idIndex.put(entryID, location);
+      if (previous != 0) {
+        dnIndex.remove(slab(previous).getLong(offset(previous) + DN_HASH_OFFSET), previous);
+        markDead(previous);
+      }
+      return true;
+    } catch (Exception e) {
+      logger.traceException(e);
+
+      // We can't be sure there wasn't a conflict, so return false.
+      return false;
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    ByteString normalizedDN = entryDN.toNormalizedByteString();
+    long dnHash = hash(normalizedDN);
+
+    // We should not return until the entry is removed, so we will block until
+    // we can obtain the lock.
+    cacheWriteLock.lock();
+    try {
+      long location = find(normalizedDN, dnHash);
+      if (location != 0) {
+        dnIndex.remove(dnHash, location);
+        unindexID(location);
+        markDead(location);
+      }
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    // We should not return until the cache has been cleared, so we will block
+    // until we can obtain the lock.
+    cacheWriteLock.lock();
+    try {
+      dnIndex.clear();
+      idIndexes.clear();
+      // Keep the slabs allocated, they will be reused.
+      for (Slab slab : slabs) {
+        if (slab != null) {
+          slab.reset();
+        }
+      }
+      currentSlab = -1;
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    cacheWriteLock.lock();
+    try {
+      LongToLongIndex idIndex = idIndexes.remove(backendID);
+      if (idIndex == null) {
+        // No entries were in the cache for this backend, so we can return
+        // without doing anything.
+        return;
+      }
+      for (long location : idIndex.values()) {
+        dnIndex.remove(slab(location).getLong(offset(location) + DN_HASH_OFFSET), location);
+        markDead(location);
+      }
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // The cached entries do not live on the heap, but the indexes do.
+    cacheWriteLock.lock();
+    try {
+      // See how many entries are in the cache.  If there are less than 1000,
+      // then we'll dump all of them.  Otherwise, we'll recycle the oldest slabs
+      // until at least 10% of the entries are dropped.
+      int numEntries = dnIndex.size();
+      if (numEntries < 1000) {
+        clear();
+        return;
+      }
+      int target = numEntries - numEntries / 10;
+      for (int i = 1; i <= slabs.length && dnIndex.size() > target; i++) {
+        int index = (currentSlab + i) % slabs.length;
+        if (slabs[index] != null && index != currentSlab) {
+          recycle(index);
+        }
+      }
+    } finally {
+      cacheWriteLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    OffHeapEntryCacheCfg config = (OffHeapEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      OffHeapEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons
+      )
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig (configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(OffHeapEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled()) {
+      processEntryCacheConfig (configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   * The slab sizing and location only take effect when the cache is initialized.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      OffHeapEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Local variables to read configuration.
+    Set<SearchFilter> newIncludeFilters = null;
+    Set<SearchFilter> newExcludeFilters = null;
+
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    int newSlabSize = (int) configuration.getSlabSize();
+    int newSlabCount = (int) Math.max(1, configuration.getMaxMemorySize() / newSlabSize);
+    String newCacheDirectory = configuration.getCacheDirectory();
+    File newSlabDirectory = newCacheDirectory != null ? getFileForPath(newCacheDirectory) : null;
+
+    // Get include and exclude filters.
+    switch (errorHandler.getConfigPhase())
+    {
+    case PHASE_INIT:
+    case PHASE_ACCEPTABLE:
+    case PHASE_APPLY:
+      newIncludeFilters = EntryCacheCommon.getFilters (
+          configuration.getIncludeFilter(),
+          ERR_CACHE_INVALID_INCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      newExcludeFilters = EntryCacheCommon.getFilters (
+          configuration.getExcludeFilter(),
+          ERR_CACHE_INVALID_EXCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      if (newSlabDirectory != null && !newSlabDirectory.isDirectory()) {
+        errorHandler.reportError(
+            ERR_OFFHEAPCACHE_INVALID_CACHE_DIRECTORY.get(newSlabDirectory, newConfigEntryDN),
+            false, ResultCode.CONSTRAINT_VIOLATION);
+      }
+      break;
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable()
+        && errorHandler.getConfigPhase() == EntryCacheCommon.ConfigPhase.PHASE_INIT)
+    {
+      cacheWriteLock.lock();
+      try {
+        if (newSlabDirectory != null) {
+          slabFile = new File(newSlabDirectory, SLAB_FILE_NAME);
+          slabChannel = new RandomAccessFile(slabFile, "rw").getChannel();
+          slabFile.deleteOnExit();
+        }
+        slabSize = newSlabSize;
+        slabs = new Slab[newSlabCount];
+        currentSlab = -1;
+        compressedSchema = DirectoryServer.getDefaultCompressedSchema();
+        encodeConfig = new EntryEncodeConfig(true, true, true, compressedSchema);
+      } catch (IOException e) {
+        logger.traceException(e);
+        errorHandler.reportError(
+            ERR_OFFHEAPCACHE_CANNOT_OPEN_SLAB_FILE.get(slabFile, stackTraceToSingleLineString(e)),
+            false, DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+      } finally {
+        cacheWriteLock.unlock();
+      }
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      long allocatedSize = 0;
+      long usedSize = 0;
+      long deadSize = 0;
+      int slabCount = 0;
+      long maxSize;
+      long entryCount;
+      cacheReadLock.lock();
+      try {
+        for (Slab slab : slabs) {
+          if (slab != null) {
+            slabCount++;
+            allocatedSize += slabSize;
+            usedSize += slab.writeOffset;
+            deadSize += slab.deadBytes;
+          }
+        }
+        maxSize = (long) slabs.length * slabSize;
+        entryCount = dnIndex.size();
+      } finally {
+        cacheReadLock.unlock();
+      }
+
+      MonitorData attrs = EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        usedSize - deadSize,
+        maxSize,
+        entryCount,
+        null
+        );
+      long decoded = decodedEntries.longValue();
+      attrs.add("entryCacheEvictions", evictions.longValue());
+      attrs.add("entryCacheSlabCount", slabCount);
+      attrs.add("entryCacheSlabSize", slabSize);
+      attrs.add("entryCacheAllocatedSize", allocatedSize);
+      attrs.add("entryCacheSlabFragmentation", usedSize > 0 ? deadSize * 100D / usedSize : 0D);
+      attrs.add("entryCacheDecodedEntries", decoded);
+      attrs.add("entryCacheAverageDecodeTime",
+          decoded > 0 ? decodeTime.longValue() / 1000D / decoded : 0D);
+      return attrs;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    cacheReadLock.lock();
+    try {
+      return Long.valueOf(dnIndex.size());
+    } finally {
+      cacheReadLock.unlock();
+    }
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    cacheReadLock.lock();
+    try {
+      for (Map.Entry<String, LongToLongIndex> backendIndex : idIndexes.entrySet()) {
+        for (long location : backendIndex.getValue().values()) {
+          ByteBuffer slab = slab(location);
+          int offset = offset(location);
+          byte[] dn = new byte[slab.getInt(offset + DN_LENGTH_OFFSET)];
+          read(slab, offset + RECORD_HEADER_SIZE + slab.getInt(offset + NORMALIZED_DN_LENGTH_OFFSET), dn);
+          sb.append(ByteString.wrap(dn));
+          sb.append(":");
+          sb.append(slab.getLong(offset + ENTRY_ID_OFFSET));
+          sb.append(":");
+          sb.append(backendIndex.getKey());
+          sb.append(ServerConstants.EOL);
+        }
+      }
+    } finally {
+      cacheReadLock.unlock();
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  /** Serializes the provided entry as a record, leaving its backend index to be filled later. */
+  private ByteStringBuilder encodeRecord(Entry entry, ByteString normalizedDN, long dnHash, long entryID)
+      throws DirectoryException
+  {
+    ByteString dn = ByteString.valueOfUtf8(entry.getName().toString());
+    ByteStringBuilder encodedEntry = new ByteStringBuilder();
+    entry.encode(encodedEntry, encodeConfig);
+
+    ByteStringBuilder record = new ByteStringBuilder(
+        RECORD_HEADER_SIZE + normalizedDN.length() + dn.length() + encodedEntry.length());
+    record.appendInt(RECORD_HEADER_SIZE + normalizedDN.length() + dn.length() + encodedEntry.length());
+    record.appendLong(dnHash);
+    record.appendShort(0);
+    record.appendLong(entryID);
+    record.appendInt(normalizedDN.length());
+    record.appendInt(dn.length());
+    record.appendBytes(normalizedDN);
+    record.appendBytes(dn);
+    record.appendBytes(encodedEntry);
+    return record;
+  }
+
+  /** Decodes the entry held in a record copied out of the slabs, or returns {@code null} if it cannot be decoded. */
+  private Entry decodeEntry(byte[] record)
+  {
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    int normalizedDNLength = buffer.getInt(NORMALIZED_DN_LENGTH_OFFSET);
+    int dnLength = buffer.getInt(DN_LENGTH_OFFSET);
+    int dnOffset = RECORD_HEADER_SIZE + normalizedDNLength;
+    int entryOffset = dnOffset + dnLength;
+
+    long startTime = System.nanoTime();
+    try {
+      Entry entry = Entry.decode(
+          ByteString.wrap(record, entryOffset, record.length - entryOffset).asReader(), compressedSchema);
+      entry.setDN(DN.valueOf(ByteString.wrap(record, dnOffset, dnLength).toString()));
+      return entry;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return null;
+    } finally {
+      decodeTime.addAndGet(System.nanoTime() - startTime);
+      decodedEntries.getAndIncrement();
+    }
+  }
+
+  /**
+   * Returns the location of the record holding the provided normalized DN, or
+   * {@code 0} if it is not cached. The cache lock must be held.
+   */
+  private long find(ByteString normalizedDN, long dnHash)
+  {
+    long location = dnIndex.get(dnHash);
+    if (location == 0) {
+      return 0;
+    }
+    // Guard against hash collisions.
+    ByteBuffer slab = slab(location);
+    int offset = offset(location);
+    int length = normalizedDN.length();
+    if (slab.getInt(offset + NORMALIZED_DN_LENGTH_OFFSET) != length) {
+      return 0;
+    }
+    offset += RECORD_HEADER_SIZE;
+    for (int i = 0; i < length; i++) {
+      if (slab.get(offset + i) != normalizedDN.byteAt(i)) {
+        return 0;
+      }
+    }
+    return location;
+  }
+
+  /** Removes the provided record from the ID index of its backend. The cache lock must be held. */
+  private void unindexID(long location)
+  {
+    ByteBuffer slab = slab(location);
+    int offset = offset(location);
+    LongToLongIndex idIndex = idIndexes.get(backendIDs.get(slab.getShort(offset + BACKEND_OFFSET)));
+    if (idIndex != null) {
+      idIndex.remove(slab.getLong(offset + ENTRY_ID_OFFSET), location);
+    }
+  }
+
+  private void markDead(long location)
+  {
+    Slab slab = slabs[(int) (location >>> 32) - 1];
+    slab.deadBytes += slab.buffer.getInt(offset(location) + LENGTH_OFFSET);
+  }
+
+  private int getBackendIndex(String backendID)
+  {
+    int index = backendIDs.indexOf(backendID);
+    if (index < 0) {
+      backendIDs.add(backendID);
+      index = backendIDs.size() - 1;
+    }
+    return index;
+  }
+
+  /**
+   * Reserves space for a record of the provided length, recycling the oldest slab
+   * when all the slabs are full. The cache write lock must be held.
+   *
+   * @return the location of the reserved space, or {@code 0} if the record cannot be cached
+   */
+  private long allocate(int length)
+  {
+    if (length > slabSize || slabs.length == 0) {
+      return 0;
+    }
+    if (currentSlab < 0 || slabSize - slabs[currentSlab].writeOffset < length) {
+      int next = (currentSlab + 1) % slabs.length;
+      if (slabs[next] == null) {
+        try {
+          slabs[next] = new Slab(slabChannel != null
+              ? slabChannel.map(MapMode.READ_WRITE, (long) next * slabSize, slabSize)
+              : ByteBuffer.allocateDirect(slabSize));
+        } catch (IOException | OutOfMemoryError e) {
+          logger.traceException(e);
+          // Do not retry on each put: limit the cache to the slabs allocated so far.
+          logger.error(ERR_OFFHEAPCACHE_CANNOT_ALLOCATE_SLAB.get(slabSize, next, stackTraceToSingleLineString(e)));
+          slabs = Arrays.copyOf(slabs, next);
+          if (next == 0) {
+            return 0;
+          }
+          next = 0;
+          recycle(next);
+        }
+      } else {
+        recycle(next);
+      }
+      currentSlab = next;
+    }
+
+    Slab slab = slabs[currentSlab];
+    int offset = slab.writeOffset;
+    slab.writeOffset += length;
+    return ((long) (currentSlab + 1) << 32) | offset;
+  }
+
+  /** Evicts all the entries held in the provided slab and makes it empty. The cache write lock must be held. */
+  private void recycle(int slabIndex)
+  {
+    Slab slab = slabs[slabIndex];
+    ByteBuffer buffer = slab.buffer;
+    for (int offset = 0; offset < slab.writeOffset; offset += buffer.getInt(offset + LENGTH_OFFSET)) {
+      long location = ((long) (slabIndex + 1) << 32) | offset;
+      if (dnIndex.remove(buffer.getLong(offset + DN_HASH_OFFSET), location)) {
+        unindexID(location);
+        evictions.getAndIncrement();
+      }
+    }
+    slab.reset();
+  }
+
+  private ByteBuffer slab(long location)
+  {
+    return slabs[(int) (location >>> 32) - 1].buffer;
+  }
+
+  private static int offset(long location)
+  {
+    return (int) location;
+  }
+
+  /** Copies the record at the provided location out of the slabs. The cache lock must be held. */
+  private byte[] readRecord(long location)
+  {
+    ByteBuffer slab = slab(location);
+    int offset = offset(location);
+    byte[] record = new byte[slab.getInt(offset + LENGTH_OFFSET)];
+    read(slab, offset, record);
+    return record;
+  }
+
+  private static void read(ByteBuffer slab, int offset, byte[] destination)
+  {
+    // Use a private view: the slabs are shared by all the readers.
+    ByteBuffer view = slab.duplicate();
+    view.position(offset);
+    view.get(destination);
+  }
+
+  private static void write(ByteBuffer slab, int offset, ByteStringBuilder source)
+  {
+    ByteBuffer view = slab.duplicate();
+    view.position(offset);
+    view.put(source.getBackingArray(), 0, source.length());
+  }
+
+  /** Returns a 64 bits FNV-1a hash of the provided normalized DN. */
+  private static long hash(ByteString normalizedDN)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < normalizedDN.length(); i++) {
+      hash ^= normalizedDN.byteAt(i) & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /** A fixed size area of off-heap memory holding records appended one after the other. */
+  private static final class Slab
+  {
+    private final ByteBuffer buffer;
+    /** The offset where the next record will be written. */
+    private int writeOffset;
+    /** The number of bytes used by records which have been removed or replaced. */
+    private long deadBytes;
+
+    private Slab(ByteBuffer buffer)
+    {
+      this.buffer = buffer;
+    }
+
+    private void reset()
+    {
+      writeOffset = 0;
+      deadBytes = 0;
+    }
+  }
+
+  /**
+   * An open addressing hash map from {@code long} keys to non-zero {@code long} values,
+   * which does not create any object per mapping.
+   */
+  private static final class LongToLongIndex
+  {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    /** The values, {@code 0} marks an empty slot. */
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    int size()
+    {
+      return size;
+    }
+
+    long get(long key)
+    {
+      int mask = keys.length - 1;
+      for (int i = slot(key, mask); values[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+      }
+      return 0;
+    }
+
+    /** Returns the previous value mapped to the key, or {@code 0} if there was none. */
+    long put(long key, long value)
+    {
+      if ((size + 1) * 2 > keys.length) {
+        resize(keys.length * 2);
+      }
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      for (; values[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          long previous = values[i];
+          values[i] = value;
+          return previous;
+        }
+      }
+      keys[i] = key;
+      values[i] = value;
+      size++;
+      return 0;
+    }
+
+    /** Removes the mapping of the key if it maps to the expected value. */
+    boolean remove(long key, long expectedValue)
+    {
+      int mask = keys.length - 1;
+      for (int i = slot(key, mask); values[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          if (values[i] != expectedValue) {
+            return false;
+          }
+          delete(i, mask);
+          size--;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Frees a slot, shifting back the following entries of the probe sequence. */
+    private void delete(int hole, int mask)
+    {
+      values[hole] = 0;
+      for (int i = (hole + 1) & mask; values[i] != 0; i = (i + 1) & mask) {
+        int home = slot(keys[i], mask);
+        boolean reachableFromHome = hole < i ? (home <= hole || home > i) : (home <= hole && home > i);
+        if (reachableFromHome) {
+          keys[hole] = keys[i];
+          values[hole] = values[i];
+          values[i] = 0;
+          hole = i;
+        }
+      }
+    }
+
+    long[] values()
+    {
+      long[] result = new long[size];
+      int count = 0;
+      for (long value : values) {
+        if (value != 0) {
+          result[count++] = value;
+        }
+      }
+      return result;
+    }
+
+    void clear()
+    {
+      keys = new long[INITIAL_CAPACITY];
+      values = new long[INITIAL_CAPACITY];
+      size = 0;
+    }
+
+    private void resize(int capacity)
+    {
+      long[] oldKeys = keys;
+      long[] oldValues = values;
+      keys = new long[capacity];
+      values = new long[capacity];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != 0) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    private static int slot(long key, int mask)
+    {
+      long hash = key * 0x9e3779b97f4a7c15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+  }
+}
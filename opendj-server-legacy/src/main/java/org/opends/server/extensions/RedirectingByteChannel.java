@@ -19,12 +19,16 @@ package org.opends.server.extensions;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
 
 /**
  * This class redirects read and write requests either to a child byte channel,
  * or a byte channel to be redirected to.
+ * <p>
+ * Gathering writes are passed on as such when the target channel supports
+ * them, otherwise the buffers are written one after the other.
  */
-public class RedirectingByteChannel implements ByteChannel
+public class RedirectingByteChannel implements ByteChannel, GatheringByteChannel
 {
   /**
    * Create an instance of a redirecting byte channel using the specified byte
@@ -121,4 +125,30 @@ public class RedirectingByteChannel implements ByteChannel
       return child.write(buffer);
     }
   }
+
+  @Override
+  public long write(final ByteBuffer[] srcs) throws IOException
+  {
+    return write(srcs, 0, srcs.length);
+  }
+
+  @Override
+  public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException
+  {
+    final ByteChannel tmp = redirect;
+    final ByteChannel target = tmp != null ? tmp : child;
+    if (target instanceof GatheringByteChannel)
+    {
+      return ((GatheringByteChannel) target).write(srcs, offset, length);
+    }
+    long bytesWritten = 0;
+    for (int i = offset; i < offset + length; i++)
+    {
+      while (srcs[i].hasRemaining())
+      {
+        bytesWritten += target.write(srcs[i]);
+      }
+    }
+    return bytesWritten;
+  }
 }
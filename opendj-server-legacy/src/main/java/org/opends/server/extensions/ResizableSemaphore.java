@@ -0,0 +1,60 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import java.util.concurrent.Semaphore;
+
+/** A semaphore whose total number of permits can be changed when the configuration of a work queue changes. */
+final class ResizableSemaphore extends Semaphore
+{
+  private static final long serialVersionUID = 1L;
+
+  /** The total number of permits, including the permits currently acquired. */
+  private int maxPermits;
+
+  ResizableSemaphore(int permits)
+  {
+    super(permits);
+    this.maxPermits = permits;
+  }
+
+  /**
+   * Changes the total number of permits. When the number of permits is reduced, the permits currently acquired
+   * remain valid, and new permits are only granted once enough of them have been released.
+   */
+  synchronized void resize(int newMaxPermits)
+  {
+    if (newMaxPermits > maxPermits)
+    {
+      release(newMaxPermits - maxPermits);
+    }
+    else if (newMaxPermits < maxPermits)
+    {
+      reducePermits(maxPermits - newMaxPermits);
+    }
+    maxPermits = newMaxPermits;
+  }
+
+  /**
+   * Returns the total number of permits, including the permits currently acquired.
+   *
+   * @return the total number of permits
+   */
+  synchronized int getMaxPermits()
+  {
+    return maxPermits;
+  }
+}
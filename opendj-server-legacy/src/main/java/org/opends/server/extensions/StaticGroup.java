@@ -41,7 +41,6 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.Schema;
-import org.forgerock.opendj.server.config.server.GroupImplementationCfg;
 import org.forgerock.opendj.server.config.server.StaticGroupImplementationCfg;
 import org.forgerock.util.Reject;
 import org.forgerock.util.annotations.VisibleForTesting;
@@ -344,6 +343,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       HashSet<CompactDn> newMemberDNs = new HashSet<>(memberDNs);
       newMemberDNs.add(new CompactDn(nestedGroupDN));
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberAdded(groupEntryDN, nestedGroupDN);
     }
     finally
     {
@@ -382,6 +382,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
       newMemberDNs.remove(new CompactDn(nestedGroupDN));
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberRemoved(groupEntryDN, nestedGroupDN);
     }
     finally
     {
@@ -405,26 +406,18 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         return false;
       }
 
-      // there are nested groups
+      // there are nested groups, look for the user in the index of group memberships
       Set<DN> groups = getExaminedGroups(examinedGroups);
       if (!groups.add(getGroupDN()))
       {
         return false;
       }
-      for (DN nestedGroupDN : nestedGroups)
-      {
-        Group<? extends GroupImplementationCfg> group = getGroupManager().getGroupInstance(nestedGroupDN);
-        if (group != null && group.isMember(userDN, examinedGroups))
-        {
-          return true;
-        }
-      }
+      return getGroupManager().isNestedMember(getGroupDN(), userDN, examinedGroups);
     }
     finally
     {
       lock.readLock().unlock();
     }
-    return false;
   }
 
   private Set<DN> getExaminedGroups(AtomicReference<Set<DN>> examinedGroups)
@@ -541,6 +534,12 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     return true;
   }
 
+  @Override
+  public AttributeType getMemberListAttributeType()
+  {
+    return memberAttributeType;
+  }
+
   @Override
   public void updateMembers(List<Modification> modifications)
          throws UnsupportedOperationException, DirectoryException
@@ -636,6 +635,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<CompactDn>(memberDNs);
       newMemberDNs.add(compactUserDN);
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().memberAdded(groupEntryDN, userDN);
     }
     finally
     {
@@ -676,6 +676,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         newNestedGroups.remove(userDN);
         nestedGroups = newNestedGroups;
       }
+      DirectoryServer.getGroupManager().memberRemoved(groupEntryDN, userDN);
     }
     finally
     {
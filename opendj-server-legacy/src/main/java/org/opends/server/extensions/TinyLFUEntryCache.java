@@ -0,0 +1,922 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.TinyLFUEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.CacheEntry;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache bounded by the estimated
+ * amount of memory used by the cached entries, which uses a frequency based
+ * admission policy (W-TinyLFU) to decide which entries are worth keeping.
+ * <BR><BR>
+ * Entries are held in concurrent hash maps, so that reading or adding an entry
+ * never takes a cache wide lock. Instead, accesses are recorded in lossy striped
+ * buffers and additions/removals in a queue, which are replayed against the
+ * eviction policy by whichever thread manages to acquire the eviction lock
+ * without waiting. Worker threads therefore never block on the eviction policy.
+ * <BR><BR>
+ * The eviction policy splits the cache in a small LRU admission window and a
+ * segmented LRU main space. Entries evicted from the window only enter the main
+ * space if they have been requested more often than the entry that would be
+ * evicted to make room for them, according to a frequency sketch of the recent
+ * requests. This keeps the frequently used entries cached across large scans,
+ * which would otherwise flush a FIFO or LRU cache.
+ * <BR><BR>
+ * It is also possible to configure a maximum number of entries for the cache,
+ * and a set of filters that may be used to define criteria for determining
+ * which entries are stored in the cache.
+ */
+public class TinyLFUEntryCache
+       extends EntryCache<TinyLFUEntryCacheCfg>
+       implements ConfigurationChangeListener<TinyLFUEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The percentage of the cache reserved to the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+  /** The percentage of the main space reserved to the protected segment. */
+  private static final int PROTECTED_PERCENT = 80;
+  /** The average entry size used to size the frequency sketch when the cache is only bounded in memory. */
+  private static final int AVERAGE_ENTRY_SIZE = 2048;
+
+  /** The estimated memory overhead of a cached entry, regardless of its contents. */
+  private static final int ENTRY_OVERHEAD = 256;
+  /** The estimated memory overhead of an attribute. */
+  private static final int ATTRIBUTE_OVERHEAD = 64;
+  /** The estimated memory overhead of an attribute value. */
+  private static final int VALUE_OVERHEAD = 48;
+
+  /** Queue identifiers of the eviction policy. */
+  private static final byte NONE = 0;
+  private static final byte WINDOW = 1;
+  private static final byte PROBATION = 2;
+  private static final byte PROTECTED = 3;
+
+  /** The mapping between DNs and cached entries. */
+  private final ConcurrentMap<DN, Node> dnMap = new ConcurrentHashMap<>();
+  /** The mapping between entry backends/IDs and cached entries. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, Node>> idMap = new ConcurrentHashMap<>();
+
+  /** The lossy buffers recording the entry accesses, striped to limit contention. */
+  private final ReadBuffer[] readBuffers = newReadBuffers();
+  /** The additions and removals waiting to be applied to the eviction policy. */
+  private final ConcurrentLinkedQueue<Node> writeBuffer = new ConcurrentLinkedQueue<>();
+  /** The lock guarding the eviction policy, only ever acquired with {@code tryLock()} by worker threads. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /** The number of entries evicted from the cache to honor its bounds. */
+  private final AtomicLong evictions = new AtomicLong();
+  /** The number of entries not admitted in the main space because they were less popular than the victim. */
+  private final AtomicLong admissionRejections = new AtomicLong();
+
+  // The following fields are guarded by the eviction lock.
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedSegment = new AccessOrderDeque();
+  private FrequencySketch sketch;
+  private long windowWeight;
+  private long mainWeight;
+  private long protectedWeight;
+  private long windowCount;
+  private long mainCount;
+  private long protectedCount;
+  private long windowMaxWeight;
+  private long windowMaxCount;
+  private long protectedMaxWeight;
+  private long protectedMaxCount;
+
+  /** The maximum estimated memory in bytes the cached entries may use. */
+  private volatile long maxMemorySize;
+  /** The maximum number of entries that may be held in the cache. */
+  private volatile long maxEntries;
+
+  /** Currently registered configuration object. */
+  private TinyLFUEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this TinyLFU entry cache. */
+  public TinyLFUEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, TinyLFUEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addTinyLFUChangeListener(this);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler)) {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_TINYLFUCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeTinyLFUChangeListener(this);
+
+    // Release all memory currently in use by this cache.
+    clear();
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    Node node = dnMap.get(entryDN);
+    if (node == null) {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    recordAccess(node);
+    return node.cacheEntry.getEntry();
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    Node node = dnMap.get(entryDN);
+    return node != null ? node.cacheEntry.getEntryID() : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    Map<Long, Node> backendMap = idMap.get(backendID);
+    if (backendMap != null) {
+      Node node = backendMap.get(entryID);
+      if (node != null) {
+        return node.cacheEntry.getDN();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    Node node = newNode(entry, backendID, entryID);
+    Node previous = dnMap.put(node.dn, node);
+    if (previous != null) {
+      unmap(previous, true);
+    }
+    afterPut(node);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    Node node = newNode(entry, backendID, entryID);
+    if (dnMap.putIfAbsent(node.dn, node) != null) {
+      return false;
+    }
+    afterPut(node);
+    return true;
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    Node node = dnMap.remove(entryDN);
+    if (node != null) {
+      unmap(node, false);
+      drainBuffers();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    // We should not return until the cache has been cleared, so we will block
+    // until we can obtain the lock.
+    evictionLock.lock();
+    try {
+      for (AccessOrderDeque deque : new AccessOrderDeque[] { window, probation, protectedSegment }) {
+        for (Node node = deque.pollFirst(); node != null; node = deque.pollFirst()) {
+          node.alive = false;
+        }
+      }
+      windowWeight = mainWeight = protectedWeight = 0;
+      windowCount = mainCount = protectedCount = 0;
+
+      // Pending additions of dead nodes will be ignored by the policy.
+      for (Node node : dnMap.values()) {
+        node.alive = false;
+      }
+      dnMap.clear();
+      idMap.clear();
+      drainBuffersUnderLock();
+    } catch (Exception e) {
+      logger.traceException(e);
+
+      // This shouldn't happen, but there's not much that we can do if it does.
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    // Remove all references to entries for this backend from the ID cache.
+    Map<Long, Node> map = idMap.remove(backendID);
+    if (map == null) {
+      // No entries were in the cache for this backend, so we can return
+      // without doing anything.
+      return;
+    }
+
+    int entriesDeleted = 0;
+    for (Node node : map.values()) {
+      if (dnMap.remove(node.dn, node)) {
+        node.alive = false;
+        writeBuffer.add(node);
+        // Periodically apply the removals so that the write buffer stays small.
+        if ((++entriesDeleted % 1000) == 0) {
+          drainBuffers();
+        }
+      }
+    }
+    drainBuffers();
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // Grab the lock on the policy and wait until we have it.
+    evictionLock.lock();
+    try {
+      drainBuffersUnderLock();
+
+      // See how many entries are in the cache.  If there are less than 1000,
+      // then we'll dump all of them.  Otherwise, we'll dump 10% of the entries,
+      // starting with the least valuable ones.
+      long numEntries = windowCount + mainCount;
+      long numToDrop = numEntries < 1000 ? numEntries : numEntries / 10;
+      for (; numToDrop > 0; numToDrop--) {
+        Node victim = nextVictim();
+        if (victim == null) {
+          break;
+        }
+        evict(victim);
+        evictions.getAndIncrement();
+      }
+    } catch (Exception e) {
+      logger.traceException(e);
+
+      // This shouldn't happen, but there's not much that we can do if it does.
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    TinyLFUEntryCacheCfg config = (TinyLFUEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      TinyLFUEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons
+      )
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig (configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(TinyLFUEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled()) {
+      processEntryCacheConfig (configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      TinyLFUEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Local variables to read configuration.
+    Set<SearchFilter> newIncludeFilters = null;
+    Set<SearchFilter> newExcludeFilters = null;
+
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newMaxEntries = configuration.getMaxEntries();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+
+    // Get include and exclude filters.
+    switch (errorHandler.getConfigPhase())
+    {
+    case PHASE_INIT:
+    case PHASE_ACCEPTABLE:
+    case PHASE_APPLY:
+      newIncludeFilters = EntryCacheCommon.getFilters (
+          configuration.getIncludeFilter(),
+          ERR_CACHE_INVALID_INCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      newExcludeFilters = EntryCacheCommon.getFilters (
+          configuration.getExcludeFilter(),
+          ERR_CACHE_INVALID_EXCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      break;
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      evictionLock.lock();
+      try {
+        maxEntries = newMaxEntries;
+        maxMemorySize = newMaxMemorySize;
+        windowMaxWeight = Math.max(1, newMaxMemorySize / 100 * WINDOW_PERCENT);
+        windowMaxCount = Math.max(1, newMaxEntries * WINDOW_PERCENT / 100);
+        protectedMaxWeight = (newMaxMemorySize - windowMaxWeight) / 100 * PROTECTED_PERCENT;
+        protectedMaxCount = (newMaxEntries - windowMaxCount) * PROTECTED_PERCENT / 100;
+        // The sketch is sized for the number of entries the cache may hold,
+        // a resize simply starts over with an empty history.
+        sketch = new FrequencySketch(Math.min(newMaxEntries, newMaxMemorySize / AVERAGE_ENTRY_SIZE));
+        evictEntries();
+      } finally {
+        evictionLock.unlock();
+      }
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      final long weightedSize;
+      evictionLock.lock();
+      try {
+        weightedSize = windowWeight + mainWeight;
+      } finally {
+        evictionLock.unlock();
+      }
+      MonitorData attrs = EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        weightedSize,
+        maxMemorySize,
+        Long.valueOf(dnMap.size()),
+        Long.valueOf(
+            (maxEntries != Integer.MAX_VALUE && maxEntries != Long.MAX_VALUE) ? maxEntries : 0)
+        );
+      attrs.add("entryCacheEvictions", evictions.longValue());
+      attrs.add("entryCacheAdmissionRejections", admissionRejections.longValue());
+      return attrs;
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    return Long.valueOf(dnMap.size());
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Node node : dnMap.values()) {
+      sb.append(node.dn);
+      sb.append(":");
+      sb.append(node.cacheEntry.getEntryID());
+      sb.append(":");
+      sb.append(node.cacheEntry.getBackendID());
+      sb.append(ServerConstants.EOL);
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  private Node newNode(Entry entry, String backendID, long entryID)
+  {
+    return new Node(new CacheEntry(entry, backendID, entryID), estimateWeight(entry));
+  }
+
+  /** Indexes a node that has just been added to the DN map and schedules its addition to the policy. */
+  private void afterPut(Node node)
+  {
+    ConcurrentMap<Long, Node> backendMap = idMap.get(node.cacheEntry.getBackendID());
+    if (backendMap == null) {
+      ConcurrentMap<Long, Node> newMap = new ConcurrentHashMap<>();
+      backendMap = idMap.putIfAbsent(node.cacheEntry.getBackendID(), newMap);
+      if (backendMap == null) {
+        backendMap = newMap;
+      }
+    }
+    backendMap.put(node.cacheEntry.getEntryID(), node);
+    if (!node.alive) {
+      // Raced with a removal of the same DN, undo the indexing.
+      backendMap.remove(node.cacheEntry.getEntryID(), node);
+    }
+    writeBuffer.add(node);
+    drainBuffers();
+  }
+
+  /**
+   * Removes a node that is no longer in the DN map from the ID map and schedules
+   * its removal from the policy.
+   */
+  private void unmap(Node node, boolean deferDrain)
+  {
+    node.alive = false;
+    Map<Long, Node> backendMap = idMap.get(node.cacheEntry.getBackendID());
+    if (backendMap != null) {
+      backendMap.remove(node.cacheEntry.getEntryID(), node);
+    }
+    writeBuffer.add(node);
+    if (!deferDrain) {
+      drainBuffers();
+    }
+  }
+
+  /** Records an access to a node, dropping it if the buffer is full rather than waiting. */
+  private void recordAccess(Node node)
+  {
+    ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+    if (!buffer.offer(node)) {
+      drainBuffers();
+    }
+  }
+
+  /**
+   * Applies the pending accesses and writes to the eviction policy, then evicts entries
+   * as needed, unless another thread is already doing so.
+   */
+  private void drainBuffers()
+  {
+    while (evictionLock.tryLock()) {
+      try {
+        drainBuffersUnderLock();
+      } catch (Exception e) {
+        // This should never happen.
+        logger.traceException(e);
+      } finally {
+        evictionLock.unlock();
+      }
+      // Writes enqueued while the lock was held by this thread would be
+      // stranded if nobody looked at them.
+      if (writeBuffer.isEmpty()) {
+        return;
+      }
+    }
+  }
+
+  private void drainBuffersUnderLock()
+  {
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drainTo(this);
+    }
+    for (Node node = writeBuffer.poll(); node != null; node = writeBuffer.poll()) {
+      if (node.queue == NONE) {
+        if (node.alive) {
+          onAdd(node);
+        }
+      } else if (!node.alive) {
+        onRemove(node);
+      }
+    }
+    evictEntries();
+  }
+
+  private void onAdd(Node node)
+  {
+    sketch.increment(node.hash);
+    node.queue = WINDOW;
+    window.addLast(node);
+    windowWeight += node.weight;
+    windowCount++;
+  }
+
+  private void onRemove(Node node)
+  {
+    unlink(node);
+  }
+
+  /** Invoked with the eviction lock held for each recorded access. */
+  private void onAccess(Node node)
+  {
+    sketch.increment(node.hash);
+    switch (node.queue) {
+    case WINDOW:
+      window.moveToLast(node);
+      break;
+    case PROBATION:
+      // A second access promotes the entry to the protected segment.
+      unlink(node);
+      linkMain(node, PROTECTED);
+      while (isProtectedOverflowing()) {
+        Node demoted = protectedSegment.peekFirst();
+        unlink(demoted);
+        linkMain(demoted, PROBATION);
+      }
+      break;
+    case PROTECTED:
+      protectedSegment.moveToLast(node);
+      break;
+    default:
+      // Not yet added to the policy, or already removed.
+      break;
+    }
+  }
+
+  /** Moves the entries overflowing the window to the main space, then evicts until the cache fits its bounds. */
+  private void evictEntries()
+  {
+    while (isWindowOverflowing()) {
+      Node candidate = window.peekFirst();
+      unlink(candidate);
+      admit(candidate);
+    }
+    while (isOverflowing()) {
+      Node victim = nextVictim();
+      if (victim == null) {
+        break;
+      }
+      evict(victim);
+      evictions.getAndIncrement();
+    }
+  }
+
+  /**
+   * Moves a candidate evicted from the window to the main space, evicting either the
+   * least valuable entries of the main space or the candidate itself when the cache overflows.
+   */
+  private void admit(Node candidate)
+  {
+    linkMain(candidate, PROBATION);
+    while (isOverflowing()) {
+      Node victim = probation.peekFirst();
+      if (victim == candidate) {
+        victim = protectedSegment.peekFirst();
+      }
+      if (victim == null) {
+        return;
+      }
+      if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+        evict(victim);
+        evictions.getAndIncrement();
+      } else {
+        admissionRejections.getAndIncrement();
+        evict(candidate);
+        return;
+      }
+    }
+  }
+
+  /** Returns the least valuable entry of the cache, or {@code null} if it is empty. */
+  private Node nextVictim()
+  {
+    Node victim = probation.peekFirst();
+    if (victim == null) {
+      victim = protectedSegment.peekFirst();
+    }
+    if (victim == null) {
+      victim = window.peekFirst();
+    }
+    return victim;
+  }
+
+  private void evict(Node node)
+  {
+    unlink(node);
+    if (dnMap.remove(node.dn, node)) {
+      node.alive = false;
+      Map<Long, Node> backendMap = idMap.get(node.cacheEntry.getBackendID());
+      if (backendMap != null) {
+        backendMap.remove(node.cacheEntry.getEntryID(), node);
+      }
+    }
+  }
+
+  private void linkMain(Node node, byte queue)
+  {
+    node.queue = queue;
+    mainWeight += node.weight;
+    mainCount++;
+    if (queue == PROTECTED) {
+      protectedSegment.addLast(node);
+      protectedWeight += node.weight;
+      protectedCount++;
+    } else {
+      probation.addLast(node);
+    }
+  }
+
+  private void unlink(Node node)
+  {
+    switch (node.queue) {
+    case WINDOW:
+      window.remove(node);
+      windowWeight -= node.weight;
+      windowCount--;
+      break;
+    case PROBATION:
+      probation.remove(node);
+      mainWeight -= node.weight;
+      mainCount--;
+      break;
+    case PROTECTED:
+      protectedSegment.remove(node);
+      protectedWeight -= node.weight;
+      protectedCount--;
+      mainWeight -= node.weight;
+      mainCount--;
+      break;
+    default:
+      break;
+    }
+    node.queue = NONE;
+  }
+
+  private boolean isOverflowing()
+  {
+    return windowWeight + mainWeight > maxMemorySize || windowCount + mainCount > maxEntries;
+  }
+
+  private boolean isWindowOverflowing()
+  {
+    return windowCount > 1 && (windowWeight > windowMaxWeight || windowCount > windowMaxCount);
+  }
+
+  private boolean isProtectedOverflowing()
+  {
+    return protectedCount > 1 && (protectedWeight > protectedMaxWeight || protectedCount > protectedMaxCount);
+  }
+
+  /**
+   * Estimates the amount of memory used by the provided entry once cached.
+   *
+   * @param entry  The entry to be cached.
+   *
+   * @return  The estimated size of the entry in bytes.
+   */
+  static int estimateWeight(Entry entry)
+  {
+    long weight = ENTRY_OVERHEAD + 2L * entry.getName().toString().length();
+    weight += (long) ATTRIBUTE_OVERHEAD * entry.getObjectClasses().size();
+    for (Attribute attribute : entry.getAllAttributes()) {
+      weight += ATTRIBUTE_OVERHEAD;
+      for (ByteString value : attribute) {
+        weight += VALUE_OVERHEAD + value.length();
+      }
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private static ReadBuffer[] newReadBuffers()
+  {
+    int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+    ReadBuffer[] buffers = new ReadBuffer[count];
+    for (int i = 0; i < count; i++) {
+      buffers[i] = new ReadBuffer();
+    }
+    return buffers;
+  }
+
+  /** A cached entry, linked in one of the queues of the eviction policy. */
+  private static final class Node
+  {
+    private final CacheEntry cacheEntry;
+    private final DN dn;
+    private final int hash;
+    private final int weight;
+    /** Whether this node is still mapped by the cache. */
+    private volatile boolean alive = true;
+
+    // The following fields are guarded by the eviction lock.
+    private byte queue = NONE;
+    private Node previous;
+    private Node next;
+
+    private Node(CacheEntry cacheEntry, int weight)
+    {
+      this.cacheEntry = cacheEntry;
+      this.dn = cacheEntry.getDN();
+      this.hash = dn.hashCode();
+      this.weight = weight;
+    }
+  }
+
+  /** A doubly linked list of nodes, from the least to the most recently used one. */
+  private static final class AccessOrderDeque
+  {
+    private Node first;
+    private Node last;
+
+    Node peekFirst()
+    {
+      return first;
+    }
+
+    Node pollFirst()
+    {
+      Node node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node node)
+    {
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    void remove(Node node)
+    {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+    }
+
+    void moveToLast(Node node)
+    {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+  }
+
+  /**
+   * A bounded buffer of recorded accesses, written without locks by many threads and
+   * drained by the thread holding the eviction lock. Accesses are dropped when it is full,
+   * which only degrades the accuracy of the eviction policy.
+   */
+  private static final class ReadBuffer
+  {
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    /** Only written by the thread holding the eviction lock. */
+    private volatile long readCounter;
+
+    /** Returns {@code false} if the buffer is full and should be drained. */
+    boolean offer(Node node)
+    {
+      long tail = writeCounter.get();
+      if (tail - readCounter >= SIZE) {
+        return false;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & MASK), node);
+      }
+      // Lost the race with another reader: drop this access.
+      return true;
+    }
+
+    void drainTo(TinyLFUEntryCache cache)
+    {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      for (; head < tail; head++) {
+        int index = (int) (head & MASK);
+        Node node = buffer.get(index);
+        if (node == null) {
+          // The writer has not published its node yet.
+          break;
+        }
+        buffer.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCounter = head;
+    }
+  }
+}
@@ -0,0 +1,461 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.VirtualThreadWorkQueueCfg;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.VirtualThreadWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue which processes each operation on its own virtual thread.
+ * <p>
+ * Rather than a fixed number of worker threads, a semaphore limits the number of operations processed concurrently.
+ * An operation blocked on I/O or on a lock therefore only holds a permit, and the platform threads carrying the
+ * virtual threads keep processing the other operations. Operations received while the concurrency limit is reached
+ * wait in a FIFO queue, whose capacity is limited like the one of the {@link TraditionalWorkQueue}.
+ * <p>
+ * Virtual threads are looked up by reflection since they require a Java 21 or later runtime. With an older runtime,
+ * the operations are processed by a pool of platform threads growing up to the concurrency limit.
+ */
+public class VirtualThreadWorkQueue
+       extends WorkQueue<VirtualThreadWorkQueueCfg>
+       implements ConfigurationChangeListener<VirtualThreadWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The name prefix of the threads processing operations. */
+  private static final String THREAD_NAME_PREFIX = "Worker Thread";
+
+  /** The operations which have been submitted but not started yet. */
+  private final ConcurrentLinkedQueue<Operation> pendingOperations = new ConcurrentLinkedQueue<>();
+
+  /** The operations currently being processed. */
+  private final Set<Operation> operationsInProgress =
+      Collections.newSetFromMap(new ConcurrentHashMap<Operation, Boolean>());
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /** The number of operations that have been rejected because the queue was full. */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** Limits the number of pending operations. */
+  private ResizableSemaphore capacity;
+
+  /** Limits the number of operations processed concurrently. */
+  private ResizableSemaphore concurrency;
+
+  /** Starts the threads processing the operations. */
+  private Executor executor;
+
+  /** The pool of platform threads processing the operations, or {@code null} if virtual threads are used. */
+  private ExecutorService platformThreadPool;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /**
+   * Creates a new instance of this work queue.  All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public VirtualThreadWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(VirtualThreadWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    // Register to be notified of any configuration changes.
+    configuration.addVirtualThreadChangeListener(this);
+
+    capacity = new ResizableSemaphore(configuration.getMaxWorkQueueCapacity());
+    concurrency = new ResizableSemaphore(configuration.getMaxConcurrentOperations());
+
+    final ThreadFactory virtualThreadFactory = newVirtualThreadFactory(THREAD_NAME_PREFIX);
+    if (virtualThreadFactory != null)
+    {
+      executor = new Executor()
+      {
+        @Override
+        public void execute(Runnable command)
+        {
+          virtualThreadFactory.newThread(command).start();
+        }
+      };
+    }
+    else
+    {
+      logger.warn(WARN_CONFIG_WORK_QUEUE_VIRTUAL_THREADS_UNAVAILABLE, configuration.getMaxConcurrentOperations());
+      // The concurrency semaphore bounds the number of threads of the pool
+      platformThreadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), new DirectoryThread.Factory(THREAD_NAME_PREFIX));
+      executor = platformThreadPool;
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      VirtualThreadWorkQueueMonitor monitor = new VirtualThreadWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, VirtualThreadWorkQueueMonitor.class, e);
+    }
+  }
+
+  /**
+   * Returns a factory of virtual threads, or {@code null} if the Java runtime does not support them.
+   *
+   * @param threadNamePrefix
+   *          the name prefix of the created threads
+   * @return a factory of virtual threads, or {@code null} if the Java runtime does not support them
+   */
+  static ThreadFactory newVirtualThreadFactory(String threadNamePrefix)
+  {
+    try
+    {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix + " ", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+    catch (ReflectiveOperationException | RuntimeException e)
+    {
+      // Older runtime, or virtual threads are a disabled preview feature
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    Operation o;
+    while ((o = pendingOperations.poll()) != null)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Ask the operations in progress to stop as soon as possible.
+    CancelRequest shutdownRequest = new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get());
+    for (Operation operation : operationsInProgress)
+    {
+      try
+      {
+        operation.abort(shutdownRequest);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+      }
+    }
+
+    if (platformThreadPool != null)
+    {
+      platformThreadPool.shutdown();
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return  <CODE>true</CODE> if the work queue has recieved a request to shut
+   *          down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    return submitOperation(operation, false);
+  }
+
+  private boolean submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+
+    if (!capacity.tryAcquire())
+    {
+      if (!blockEnqueuingWhenFull)
+      {
+        queueFullRejects.incrementAndGet();
+        return false;
+      }
+
+      try
+      {
+        while (!capacity.tryAcquire(1, TimeUnit.SECONDS))
+        {
+          if (shutdownRequested)
+          {
+            throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+          }
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // We cannot handle the interruption here. Reject the request and
+        // re-interrupt this thread.
+        Thread.currentThread().interrupt();
+
+        queueFullRejects.incrementAndGet();
+        throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+      }
+    }
+
+    pendingOperations.add(operation);
+    opsSubmitted.incrementAndGet();
+    startPendingOperations();
+    return true;
+  }
+
+  /**
+   * Starts pending operations as long as the concurrency limit allows it. This is called after an operation is
+   * submitted and after an operation completes, each caller checking the pending operations after having
+   * respectively added an operation and released a permit, so that no operation can be left pending while permits
+   * are available.
+   */
+  private void startPendingOperations()
+  {
+    while (!shutdownRequested && !pendingOperations.isEmpty() && concurrency.tryAcquire())
+    {
+      final Operation operation = pendingOperations.poll();
+      if (operation == null)
+      {
+        // Another thread started it
+        concurrency.release();
+        continue;
+      }
+      capacity.release();
+
+      operationsInProgress.add(operation);
+      try
+      {
+        executor.execute(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            process(operation);
+          }
+        });
+      }
+      catch (RejectedExecutionException e)
+      {
+        // The work queue is shutting down
+        logger.traceException(e);
+        operationsInProgress.remove(operation);
+        concurrency.release();
+      }
+    }
+  }
+
+  private void process(Operation operation)
+  {
+    try
+    {
+      operation.run();
+      operation.operationCompleted();
+    }
+    catch (Throwable t)
+    {
+      String threadName = Thread.currentThread().getName();
+      logger.traceException(t);
+      try
+      {
+        LocalizableMessage message =
+            ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+        logger.error(message);
+
+        operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+        operation.appendErrorMessage(message);
+        operation.getClientConnection().sendResponse(operation);
+        operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+      }
+      catch (Throwable t2)
+      {
+        logger.traceException(t2);
+      }
+    }
+    finally
+    {
+      operationsInProgress.remove(operation);
+      concurrency.release();
+      startPendingOperations();
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing.  Note that this method is not a
+   * constant-time operation and can be relatively inefficient, so it should be
+   * used sparingly.
+   *
+   * @return  The number of pending operations in the queue that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    return pendingOperations.size();
+  }
+
+  /**
+   * Returns the number of operations currently being processed.
+   *
+   * @return the number of operations currently being processed
+   */
+  public int getOperationsInProgress()
+  {
+    return operationsInProgress.size();
+  }
+
+  /**
+   * Indicates whether the operations are processed by virtual threads.
+   *
+   * @return {@code true} if the operations are processed by virtual threads, {@code false} if they are processed by
+   *         platform threads
+   */
+  public boolean isUsingVirtualThreads()
+  {
+    return platformThreadPool == null;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      VirtualThreadWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(VirtualThreadWorkQueueCfg configuration)
+  {
+    capacity.resize(configuration.getMaxWorkQueueCapacity());
+    concurrency.resize(configuration.getMaxConcurrentOperations());
+    startPendingOperations();
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return pendingOperations.isEmpty() && operationsInProgress.isEmpty();
+  }
+
+  /**
+   * Returns the maximum number of operations processed concurrently, which is also the maximum number of threads
+   * processing operations.
+   *
+   * @return the maximum number of operations processed concurrently
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return concurrency.getMaxPermits();
+  }
+}
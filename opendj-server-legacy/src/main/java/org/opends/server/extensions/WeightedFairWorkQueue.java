@@ -0,0 +1,918 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.meta.WeightedFairWorkQueueCfgDefn.SchedulingCriteria;
+import org.forgerock.opendj.server.config.server.WeightedFairWorkQueueCfg;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.api.ConnectionHandler;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.WeightedFairWorkQueueMonitor;
+import org.opends.server.types.AuthenticationInfo;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue sharing the worker threads between scheduling classes of operations in proportion to their weights.
+ * <p>
+ * Operations are classified by the bind DN, the client address or the connection handler of their client
+ * connection, or by their type. Each scheduling class has its own FIFO queue, and worker threads pick up operations
+ * using start-time fair queueing: each class has a virtual time which advances by the cost of each operation it
+ * dispatches divided by its weight, and the backlogged class with the smallest virtual time is served first. The
+ * cost of an operation is the moving average of the service time of the recent operations of its class, so that a
+ * class sending expensive operations is served less often than one sending cheap operations.
+ * <p>
+ * A class which becomes backlogged again starts at the virtual time of the last dispatched operation, so that it
+ * cannot claim the share it did not use while idle.
+ */
+public class WeightedFairWorkQueue
+       extends WorkQueue<WeightedFairWorkQueueCfg>
+       implements ConfigurationChangeListener<WeightedFairWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /**
+   * The maximum number of times to retry getting the next operation from the
+   * queue if an unexpected failure occurs.
+   */
+  private static final int MAX_RETRY_COUNT = 5;
+
+  /**
+   * The number of scheduling classes above which the classes without queued operations are forgotten when a new
+   * class is created. This bounds the memory used when classifying by client address or by bind DN.
+   */
+  private static final int MAX_IDLE_SCHEDULING_CLASSES = 1000;
+
+  /** The scale applied to virtual times, so that dividing costs by large weights keeps some precision. */
+  private static final long VIRTUAL_TIME_SCALE = 1000;
+
+  /** The number of buckets of the latency histograms, whose bucket i counts durations in [2^(i-1), 2^i) us. */
+  private static final int HISTOGRAM_BUCKETS = 40;
+
+  /** An operation waiting in the queue of its scheduling class. */
+  static final class QueuedOperation
+  {
+    private final Operation operation;
+    private final SchedulingClass schedulingClass;
+    private final long submissionTime = System.nanoTime();
+
+    private QueuedOperation(Operation operation, SchedulingClass schedulingClass)
+    {
+      this.operation = operation;
+      this.schedulingClass = schedulingClass;
+    }
+
+    Operation getOperation()
+    {
+      return operation;
+    }
+  }
+
+  /** A scheduling class, along with its queue of pending operations and its statistics. */
+  public static final class SchedulingClass implements Comparable<SchedulingClass>
+  {
+    private final Object key;
+    private final long sequenceNumber;
+    private final ArrayDeque<QueuedOperation> pendingOperations = new ArrayDeque<>();
+    /** The weight of this class, updated with the queue lock held. */
+    private volatile int weight;
+    /** The virtual start time of the next operation of this class, guarded by the queue lock. */
+    private long virtualTime;
+    /** The moving average of the service time of the operations of this class, in microseconds. */
+    private final AtomicLong estimatedCost = new AtomicLong();
+    private final AtomicLong opsSubmitted = new AtomicLong();
+    private final AtomicLong opsRejected = new AtomicLong();
+    private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final AtomicLongArray serviceTimeHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private SchedulingClass(Object key, long sequenceNumber, int weight)
+    {
+      this.key = key;
+      this.sequenceNumber = sequenceNumber;
+      this.weight = weight;
+    }
+
+    @Override
+    public int compareTo(SchedulingClass o)
+    {
+      int cmp = Long.compare(virtualTime, o.virtualTime);
+      return cmp != 0 ? cmp : Long.compare(sequenceNumber, o.sequenceNumber);
+    }
+
+    /**
+     * Returns the value of the scheduling criteria identifying this class.
+     *
+     * @return the value of the scheduling criteria identifying this class
+     */
+    public String getName()
+    {
+      return key.toString();
+    }
+
+    /**
+     * Returns the weight of this class.
+     *
+     * @return the weight of this class
+     */
+    public int getWeight()
+    {
+      return weight;
+    }
+
+    /**
+     * Returns the estimated service time of the operations of this class, in microseconds.
+     *
+     * @return the estimated service time of the operations of this class, in microseconds
+     */
+    public long getEstimatedCost()
+    {
+      return estimatedCost.get();
+    }
+
+    /**
+     * Returns the number of operations of this class submitted to the work queue.
+     *
+     * @return the number of operations of this class submitted to the work queue
+     */
+    public long getOpsSubmitted()
+    {
+      return opsSubmitted.get();
+    }
+
+    /**
+     * Returns the number of operations of this class rejected because its queue was full.
+     *
+     * @return the number of operations of this class rejected because its queue was full
+     */
+    public long getOpsRejected()
+    {
+      return opsRejected.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the time spent by the operations of this class waiting in
+     * the queue, in microseconds.
+     *
+     * @param percentile
+     *          the percentile, between 0 and 1
+     * @return an upper bound of the percentile of the wait time, or 0 if no operation has been dequeued
+     */
+    public long getWaitTimePercentile(double percentile)
+    {
+      return percentile(waitTimeHistogram, percentile);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the time spent by worker threads processing the operations
+     * of this class, in microseconds.
+     *
+     * @param percentile
+     *          the percentile, between 0 and 1
+     * @return an upper bound of the percentile of the service time, or 0 if no operation has been processed
+     */
+    public long getServiceTimePercentile(double percentile)
+    {
+      return percentile(serviceTimeHistogram, percentile);
+    }
+
+    /** Charges the estimated cost of the operation being dequeued to the virtual time of this class. */
+    private void charge()
+    {
+      virtualTime += Math.max(estimatedCost.get(), 1) * VIRTUAL_TIME_SCALE / weight;
+    }
+
+    private void operationProcessed(long serviceTime)
+    {
+      record(serviceTimeHistogram, serviceTime);
+      // Exponentially weighted moving average with a 1/8 gain, the first sample initializing it
+      long cost;
+      long newCost;
+      do
+      {
+        cost = estimatedCost.get();
+        newCost = cost == 0 ? Math.max(serviceTime, 1) : cost + (serviceTime - cost) / 8;
+      }
+      while (!estimatedCost.compareAndSet(cost, newCost));
+    }
+  }
+
+  /** Lock guarding the scheduling classes, their queues and the worker threads. */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signaled when an operation is queued. */
+  private final Condition notEmpty = lock.newCondition();
+  /** Signaled when an operation is dequeued. */
+  private final Condition notFull = lock.newCondition();
+
+  /** The scheduling classes indexed by the value of the scheduling criteria. */
+  private final Map<Object, SchedulingClass> schedulingClasses = new HashMap<>();
+  /** The scheduling classes having queued operations, ordered by virtual time. */
+  private final PriorityQueue<SchedulingClass> backloggedClasses = new PriorityQueue<>();
+  /** The virtual start time of the last dispatched operation. */
+  private long systemVirtualTime;
+  /** The sequence number of the last created scheduling class. */
+  private long lastClassNumber;
+  /** The number of operations waiting in the queues of all the scheduling classes. */
+  private int queuedOperations;
+
+  /** The worker threads servicing this queue. */
+  private final List<WeightedFairWorkerThread> workerThreads = new ArrayList<>();
+  /** The number of worker threads that should be servicing this queue. */
+  private int numWorkerThreads;
+  /** The number of operations being processed by the worker threads. */
+  private final AtomicInteger operationsInProgress = new AtomicInteger();
+
+  /** The configuration, guarded by the lock. */
+  private int maxCapacity;
+  private int maxQueuedOperationsPerClass;
+  private SchedulingCriteria schedulingCriteria;
+  private int defaultWeight;
+  private Map<Object, Integer> weights;
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /** The number of operations that have been rejected because the queue was full. */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /**
+   * Creates a new instance of this work queue.  All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public WeightedFairWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(WeightedFairWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    List<LocalizableMessage> unacceptableReasons = new ArrayList<>();
+    Map<Object, Integer> configuredWeights = parseWeights(configuration, unacceptableReasons);
+    if (configuredWeights == null)
+    {
+      throw new ConfigException(unacceptableReasons.get(0));
+    }
+
+    // Register to be notified of any configuration changes.
+    configuration.addWeightedFairChangeListener(this);
+
+    lock.lock();
+    try
+    {
+      applyConfiguration(configuration, configuredWeights);
+      numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      startWorkerThreads();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      WeightedFairWorkQueueMonitor monitor = new WeightedFairWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, WeightedFairWorkQueueMonitor.class, e);
+    }
+  }
+
+  /** Starts worker threads until there are as many as configured. Must be called with the lock held. */
+  private void startWorkerThreads()
+  {
+    while (workerThreads.size() < numWorkerThreads)
+    {
+      WeightedFairWorkerThread t = new WeightedFairWorkerThread(this, lastThreadNumber++);
+      workerThreads.add(t);
+      t.start();
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    List<QueuedOperation> pendingOperations = new ArrayList<>();
+    List<WeightedFairWorkerThread> threads;
+    lock.lock();
+    try
+    {
+      shutdownRequested = true;
+      for (SchedulingClass schedulingClass : backloggedClasses)
+      {
+        pendingOperations.addAll(schedulingClass.pendingOperations);
+        schedulingClass.pendingOperations.clear();
+      }
+      backloggedClasses.clear();
+      queuedOperations = 0;
+      threads = new ArrayList<>(workerThreads);
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // Send responses to any operations in the pending queues to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (QueuedOperation queuedOperation : pendingOperations)
+    {
+      Operation o = queuedOperation.operation;
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Notify all the worker threads of the shutdown.
+    for (WeightedFairWorkerThread t : threads)
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return  <CODE>true</CODE> if the work queue has recieved a request to shut
+   *          down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Operations of a scheduling class whose queue is full are rejected with an exception rather than returned to the
+   * caller for processing on its own thread, which would bypass the scheduling.
+   */
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    return submitOperation(operation, false);
+  }
+
+  private boolean submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    lock.lock();
+    try
+    {
+      if (shutdownRequested)
+      {
+        throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+      }
+      // The scheduling criteria is guarded by the lock
+      Object key = getSchedulingClassKey(operation);
+
+      SchedulingClass schedulingClass;
+      while (true)
+      {
+        // The class may have been forgotten while waiting for capacity
+        schedulingClass = getSchedulingClass(key);
+        if (schedulingClass.pendingOperations.size() >= maxQueuedOperationsPerClass)
+        {
+          schedulingClass.opsRejected.incrementAndGet();
+          queueFullRejects.incrementAndGet();
+          throw new DirectoryException(ResultCode.BUSY,
+              WARN_OP_REJECTED_BY_CLASS_QUEUE_FULL.get(schedulingClass.getName(), maxQueuedOperationsPerClass));
+        }
+        if (queuedOperations < maxCapacity)
+        {
+          break;
+        }
+        if (!blockEnqueuingWhenFull)
+        {
+          queueFullRejects.incrementAndGet();
+          return false;
+        }
+        awaitCapacity();
+      }
+
+      if (schedulingClass.pendingOperations.isEmpty())
+      {
+        schedulingClass.virtualTime = Math.max(schedulingClass.virtualTime, systemVirtualTime);
+        backloggedClasses.add(schedulingClass);
+      }
+      schedulingClass.pendingOperations.add(new QueuedOperation(operation, schedulingClass));
+      queuedOperations++;
+      schedulingClass.opsSubmitted.incrementAndGet();
+      opsSubmitted.incrementAndGet();
+      notEmpty.signal();
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /** Waits until an operation is dequeued. Must be called with the lock held. */
+  private void awaitCapacity() throws DirectoryException
+  {
+    try
+    {
+      notFull.await(1, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      // We cannot handle the interruption here. Reject the request and
+      // re-interrupt this thread.
+      Thread.currentThread().interrupt();
+
+      queueFullRejects.incrementAndGet();
+      throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+    }
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+  }
+
+  /** Returns the value of the scheduling criteria for the provided operation. Must be called with the lock held. */
+  private Object getSchedulingClassKey(Operation operation)
+  {
+    ClientConnection clientConnection = operation.getClientConnection();
+    switch (schedulingCriteria)
+    {
+    case BIND_DN:
+      AuthenticationInfo authInfo = clientConnection != null ? clientConnection.getAuthenticationInfo() : null;
+      DN bindDN = authInfo != null ? authInfo.getAuthenticationDN() : null;
+      return bindDN != null ? bindDN : DN.rootDN();
+    case CLIENT_ADDRESS:
+      String clientAddress = clientConnection != null ? clientConnection.getClientAddress() : null;
+      return clientAddress != null ? toLowerCase(clientAddress) : "";
+    case CONNECTION_HANDLER:
+      ConnectionHandler<?> handler = clientConnection != null ? clientConnection.getConnectionHandler() : null;
+      return handler != null ? toLowerCase(handler.getConnectionHandlerName()) : "";
+    default:
+      return toLowerCase(operation.getOperationType().getOperationName());
+    }
+  }
+
+  /** Returns the scheduling class for the provided key, creating it if needed. Must be called with the lock held. */
+  private SchedulingClass getSchedulingClass(Object key)
+  {
+    SchedulingClass schedulingClass = schedulingClasses.get(key);
+    if (schedulingClass == null)
+    {
+      if (schedulingClasses.size() >= MAX_IDLE_SCHEDULING_CLASSES)
+      {
+        forgetIdleSchedulingClasses();
+      }
+      Integer weight = weights.get(key);
+      schedulingClass = new SchedulingClass(key, lastClassNumber++, weight != null ? weight : defaultWeight);
+      schedulingClasses.put(key, schedulingClass);
+    }
+    return schedulingClass;
+  }
+
+  /**
+   * Forgets the scheduling classes without queued operations. Their statistics are lost, and they restart from the
+   * current virtual time when they become backlogged again, which is what they would do anyway.
+   */
+  private void forgetIdleSchedulingClasses()
+  {
+    for (Iterator<SchedulingClass> it = schedulingClasses.values().iterator(); it.hasNext();)
+    {
+      if (it.next().pendingOperations.isEmpty())
+      {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives.  This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param  workerThread  The worker thread that is requesting the operation.
+   *
+   * @return  The next operation that should be processed, or <CODE>null</CODE>
+   *          if the server is shutting down and no more operations will be
+   *          processed.
+   */
+  QueuedOperation nextOperation(WeightedFairWorkerThread workerThread)
+  {
+    return retryNextOperation(workerThread, 0);
+  }
+
+  private QueuedOperation retryNextOperation(WeightedFairWorkerThread workerThread, int numFailures)
+  {
+    if (numFailures > MAX_RETRY_COUNT)
+    {
+      logger.error(ERR_CONFIG_WORK_QUEUE_TOO_MANY_FAILURES, Thread.currentThread().getName(), numFailures,
+          MAX_RETRY_COUNT);
+      return null;
+    }
+
+    lock.lock();
+    try
+    {
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          return null;
+        }
+        if (workerThreads.size() > numWorkerThreads)
+        {
+          workerThreads.remove(workerThread);
+          workerThread.setStoppedByReducedThreadNumber();
+          return null;
+        }
+
+        SchedulingClass schedulingClass = backloggedClasses.poll();
+        if (schedulingClass != null)
+        {
+          return dequeue(schedulingClass);
+        }
+        notEmpty.await(5, TimeUnit.SECONDS);
+      }
+    }
+    catch (InterruptedException ie)
+    {
+      // If this occurs, then the worker thread must have been interrupted for
+      // some reason. This could be because the Directory Server is shutting
+      // down, in which case we should return null.
+      if (shutdownRequested)
+      {
+        return null;
+      }
+
+      // If we've gotten here, then the worker thread was interrupted for some
+      // other reason. This should not happen, and we need to log a message.
+      logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, Thread.currentThread().getName(), ie);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // This should not happen. The only recourse we have is to log a message
+      // and try again.
+      logger.warn(WARN_WORKER_WAITING_UNCAUGHT_EXCEPTION, Thread.currentThread().getName(), e);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // An exception has occurred - retry.
+    return retryNextOperation(workerThread, numFailures + 1);
+  }
+
+  /**
+   * Dequeues the oldest operation of the provided class, which has just been removed from the backlogged classes,
+   * and charges its estimated cost to the class. Must be called with the lock held.
+   */
+  private QueuedOperation dequeue(SchedulingClass schedulingClass)
+  {
+    QueuedOperation queuedOperation = schedulingClass.pendingOperations.poll();
+    systemVirtualTime = schedulingClass.virtualTime;
+    schedulingClass.charge();
+    if (!schedulingClass.pendingOperations.isEmpty())
+    {
+      backloggedClasses.add(schedulingClass);
+    }
+    queuedOperations--;
+    operationsInProgress.incrementAndGet();
+    notFull.signal();
+
+    record(schedulingClass.waitTimeHistogram,
+        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedOperation.submissionTime));
+    return queuedOperation;
+  }
+
+  /**
+   * Records the time spent by a worker thread processing an operation, which updates the estimated cost of the next
+   * operations of its class.
+   *
+   * @param queuedOperation
+   *          the operation that has been processed
+   * @param serviceTime
+   *          the processing time in nanoseconds
+   */
+  void operationProcessed(QueuedOperation queuedOperation, long serviceTime)
+  {
+    queuedOperation.schedulingClass.operationProcessed(TimeUnit.NANOSECONDS.toMicros(serviceTime));
+    operationsInProgress.decrementAndGet();
+  }
+
+  private static void record(AtomicLongArray histogram, long micros)
+  {
+    histogram.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKETS - 1));
+  }
+
+  private static long percentile(AtomicLongArray histogram, double percentile)
+  {
+    long[] counts = new long[histogram.length()];
+    long total = 0;
+    for (int i = 0; i < counts.length; i++)
+    {
+      counts[i] = histogram.get(i);
+      total += counts[i];
+    }
+    long rank = Math.max((long) Math.ceil(percentile * total), 1);
+    long cumulated = 0;
+    for (int i = 0; i < counts.length; i++)
+    {
+      cumulated += counts[i];
+      if (cumulated >= rank)
+      {
+        return i == 0 ? 0 : 1L << i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue or the queue of their scheduling class was already at its
+   * maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queues of all the
+   * scheduling classes.
+   *
+   * @return  The number of pending operations in the queue that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    lock.lock();
+    try
+    {
+      return queuedOperations;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of operations waiting in the queue of the provided scheduling class.
+   *
+   * @param schedulingClass
+   *          the scheduling class
+   * @return the number of operations waiting in the queue of the scheduling class
+   */
+  public int size(SchedulingClass schedulingClass)
+  {
+    lock.lock();
+    try
+    {
+      return schedulingClass.pendingOperations.size();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the scheduling classes known by this work queue. Classes without queued operations may be forgotten.
+   *
+   * @return the scheduling classes known by this work queue
+   */
+  public List<SchedulingClass> getSchedulingClasses()
+  {
+    lock.lock();
+    try
+    {
+      return new ArrayList<>(schedulingClasses.values());
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of operations being processed by the worker threads.
+   *
+   * @return the number of operations being processed by the worker threads
+   */
+  public int getOperationsInProgress()
+  {
+    return operationsInProgress.get();
+  }
+
+  /**
+   * Parses the scheduling class weights of the provided configuration.
+   *
+   * @return the weights indexed by the value of the scheduling criteria, or {@code null} if a weight is invalid
+   */
+  private static Map<Object, Integer> parseWeights(
+      WeightedFairWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    SchedulingCriteria criteria = configuration.getSchedulingCriteria();
+    Map<Object, Integer> weights = new HashMap<>();
+    for (String value : configuration.getSchedulingClassWeight())
+    {
+      int colon = value.indexOf(':');
+      try
+      {
+        int weight = colon > 0 ? Integer.parseInt(value.substring(0, colon).trim()) : 0;
+        if (weight <= 0)
+        {
+          unacceptableReasons.add(ERR_CONFIG_WORK_QUEUE_INVALID_SCHEDULING_CLASS_WEIGHT.get(value, criteria));
+          return null;
+        }
+        String schedulingClass = value.substring(colon + 1).trim();
+        weights.put(criteria == SchedulingCriteria.BIND_DN ? DN.valueOf(schedulingClass)
+                                                           : toLowerCase(schedulingClass), weight);
+      }
+      catch (NumberFormatException | LocalizedIllegalArgumentException e)
+      {
+        unacceptableReasons.add(ERR_CONFIG_WORK_QUEUE_INVALID_SCHEDULING_CLASS_WEIGHT.get(value, criteria));
+        return null;
+      }
+    }
+    return weights;
+  }
+
+  /** Applies the scheduling configuration. Must be called with the lock held. */
+  private void applyConfiguration(WeightedFairWorkQueueCfg configuration, Map<Object, Integer> configuredWeights)
+  {
+    if (schedulingCriteria != configuration.getSchedulingCriteria())
+    {
+      // Backlogged classes of the previous criteria are still served until their queue is empty
+      schedulingClasses.clear();
+      schedulingCriteria = configuration.getSchedulingCriteria();
+    }
+    maxCapacity = configuration.getMaxWorkQueueCapacity();
+    maxQueuedOperationsPerClass = configuration.getMaxQueuedOperationsPerClass();
+    defaultWeight = configuration.getDefaultSchedulingClassWeight();
+    weights = configuredWeights;
+    for (SchedulingClass schedulingClass : schedulingClasses.values())
+    {
+      Integer weight = weights.get(schedulingClass.key);
+      schedulingClass.weight = weight != null ? weight : defaultWeight;
+    }
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      WeightedFairWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return parseWeights(configuration, unacceptableReasons) != null;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(WeightedFairWorkQueueCfg configuration)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    Map<Object, Integer> configuredWeights = parseWeights(configuration, ccr.getMessages());
+    if (configuredWeights == null)
+    {
+      ccr.setResultCode(ResultCode.CONSTRAINT_VIOLATION);
+      return ccr;
+    }
+
+    int newNumThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+    lock.lock();
+    try
+    {
+      applyConfiguration(configuration, configuredWeights);
+      numWorkerThreads = newNumThreads;
+      // Excess worker threads stop the next time they look for work
+      startWorkerThreads();
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+    return ccr;
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    return size() == 0 && operationsInProgress.get() == 0;
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    lock.lock();
+    try
+    {
+      return numWorkerThreads;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,624 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.WorkStealingWorkQueueCfg;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.WorkStealingWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue where each worker thread has its own deque of pending operations.
+ * <p>
+ * The operations of a client connection are always submitted to the deque of the same worker thread, so that they
+ * are processed by a thread whose CPU caches are likely to still hold the data of the connection. A worker thread
+ * processes the operations of its own deque first, then steals operations from the deques of the other worker
+ * threads, and only waits for work once all the deques are empty. Unlike {@link TraditionalWorkQueue}, submitting
+ * and picking up operations never acquires a lock shared by all the threads.
+ */
+public class WorkStealingWorkQueue
+       extends WorkQueue<WorkStealingWorkQueueCfg>
+       implements ConfigurationChangeListener<WorkStealingWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /**
+   * The maximum number of times to retry getting the next operation from the
+   * queue if an unexpected failure occurs.
+   */
+  private static final int MAX_RETRY_COUNT = 5;
+
+  /**
+   * The upper bounds, in microseconds, of the buckets of the wait time histogram. The last bucket of the histogram
+   * counts the operations which waited longer than the last bound.
+   */
+  private static final long[] WAIT_TIME_BUCKET_BOUNDS = { 100, 1000, 10000, 100000, 1000000 };
+
+  /** An operation waiting in the deque of a worker thread. */
+  static final class QueuedOperation
+  {
+    private final Operation operation;
+    private final long submissionTime = System.nanoTime();
+
+    private QueuedOperation(Operation operation)
+    {
+      this.operation = operation;
+    }
+  }
+
+  /** The worker threads servicing this queue, indexed by connection affinity. Replaced on configuration changes. */
+  private volatile WorkStealingWorkerThread[] workerThreads;
+
+  /** Lock serializing the changes to the set of worker threads and to the capacity. */
+  private final Object configLock = new Object();
+
+  /** The number of worker threads currently waiting for work. */
+  private final AtomicInteger idleWorkerThreads = new AtomicInteger();
+
+  /** Limits the number of operations waiting in the deques of all the worker threads. */
+  private ResizableSemaphore capacity;
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /** The number of operations that have been rejected because the queue was full. */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** The number of operations per bucket of {@link #WAIT_TIME_BUCKET_BOUNDS}. */
+  private final AtomicLongArray waitTimeHistogram = new AtomicLongArray(WAIT_TIME_BUCKET_BOUNDS.length + 1);
+
+  /** The total time in microseconds spent by operations waiting in the queue. */
+  private final AtomicLong totalWaitTime = new AtomicLong();
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /**
+   * Creates a new instance of this work queue.  All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public WorkStealingWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(WorkStealingWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    // Register to be notified of any configuration changes.
+    configuration.addWorkStealingChangeListener(this);
+
+    synchronized (configLock)
+    {
+      capacity = new ResizableSemaphore(configuration.getMaxWorkQueueCapacity());
+
+      int numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      WorkStealingWorkerThread[] threads = new WorkStealingWorkerThread[numWorkerThreads];
+      for (int i = 0; i < numWorkerThreads; i++)
+      {
+        threads[i] = new WorkStealingWorkerThread(this, lastThreadNumber++);
+      }
+      workerThreads = threads;
+      for (WorkStealingWorkerThread t : threads)
+      {
+        t.start();
+      }
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      WorkStealingWorkQueueMonitor monitor = new WorkStealingWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, WorkStealingWorkQueueMonitor.class, e);
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // Send responses to any operations in the pending queues to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    WorkStealingWorkerThread[] threads = workerThreads;
+    for (WorkStealingWorkerThread t : threads)
+    {
+      QueuedOperation queuedOperation;
+      while ((queuedOperation = t.pollPendingOperation()) != null)
+      {
+        Operation o = queuedOperation.operation;
+        try
+        {
+          // The operation has no chance of responding to the cancel
+          // request so avoid waiting for a cancel response.
+          if (o.getCancelResult() == null)
+          {
+            o.abort(cancelRequest);
+          }
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+          logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+        }
+      }
+    }
+
+    // Notify all the worker threads of the shutdown.
+    for (WorkStealingWorkerThread t : threads)
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return  <CODE>true</CODE> if the work queue has recieved a request to shut
+   *          down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    return submitOperation(operation, false);
+  }
+
+  private boolean submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+
+    if (!capacity.tryAcquire())
+    {
+      if (!blockEnqueuingWhenFull)
+      {
+        queueFullRejects.incrementAndGet();
+        return false;
+      }
+
+      try
+      {
+        while (!capacity.tryAcquire(1, TimeUnit.SECONDS))
+        {
+          if (shutdownRequested)
+          {
+            throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+          }
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // We cannot handle the interruption here. Reject the request and
+        // re-interrupt this thread.
+        Thread.currentThread().interrupt();
+
+        queueFullRejects.incrementAndGet();
+        throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+      }
+    }
+
+    enqueue(new QueuedOperation(operation));
+    opsSubmitted.incrementAndGet();
+    return true;
+  }
+
+  /** Adds the operation to the deque of the worker thread having the affinity with its connection. */
+  private void enqueue(QueuedOperation queuedOperation)
+  {
+    for (;;)
+    {
+      WorkStealingWorkerThread[] threads = workerThreads;
+      WorkStealingWorkerThread thread =
+          threads[(int) Math.floorMod(queuedOperation.operation.getConnectionID(), (long) threads.length)];
+      thread.addPendingOperation(queuedOperation);
+      if (!thread.isRetired() || !thread.removePendingOperation(queuedOperation))
+      {
+        wakeUpWorkerThread(thread);
+        return;
+      }
+      // The thread has been retired concurrently and may have exited before seeing the operation: submit it again
+    }
+  }
+
+  /**
+   * Wakes up the worker thread owning the deque where an operation has just been added if it is idle, or any other
+   * idle worker thread which will then steal the operation.
+   */
+  private void wakeUpWorkerThread(WorkStealingWorkerThread owner)
+  {
+    if (wakeUpIfIdle(owner) || idleWorkerThreads.get() == 0)
+    {
+      return;
+    }
+    for (WorkStealingWorkerThread t : workerThreads)
+    {
+      if (wakeUpIfIdle(t))
+      {
+        return;
+      }
+    }
+  }
+
+  private boolean wakeUpIfIdle(WorkStealingWorkerThread thread)
+  {
+    if (thread.clearIdle())
+    {
+      idleWorkerThreads.decrementAndGet();
+      thread.wakeUp();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives.  This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param  workerThread  The worker thread that is requesting the operation.
+   *
+   * @return  The next operation that should be processed, or <CODE>null</CODE>
+   *          if the server is shutting down and no more operations will be
+   *          processed.
+   */
+  public Operation nextOperation(WorkStealingWorkerThread workerThread)
+  {
+    return retryNextOperation(workerThread, 0);
+  }
+
+  private Operation retryNextOperation(WorkStealingWorkerThread workerThread, int numFailures)
+  {
+    if (shutdownRequested)
+    {
+      return null;
+    }
+    if (numFailures > MAX_RETRY_COUNT)
+    {
+      logger.error(ERR_CONFIG_WORK_QUEUE_TOO_MANY_FAILURES, Thread.currentThread().getName(), numFailures,
+          MAX_RETRY_COUNT);
+      return null;
+    }
+
+    try
+    {
+      while (true)
+      {
+        QueuedOperation queuedOperation = pollOrSteal(workerThread);
+        if (queuedOperation != null)
+        {
+          return dequeued(queuedOperation);
+        }
+        if (workerThread.isRetired())
+        {
+          workerThread.setStoppedByReducedThreadNumber();
+          return null;
+        }
+
+        // Check the deques again once idle, so that a submitting thread either
+        // sees this thread idle, or has added its operation before this check.
+        if (workerThread.setIdle())
+        {
+          idleWorkerThreads.incrementAndGet();
+        }
+        queuedOperation = pollOrSteal(workerThread);
+        if (queuedOperation == null)
+        {
+          workerThread.waitForWork(5, TimeUnit.SECONDS);
+        }
+        if (workerThread.clearIdle())
+        {
+          idleWorkerThreads.decrementAndGet();
+        }
+        if (queuedOperation != null)
+        {
+          return dequeued(queuedOperation);
+        }
+
+        if (shutdownRequested)
+        {
+          return null;
+        }
+      }
+    }
+    catch (InterruptedException ie)
+    {
+      // If this occurs, then the worker thread must have been interrupted for
+      // some reason. This could be because the Directory Server is shutting
+      // down, in which case we should return null.
+      if (shutdownRequested)
+      {
+        return null;
+      }
+
+      // If we've gotten here, then the worker thread was interrupted for some
+      // other reason. This should not happen, and we need to log a message.
+      logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, Thread.currentThread().getName(), ie);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+
+      // This should not happen. The only recourse we have is to log a message
+      // and try again.
+      logger.warn(WARN_WORKER_WAITING_UNCAUGHT_EXCEPTION, Thread.currentThread().getName(), e);
+    }
+    finally
+    {
+      if (workerThread.clearIdle())
+      {
+        idleWorkerThreads.decrementAndGet();
+      }
+    }
+
+    // An exception has occurred - retry.
+    return retryNextOperation(workerThread, numFailures + 1);
+  }
+
+  /**
+   * Returns the next operation of the deque of the provided worker thread, or an operation stolen from the deque of
+   * another worker thread. A retired worker thread only processes the operations left in its own deque.
+   */
+  private QueuedOperation pollOrSteal(WorkStealingWorkerThread workerThread)
+  {
+    QueuedOperation queuedOperation = workerThread.pollPendingOperation();
+    if (queuedOperation != null || workerThread.isRetired())
+    {
+      return queuedOperation;
+    }
+
+    // Start from a random victim so that thieves do not all contend on the same deque
+    WorkStealingWorkerThread[] victims = workerThreads;
+    int start = ThreadLocalRandom.current().nextInt(victims.length);
+    for (int i = 0; i < victims.length; i++)
+    {
+      WorkStealingWorkerThread victim = victims[(start + i) % victims.length];
+      if (victim != workerThread)
+      {
+        queuedOperation = victim.stealPendingOperation(workerThread);
+        if (queuedOperation != null)
+        {
+          return queuedOperation;
+        }
+      }
+    }
+    return null;
+  }
+
+  private Operation dequeued(QueuedOperation queuedOperation)
+  {
+    capacity.release();
+
+    long waitTime = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedOperation.submissionTime);
+    totalWaitTime.addAndGet(waitTime);
+    int bucket = 0;
+    while (bucket < WAIT_TIME_BUCKET_BOUNDS.length && waitTime >= WAIT_TIME_BUCKET_BOUNDS[bucket])
+    {
+      bucket++;
+    }
+    waitTimeHistogram.incrementAndGet(bucket);
+    return queuedOperation.operation;
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the deques of all the worker
+   * threads. Note that this method is not a constant-time operation and can be
+   * relatively inefficient, so it should be used sparingly.
+   *
+   * @return  The number of pending operations in the queue that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    int size = 0;
+    for (WorkStealingWorkerThread t : workerThreads)
+    {
+      size += t.getQueueDepth();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the worker threads currently servicing this work queue.
+   *
+   * @return the worker threads currently servicing this work queue
+   */
+  public List<WorkStealingWorkerThread> getWorkerThreads()
+  {
+    return Arrays.asList(workerThreads.clone());
+  }
+
+  /**
+   * Returns the upper bounds, in microseconds, of the buckets of the wait time histogram.
+   *
+   * @return the upper bounds, in microseconds, of the buckets of the wait time histogram
+   */
+  public static long[] getWaitTimeBucketBounds()
+  {
+    return WAIT_TIME_BUCKET_BOUNDS.clone();
+  }
+
+  /**
+   * Returns the number of operations whose time spent waiting in the queue falls in each bucket of the wait time
+   * histogram. The returned array has one more element than {@link #getWaitTimeBucketBounds()}, which counts the
+   * operations that waited longer than the last bound.
+   *
+   * @return the number of operations in each bucket of the wait time histogram
+   */
+  public long[] getWaitTimeHistogram()
+  {
+    long[] histogram = new long[waitTimeHistogram.length()];
+    for (int i = 0; i < histogram.length; i++)
+    {
+      histogram[i] = waitTimeHistogram.get(i);
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns the total time in microseconds spent by operations waiting in the queue.
+   *
+   * @return the total time in microseconds spent by operations waiting in the queue
+   */
+  public long getTotalWaitTime()
+  {
+    return totalWaitTime.get();
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      WorkStealingWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(WorkStealingWorkQueueCfg configuration)
+  {
+    int newNumThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+    int newMaxCapacity = configuration.getMaxWorkQueueCapacity();
+
+    synchronized (configLock)
+    {
+      WorkStealingWorkerThread[] threads = workerThreads;
+      if (newNumThreads > threads.length)
+      {
+        WorkStealingWorkerThread[] newThreads = Arrays.copyOf(threads, newNumThreads);
+        for (int i = threads.length; i < newNumThreads; i++)
+        {
+          newThreads[i] = new WorkStealingWorkerThread(this, lastThreadNumber++);
+          newThreads[i].start();
+        }
+        workerThreads = newThreads;
+      }
+      else if (newNumThreads < threads.length)
+      {
+        // Connections are now assigned to the remaining threads, while
+        // the retired threads process the operations left in their deques.
+        workerThreads = Arrays.copyOf(threads, newNumThreads);
+        for (int i = newNumThreads; i < threads.length; i++)
+        {
+          threads[i].retire();
+        }
+      }
+
+      capacity.resize(newMaxCapacity);
+    }
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    for (WorkStealingWorkerThread t : workerThreads)
+    {
+      if (t.getQueueDepth() > 0 || t.isActive())
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return workerThreads.length;
+  }
+}
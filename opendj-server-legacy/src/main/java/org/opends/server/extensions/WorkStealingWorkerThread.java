@@ -0,0 +1,393 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.extensions.WorkStealingWorkQueue.QueuedOperation;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.Operation;
+
+/**
+ * A worker thread of the {@link WorkStealingWorkQueue}. Each worker thread owns a deque of pending operations: it
+ * processes them from the head of the deque, and idle worker threads steal operations from the head too, so that
+ * the oldest operations waiting behind a busy worker thread are the first ones to be taken over.
+ */
+public class WorkStealingWorkerThread
+       extends DirectoryThread
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The operations submitted to this worker thread which have not been picked up yet. */
+  private final ConcurrentLinkedDeque<QueuedOperation> pendingOperations = new ConcurrentLinkedDeque<>();
+
+  /** Indicates whether this thread is waiting for work and may be woken up to process a new operation. */
+  private final AtomicBoolean idle = new AtomicBoolean();
+
+  /** Used to wake up this thread while it is waiting for work. */
+  private final Semaphore wakeUp = new Semaphore(0);
+
+  /** The number of operations processed by this thread. */
+  private final AtomicLong operationsProcessed = new AtomicLong();
+
+  /** The number of operations this thread has stolen from the deques of other worker threads. */
+  private final AtomicLong operationsStolen = new AtomicLong();
+
+  /** The work queue that this worker thread will service. */
+  private final WorkStealingWorkQueue workQueue;
+
+  /**
+   * Indicates whether this thread has been removed from the work queue because the number of worker threads has
+   * been reduced. A retired thread processes the operations left in its deque, then exits.
+   */
+  private volatile boolean retired;
+
+  /**
+   * Indicates whether the Directory Server is shutting down and this thread
+   * should stop running.
+   */
+  private volatile boolean shutdownRequested;
+
+  /**
+   * Indicates whether this thread was stopped because the server threadnumber
+   * was reduced.
+   */
+  private boolean stoppedByReducedThreadNumber;
+
+  /** Indicates whether this thread is currently waiting for work. */
+  private volatile boolean waitingForWork;
+
+  /** The operation that this worker thread is currently processing. */
+  private volatile Operation operation;
+
+  /**
+   * Creates a new worker thread that will service the provided work queue and
+   * process any new requests that are submitted.
+   *
+   * @param  workQueue  The work queue with which this worker thread is
+   *                    associated.
+   * @param  threadID   The thread ID for this worker thread.
+   */
+  public WorkStealingWorkerThread(WorkStealingWorkQueue workQueue, int threadID)
+  {
+    super("Worker Thread " + threadID);
+    this.workQueue = workQueue;
+  }
+
+  void addPendingOperation(QueuedOperation queuedOperation)
+  {
+    pendingOperations.addLast(queuedOperation);
+  }
+
+  boolean removePendingOperation(QueuedOperation queuedOperation)
+  {
+    return pendingOperations.removeFirstOccurrence(queuedOperation);
+  }
+
+  /** Returns the oldest operation of this thread's deque, for processing by this thread. */
+  QueuedOperation pollPendingOperation()
+  {
+    return pendingOperations.pollFirst();
+  }
+
+  /**
+   * Returns the oldest operation of this thread's deque, for processing by another thread. The deque is lock-free,
+   * so taking operations from the same end as the owner thread does not make them contend on a lock, and operations
+   * are processed in the order they were submitted whichever thread picks them up.
+   */
+  QueuedOperation stealPendingOperation(WorkStealingWorkerThread thief)
+  {
+    final QueuedOperation queuedOperation = pendingOperations.pollFirst();
+    if (queuedOperation != null)
+    {
+      thief.operationsStolen.incrementAndGet();
+    }
+    return queuedOperation;
+  }
+
+  /**
+   * Returns the number of operations waiting in this thread's deque. This is not a constant-time operation.
+   *
+   * @return the number of operations waiting in this thread's deque
+   */
+  public int getQueueDepth()
+  {
+    return pendingOperations.size();
+  }
+
+  /**
+   * Returns the number of operations processed by this thread.
+   *
+   * @return the number of operations processed by this thread
+   */
+  public long getOperationsProcessed()
+  {
+    return operationsProcessed.get();
+  }
+
+  /**
+   * Returns the number of operations this thread has stolen from the deques of other worker threads.
+   *
+   * @return the number of operations this thread has stolen from the deques of other worker threads
+   */
+  public long getOperationsStolen()
+  {
+    return operationsStolen.get();
+  }
+
+  /** Marks this thread as idle. Returns {@code false} if it was already idle. */
+  boolean setIdle()
+  {
+    return idle.compareAndSet(false, true);
+  }
+
+  /**
+   * Marks this thread as no longer idle. Returns {@code true} if this call changed the state of the thread, which
+   * allows the submitting threads and this thread to agree on which one will wake it up.
+   */
+  boolean clearIdle()
+  {
+    return idle.compareAndSet(true, false);
+  }
+
+  /** Wakes up this thread if it is waiting for work. */
+  void wakeUp()
+  {
+    wakeUp.release();
+  }
+
+  /** Waits until this thread is woken up or until the timeout expires. */
+  void waitForWork(long timeout, TimeUnit unit) throws InterruptedException
+  {
+    wakeUp.tryAcquire(timeout, unit);
+    // Operations are looked up in all the deques after waking up, so that pending signals are useless
+    wakeUp.drainPermits();
+  }
+
+  /** Removes this thread from the work queue: it will exit once its deque is empty. */
+  void retire()
+  {
+    retired = true;
+    wakeUp();
+  }
+
+  boolean isRetired()
+  {
+    return retired;
+  }
+
+  /**
+   * Indicates that this thread is about to be stopped because the Directory
+   * Server configuration has been updated to reduce the number of worker
+   * threads.
+   */
+  public void setStoppedByReducedThreadNumber()
+  {
+    stoppedByReducedThreadNumber = true;
+  }
+
+  /**
+   * Indicates whether this worker thread is actively processing a request.
+   * Note that this is a point-in-time determination and if a reliable answer is
+   * expected then the server should impose some external constraint to ensure
+   * that no new requests are enqueued.
+   *
+   * @return  {@code true} if this worker thread is actively processing a
+   *          request, or {@code false} if it is idle.
+   */
+  public boolean isActive()
+  {
+    return isAlive() && operation != null;
+  }
+
+  /**
+   * Operates in a loop, retrieving the next request from the work queue,
+   * processing it, and then going back to the queue for more.
+   */
+  @Override
+  public void run()
+  {
+    while (!shutdownRequested)
+    {
+      try
+      {
+        waitingForWork = true;
+        operation = null;
+        operation = workQueue.nextOperation(this);
+        waitingForWork = false;
+
+        if (operation == null)
+        {
+          // The operation may be null if the server is shutting down.  If that
+          // is the case, then break out of the while loop.
+          break;
+        }
+
+        operation.run();
+        operation.operationCompleted();
+        operationsProcessed.incrementAndGet();
+      }
+      catch (Throwable t)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.trace(
+            "Uncaught exception in worker thread while processing " +
+                "operation %s: %s", operation, t);
+
+          logger.traceException(t);
+        }
+
+        try
+        {
+          LocalizableMessage message =
+              ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(getName(), operation, stackTraceToSingleLineString(t));
+          logger.error(message);
+
+          operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+          operation.appendErrorMessage(message);
+          operation.getClientConnection().sendResponse(operation);
+        }
+        catch (Throwable t2)
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.trace(
+              "Exception in worker thread while trying to log a " +
+                  "message about an uncaught exception %s: %s", t, t2);
+
+            logger.traceException(t2);
+          }
+        }
+
+        try
+        {
+          LocalizableMessage message = ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(
+              getName(), operation, stackTraceToSingleLineString(t));
+          operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+        }
+        catch (Throwable t2)
+        {
+          logger.traceException(t2);
+        }
+      }
+    }
+
+    // If we have gotten here, then we presume that the server thread is
+    // shutting down.  However, if that's not the case then that is a problem
+    // and we will want to log a message.
+    if (stoppedByReducedThreadNumber)
+    {
+      logger.debug(INFO_WORKER_STOPPED_BY_REDUCED_THREADNUMBER, getName());
+    }
+    else if (!workQueue.shutdownRequested())
+    {
+      logger.warn(WARN_UNEXPECTED_WORKER_THREAD_EXIT, getName());
+    }
+
+    if (logger.isTraceEnabled())
+    {
+      logger.trace(getName() + " exiting.");
+    }
+  }
+
+  /**
+   * Indicates that the Directory Server has received a request to stop running
+   * and that this thread should stop running as soon as possible.
+   */
+  public void shutDown()
+  {
+    if (logger.isTraceEnabled())
+    {
+      logger.trace(getName() + " being signaled to shut down.");
+    }
+
+    // Set a flag that indicates that the thread should stop running.
+    shutdownRequested = true;
+
+    // Check to see if the thread is waiting for work.  If so, then interrupt
+    // it.
+    final Operation currentOperation = operation;
+    if (waitingForWork || currentOperation == null)
+    {
+      try
+      {
+        interrupt();
+      }
+      catch (Exception e)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.trace(
+            "Caught an exception while trying to interrupt the worker " +
+                "thread waiting for work: %s", e);
+          logger.traceException(e);
+        }
+      }
+    }
+    else
+    {
+      try
+      {
+        CancelRequest cancelRequest =
+          new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get());
+        currentOperation.cancel(cancelRequest);
+      }
+      catch (Exception e)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.trace(
+            "Caught an exception while trying to abandon the " +
+                "operation in progress for the worker thread: %s", e);
+          logger.traceException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Retrieves any relevent debug information with which this tread is
+   * associated so they can be included in debug messages.
+   *
+   * @return debug information about this thread as a string.
+   */
+  @Override
+  public Map<String, String> getDebugProperties()
+  {
+    Map<String, String> properties = super.getDebugProperties();
+    final Operation currentOperation = operation;
+    if (currentOperation != null)
+    {
+      properties.put("clientConnection", currentOperation.getClientConnection().toString());
+      properties.put("operation", currentOperation.toString());
+    }
+    return properties;
+  }
+}
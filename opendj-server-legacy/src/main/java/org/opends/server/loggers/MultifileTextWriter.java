@@ -28,6 +28,8 @@ import java.io.OutputStreamWriter;
 import java.util.Calendar;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -87,6 +89,11 @@ class MultifileTextWriter
   private MeteredStream outputStream;
   /** The underlying buffered writer using the output stream. */
   private BufferedWriter writer;
+  /**
+   * Serializes writes and rotations. An explicit lock rather than a monitor, so that operations running on virtual
+   * threads do not pin their carrier thread while writing to the file.
+   */
+  private final Lock writeLock = new ReentrantLock();
 
   /**
    * Creates a new instance of MultiFileTextWriter with the supplied policies.
@@ -538,7 +545,8 @@ class MultifileTextWriter
       }
     }
 
-    synchronized(this)
+    writeLock.lock();
+    try
     {
       if(sizeLimit > 0 && outputStream.written + size + 1 >= sizeLimit)
       {
@@ -560,6 +568,10 @@ class MultifileTextWriter
         flush();
       }
     }
+    finally
+    {
+      writeLock.unlock();
+    }
   }
 
   @Override
@@ -580,7 +592,20 @@ class MultifileTextWriter
    * tries to rename the file. On failure, all subsequent log write requests
    * will throw exceptions.
    */
-  private synchronized void rotate()
+  private void rotate()
+  {
+    writeLock.lock();
+    try
+    {
+      rotate0();
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  private void rotate0()
   {
     try
     {
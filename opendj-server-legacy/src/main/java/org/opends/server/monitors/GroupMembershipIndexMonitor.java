@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.monitors;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.GroupMembershipIndex;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the index of group memberships maintained by the group manager:
+ * the size of the index, the sizes of the cached closures of group memberships and
+ * the time spent computing them.
+ */
+public class GroupMembershipIndexMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+{
+  /** The name to use for the monitor attribute that provides the number of indexed groups. */
+  public static final String ATTR_INDEXED_GROUPS = "indexedGroups";
+  /** The name to use for the monitor attribute that provides the number of indexed member DNs. */
+  public static final String ATTR_INDEXED_MEMBERS = "indexedMembers";
+  /** The name to use for the monitor attribute that provides the number of groups whose membership is computed. */
+  public static final String ATTR_COMPUTED_GROUPS = "computedGroups";
+  /** The name to use for the monitor attribute that provides the number of cached closures. */
+  public static final String ATTR_CACHED_CLOSURES = "cachedClosures";
+  /** The name to use for the monitor attribute that provides the average size of the cached closures. */
+  public static final String ATTR_AVERAGE_CLOSURE_SIZE = "averageClosureSize";
+  /** The name to use for the monitor attribute that provides the size of the largest cached closure. */
+  public static final String ATTR_MAX_CLOSURE_SIZE = "maxClosureSize";
+  /** The name to use for the monitor attribute that provides the number of closures computed. */
+  public static final String ATTR_CLOSURE_COMPUTATIONS = "closureComputations";
+  /** The name to use for the monitor attribute that provides the average time spent computing a closure. */
+  public static final String ATTR_AVERAGE_COMPUTE_TIME = "averageClosureComputeTimeMicros";
+  /** The name to use for the monitor attribute that provides the longest time spent computing a closure. */
+  public static final String ATTR_MAX_COMPUTE_TIME = "maxClosureComputeTimeMicros";
+
+  /** The membership index with which this monitor is associated. */
+  private final GroupMembershipIndex membershipIndex;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  membershipIndex  The membership index with which this monitor is associated.
+   */
+  public GroupMembershipIndexMonitor(GroupMembershipIndex membershipIndex)
+  {
+    this.membershipIndex = membershipIndex;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    // No initialization is required.
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Group Membership Index";
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    long[] closureSizes = membershipIndex.getCachedClosureSizes();
+
+    final MonitorData monitorAttrs = new MonitorData(9);
+    monitorAttrs.add(ATTR_INDEXED_GROUPS, membershipIndex.getIndexedGroupCount());
+    monitorAttrs.add(ATTR_INDEXED_MEMBERS, membershipIndex.getIndexedMemberCount());
+    monitorAttrs.add(ATTR_COMPUTED_GROUPS, membershipIndex.getComputedGroupCount());
+    monitorAttrs.add(ATTR_CACHED_CLOSURES, membershipIndex.getCachedClosureCount());
+    monitorAttrs.add(ATTR_AVERAGE_CLOSURE_SIZE, closureSizes[0]);
+    monitorAttrs.add(ATTR_MAX_CLOSURE_SIZE, closureSizes[1]);
+    monitorAttrs.add(ATTR_CLOSURE_COMPUTATIONS, membershipIndex.getClosureComputationCount());
+    monitorAttrs.add(ATTR_AVERAGE_COMPUTE_TIME, membershipIndex.getAverageClosureComputeTimeMicros());
+    monitorAttrs.add(ATTR_MAX_COMPUTE_TIME, membershipIndex.getMaxClosureComputeTimeMicros());
+    return monitorAttrs;
+  }
+}
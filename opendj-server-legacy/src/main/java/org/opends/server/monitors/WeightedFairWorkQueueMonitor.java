@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.monitors.TraditionalWorkQueueMonitor.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.WeightedFairWorkQueue;
+import org.opends.server.extensions.WeightedFairWorkQueue.SchedulingClass;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the weighted fair work queue.
+ * <p>
+ * It publishes the same backlog attributes as the {@link TraditionalWorkQueueMonitor}, along with the statistics of
+ * each scheduling class: its weight, backlog, estimated cost and the percentiles of the time spent by its operations
+ * waiting in the queue and being processed.
+ */
+public class WeightedFairWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The name to use for the monitor attribute that provides the number of operations being processed. */
+  public static final String ATTR_OPS_IN_PROGRESS = "requestsInProgress";
+  /** The name to use for the monitor attribute that provides the number of known scheduling classes. */
+  public static final String ATTR_SCHEDULING_CLASSES = "schedulingClasses";
+  /** The name to use for the monitor attribute that provides the statistics of each scheduling class. */
+  public static final String ATTR_SCHEDULING_CLASS_STATISTICS = "schedulingClassStatistics";
+
+  /** The percentiles published for each scheduling class. */
+  private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The weighted fair work queue instance with which this monitor is associated. */
+  private final WeightedFairWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public WeightedFairWorkQueueMonitor(WeightedFairWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Retrieves the name of this monitor provider.  It should be unique among all
+   * monitor providers, including all instances of the same monitor provider.
+   *
+   * @return  The name of this monitor provider.
+   */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public synchronized void run()
+  {
+    pollBacklog();
+  }
+
+  private int pollBacklog()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    return backlog;
+  }
+
+  @Override
+  public synchronized MonitorData getMonitorData()
+  {
+    int backlog = pollBacklog();
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+
+    List<SchedulingClass> schedulingClasses = workQueue.getSchedulingClasses();
+    List<String> classStatistics = new ArrayList<>(schedulingClasses.size());
+    for (SchedulingClass c : schedulingClasses)
+    {
+      StringBuilder sb = new StringBuilder();
+      sb.append("class:\"").append(c.getName()).append('"');
+      sb.append(" weight:").append(c.getWeight());
+      sb.append(" requestBacklog:").append(workQueue.size(c));
+      sb.append(" requestsSubmitted:").append(c.getOpsSubmitted());
+      sb.append(" requestsRejectedDueToQueueFull:").append(c.getOpsRejected());
+      sb.append(" estimatedCostMicros:").append(c.getEstimatedCost());
+      for (double p : PERCENTILES)
+      {
+        sb.append(" waitTimeMicrosP").append(toPercent(p)).append(':').append(c.getWaitTimePercentile(p));
+      }
+      for (double p : PERCENTILES)
+      {
+        sb.append(" serviceTimeMicrosP").append(toPercent(p)).append(':').append(c.getServiceTimePercentile(p));
+      }
+      classStatistics.add(sb.toString());
+    }
+
+    final MonitorData monitorAttrs = new MonitorData(8);
+    monitorAttrs.add(ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    monitorAttrs.add(ATTR_OPS_IN_PROGRESS, workQueue.getOperationsInProgress());
+    monitorAttrs.add(ATTR_SCHEDULING_CLASSES, schedulingClasses.size());
+    monitorAttrs.add(ATTR_SCHEDULING_CLASS_STATISTICS, classStatistics);
+    return monitorAttrs;
+  }
+
+  private static int toPercent(double percentile)
+  {
+    return (int) Math.round(percentile * 100);
+  }
+}
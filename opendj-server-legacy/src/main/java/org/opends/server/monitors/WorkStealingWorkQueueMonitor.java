@@ -0,0 +1,174 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.monitors.TraditionalWorkQueueMonitor.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.WorkStealingWorkQueue;
+import org.opends.server.extensions.WorkStealingWorkerThread;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the work stealing work queue.
+ * <p>
+ * It publishes the same backlog attributes as the {@link TraditionalWorkQueueMonitor}, along with the depth of the
+ * deque of each worker thread, the number of stolen operations and a histogram of the time spent by operations
+ * waiting in the queue.
+ */
+public class WorkStealingWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The name to use for the monitor attribute that provides the total number of stolen operations. */
+  public static final String ATTR_OPS_STOLEN = "requestsStolen";
+  /** The name to use for the monitor attribute that provides the largest depth of a worker thread deque. */
+  public static final String ATTR_MAX_WORKER_BACKLOG = "maxWorkerThreadRequestBacklog";
+  /** The name to use for the monitor attribute that provides the statistics of each worker thread. */
+  public static final String ATTR_WORKER_STATISTICS = "workerThreadStatistics";
+  /** The name to use for the monitor attribute that provides the average time spent waiting in the queue. */
+  public static final String ATTR_AVERAGE_WAIT_TIME = "averageRequestWaitTimeMicros";
+  /** The prefix of the names of the monitor attributes that provide the wait time histogram. */
+  public static final String ATTR_WAIT_TIME_PREFIX = "requestWaitTime";
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The work stealing work queue instance with which this monitor is associated. */
+  private final WorkStealingWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public WorkStealingWorkQueueMonitor(WorkStealingWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Retrieves the name of this monitor provider.  It should be unique among all
+   * monitor providers, including all instances of the same monitor provider.
+   *
+   * @return  The name of this monitor provider.
+   */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public synchronized void run()
+  {
+    pollBacklog();
+  }
+
+  private int pollBacklog()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    return backlog;
+  }
+
+  @Override
+  public synchronized MonitorData getMonitorData()
+  {
+    int backlog = pollBacklog();
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+
+    long opsStolen = 0;
+    int maxWorkerBacklog = 0;
+    List<String> workerStatistics = new ArrayList<>();
+    for (WorkStealingWorkerThread t : workQueue.getWorkerThreads())
+    {
+      int depth = t.getQueueDepth();
+      maxWorkerBacklog = Math.max(maxWorkerBacklog, depth);
+      opsStolen += t.getOperationsStolen();
+      workerStatistics.add(t.getName() + " requestBacklog:" + depth
+          + " requestsProcessed:" + t.getOperationsProcessed() + " requestsStolen:" + t.getOperationsStolen());
+    }
+
+    long[] bounds = WorkStealingWorkQueue.getWaitTimeBucketBounds();
+    long[] histogram = workQueue.getWaitTimeHistogram();
+    long dequeued = 0;
+    for (long count : histogram)
+    {
+      dequeued += count;
+    }
+
+    final MonitorData monitorAttrs = new MonitorData(10 + histogram.length);
+    monitorAttrs.add(ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    monitorAttrs.add(ATTR_OPS_STOLEN, opsStolen);
+    monitorAttrs.add(ATTR_MAX_WORKER_BACKLOG, maxWorkerBacklog);
+    monitorAttrs.add(ATTR_WORKER_STATISTICS, workerStatistics);
+    monitorAttrs.add(ATTR_AVERAGE_WAIT_TIME, dequeued > 0 ? workQueue.getTotalWaitTime() / dequeued : 0);
+    for (int i = 0; i < bounds.length; i++)
+    {
+      monitorAttrs.add(ATTR_WAIT_TIME_PREFIX + "LessThan" + toDuration(bounds[i]), histogram[i]);
+    }
+    monitorAttrs.add(ATTR_WAIT_TIME_PREFIX + "AtLeast" + toDuration(bounds[bounds.length - 1]),
+        histogram[bounds.length]);
+    return monitorAttrs;
+  }
+
+  /** Formats a duration in microseconds, e.g. 100us, 10ms or 1s. */
+  private static String toDuration(long micros)
+  {
+    if (micros >= 1000000 && micros % 1000000 == 0)
+    {
+      return micros / 1000000 + "s";
+    }
+    else if (micros >= 1000 && micros % 1000 == 0)
+    {
+      return micros / 1000 + "ms";
+    }
+    return micros + "us";
+  }
+}
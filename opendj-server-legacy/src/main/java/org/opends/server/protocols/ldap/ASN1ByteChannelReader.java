@@ -24,6 +24,7 @@ import java.nio.channels.ReadableByteChannel;
 
 import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.AbstractASN1Reader;
 import org.forgerock.opendj.ldap.ByteSequenceReader;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -61,9 +62,21 @@ import org.forgerock.opendj.ldap.DecodeException;
  * {@link IllegalBlockingModeException}s being thrown while reading
  * ASN.1 elements. Once an exception is thrown, the state of the reader
  * is no longer stable and can not be used again.
+ * <p>
+ * Complete elements can also be read at once with {@link #readElement()},
+ * which copies their bytes a single time and decodes their large octet
+ * strings without any further copy.
  */
 final class ASN1ByteChannelReader implements ASN1Reader
 {
+  /** The maximum length of the type and length bytes of an element. */
+  private static final int MAX_HEADER_LENGTH = 6;
+  /**
+   * The octet strings read with {@link #readElement()} which are shorter than
+   * this fraction of their element are copied rather than kept as views.
+   */
+  private static final int MAX_VIEW_RATIO = 4;
+
   /** The byte channel to read from. */
   private final ReadableByteChannel byteChannel;
 
@@ -331,6 +344,198 @@ final class ASN1ByteChannelReader implements ASN1Reader
     }
   }
 
+  /**
+   * Reads the next ASN.1 element and returns a reader for its content. This
+   * method should only be called when {@link #elementAvailable()} returns
+   * {@code true}.
+   * <p>
+   * The bytes of the element are copied once, out of the channel buffers and
+   * into an array sized for the element. The octet strings which make up at
+   * least a quarter of the element are read from the returned reader as views
+   * over this array rather than copies of it, so that decoding a request with
+   * large values, like the add of an entry with certificates or photos, does
+   * not allocate each value again.
+   * <p>
+   * A view retains the whole array for as long as it is referenced, including
+   * by the entries and caches that it ends up in. The other octet strings,
+   * like DNs, attribute descriptions or small values, are therefore copied,
+   * so that a value never retains more than four times its own length.
+   *
+   * @return An ASN.1 reader for the next element.
+   * @throws IOException
+   *           If an error occurs while trying to read the element.
+   */
+  public ASN1Reader readElement() throws IOException
+  {
+    final byte type = reader.peekType();
+    final int length = reader.peekLength();
+    // Rebuild the header which has already been consumed by the stream reader
+    final ByteStringBuilder element = new ByteStringBuilder(MAX_HEADER_LENGTH + length);
+    element.appendByte(type);
+    appendLength(element, length);
+    reader.readOctetString(element);
+    return new ElementReader(ASN1.getReader(ByteString.wrap(element.getBackingArray(), 0, element.length())),
+        element.length());
+  }
+
+  /**
+   * Reads an element copied by {@link #readElement()}, copying the octet
+   * strings which are too short to retain the whole element.
+   */
+  private static final class ElementReader extends AbstractASN1Reader
+  {
+    /** The reader of the element, which returns views over its array. */
+    private final ASN1Reader reader;
+    /** The length of the element, including its header. */
+    private final int elementLength;
+
+    private ElementReader(ASN1Reader reader, int elementLength)
+    {
+      this.reader = reader;
+      this.elementLength = elementLength;
+    }
+
+    @Override
+    public ByteString readOctetString() throws IOException
+    {
+      final ByteString value = reader.readOctetString();
+      if ((long) value.length() * MAX_VIEW_RATIO >= elementLength)
+      {
+        return value;
+      }
+      return ByteString.wrap(value.toByteArray());
+    }
+
+    @Override
+    public ByteStringBuilder readOctetString(ByteStringBuilder builder) throws IOException
+    {
+      return reader.readOctetString(builder);
+    }
+
+    @Override
+    public String readOctetStringAsString() throws IOException
+    {
+      return reader.readOctetStringAsString();
+    }
+
+    @Override
+    public boolean elementAvailable() throws IOException
+    {
+      return reader.elementAvailable();
+    }
+
+    @Override
+    public boolean hasNextElement() throws IOException
+    {
+      return reader.hasNextElement();
+    }
+
+    @Override
+    public int peekLength() throws IOException
+    {
+      return reader.peekLength();
+    }
+
+    @Override
+    public byte peekType() throws IOException
+    {
+      return reader.peekType();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException
+    {
+      return reader.readBoolean();
+    }
+
+    @Override
+    public void readEndExplicitTag() throws IOException
+    {
+      reader.readEndExplicitTag();
+    }
+
+    @Override
+    public void readEndSequence() throws IOException
+    {
+      reader.readEndSequence();
+    }
+
+    @Override
+    public void readEndSet() throws IOException
+    {
+      reader.readEndSet();
+    }
+
+    @Override
+    public int readEnumerated() throws IOException
+    {
+      return reader.readEnumerated();
+    }
+
+    @Override
+    public long readInteger() throws IOException
+    {
+      return reader.readInteger();
+    }
+
+    @Override
+    public void readNull() throws IOException
+    {
+      reader.readNull();
+    }
+
+    @Override
+    public void readStartExplicitTag() throws IOException
+    {
+      reader.readStartExplicitTag();
+    }
+
+    @Override
+    public void readStartSequence() throws IOException
+    {
+      reader.readStartSequence();
+    }
+
+    @Override
+    public void readStartSet() throws IOException
+    {
+      reader.readStartSet();
+    }
+
+    @Override
+    public ASN1Reader skipElement() throws IOException
+    {
+      reader.skipElement();
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      reader.close();
+    }
+  }
+
+  /** Appends the BER encoding of the provided length to the element. */
+  private static void appendLength(ByteStringBuilder element, int length)
+  {
+    if (length < 0x80)
+    {
+      element.appendByte(length);
+      return;
+    }
+    int numBytes = 1;
+    while (numBytes < 4 && (length >>> (numBytes * 8)) != 0)
+    {
+      numBytes++;
+    }
+    element.appendByte(0x80 | numBytes);
+    for (int i = numBytes - 1; i >= 0; i--)
+    {
+      element.appendByte(length >>> (i * 8));
+    }
+  }
+
   /**
    * Determines if a complete ASN.1 element is ready to be read from
    * channel.
@@ -441,7 +646,7 @@ final class ASN1ByteChannelReader implements ASN1Reader
 
   @Override
   public ByteString readOctetString(byte type) throws IOException {
-    return readOctetString(type);
+    return reader.readOctetString(type);
   }
 
   @Override
@@ -451,7 +656,7 @@ final class ASN1ByteChannelReader implements ASN1Reader
 
   @Override
   public ByteStringBuilder readOctetString(byte type, ByteStringBuilder builder) throws IOException {
-    return readOctetString(type, builder);
+    return reader.readOctetString(type, builder);
   }
 
   @Override
@@ -461,7 +666,7 @@ final class ASN1ByteChannelReader implements ASN1Reader
 
   @Override
   public String readOctetStringAsString(byte type) throws IOException {
-    return readOctetStringAsString(type);
+    return reader.readOctetStringAsString(type);
   }
 
   @Override
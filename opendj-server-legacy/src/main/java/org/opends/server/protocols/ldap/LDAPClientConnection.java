@@ -31,6 +31,7 @@ import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -40,6 +41,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -147,19 +149,23 @@ public final class LDAPClientConnection extends ClientConnection implements
   }
 
   /**
-   * Channel that writes the contents of the provided buffer to the client,
+   * Channel that writes the contents of the provided buffers to the client,
    * throwing an exception if the write is unsuccessful for too
    * long (e.g., if the client is unresponsive or there is a network
    * problem). If possible, it will attempt to use the selector returned
    * by the {@code ClientConnection.getWriteSelector} method, but it is
    * capable of working even if that method returns {@code null}. <BR>
    *
+   * Several buffers can be provided at once, in which case they are written
+   * with gathering writes, so that coalesced responses reach the socket
+   * with as few system calls as possible. <BR>
+   *
    * Note that the original position and limit values will not be
    * preserved, so if that is important to the caller, then it should
    * record them before calling this method and restore them after it
    * returns.
    */
-  private class TimeoutWriteByteChannel implements ByteChannel
+  private class TimeoutWriteByteChannel implements ByteChannel, GatheringByteChannel
   {
     /** Synchronize concurrent writes to the same connection. */
     private final Lock writeLock = new ReentrantLock();
@@ -189,17 +195,25 @@ public final class LDAPClientConnection extends ClientConnection implements
 
     @Override
     public int write(ByteBuffer byteBuffer) throws IOException
+    {
+      return (int) write(new ByteBuffer[] { byteBuffer }, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException
+    {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException
     {
       writeLock.lock();
       try
       {
-        int bytesToWrite = byteBuffer.remaining();
-        int bytesWritten = clientChannel.write(byteBuffer);
-        if (bytesWritten > 0 && keepStats)
-        {
-          statTracker.updateBytesWritten(bytesWritten);
-        }
-        if (!byteBuffer.hasRemaining())
+        long bytesToWrite = remaining(srcs, offset, length);
+        writeToClient(srcs, offset, length);
+        if (!hasRemaining(srcs, offset, length))
         {
           return bytesToWrite;
         }
@@ -221,22 +235,13 @@ public final class LDAPClientConnection extends ClientConnection implements
           // The client connection does not provide a selector, so we'll
           // fall back to a more inefficient way that will work without a
           // selector.
-          while (byteBuffer.hasRemaining()
+          while (hasRemaining(srcs, offset, length)
               && System.currentTimeMillis() < stopTime)
           {
-            bytesWritten = clientChannel.write(byteBuffer);
-            if (bytesWritten < 0)
-            {
-              // The client connection has been closed.
-              throw new ClosedChannelException();
-            }
-            if (bytesWritten > 0 && keepStats)
-            {
-              statTracker.updateBytesWritten(bytesWritten);
-            }
+            writeToClient(srcs, offset, length);
           }
 
-          if (byteBuffer.hasRemaining())
+          if (hasRemaining(srcs, offset, length))
           {
             // If we've gotten here, then the write timed out.
             throw new ClosedChannelException();
@@ -251,7 +256,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         try
         {
           selector.select(waitTime);
-          while (byteBuffer.hasRemaining())
+          while (hasRemaining(srcs, offset, length))
           {
             long currentTime = System.currentTimeMillis();
             if (currentTime >= stopTime)
@@ -267,22 +272,12 @@ public final class LDAPClientConnection extends ClientConnection implements
               SelectionKey k = iterator.next();
               if (k.isWritable())
               {
-                bytesWritten = clientChannel.write(byteBuffer);
-                if (bytesWritten < 0)
-                {
-                  // The client connection has been closed.
-                  throw new ClosedChannelException();
-                }
-                if (bytesWritten > 0 && keepStats)
-                {
-                  statTracker.updateBytesWritten(bytesWritten);
-                }
-
+                writeToClient(srcs, offset, length);
                 iterator.remove();
               }
             }
 
-            if (byteBuffer.hasRemaining())
+            if (hasRemaining(srcs, offset, length))
             {
               selector.select(waitTime);
             }
@@ -304,6 +299,43 @@ public final class LDAPClientConnection extends ClientConnection implements
         writeLock.unlock();
       }
     }
+
+    /** Performs a single gathering write on the socket and records it in the statistics. */
+    private void writeToClient(ByteBuffer[] srcs, int offset, int length) throws IOException
+    {
+      long bytesWritten = clientChannel.write(srcs, offset, length);
+      if (bytesWritten < 0)
+      {
+        // The client connection has been closed.
+        throw new ClosedChannelException();
+      }
+      if (keepStats)
+      {
+        statTracker.updateSocketWrite(bytesWritten);
+      }
+    }
+
+    private boolean hasRemaining(ByteBuffer[] srcs, int offset, int length)
+    {
+      for (int i = offset; i < offset + length; i++)
+      {
+        if (srcs[i].hasRemaining())
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private long remaining(ByteBuffer[] srcs, int offset, int length)
+    {
+      long remaining = 0;
+      for (int i = offset; i < offset + length; i++)
+      {
+        remaining += srcs[i].remaining();
+      }
+      return remaining;
+    }
   }
 
   /** The tracer object for the debug logger. */
@@ -354,6 +386,33 @@ public final class LDAPClientConnection extends ClientConnection implements
     return holder;
   }
 
+  /** The number of bytes of coalesced search responses which causes them to be written to the client. */
+  private static final int COALESCED_WRITES_SIZE_THRESHOLD = 32 * 1024;
+  /** The delay after which coalesced search responses are written to the client, in nanoseconds. */
+  private static final long COALESCED_WRITES_TIME_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * The search responses which have been encoded but not yet written to the
+   * client. They are written along with the next response which is not
+   * coalesced, e.g. the search result done, or when a threshold is reached.
+   */
+  private final ByteStringBuilder pendingWrites = new ByteStringBuilder();
+  /** The time at which the oldest pending search response was coalesced, in nanoseconds. */
+  private long pendingWritesStartTime;
+  /** Indicates whether a task writing the pending responses is scheduled. */
+  private boolean pendingWritesFlushScheduled;
+  /** Writes the pending responses once the oldest one is too old, even if the search does not send anything else. */
+  private final Runnable pendingWritesFlusher = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      flushPendingWrites();
+    }
+  };
+  /** Keeps the pending search responses and the other responses in order. */
+  private final Lock pendingWritesLock = new ReentrantLock();
+
   /** The time that the last operation was completed. */
   private final AtomicLong lastCompletionTime;
   /** The next operation ID that should be used for this connection. */
@@ -840,8 +899,10 @@ public final class LDAPClientConnection extends ClientConnection implements
     SearchResultEntryProtocolOp protocolOp =
         new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
 
+    // Entries of persistent searches are not followed by a search result
+    // done, so they are sent to the client straight away.
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchEntry.getControls()));
+        protocolOp, searchEntry.getControls()), searchOperation.isSendResponse());
   }
 
   /**
@@ -876,7 +937,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultReferenceProtocolOp(searchReference);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchReference.getControls()));
+        protocolOp, searchReference.getControls()), searchOperation.isSendResponse());
     return true;
   }
 
@@ -915,13 +976,41 @@ public final class LDAPClientConnection extends ClientConnection implements
    *          The LDAP message to send to the client.
    */
   private void sendLDAPMessage(LDAPMessage message)
+  {
+    sendLDAPMessage(message, false);
+  }
+
+  /**
+   * Sends the provided LDAP message to the client, or coalesces it with the
+   * other pending search responses.
+   *
+   * @param message
+   *          The LDAP message to send to the client.
+   * @param coalesce
+   *          Indicates whether the message may be kept until another
+   *          response is sent or the coalescing thresholds are reached.
+   */
+  private void sendLDAPMessage(LDAPMessage message, boolean coalesce)
   {
     // Use a thread local writer.
     final ASN1WriterHolder holder = getASN1Writer();
+    pendingWritesLock.lock();
     try
     {
       message.write(holder.writer);
-      holder.buffer.copyTo(saslChannel);
+      if (coalesce)
+      {
+        coalesce(holder.buffer);
+      }
+      else if (pendingWrites.length() == 0)
+      {
+        holder.buffer.copyTo(saslChannel);
+      }
+      else
+      {
+        // Send the pending responses and this message with a single gathering write.
+        writePendingWrites(ByteBuffer.wrap(holder.buffer.getBackingArray(), 0, holder.buffer.length()));
+      }
 
       if (logger.isTraceEnabled())
       {
@@ -949,6 +1038,7 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
     finally
     {
+      pendingWritesLock.unlock();
       // Clear and reset all of the internal buffers ready for the next usage.
       // The ASN1Writer is based on a ByteStringBuilder so closing will cause
       // the internal buffers to be resized if needed.
@@ -956,6 +1046,98 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
  }
 
+  /**
+   * Appends the provided encoded message to the pending responses, writing
+   * them to the client if they are too large or have been pending for too long.
+   */
+  private void coalesce(ByteStringBuilder buffer) throws IOException
+  {
+    final long now = System.nanoTime();
+    if (pendingWrites.length() == 0)
+    {
+      pendingWritesStartTime = now;
+    }
+    pendingWrites.appendBytes(buffer);
+    if (pendingWrites.length() >= COALESCED_WRITES_SIZE_THRESHOLD
+        || now - pendingWritesStartTime >= COALESCED_WRITES_TIME_THRESHOLD)
+    {
+      writePendingWrites();
+    }
+    else if (!pendingWritesFlushScheduled)
+    {
+      schedulePendingWritesFlush(pendingWritesStartTime + COALESCED_WRITES_TIME_THRESHOLD - now);
+    }
+  }
+
+  /**
+   * Schedules the write of the pending responses after the provided delay.
+   * The caller must hold the pending writes lock.
+   */
+  private void schedulePendingWritesFlush(long delayNanos)
+  {
+    pendingWritesFlushScheduled =
+        connectionHandler.scheduleCoalescedWritesFlush(pendingWritesFlusher, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Writes the pending responses if the oldest one has been pending for
+   * too long, otherwise reschedules itself for when it will be.
+   */
+  private void flushPendingWrites()
+  {
+    pendingWritesLock.lock();
+    try
+    {
+      pendingWritesFlushScheduled = false;
+      if (pendingWrites.length() == 0 || !connectionValid)
+      {
+        return;
+      }
+      final long delay = pendingWritesStartTime + COALESCED_WRITES_TIME_THRESHOLD - System.nanoTime();
+      if (delay > 0)
+      {
+        // The responses pending when this task was scheduled have already been written.
+        schedulePendingWritesFlush(delay);
+      }
+      else
+      {
+        writePendingWrites();
+      }
+    }
+    catch (ClosedChannelException e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      disconnect(DisconnectReason.SERVER_ERROR, false,
+          ERR_UNEXPECTED_EXCEPTION_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    finally
+    {
+      pendingWritesLock.unlock();
+    }
+  }
+
+  /** Writes the pending responses, followed by the provided buffers, to the client. */
+  private void writePendingWrites(ByteBuffer... buffers) throws IOException
+  {
+    try
+    {
+      final ByteBuffer[] srcs = new ByteBuffer[buffers.length + 1];
+      srcs[0] = ByteBuffer.wrap(pendingWrites.getBackingArray(), 0, pendingWrites.length());
+      System.arraycopy(buffers, 0, srcs, 1, buffers.length);
+      saslChannel.write(srcs);
+    }
+    finally
+    {
+      pendingWrites.clearAndTruncate(2 * COALESCED_WRITES_SIZE_THRESHOLD, COALESCED_WRITES_SIZE_THRESHOLD);
+    }
+  }
+
   /**
    * Closes the connection to the client, optionally sending it a
    * message indicating the reason for the closure. Note that the
@@ -27,6 +27,7 @@ import java.net.SocketException;
 import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -208,6 +209,12 @@ public final class LDAPConnectionHandler extends
   private List<Runnable> connectionFinalizerActiveJobQueue;
   private List<Runnable> connectionFinalizerPendingJobQueue;
 
+  /**
+   * Writes the search responses which the client connections have kept for
+   * too long, so that a search which stalls does not hold its entries back.
+   */
+  private volatile ScheduledExecutorService coalescedWritesFlusher;
+
   /**
    * Creates a new instance of this LDAP connection handler. It must be
    * initialized before it may be used.
@@ -376,6 +383,9 @@ public final class LDAPConnectionHandler extends
       r.run(); // Flush active queue.
       r.run(); // Flush pending queue.
     }
+
+    coalescedWritesFlusher.shutdown();
+    coalescedWritesFlusher = null;
   }
 
   /**
@@ -651,6 +661,11 @@ public final class LDAPConnectionHandler extends
     connectionFinalizer.scheduleWithFixedDelay(
         new ConnectionFinalizerRunnable(), 100, 100, TimeUnit.MILLISECONDS);
 
+    // Writing the coalesced responses of a client may block, so use as many
+    // threads as request handlers.
+    coalescedWritesFlusher = Executors.newScheduledThreadPool(numRequestHandlers,
+        new DirectoryThread.Factory("LDAP Coalesced Writes Flusher for connection handler " + toString()));
+
     // Create and start the request handlers.
     requestHandlers = new LDAPRequestHandler[numRequestHandlers];
     for (int i = 0; i < numRequestHandlers; i++)
@@ -1369,4 +1384,36 @@ public final class LDAPConnectionHandler extends
       }
     }
   }
+
+  /**
+   * Schedules the provided task which writes the search responses coalesced
+   * by a client connection.
+   *
+   * @param r
+   *          The task writing the coalesced responses.
+   * @param delay
+   *          The time from now after which the task is run.
+   * @param unit
+   *          The time unit of the delay.
+   * @return {@code true} if the task has been scheduled, or {@code false}
+   *         if this connection handler is being finalized.
+   */
+  boolean scheduleCoalescedWritesFlush(Runnable r, long delay, TimeUnit unit)
+  {
+    final ScheduledExecutorService flusher = coalescedWritesFlusher;
+    if (flusher != null)
+    {
+      try
+      {
+        flusher.schedule(r, delay, unit);
+        return true;
+      }
+      catch (RejectedExecutionException e)
+      {
+        // The connection handler has just been finalized.
+        logger.traceException(e);
+      }
+    }
+    return false;
+  }
 }
@@ -33,7 +33,6 @@ import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
-import org.forgerock.opendj.io.ASN1Reader;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.opends.server.api.DirectoryThread;
 import org.opends.server.api.ServerShutdownListener;
@@ -153,7 +152,7 @@ public class LDAPRequestHandler
       {
         try
         {
-          ASN1Reader asn1Reader = readyConnection.getASN1Reader();
+          ASN1ByteChannelReader asn1Reader = readyConnection.getASN1Reader();
           boolean ldapMessageProcessed = false;
           while (true)
           {
@@ -162,7 +161,7 @@ public class LDAPRequestHandler
               if (!ldapMessageProcessed)
               {
                 if (readyConnection.processLDAPMessage(
-                    LDAPReader.readMessage(asn1Reader)))
+                    LDAPReader.readMessage(asn1Reader.readElement())))
                 {
                   ldapMessageProcessed = true;
                 }
@@ -88,6 +88,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
   private AtomicLong searchResultEntries = new AtomicLong(0);
   private AtomicLong searchResultReferences = new AtomicLong(0);
   private AtomicLong searchResultsDone = new AtomicLong(0);
+  private AtomicLong socketWrites = new AtomicLong(0);
   private AtomicLong unbindRequests = new AtomicLong(0);
 
 
@@ -167,7 +168,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
      *        and associated with their objectclass
      *        OC_MONITOR_CONNHANDLERSTATS
      */
-    final MonitorData attrs = new MonitorData(31 + 10 * 2);
+    final MonitorData attrs = new MonitorData(33 + 10 * 2);
     attrs.add("connectionsEstablished", connectionsEstablished);
     attrs.add("connectionsClosed", connectionsClosed);
     attrs.add("bytesRead", bytesRead);
@@ -198,6 +199,12 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
     attrs.add("searchResultEntries", searchResultEntries);
     attrs.add("searchResultReferences", searchResultReferences);
     attrs.add("searchResultsDone", searchResultsDone);
+    attrs.add("socketWrites", socketWrites);
+    final long entries = searchResultEntries.get();
+    if (entries > 0)
+    {
+      attrs.add("socketWritesPerSearchResultEntry", Math.round(1000.0 * socketWrites.get() / entries) / 1000.0);
+    }
     attrs.add("unbindRequests", unbindRequests);
 
     // adds
@@ -276,6 +283,7 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
       searchResultEntries.set(0);
       searchResultReferences.set(0);
       searchResultsDone.set(0);
+      socketWrites.set(0);
       unbindRequests.set(0);
 
       addOperationCount.set(0);
@@ -339,6 +347,20 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
      this.bytesWritten.getAndAdd(bytesWritten);
   }
 
+  /**
+   * Updates the appropriate set of counters to indicate that a write
+   * call has been made on the socket of a client. Several LDAP messages
+   * may be written by a single call when responses are coalesced.
+   *
+   * @param bytesWritten
+   *          The number of bytes written by the call.
+   */
+  public void updateSocketWrite(long bytesWritten)
+  {
+    socketWrites.getAndIncrement();
+    this.bytesWritten.getAndAdd(bytesWritten);
+  }
+
   /**
    * Updates the appropriate set of counters based on the provided
    * message that has been read from the client.
@@ -776,6 +798,16 @@ public class LDAPStatistics extends MonitorProvider<MonitorProviderCfg>
       return searchResultEntries.get();
   }
 
+  /**
+   * Retrieves the number of write calls made on the sockets of clients.
+   *
+   * @return The number of write calls made on the sockets of clients.
+   */
+  public long getSocketWrites()
+  {
+      return socketWrites.get();
+  }
+
   /**
    * Retrieves the number of search result references that have been
    * sent.
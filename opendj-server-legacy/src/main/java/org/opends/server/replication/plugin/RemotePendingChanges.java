@@ -16,18 +16,22 @@
  */
 package org.opends.server.replication.plugin;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.jcip.annotations.GuardedBy;
 
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.core.AddOperation;
 import org.opends.server.core.DeleteOperation;
@@ -39,6 +43,7 @@ import org.opends.server.replication.protocol.AddMsg;
 import org.opends.server.replication.protocol.DeleteMsg;
 import org.opends.server.replication.protocol.LDAPUpdateMsg;
 import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.opends.server.replication.protocol.ModifyMsg;
 import org.opends.server.replication.protocol.OperationContext;
 import org.opends.server.types.Operation;
 
@@ -50,6 +55,13 @@ import org.opends.server.types.Operation;
  * It is used to know when the ServerState must be updated and to compute
  * the dependencies between operations.
  *
+ * The changes in progress are indexed by the DNs they target, and by the
+ * ancestors of these DNs, so that checking the dependencies of a change only
+ * looks at the changes made on related entries, instead of all the changes in
+ * progress. When a change is committed, the changes which were waiting for it
+ * and do not depend on any other change are moved to a ready queue, from which
+ * the replay threads take them.
+ *
  * One of this object is instantiated for each ReplicationDomain.
  */
 final class RemotePendingChanges
@@ -63,18 +75,33 @@ final class RemotePendingChanges
    * not been replayed correctly because they are dependent on
    * another change to be completed.
    */
-  @GuardedBy("dependentChangesLock")
-  private final SortedSet<PendingChange> dependentChanges = new TreeSet<>();
+  private final ConcurrentSkipListSet<PendingChange> dependentChanges = new ConcurrentSkipListSet<>();
+  /** The number of changes in {@code dependentChanges}, whose size() method is not a constant-time operation. */
+  private final AtomicInteger dependentChangesCount = new AtomicInteger();
+  /** The dependent changes whose dependencies have all been committed, and which can be replayed. */
+  private final ConcurrentLinkedQueue<PendingChange> readyChanges = new ConcurrentLinkedQueue<>();
   /**
    * {@code activeAndDependentChanges} also contains changes discovered to be dependent
    * on currently in progress changes.
    */
   private final ConcurrentSkipListSet<PendingChange> activeAndDependentChanges = new ConcurrentSkipListSet<>();
 
+  /**
+   * The changes of {@code activeAndDependentChanges}, indexed by their target DN
+   * and, for modify DN operations, by their new DN.
+   */
+  private final ConcurrentMap<DN, ConcurrentSkipListSet<PendingChange>> changesByDN = new ConcurrentHashMap<>();
+  /**
+   * The changes of {@code activeAndDependentChanges}, indexed by each DN of the
+   * subtree containing their target DN and, for modify DN operations, their new DN.
+   */
+  private final ConcurrentMap<DN, ConcurrentSkipListSet<PendingChange>> changesBySubtree = new ConcurrentHashMap<>();
+  /** The DNs under which each change of {@code activeAndDependentChanges} is indexed. */
+  private final ConcurrentMap<CSN, List<DN>> indexedDNs = new ConcurrentHashMap<>();
+
   private final ReentrantReadWriteLock pendingChangesLock = new ReentrantReadWriteLock(true);
   private final ReentrantReadWriteLock.ReadLock pendingChangesReadLock = pendingChangesLock.readLock();
   private final ReentrantReadWriteLock.WriteLock pendingChangesWriteLock = pendingChangesLock.writeLock();
-  private final ReentrantLock dependentChangesLock = new ReentrantLock();
 
   /** The ServerState that will be updated when LDAPUpdateMsg are fully replayed. */
   private final ServerState state;
@@ -125,15 +152,7 @@ final class RemotePendingChanges
    */
   public int getDependentChangesSize()
   {
-    dependentChangesLock.lock();
-    try
-    {
-      return dependentChanges.size();
-    }
-    finally
-    {
-      dependentChangesLock.unlock();
-    }
+    return dependentChangesCount.get();
   }
 
   /**
@@ -167,10 +186,11 @@ final class RemotePendingChanges
    */
   public void commit(CSN csn)
   {
+    final PendingChange curChange;
     pendingChangesWriteLock.lock();
     try
     {
-      PendingChange curChange = pendingChanges.get(csn);
+      curChange = pendingChanges.get(csn);
       if (curChange == null)
       {
         throw new NoSuchElementException();
@@ -197,20 +217,25 @@ final class RemotePendingChanges
     {
       pendingChangesWriteLock.unlock();
     }
+
+    final List<DN> dns = indexedDNs.remove(csn);
+    if (dns != null)
+    {
+      removeFromIndex(curChange, dns);
+      releaseDependentChanges(dns);
+    }
   }
 
   public void markInProgress(LDAPUpdateMsg msg)
   {
-    pendingChangesReadLock.lock();
-    try
+    final PendingChange change = getPendingChange(msg.getCSN());
+    if (change != null)
     {
-      activeAndDependentChanges.add(pendingChanges.get(msg.getCSN()));
-    }
-    finally
-    {
-      pendingChangesReadLock.unlock();
+      activeAndDependentChanges.add(change);
+      index(change);
     }
   }
+
   /**
    * Get the first update in the list that have some dependencies cleared.
    *
@@ -218,43 +243,100 @@ final class RemotePendingChanges
    */
   public LDAPUpdateMsg getNextUpdate()
   {
+    final PendingChange readyChange = readyChanges.poll();
+    if (readyChange != null)
+    {
+      return readyChange.getLDAPUpdateMsg();
+    }
+
+    // Otherwise, replay the oldest dependent change once all the changes before it have been committed
     pendingChangesReadLock.lock();
-    dependentChangesLock.lock();
     try
     {
-      if (!dependentChanges.isEmpty())
+      Iterator<PendingChange> it;
+      while (!pendingChanges.isEmpty() && (it = dependentChanges.iterator()).hasNext())
       {
-        PendingChange firstDependentChange = dependentChanges.first();
-        if (pendingChanges.firstKey().isNewerThanOrEqualTo(firstDependentChange.getCSN()))
+        PendingChange firstDependentChange = it.next();
+        if (!pendingChanges.firstKey().isNewerThanOrEqualTo(firstDependentChange.getCSN()))
+        {
+          return null;
+        }
+        if (dependentChanges.remove(firstDependentChange))
         {
-          dependentChanges.remove(firstDependentChange);
+          dependentChangesCount.decrementAndGet();
           return firstDependentChange.getLDAPUpdateMsg();
         }
+        // Another thread took it, look at the next one
       }
       return null;
     }
     finally
     {
-      dependentChangesLock.unlock();
       pendingChangesReadLock.unlock();
     }
   }
 
   /**
-   * Mark the first pendingChange as dependent on the second PendingChange.
-   * @param dependentChange The PendingChange that depend on the second
-   *                        PendingChange.
+   * Mark the provided pendingChange as dependent on other PendingChanges.
+   *
+   * @param dependentChange The PendingChange that depend on other
+   *                        PendingChanges.
    */
   private void addDependency(PendingChange dependentChange)
   {
-    dependentChangesLock.lock();
-    try
+    if (dependentChanges.add(dependentChange))
     {
-      dependentChanges.add(dependentChange);
+      dependentChangesCount.incrementAndGet();
     }
-    finally
+    // The changes it depends on may have been committed in the meantime
+    if (!hasDependencies(dependentChange))
+    {
+      release(dependentChange);
+    }
+  }
+
+  /** Moves the provided dependent change to the ready queue, unless another thread already did it. */
+  private void release(PendingChange dependentChange)
+  {
+    if (dependentChanges.remove(dependentChange))
+    {
+      dependentChangesCount.decrementAndGet();
+      readyChanges.add(dependentChange);
+    }
+  }
+
+  /**
+   * Releases the dependent changes which were waiting for a change indexed
+   * under the provided DNs, and which do not depend on any other change.
+   */
+  private void releaseDependentChanges(List<DN> dns)
+  {
+    if (dependentChangesCount.get() == 0)
     {
-      dependentChangesLock.unlock();
+      return;
+    }
+    for (DN dn : dns)
+    {
+      // The changes made below the committed change, or on its ancestors
+      releaseDependentChanges(changesBySubtree.get(dn));
+      for (DN ancestor = dn.parent(); ancestor != null && !ancestor.isRootDN(); ancestor = ancestor.parent())
+      {
+        releaseDependentChanges(changesByDN.get(ancestor));
+      }
+    }
+  }
+
+  private void releaseDependentChanges(ConcurrentSkipListSet<PendingChange> candidates)
+  {
+    if (candidates != null)
+    {
+      for (PendingChange candidate : candidates)
+      {
+        if (dependentChanges.contains(candidate) && !hasDependencies(candidate))
+        {
+          release(candidate);
+        }
+      }
     }
   }
 
@@ -272,79 +354,298 @@ final class RemotePendingChanges
   }
 
   /**
-   * Check if the given AddOperation has some dependencies on any
-   * currently running previous operation.
-   * Update the dependency list in the associated PendingChange if
-   * there are some dependencies.
-   * AddOperation depends on
-   *
-   * - DeleteOperation done on the same DN
-   * - ModifyDnOperation with the same target DN as the ADD DN
-   * - ModifyDnOperation with new DN equals to the ADD DN parent
-   * - AddOperation done on the parent DN of the ADD DN
-   *
-   * @param op The AddOperation to be checked.
-   *
-   * @return A boolean indicating if this operation has some dependencies.
+   * Indexes the provided change under its current DNs, which conflict
+   * resolution may have changed since the change was last indexed.
    */
-  public boolean checkDependencies(AddOperation op)
+  private void index(PendingChange change)
   {
-    final CSN csn = OperationContext.getCSN(op);
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
+    final List<DN> dns = getIndexedDNs(change.getLDAPUpdateMsg());
+    final List<DN> previousDNs = indexedDNs.put(change.getCSN(), dns);
+    if (!dns.equals(previousDNs))
     {
-      return false;
+      if (previousDNs != null)
+      {
+        removeFromIndex(change, previousDNs);
+      }
+      for (DN dn : dns)
+      {
+        addToIndex(changesByDN, dn, change);
+        for (DN subtreeDN = dn; subtreeDN != null && !subtreeDN.isRootDN(); subtreeDN = subtreeDN.parent())
+        {
+          addToIndex(changesBySubtree, subtreeDN, change);
+        }
+      }
     }
+  }
 
-    boolean hasDependencies = false;
-    final DN targetDN = op.getEntryDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
+  private void removeFromIndex(PendingChange change, List<DN> dns)
+  {
+    for (DN dn : dns)
     {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
+      removeFromIndex(changesByDN, dn, change);
+      for (DN subtreeDN = dn; subtreeDN != null && !subtreeDN.isRootDN(); subtreeDN = subtreeDN.parent())
       {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
+        removeFromIndex(changesBySubtree, subtreeDN, change);
       }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
+    }
+  }
+
+  private static void addToIndex(ConcurrentMap<DN, ConcurrentSkipListSet<PendingChange>> index, DN dn,
+      PendingChange change)
+  {
+    while (true)
+    {
+      ConcurrentSkipListSet<PendingChange> changes = index.get(dn);
+      if (changes == null)
       {
-        if (pendingMsg.getDN().equals(targetDN))
+        final ConcurrentSkipListSet<PendingChange> newChanges = new ConcurrentSkipListSet<>();
+        changes = index.putIfAbsent(dn, newChanges);
+        if (changes == null)
         {
-          // it is a deleteOperation on the same DN
-          hasDependencies = true;
-          addDependency(change);
+          changes = newChanges;
         }
       }
-      else if (pendingMsg instanceof AddMsg)
+      synchronized (changes)
       {
-        if (pendingMsg.getDN().isSuperiorOrEqualTo(targetDN))
+        // Retry if the set has been removed from the index after becoming empty
+        if (index.get(dn) == changes)
         {
-          // it is an addOperation on a parent of the current AddOperation
-          hasDependencies = true;
-          addDependency(change);
+          changes.add(change);
+          return;
         }
       }
-      else if (pendingMsg instanceof ModifyDNMsg)
+    }
+  }
+
+  private static void removeFromIndex(ConcurrentMap<DN, ConcurrentSkipListSet<PendingChange>> index, DN dn,
+      PendingChange change)
+  {
+    final ConcurrentSkipListSet<PendingChange> changes = index.get(dn);
+    if (changes != null)
+    {
+      synchronized (changes)
       {
-        // it is a ModifyDnOperation with the same target DN as the ADD DN
-        // or a ModifyDnOperation with new DN equals to the ADD DN parent?
-        if (pendingMsg.getDN().equals(targetDN))
+        if (changes.remove(change) && changes.isEmpty())
         {
-          hasDependencies = true;
-          addDependency(change);
+          index.remove(dn, changes);
         }
-        else
+      }
+    }
+  }
+
+  /** Returns the DNs under which the provided update must be indexed. */
+  private static List<DN> getIndexedDNs(LDAPUpdateMsg msg)
+  {
+    final List<DN> dns = new ArrayList<>(2);
+    dns.add(msg.getDN());
+    if (msg instanceof ModifyDNMsg)
+    {
+      final DN newDN = ((ModifyDNMsg) msg).getNewDN();
+      if (newDN != null && !newDN.equals(msg.getDN()))
+      {
+        dns.add(newDN);
+      }
+    }
+    return dns;
+  }
+
+  /**
+   * Returns whether the provided change depends on an older change in progress.
+   * The candidates are looked up in the indexes, then checked with the
+   * dependency rules described by the {@code checkDependencies()} methods.
+   */
+  private boolean hasDependencies(PendingChange change)
+  {
+    final LDAPUpdateMsg msg = change.getLDAPUpdateMsg();
+    final DN targetDN = msg.getDN();
+    if (msg instanceof AddMsg)
+    {
+      return hasDependenciesOnAncestorsOrSelf(change, targetDN);
+    }
+    else if (msg instanceof ModifyMsg)
+    {
+      return hasDependencies(change, changesByDN.get(targetDN));
+    }
+    else if (msg instanceof ModifyDNMsg)
+    {
+      final ModifyDNMsg modDn = (ModifyDNMsg) msg;
+      final DN newDN = modDn.getNewDN();
+      final DN newSuperiorDN = toDN(modDn.getNewSuperior());
+      return hasDependencies(change, changesByDN.get(targetDN))
+          || (newDN != null && hasDependencies(change, changesByDN.get(newDN)))
+          || (newSuperiorDN != null && hasDependencies(change, changesByDN.get(newSuperiorDN)));
+    }
+    else if (msg instanceof DeleteMsg)
+    {
+      return hasDependencies(change, changesBySubtree.get(targetDN))
+          || hasDependenciesOnAncestorsOrSelf(change, targetDN);
+    }
+    return false;
+  }
+
+  private boolean hasDependenciesOnAncestorsOrSelf(PendingChange change, DN targetDN)
+  {
+    for (DN dn = targetDN; dn != null && !dn.isRootDN(); dn = dn.parent())
+    {
+      if (hasDependencies(change, changesByDN.get(dn)))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasDependencies(PendingChange change, ConcurrentSkipListSet<PendingChange> candidates)
+  {
+    if (candidates != null)
+    {
+      // Changes can only depend on older changes
+      for (PendingChange pendingChange : candidates.headSet(change))
+      {
+        if (dependsOn(change.getLDAPUpdateMsg(), pendingChange.getLDAPUpdateMsg()))
         {
-          final ModifyDNMsg pendingModDn = (ModifyDNMsg) pendingMsg;
-          if (pendingModDn.newDNIsParent(targetDN))
-          {
-            hasDependencies = true;
-            addDependency(change);
-          }
+          return true;
         }
       }
     }
-    return hasDependencies;
+    return false;
+  }
+
+  private static DN toDN(String dn)
+  {
+    try
+    {
+      return dn != null ? DN.valueOf(dn) : null;
+    }
+    catch (LocalizedIllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+
+  /** Returns whether the first update must wait for the second one to be replayed. */
+  private static boolean dependsOn(LDAPUpdateMsg msg, LDAPUpdateMsg pendingMsg)
+  {
+    final DN targetDN = msg.getDN();
+    if (msg instanceof AddMsg)
+    {
+      if (pendingMsg instanceof DeleteMsg)
+      {
+        // it is a deleteOperation on the same DN
+        return pendingMsg.getDN().equals(targetDN);
+      }
+      else if (pendingMsg instanceof AddMsg)
+      {
+        // it is an addOperation on a parent of the current AddOperation
+        return pendingMsg.getDN().isSuperiorOrEqualTo(targetDN);
+      }
+      else if (pendingMsg instanceof ModifyDNMsg)
+      {
+        // it is a ModifyDnOperation with the same target DN as the ADD DN
+        // or a ModifyDnOperation with new DN equals to the ADD DN parent
+        return pendingMsg.getDN().equals(targetDN) || ((ModifyDNMsg) pendingMsg).newDNIsParent(targetDN);
+      }
+    }
+    else if (msg instanceof ModifyMsg)
+    {
+      if (pendingMsg instanceof AddMsg)
+      {
+        // it is an addOperation on a same DN
+        return pendingMsg.getDN().equals(targetDN);
+      }
+      else if (pendingMsg instanceof ModifyDNMsg)
+      {
+        return ((ModifyDNMsg) pendingMsg).newDNIsEqual(targetDN);
+      }
+    }
+    else if (msg instanceof ModifyDNMsg)
+    {
+      final ModifyDNMsg modDn = (ModifyDNMsg) msg;
+      if (pendingMsg instanceof DeleteMsg)
+      {
+        // Check if the target of the Delete is the same
+        // as the new DN of this ModifyDN
+        return modDn.newDNIsEqual(pendingMsg.getDN());
+      }
+      else if (pendingMsg instanceof AddMsg)
+      {
+        // Check if the Add Operation was done on the new parent of
+        // the MODDN operation, or on the same DN as its target DN
+        return modDn.newParentIsEqual(pendingMsg.getDN()) || pendingMsg.getDN().equals(targetDN);
+      }
+      else if (pendingMsg instanceof ModifyDNMsg)
+      {
+        // the ModifyDNOperation was done from the new DN of the MODDN operation
+        return modDn.newDNIsEqual(pendingMsg.getDN());
+      }
+    }
+    else if (msg instanceof DeleteMsg)
+    {
+      if (pendingMsg instanceof DeleteMsg)
+      {
+        // Check if the operation to be run is a deleteOperation on a
+        // children of the current DeleteOperation.
+        return pendingMsg.getDN().isSubordinateOrEqualTo(targetDN);
+      }
+      else if (pendingMsg instanceof AddMsg)
+      {
+        // Check if the operation to be run is an addOperation on the
+        // same DN as the current DeleteOperation.
+        return pendingMsg.getDN().equals(targetDN);
+      }
+      else if (pendingMsg instanceof ModifyDNMsg)
+      {
+        // Check if the operation to be run is an ModifyDNOperation
+        // on a children of the current DeleteOperation
+        return pendingMsg.getDN().isSubordinateOrEqualTo(targetDN)
+            || ((ModifyDNMsg) pendingMsg).newDNIsParent(targetDN);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check if the change with the provided CSN has some dependencies on any
+   * currently running previous operation, and if so, mark it as dependent.
+   */
+  private boolean checkDependencies(CSN csn)
+  {
+    final PendingChange change = getPendingChange(csn);
+    if (change == null)
+    {
+      return false;
+    }
+    if (indexedDNs.containsKey(csn))
+    {
+      index(change);
+    }
+    if (!hasDependencies(change))
+    {
+      return false;
+    }
+    addDependency(change);
+    return true;
+  }
+
+  /**
+   * Check if the given AddOperation has some dependencies on any
+   * currently running previous operation.
+   * Update the dependency list in the associated PendingChange if
+   * there are some dependencies.
+   * AddOperation depends on
+   *
+   * - DeleteOperation done on the same DN
+   * - ModifyDnOperation with the same target DN as the ADD DN
+   * - ModifyDnOperation with new DN equals to the ADD DN parent
+   * - AddOperation done on the parent DN of the ADD DN
+   *
+   * @param op The AddOperation to be checked.
+   *
+   * @return A boolean indicating if this operation has some dependencies.
+   */
+  public boolean checkDependencies(AddOperation op)
+  {
+    return checkDependencies(OperationContext.getCSN(op));
   }
 
   /**
@@ -363,42 +664,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(ModifyOperation op)
   {
-    final CSN csn = OperationContext.getCSN(op);
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-        return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = change.getLDAPUpdateMsg().getDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof AddMsg)
-      {
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          // it is an addOperation on a same DN
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        if (((ModifyDNMsg) pendingMsg).newDNIsEqual(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(OperationContext.getCSN(op));
   }
 
   /**
@@ -421,61 +687,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(ModifyDNMsg msg)
   {
-    final CSN csn = msg.getCSN();
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-      return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = change.getLDAPUpdateMsg().getDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
-      {
-        // Check if the target of the Delete is the same
-        // as the new DN of this ModifyDN
-        if (msg.newDNIsEqual(pendingMsg.getDN()))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof AddMsg)
-      {
-        // Check if the Add Operation was done on the new parent of
-        // the MODDN  operation
-        if (msg.newParentIsEqual(pendingMsg.getDN()))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-        // Check if the AddOperation was done on the same DN as the
-        // target DN of the MODDN operation
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        if (msg.newDNIsEqual(pendingMsg.getDN()))
-        {
-          // the ModifyDNOperation was done from the new DN of the MODDN operation
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(msg.getCSN());
   }
 
   /**
@@ -496,62 +708,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(DeleteOperation op)
   {
-    final CSN csn = OperationContext.getCSN(op);
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-      return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = op.getEntryDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
-      {
-          /*
-           * Check if the operation to be run is a deleteOperation on a
-           * children of the current DeleteOperation.
-           */
-        if (pendingMsg.getDN().isSubordinateOrEqualTo(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof AddMsg)
-      {
-          /*
-           * Check if the operation to be run is an addOperation on a
-           * parent of the current DeleteOperation.
-           */
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        final ModifyDNMsg pendingModDn = (ModifyDNMsg) pendingMsg;
-          /*
-           * Check if the operation to be run is an ModifyDNOperation
-           * on a children of the current DeleteOperation
-           */
-        if (pendingMsg.getDN().isSubordinateOrEqualTo(targetDN) || pendingModDn.newDNIsParent(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(OperationContext.getCSN(op));
   }
 
   /**
@@ -20,12 +20,19 @@ import static org.opends.server.util.StaticUtils.*;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +40,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import javax.net.ssl.SSLSocket;
 
@@ -43,6 +52,26 @@ import org.opends.server.util.StaticUtils;
 
 /**
  * This class defines a replication session using TLS.
+ * <p>
+ * Each message is sent as a frame made of its length, encoded as 8 hexadecimal
+ * characters, followed by the encoded message. Starting with
+ * {@link ProtocolVersion#REPLICATION_PROTOCOL_V9}, once the protocol version
+ * has been negotiated, a frame can also be a batch frame carrying several
+ * messages:
+ * <pre>
+ * &lt;MSG_TYPE_BATCH&gt;&lt;flags&gt;&lt;content&gt;
+ * </pre>
+ * where the content is the sequence of the messages, each preceded by its
+ * length as a 4 bytes integer. The messages waiting in the send queue are
+ * batched together until the batch reaches 64KB, so that batching never
+ * delays a message.
+ * <p>
+ * Compression is only used once it has been negotiated by the handshake, see
+ * {@link TopologyMsg#isCompressionEnabled()}. Frame contents larger than 1KB
+ * are then compressed by a deflater shared by all the frames sent on the
+ * session, so that the compression dictionary spans the whole session. Large
+ * messages, like the entries sent during a total update, are compressed the
+ * same way.
  */
 public final class Session extends DirectoryThread implements Closeable
 {
@@ -53,6 +82,12 @@ public final class Session extends DirectoryThread implements Closeable
   private final InputStream plainInput;
   private final OutputStream plainOutput;
   private final byte[] rcvLengthBuf = new byte[8];
+  /** Flag set in the header of the batch frames whose content is compressed. */
+  private static final byte FLAG_COMPRESSED = 1;
+  /** The size of the messages above which no more messages are added to a batch frame. */
+  private static final int MAX_BATCH_SIZE = 64 * 1024;
+  /** The size of the frame content above which it is compressed. */
+  private static final int COMPRESSION_THRESHOLD = 1024;
   private final String readableRemoteAddress;
   private final HostPort remoteAddress;
   private final HostPort localUrl;
@@ -77,6 +112,28 @@ public final class Session extends DirectoryThread implements Closeable
    */
   private final Lock publishLock = new ReentrantLock();
 
+  /** Whether the remote peer accepts batch frames, known once the protocol version is negotiated. */
+  private volatile boolean useBatchFrames;
+  /** Whether the frames sent on this session may be compressed, guarded by publishLock. */
+  private boolean compressionEnabled;
+  /** Compresses the content of the frames sent on this session, guarded by publishLock. */
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  /** Whether the deflater has been ended by close(), guarded by publishLock. */
+  private boolean deflaterEnded;
+  /**
+   * Decompresses the content of the frames received on this session, only
+   * used by the receiving thread. Guarded by itself as close() ends it.
+   */
+  private final Inflater inflater = new Inflater();
+  /** Whether the inflater has been ended by close(), guarded by the inflater. */
+  private boolean inflaterEnded;
+  /** The number of frames, batch frames and compressed frames sent, guarded by publishLock. */
+  private long framesSent;
+  private long batchFramesSent;
+  private long compressedFramesSent;
+  /** The messages of the last batch frame received which have not been returned yet by receive(). */
+  private final Deque<byte[]> receivedBuffers = new ArrayDeque<>();
+
   /**
    * These do not need synchronization because they are only modified during the
    * initial single threaded handshake.
@@ -201,6 +258,24 @@ public final class Session extends DirectoryThread implements Closeable
     }
 
     StaticUtils.close(plainSocket, secureSocket);
+
+    // Publishing or receiving threads may still be running: end the
+    // compression streams under the locks guarding their use.
+    publishLock.lock();
+    try
+    {
+      deflaterEnded = true;
+      deflater.end();
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+    synchronized (inflater)
+    {
+      inflaterEnded = true;
+      inflater.end();
+    }
   }
 
 
@@ -334,31 +409,39 @@ public final class Session extends DirectoryThread implements Closeable
     }
     else
     {
-      send(buffer);
+      send(Collections.singletonList(buffer));
     }
   }
 
-  /** Sends a replication message already encoded to the socket.
+  /** Sends replication messages already encoded to the socket.
    *
-   * @param buffer
-   *          the encoded buffer
-   * @throws IOException if the message could not be sent
+   * @param buffers
+   *          the encoded buffers, sent in a single batch frame when there are
+   *          several of them
+   * @throws IOException if the messages could not be sent
    */
-  private void send(final byte[] buffer) throws IOException
+  private void send(final List<byte[]> buffers) throws IOException
   {
-    final String str = String.format("%08x", buffer.length);
-    final byte[] sendLengthBuf = str.getBytes();
-
     publishLock.lock();
     try
     {
-      /*
-       * The buffered output stream ensures that the message is usually sent as
-       * a single TCP packet.
-       */
-      output.write(sendLengthBuf);
-      output.write(buffer);
-      output.flush();
+      if (deflaterEnded)
+      {
+        throw new IOException("Session closed");
+      }
+      final byte[] buffer = buffers.get(0);
+      if (buffers.size() == 1
+          && (!useBatchFrames || !compressionEnabled || buffer.length < COMPRESSION_THRESHOLD))
+      {
+        write(buffer);
+      }
+      else
+      {
+        // Frames are compressed in the order they are written
+        write(encodeBatchFrame(buffers));
+        batchFramesSent++;
+      }
+      framesSent++;
     } catch (final IOException e) {
       setSessionError(e);
       throw e;
@@ -371,6 +454,138 @@ public final class Session extends DirectoryThread implements Closeable
     lastPublishTime = System.currentTimeMillis();
   }
 
+  private void write(final byte[] buffer) throws IOException
+  {
+    final String str = String.format("%08x", buffer.length);
+    final byte[] sendLengthBuf = str.getBytes();
+
+    /*
+     * The buffered output stream ensures that the message is usually sent as
+     * a single TCP packet.
+     */
+    output.write(sendLengthBuf);
+    output.write(buffer);
+    output.flush();
+  }
+
+  /** Must be called with the publishLock held, see the class javadoc for the format. */
+  private byte[] encodeBatchFrame(final List<byte[]> buffers)
+  {
+    int length = 0;
+    for (final byte[] buffer : buffers)
+    {
+      length += 4 + buffer.length;
+    }
+    final byte[] content = new byte[length];
+    int offset = 0;
+    for (final byte[] buffer : buffers)
+    {
+      writeInt(content, offset, buffer.length);
+      System.arraycopy(buffer, 0, content, offset + 4, buffer.length);
+      offset += 4 + buffer.length;
+    }
+
+    final ByteArrayOutputStream frame = new ByteArrayOutputStream(2 + length);
+    frame.write(ReplicationMsg.MSG_TYPE_BATCH);
+    if (!compressionEnabled || length < COMPRESSION_THRESHOLD)
+    {
+      frame.write(0);
+      frame.write(content, 0, length);
+      return frame.toByteArray();
+    }
+
+    frame.write(FLAG_COMPRESSED);
+    compressedFramesSent++;
+    deflater.setInput(content);
+    final byte[] chunk = new byte[8192];
+    int deflated;
+    do
+    {
+      // Sync flush makes the whole content available to the remote inflater
+      deflated = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+      frame.write(chunk, 0, deflated);
+    }
+    while (deflated == chunk.length);
+    return frame.toByteArray();
+  }
+
+  private void decodeBatchFrame(final byte[] frame) throws DataFormatException, IOException
+  {
+    if (frame.length < 2)
+    {
+      throw new DataFormatException("Truncated batch frame header");
+    }
+    byte[] content = frame;
+    int offset = 2;
+    if ((frame[1] & FLAG_COMPRESSED) != 0)
+    {
+      content = inflate(frame, 2, frame.length - 2);
+      offset = 0;
+    }
+    while (offset < content.length)
+    {
+      if (content.length - offset < 4)
+      {
+        throw new DataFormatException("Truncated message length in batch frame");
+      }
+      final int length = readInt(content, offset);
+      offset += 4;
+      if (length < 0 || length > content.length - offset)
+      {
+        throw new DataFormatException("Invalid message length " + length + " in batch frame");
+      }
+      receivedBuffers.add(Arrays.copyOfRange(content, offset, offset + length));
+      offset += length;
+    }
+  }
+
+  private byte[] inflate(final byte[] frame, final int offset, final int length)
+      throws DataFormatException, IOException
+  {
+    synchronized (inflater)
+    {
+      if (inflaterEnded)
+      {
+        throw new IOException("Session closed");
+      }
+      inflater.setInput(frame, offset, length);
+      final ByteArrayOutputStream content = new ByteArrayOutputStream(length);
+      final byte[] chunk = new byte[8192];
+      while (true)
+      {
+        final int inflated = inflater.inflate(chunk);
+        content.write(chunk, 0, inflated);
+        if (inflated < chunk.length)
+        {
+          if (inflater.needsInput())
+          {
+            return content.toByteArray();
+          }
+          else if (inflated == 0)
+          {
+            throw new DataFormatException("Invalid compressed batch frame");
+          }
+        }
+      }
+    }
+  }
+
+  private static void writeInt(final byte[] buffer, final int offset, final int value)
+  {
+    buffer[offset] = (byte) (value >>> 24);
+    buffer[offset + 1] = (byte) (value >>> 16);
+    buffer[offset + 2] = (byte) (value >>> 8);
+    buffer[offset + 3] = (byte) value;
+  }
+
+  private static int readInt(final byte[] buffer, final int offset)
+  {
+    return (buffer[offset] & 0xFF) << 24
+        | (buffer[offset + 1] & 0xFF) << 16
+        | (buffer[offset + 2] & 0xFF) << 8
+        | (buffer[offset + 3] & 0xFF);
+  }
+
 
 
   /**
@@ -393,6 +608,13 @@ public final class Session extends DirectoryThread implements Closeable
   {
     try
     {
+      final byte[] pendingBuffer = receivedBuffers.poll();
+      if (pendingBuffer != null)
+      {
+        // Remaining messages of the last batch frame
+        return ReplicationMsg.generateMsg(pendingBuffer, protocolVersion);
+      }
+
       /*
        * Let's start the stop-watch before waiting on read for the heartbeat
        * check to be operational.
@@ -405,7 +627,7 @@ public final class Session extends DirectoryThread implements Closeable
 
       try
       {
-        final byte[] buffer = new byte[totalLength];
+        byte[] buffer = new byte[totalLength];
         read(buffer);
 
         /*
@@ -413,6 +635,16 @@ public final class Session extends DirectoryThread implements Closeable
          * processing a message even a time consuming one.
          */
         lastReceiveTime = 0;
+        if (totalLength > 0 && buffer[0] == ReplicationMsg.MSG_TYPE_BATCH)
+        {
+          // Batch frames can be received as soon as the peer has negotiated V9
+          decodeBatchFrame(buffer);
+          buffer = receivedBuffers.poll();
+          if (buffer == null)
+          {
+            throw new DataFormatException("Empty batch frame");
+          }
+        }
         return ReplicationMsg.generateMsg(buffer, protocolVersion);
       }
       catch (final OutOfMemoryError e)
@@ -453,6 +685,30 @@ public final class Session extends DirectoryThread implements Closeable
   public void setProtocolVersion(final short version)
   {
     protocolVersion = version;
+    useBatchFrames = version >= ProtocolVersion.REPLICATION_PROTOCOL_V9;
+  }
+
+
+  /**
+   * Sets whether the frames sent on this session may be compressed. This
+   * method is called once the handshake has negotiated compression, and only
+   * has an effect when the protocol version supports batch frames. The
+   * frames received are decompressed whatever this setting.
+   *
+   * @param compressionEnabled
+   *          whether the frames sent on this session may be compressed
+   */
+  public void setCompressionEnabled(final boolean compressionEnabled)
+  {
+    publishLock.lock();
+    try
+    {
+      this.compressionEnabled = compressionEnabled;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
   }
 
 
@@ -519,9 +775,32 @@ public final class Session extends DirectoryThread implements Closeable
     }
   }
 
+  /**
+   * Returns the provided buffer along with the buffers already waiting in the
+   * send queue, when the remote peer accepts batch frames.
+   */
+  private List<byte[]> nextBatch(final byte[] buffer)
+  {
+    if (!useBatchFrames || sendQueue.isEmpty())
+    {
+      return Collections.singletonList(buffer);
+    }
+    final List<byte[]> batch = new ArrayList<>();
+    batch.add(buffer);
+    int size = buffer.length;
+    byte[] next;
+    while (size < MAX_BATCH_SIZE && (next = sendQueue.poll()) != null)
+    {
+      batch.add(next);
+      size += next.length;
+    }
+    return batch;
+  }
+
   /**
    * Run method for the Session.
-   * Loops waiting for buffers from the queue and sends them when available.
+   * Loops waiting for buffers from the queue and sends them when available,
+   * batching the buffers which are already waiting.
    */
   @Override
   public void run()
@@ -546,7 +825,7 @@ public final class Session extends DirectoryThread implements Closeable
       }
       try
       {
-        send(buffer);
+        send(nextBatch(buffer));
       }
       catch (IOException e)
       {
@@ -565,6 +844,60 @@ public final class Session extends DirectoryThread implements Closeable
     }
   }
 
+  /**
+   * Returns the number of frames sent on this session.
+   *
+   * @return the number of frames sent on this session
+   */
+  long getFramesSent()
+  {
+    publishLock.lock();
+    try
+    {
+      return framesSent;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of batch frames sent on this session.
+   *
+   * @return the number of batch frames sent on this session
+   */
+  long getBatchFramesSent()
+  {
+    publishLock.lock();
+    try
+    {
+      return batchFramesSent;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of frames sent compressed on this session.
+   *
+   * @return the number of frames sent compressed on this session
+   */
+  long getCompressedFramesSent()
+  {
+    publishLock.lock();
+    try
+    {
+      return compressedFramesSent;
+    }
+    finally
+    {
+      publishLock.unlock();
+    }
+  }
+
   /**
    * This method can be called to wait until the session thread is
    * properly started.
@@ -48,6 +48,8 @@ public class TopologyMsg extends ReplicationMsg
   private final Map<Integer, DSInfo> replicaInfos;
   /** Information for the RSs known in the topology. */
   private final List<RSInfo> rsInfos;
+  /** Whether the sending RS accepts to compress the frames of the session. */
+  private final boolean compressionEnabled;
 
   /**
    * Creates a new changelogInfo message from its encoded form.
@@ -88,6 +90,7 @@ public class TopologyMsg extends ReplicationMsg
 
     this.replicaInfos = Collections.unmodifiableMap(replicaInfos);
     this.rsInfos = Collections.unmodifiableList(rsInfos);
+    this.compressionEnabled = version >= REPLICATION_PROTOCOL_V9 && !scanner.isEmpty() && scanner.nextBoolean();
   }
 
   private DSInfo nextDSInfo(ByteArrayScanner scanner, short version)
@@ -157,6 +160,19 @@ public class TopologyMsg extends ReplicationMsg
    * @param rsInfos The list of currently connected RS servers ID.
    */
   public TopologyMsg(Collection<DSInfo> dsInfos, List<RSInfo> rsInfos)
+  {
+    this(dsInfos, rsInfos, false);
+  }
+
+  /**
+   * Creates a new message of the currently connected servers.
+   *
+   * @param dsInfos The collection of currently connected DS servers ID.
+   * @param rsInfos The list of currently connected RS servers ID.
+   * @param compressionEnabled Whether the sending RS accepts to compress the
+   *                           frames of the session.
+   */
+  public TopologyMsg(Collection<DSInfo> dsInfos, List<RSInfo> rsInfos, boolean compressionEnabled)
   {
     if (dsInfos == null || dsInfos.isEmpty())
     {
@@ -181,6 +197,7 @@ public class TopologyMsg extends ReplicationMsg
       this.rsInfos =
           Collections.unmodifiableList(new ArrayList<RSInfo>(rsInfos));
     }
+    this.compressionEnabled = compressionEnabled;
   }
 
   // ============
@@ -195,6 +212,7 @@ public class TopologyMsg extends ReplicationMsg
      * Message has the following form:
      * <pdu type><number of following DSInfo entries>[<DSInfo>]*
      * <number of following RSInfo entries>[<RSInfo>]*
+     * <compression enabled> (since V9)
      */
     final ByteArrayBuilder builder = new ByteArrayBuilder();
     builder.appendByte(MSG_TYPE_TOPOLOGY);
@@ -244,6 +262,10 @@ public class TopologyMsg extends ReplicationMsg
       }
     }
 
+    if (version >= REPLICATION_PROTOCOL_V9)
+    {
+      builder.appendBoolean(compressionEnabled);
+    }
     return builder.toByteArray();
   }
 
@@ -271,7 +293,8 @@ public class TopologyMsg extends ReplicationMsg
       + "CONNECTED RS SERVERS:"
       + "\n--------------------\n"
       + rsStr
-      + ("".equals(rsStr) ? "----------------------------\n" : "");
+      + ("".equals(rsStr) ? "----------------------------\n" : "")
+      + "compressionEnabled: " + compressionEnabled;
   }
 
   /**
@@ -293,4 +316,20 @@ public class TopologyMsg extends ReplicationMsg
   {
     return rsInfos;
   }
+
+  /**
+   * Returns whether the RS which sent this message accepts to compress the
+   * frames of the session. The topology messages exchanged during the
+   * handshake negotiate compression: a session between two RSs is compressed
+   * when both of them accept it, and a session between a RS and a DS is
+   * compressed when the RS accepts it.
+   *
+   * @return whether the RS which sent this message accepts to compress the
+   *         frames of the session, always {@code false} before
+   *         {@link ProtocolVersion#REPLICATION_PROTOCOL_V9}
+   */
+  public boolean isCompressionEnabled()
+  {
+    return compressionEnabled;
+  }
 }
@@ -429,6 +429,8 @@ public class DataServerHandler extends ServerHandler
 
         // Send our own TopologyMsg to remote DS
         TopologyMsg outTopoMsg = sendTopoToRemoteDS();
+        // The DS compresses the session as soon as it receives our TopologyMsg
+        session.setCompressionEnabled(outTopoMsg.isCompressionEnabled());
 
         logStartSessionHandshake(inStartSessionMsg, outTopoMsg);
       }
@@ -824,6 +824,31 @@ public class ReplicationServer
     return this.config.getReplicationPurgeDelay() * 1000;
   }
 
+  /**
+   * Retrieves the interval at which the changes written to the persistent
+   * storage are synchronized with the file system (in milliseconds).
+   *
+   * @return The synchronization interval (in milliseconds), or zero if the
+   *         synchronization is left to the operating system.
+   */
+  public long getChangelogSyncInterval()
+  {
+    return this.config.getChangelogSyncInterval();
+  }
+
+  /**
+   * Returns whether this replication server accepts to compress the messages
+   * exchanged with the other servers, which is negotiated when each session
+   * is established.
+   *
+   * @return whether this replication server accepts to compress the messages
+   *         exchanged with the other servers
+   */
+  public boolean isCompressionEnabled()
+  {
+    return this.config.isCompressionEnabled();
+  }
+
   /**
    * Check if the provided configuration is acceptable for add.
    *
@@ -874,6 +899,10 @@ public class ReplicationServer
     {
       this.changelogDB.setPurgeDelay(getPurgeDelay());
     }
+    if (config.getChangelogSyncInterval() != oldConfig.getChangelogSyncInterval())
+    {
+      this.changelogDB.setSyncInterval(getChangelogSyncInterval());
+    }
     final boolean computeCN = config.isComputeChangeNumber();
     if (computeCN != oldConfig.isComputeChangeNumber())
     {
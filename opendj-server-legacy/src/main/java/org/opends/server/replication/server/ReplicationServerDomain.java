@@ -1627,7 +1627,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
     // Create info for the local RS
     List<RSInfo> rsInfos = newArrayList(toRSInfo(localReplicationServer, generationId));
 
-    return new TopologyMsg(dsInfos, rsInfos);
+    return new TopologyMsg(dsInfos, rsInfos, localReplicationServer.isCompressionEnabled());
   }
 
   /**
@@ -1667,7 +1667,7 @@ public class ReplicationServerDomain extends MonitorProvider<MonitorProviderCfg>
       rsHandler.addDSInfos(dsInfos);
     }
 
-    return new TopologyMsg(dsInfos, rsInfos);
+    return new TopologyMsg(dsInfos, rsInfos, localReplicationServer.isCompressionEnabled());
   }
 
   private RSInfo toRSInfo(ReplicationServer rs, long generationId)
@@ -232,6 +232,7 @@ public class ReplicationServerHandler extends ServerHandler
         }
 
         logTopoHandshakeSNDandRCV(outTopoMsg, inTopoMsg);
+        negotiateCompression(outTopoMsg, inTopoMsg);
 
         /*
         FIXME: i think this should be done for all protocol version !!
@@ -334,6 +335,7 @@ public class ReplicationServerHandler extends ServerHandler
         sendTopoInfo(outTopoMsg);
 
         logTopoHandshakeRCVandSND(inTopoMsg, outTopoMsg);
+        negotiateCompression(outTopoMsg, inTopoMsg);
       }
       else
       {
@@ -400,6 +402,12 @@ public class ReplicationServerHandler extends ServerHandler
     }
   }
 
+  /** Compresses the session when both RSs accept it, see {@link TopologyMsg#isCompressionEnabled()}. */
+  private void negotiateCompression(TopologyMsg outTopoMsg, TopologyMsg inTopoMsg)
+  {
+    session.setCompressionEnabled(outTopoMsg.isCompressionEnabled() && inTopoMsg.isCompressionEnabled());
+  }
+
   /**
    * Wait receiving the TopologyMsg from the remote RS and process it.
    * @return the topologyMsg received or {@code null} if stop was received.
@@ -45,6 +45,20 @@ public interface ChangelogDB
    */
   void setPurgeDelay(long delayInMillis);
 
+  /**
+   * Sets the interval at which the records added to the replication database
+   * are synchronized with the file system. Can be called while the database is
+   * running.
+   * <p>
+   * All the records added during an interval are persisted by a single
+   * synchronization with the file system. Synchronizing is left to the
+   * operating system if the interval is zero.
+   *
+   * @param intervalInMillis
+   *          the synchronization interval in milliseconds
+   */
+  void setSyncInterval(long intervalInMillis);
+
   /**
    * Sets whether the replication database must compute change numbers for
    * replicated changes. Change numbers are computed using a separate new
@@ -24,6 +24,8 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -44,6 +46,10 @@ import org.opends.server.util.StaticUtils;
  * <p>
  * The reader provides both sequential access, using the {@code readRecord()} method,
  * and reasonably fast random access, using the {@code seekToRecord(K, boolean)} method.
+ * <p>
+ * The file is read by large chunks, see {@link ChunkedFileReader}. The binary searches
+ * on a read-only log file can be sped up by a {@link BlockIndex} shared by all the readers
+ * of the file.
  *
  * @param <K>
  *          Type of the key of a record, which must be comparable.
@@ -69,10 +75,53 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
 
   private final RecordParser<K, V> parser;
 
-  private final RandomAccessFile reader;
+  private final ChunkedFileReader reader;
 
   private final File file;
 
+  /** The index of the keys found at block starts, may be {@code null} if the file is not read-only. */
+  private final BlockIndex<K> blockIndex;
+
+  /**
+   * A sparse in-memory index of the keys of the records found from the block starts of a
+   * read-only log file.
+   * <p>
+   * The index is filled by the binary searches on the log file. As all binary searches
+   * visit the same block starts in their first steps, these steps are soon performed in
+   * memory, and only the last steps, which read close positions, read the log file.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   */
+  static final class BlockIndex<K>
+  {
+    /** The maximum number of indexed block starts, enough to perform the first 12 steps of the searches. */
+    static final int MAX_INDEXED_BLOCKS = 4096;
+
+    private final ConcurrentMap<Long, K> keys = new ConcurrentHashMap<>();
+
+    /** Returns the key of the record found from the provided block start, or {@code null} if not indexed. */
+    K get(final long blockStartPosition)
+    {
+      return keys.get(blockStartPosition);
+    }
+
+    /** Indexes the key of the record found from the provided block start, if the index is not full. */
+    void put(final long blockStartPosition, final K key)
+    {
+      if (keys.size() < MAX_INDEXED_BLOCKS)
+      {
+        keys.putIfAbsent(blockStartPosition, key);
+      }
+    }
+
+    /** Returns the number of indexed block starts. */
+    int size()
+    {
+      return keys.size();
+    }
+  }
+
   /**
    * Creates a reader for the provided file, file reader and parser.
    *
@@ -91,7 +140,31 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser)
   {
-    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE);
+    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE, null);
+  }
+
+  /**
+   * Creates a reader for the provided read-only file, file reader and parser,
+   * using the provided index to speed up the binary searches.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read, which must not be written any more.
+   * @param reader
+   *          The random access reader on the log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param blockIndex
+   *          The index shared by all the readers of the log file.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(final File file,
+      final RandomAccessFile reader, final RecordParser<K, V> parser, final BlockIndex<K> blockIndex)
+  {
+    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE, blockIndex);
   }
 
   /**
@@ -117,16 +190,45 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize)
   {
-    return new BlockLogReader<>(file, reader, parser, blockSize);
+    return new BlockLogReader<>(file, reader, parser, blockSize, null);
   }
 
-  private BlockLogReader(
-      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, final int blockSize)
+  /**
+   * Creates a reader for the provided file, file reader, parser, block size and index.
+   * <p>
+   * This method is intended for tests only, to allow tuning of the block size.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read, which must not be written any more.
+   * @param reader
+   *          The random access reader on the log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param blockSize
+   *          The size of each block, or frequency at which the record offset is
+   *          present in the log file.
+   * @param blockIndex
+   *          The index shared by all the readers of the log file.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(final File file,
+      final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize, BlockIndex<K> blockIndex)
+  {
+    return new BlockLogReader<>(file, reader, parser, blockSize, blockIndex);
+  }
+
+  private BlockLogReader(final File file, final RandomAccessFile reader, final RecordParser<K, V> parser,
+      final int blockSize, final BlockIndex<K> blockIndex)
   {
     this.file = file;
-    this.reader = reader;
+    this.reader = new ChunkedFileReader(reader);
     this.parser = parser;
     this.blockSize = blockSize;
+    this.blockIndex = blockIndex;
   }
 
   /**
@@ -204,15 +306,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   public long getFilePosition() throws ChangelogException
   {
-    try
-    {
-      return reader.getFilePointer();
-    }
-    catch (IOException e)
-    {
-      throw new ChangelogException(
-          ERR_CHANGELOG_UNABLE_TO_GET_CURSOR_READER_POSITION_LOG_FILE.get(file.getPath()), e);
-    }
+    return reader.getFilePointer();
   }
 
   /** {@inheritDoc} */
@@ -287,11 +381,11 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     try
     {
       // read length of record if not already at EOF
-      final long filePosition = reader.getFilePointer();
-      if (reader.length() == filePosition)
+      if (reader.isAtEndOfFile())
       {
         return null;
       }
+      final long filePosition = reader.getFilePointer();
       int distanceToBlockStart = getDistanceToNextBlockStart(filePosition, blockSize);
       final int recordLength = readRecordLength(distanceToBlockStart);
 
@@ -305,7 +399,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       {
         if (distanceToBlockStart != 0)
         {
-          recordBytes.appendBytes(reader, distanceToBlockStart);
+          reader.readBytes(recordBytes, distanceToBlockStart);
         }
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
@@ -318,7 +412,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       if (remainingBytesToRead > 0)
       {
         // last bytes of the record
-        recordBytes.appendBytes(reader, remainingBytesToRead);
+        reader.readBytes(recordBytes, remainingBytesToRead);
       }
       return recordBytes.toByteString();
     }
@@ -357,10 +451,10 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     final ByteStringBuilder lengthBytes = new ByteStringBuilder(SIZE_OF_RECORD_SIZE);
     if (distanceToBlockStart > 0 && distanceToBlockStart < SIZE_OF_RECORD_SIZE)
     {
-      lengthBytes.appendBytes(reader, distanceToBlockStart);
+      reader.readBytes(lengthBytes, distanceToBlockStart);
       // skip the offset
       reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
+      reader.readBytes(lengthBytes, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
     }
     else
     {
@@ -369,7 +463,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
         // skip the offset
         reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
       }
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE);
+      reader.readBytes(lengthBytes, SIZE_OF_RECORD_SIZE);
     }
     return lengthBytes.toByteString().toInt();
   }
@@ -377,7 +471,8 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   /**
    * Search the closest block start to the provided key, using binary search.
    * <p>
-   * Note that position of reader is modified by this method.
+   * Note that position of reader is modified by this method, unless all the
+   * visited block starts are indexed.
    *
    * @param key
    *          The key to search
@@ -396,13 +491,13 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     {
       final long middlePos = Math.min((lowPos + highPos) / 2, maxPos);
       final long middleBlockStartPos = getClosestBlockStartBeforeOrAtPosition(middlePos);
-      final Record<K, V> middleRecord = readRecord(middleBlockStartPos);
-      if (middleRecord == null)
+      final K middleKey = readKey(middleBlockStartPos);
+      if (middleKey == null)
       {
         return -1;
       }
 
-      final int keyComparison = middleRecord.getKey().compareTo(key);
+      final int keyComparison = middleKey.compareTo(key);
       if (keyComparison < 0)
       {
         if (middleBlockStartPos <= lowPos)
@@ -428,6 +523,26 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     return -1;
   }
 
+  /** Returns the key of the record found from the provided block start, or {@code null} if there is none. */
+  private K readKey(final long blockStartPosition) throws ChangelogException
+  {
+    K key = blockIndex != null ? blockIndex.get(blockStartPosition) : null;
+    if (key == null)
+    {
+      final Record<K, V> record = readRecord(blockStartPosition);
+      if (record == null)
+      {
+        return null;
+      }
+      key = record.getKey();
+      if (blockIndex != null)
+      {
+        blockIndex.put(blockStartPosition, key);
+      }
+    }
+    return key;
+  }
+
   private long getFileLength() throws ChangelogException
   {
     try
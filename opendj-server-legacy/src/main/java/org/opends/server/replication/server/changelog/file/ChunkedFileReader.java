@@ -0,0 +1,222 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * A reader on a log file, reading the file by large chunks aligned on the chunk size.
+ * <p>
+ * Records are much smaller than a chunk, so that reading records sequentially, or reading
+ * close positions as done by the last steps of a binary search, is served from memory most
+ * of the time instead of issuing several system calls per record.
+ * <p>
+ * Log files are only appended to, and always contain whole records when they are read, so
+ * that the bytes of the current chunk never change: it only has to be refilled when reading
+ * past its end, including when the file has grown since the chunk was read.
+ */
+class ChunkedFileReader implements Closeable
+{
+  /** Size of the chunks read from the file, which is a multiple of the block size. */
+  static final int CHUNK_SIZE = 16 * 1024;
+
+  private final RandomAccessFile file;
+
+  private final byte[] chunk;
+
+  /** Position in the file of the first byte of the chunk. */
+  private long chunkStart;
+
+  /** Number of bytes of the file available in the chunk. */
+  private int chunkLength;
+
+  /** Position of the reader in the file. */
+  private long position;
+
+  /**
+   * Creates a reader on the provided file.
+   *
+   * @param file
+   *          The random access file to read, may be {@code null} if the reader is never used to read.
+   */
+  ChunkedFileReader(final RandomAccessFile file)
+  {
+    this.file = file;
+    this.chunk = file != null ? new byte[CHUNK_SIZE] : new byte[0];
+  }
+
+  /**
+   * Sets the position of this reader.
+   *
+   * @param filePosition
+   *          offset from the beginning of the file, in bytes.
+   * @throws IOException
+   *           If the position is negative.
+   */
+  void seek(final long filePosition) throws IOException
+  {
+    if (filePosition < 0)
+    {
+      throw new IOException("Negative seek offset " + filePosition);
+    }
+    position = filePosition;
+  }
+
+  /**
+   * Returns the position of this reader.
+   *
+   * @return offset from the beginning of the file, in bytes.
+   */
+  long getFilePointer()
+  {
+    return position;
+  }
+
+  /**
+   * Returns the current length of the file.
+   *
+   * @return the length of the file, in bytes
+   * @throws IOException
+   *           If an error occurs.
+   */
+  long length() throws IOException
+  {
+    return file.length();
+  }
+
+  /**
+   * Indicates whether this reader is positioned at or after the end of the file.
+   *
+   * @return {@code true} if there is no more byte to read
+   * @throws IOException
+   *           If an error occurs.
+   */
+  boolean isAtEndOfFile() throws IOException
+  {
+    if (chunkStart <= position && position < chunkStart + chunkLength)
+    {
+      return false;
+    }
+    return position >= file.length();
+  }
+
+  /**
+   * Reads exactly {@code buffer.length} bytes into the provided buffer.
+   *
+   * @param buffer
+   *          The buffer to fill.
+   * @throws EOFException
+   *           If the end of file is reached before reading all the bytes.
+   * @throws IOException
+   *           If an error occurs.
+   */
+  void readFully(final byte[] buffer) throws IOException
+  {
+    int offset = 0;
+    while (offset < buffer.length)
+    {
+      final int length = Math.min(fillChunk(), buffer.length - offset);
+      System.arraycopy(chunk, (int) (position - chunkStart), buffer, offset, length);
+      position += length;
+      offset += length;
+    }
+  }
+
+  /**
+   * Reads exactly the provided number of bytes, appending them to the provided builder.
+   *
+   * @param builder
+   *          The builder to append the bytes to.
+   * @param length
+   *          The number of bytes to read.
+   * @throws EOFException
+   *           If the end of file is reached before reading all the bytes.
+   * @throws IOException
+   *           If an error occurs.
+   */
+  void readBytes(final ByteStringBuilder builder, final int length) throws IOException
+  {
+    int remaining = length;
+    while (remaining > 0)
+    {
+      final int read = Math.min(fillChunk(), remaining);
+      builder.appendBytes(chunk, (int) (position - chunkStart), read);
+      position += read;
+      remaining -= read;
+    }
+  }
+
+  /**
+   * Skips the provided number of bytes.
+   *
+   * @param length
+   *          The number of bytes to skip.
+   */
+  void skipBytes(final int length)
+  {
+    position += length;
+  }
+
+  /**
+   * Ensures the byte at the current position is available in the chunk, reading the chunk
+   * containing it from the file if needed.
+   *
+   * @return the number of bytes available in the chunk from the current position
+   */
+  private int fillChunk() throws IOException
+  {
+    if (position < chunkStart || position >= chunkStart + chunkLength)
+    {
+      chunkStart = position - position % chunk.length;
+      chunkLength = 0;
+      file.seek(chunkStart);
+      while (chunkLength < chunk.length)
+      {
+        final int read = file.read(chunk, chunkLength, chunk.length - chunkLength);
+        if (read == -1)
+        {
+          break;
+        }
+        chunkLength += read;
+      }
+      if (position >= chunkStart + chunkLength)
+      {
+        throw new EOFException();
+      }
+    }
+    return (int) (chunkStart + chunkLength - position);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if (file != null)
+    {
+      file.close();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "(position=" + position + ", chunkStart=" + chunkStart + ")";
+  }
+}
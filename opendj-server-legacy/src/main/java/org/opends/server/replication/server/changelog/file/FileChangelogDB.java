@@ -109,6 +109,14 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
   private volatile long purgeDelayInMillis;
   private final AtomicReference<ChangelogDBPurger> cnPurger = new AtomicReference<>();
 
+  /**
+   * The interval (in milliseconds) at which the records added to the changelog DB
+   * are synchronized with the file system. Synchronization is left to the operating
+   * system if it is zero.
+   */
+  private volatile long syncIntervalInMillis;
+  private final AtomicReference<ChangelogDBSyncer> syncer = new AtomicReference<>();
+
   /** The local replication server. */
   private final ReplicationServer replicationServer;
   private final AtomicBoolean shutdown = new AtomicBoolean();
@@ -290,6 +298,7 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
         startIndexer();
       }
       setPurgeDelay(replicationServer.getPurgeDelay());
+      setSyncInterval(replicationServer.getChangelogSyncInterval());
     }
     catch (ChangelogException e)
     {
@@ -334,6 +343,7 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
 
     shutdownCNIndexerAndPurger();
+    shutdownSyncer();
 
     // Remember the first exception because :
     // - we want to try to remove everything we want to remove
@@ -405,6 +415,28 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
   }
 
+  private void shutdownSyncer()
+  {
+    final ChangelogDBSyncer syncerToStop = syncer.getAndSet(null);
+    if (syncerToStop != null)
+    {
+      syncerToStop.initiateShutdown();
+      if (syncerToStop == Thread.currentThread())
+      { // the syncer is shutting down the replication server after a failure
+        return;
+      }
+      try
+      {
+        // wait for the last synchronization before closing the logs
+        syncerToStop.join();
+      }
+      catch (InterruptedException e)
+      {
+        // do nothing: we are already shutting down
+      }
+    }
+  }
+
   /**
    * Clears all records from the changelog (does not remove the changelog itself).
    *
@@ -579,6 +611,37 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
   }
 
+  @Override
+  public void setSyncInterval(final long intervalInMillis)
+  {
+    this.syncIntervalInMillis = intervalInMillis;
+
+    if (intervalInMillis > 0)
+    {
+      final ChangelogDBSyncer newSyncer = new ChangelogDBSyncer();
+      if (syncer.compareAndSet(null, newSyncer))
+      {
+        newSyncer.start();
+      }
+      else
+      { // a syncer was already running, wake it up to apply the new interval
+        final ChangelogDBSyncer currentSyncer = syncer.get();
+        synchronized (currentSyncer)
+        {
+          currentSyncer.notify();
+        }
+      }
+    }
+    else
+    {
+      final ChangelogDBSyncer syncerToStop = syncer.getAndSet(null);
+      if (syncerToStop != null)
+      { // stop this syncer, the records it did not synchronize yet are left to the operating system
+        syncerToStop.initiateShutdown();
+      }
+    }
+  }
+
   private void startCNPurger()
   {
     final ChangelogDBPurger newPurger = new ChangelogDBPurger();
@@ -1020,4 +1083,61 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
       }
     }
   }
+
+  /**
+   * The changelog DB syncer synchronizes with the file system the records
+   * added to the changelog DB at the configured interval.
+   * <p>
+   * All the records added to a log during an interval are persisted by a single
+   * synchronization of the log, instead of one synchronization per record.
+   */
+  private final class ChangelogDBSyncer extends DirectoryThread
+  {
+    protected ChangelogDBSyncer()
+    {
+      super("Changelog DB syncer");
+    }
+
+    @Override
+    public void run()
+    {
+      while (!isShutdownInitiated())
+      {
+        try
+        {
+          synchronized (this)
+          {
+            if (!isShutdownInitiated())
+            {
+              wait(syncIntervalInMillis);
+            }
+          }
+          replicationEnv.syncLogs();
+        }
+        catch (InterruptedException e)
+        {
+          // shutdown initiated?
+        }
+        catch (Exception e)
+        {
+          logger.error(ERR_EXCEPTION_CHANGELOG_SYNC, stackTraceToSingleLineString(e));
+          if (replicationServer != null)
+          {
+            replicationServer.shutdown();
+          }
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void initiateShutdown()
+    {
+      super.initiateShutdown();
+      synchronized (this)
+      {
+        notify(); // wake up the syncer thread for faster shutdown
+      }
+    }
+  }
 }
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -172,11 +173,14 @@ final class Log<K extends Comparable<K>, V> implements Closeable
 
   /**
    * The exclusive lock used for log rotation and lifecycle operations on this log:
-   * initialize, clear, sync and close.
+   * initialize, clear and close.
    */
   private final Lock exclusiveLock;
 
-  /** The shared lock used for write operations and accessing {@link #logFiles} map. */
+  /**
+   * The shared lock used for write operations, synchronization with the file system
+   * and accessing {@link #logFiles} map.
+   */
   private final Lock sharedLock;
 
   /**
@@ -185,6 +189,27 @@ final class Log<K extends Comparable<K>, V> implements Closeable
    */
   private final ReplicationEnvironment replicationEnv;
 
+  /** The number of records appended to this log since it was opened. */
+  private final AtomicLong appendedRecords = new AtomicLong();
+
+  /**
+   * Lock used to coalesce the synchronizations with the file system: a single thread forces
+   * the head log file while the others wait for it to complete.
+   */
+  private final Object syncLock = new Object();
+
+  /** The number of appended records known to be persisted to the file system. */
+  @GuardedBy("syncLock")
+  private long syncedRecords;
+
+  /** Indicates if a thread is currently forcing the head log file to the file system. */
+  @GuardedBy("syncLock")
+  private boolean syncInProgress;
+
+  /** The number of times the head log file was forced to the file system. */
+  @GuardedBy("syncLock")
+  private long numberOfSyncs;
+
   /**
    * Open a log with the provided log path, record parser and maximum size per
    * log file.
@@ -428,6 +453,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
       if (!mustRotate(headLogFile))
       {
         headLogFile.append(record);
+        appendedRecords.incrementAndGet();
         return;
       }
     }
@@ -458,6 +484,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
         headLogFile = getHeadLogFile();
       }
       headLogFile.append(record);
+      appendedRecords.incrementAndGet();
     }
     finally
     {
@@ -499,20 +526,101 @@ final class Log<K extends Comparable<K>, V> implements Closeable
    * <p>
    * After a successful call to this method, it is guaranteed that all records
    * added to the log are persisted to the file system.
+   * <p>
+   * Concurrent calls are grouped: a single thread forces the head log file for all
+   * the records appended so far, while the other threads wait for it and return
+   * without forcing the file again if the records they appended are covered.
+   * Records can be appended while the file is being forced.
    *
    * @throws ChangelogException
    *           If the synchronization fails.
    */
   public void syncToFileSystem() throws ChangelogException
   {
-    exclusiveLock.lock();
+    final long recordsToSync = appendedRecords.get();
+    synchronized (syncLock)
+    {
+      boolean interrupted = false;
+      while (syncInProgress)
+      {
+        try
+        {
+          syncLock.wait();
+        }
+        catch (InterruptedException e)
+        {
+          // the records must be persisted before returning, wait anyway
+          interrupted = true;
+        }
+      }
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+      if (syncedRecords >= recordsToSync)
+      {
+        // the records were persisted by a synchronization which completed in the meantime
+        return;
+      }
+      syncInProgress = true;
+    }
+
+    // all the records appended up to now are persisted once the head log file is forced
+    final long appendedBeforeSync = appendedRecords.get();
+    boolean synced = false;
+    sharedLock.lock();
     try
     {
-      getHeadLogFile().syncToFileSystem();
+      if (!isClosed)
+      {
+        getHeadLogFile().syncToFileSystem();
+      }
+      synced = true;
     }
     finally
     {
-      exclusiveLock.unlock();
+      sharedLock.unlock();
+      synchronized (syncLock)
+      {
+        if (synced)
+        {
+          numberOfSyncs++;
+          if (syncedRecords < appendedBeforeSync)
+          {
+            syncedRecords = appendedBeforeSync;
+          }
+        }
+        syncInProgress = false;
+        syncLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of times the records of this log were synchronized with the file system.
+   *
+   * @return the number of synchronizations with the file system
+   */
+  long getNumberOfSyncs()
+  {
+    synchronized (syncLock)
+    {
+      return numberOfSyncs;
+    }
+  }
+
+  /**
+   * Indicates if some records have been appended to this log since the last
+   * synchronization with the file system.
+   *
+   * @return {@code true} if calling {@link #syncToFileSystem()} would force
+   *         records to the file system
+   */
+  boolean hasRecordsToSync()
+  {
+    synchronized (syncLock)
+    {
+      return syncedRecords < appendedRecords.get();
     }
   }
 
@@ -108,7 +108,7 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
     sharedLock = rwLock.readLock();
     createLogFileIfNotExists();
 
-    readerPool = new LogReaderPool<>(logfile, parser);
+    readerPool = new LogReaderPool<>(logfile, parser, isWriteEnabled);
     if (isWriteEnabled)
     {
       ensureLogFileIsValid(parser);
@@ -321,7 +321,8 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   void syncToFileSystem() throws ChangelogException
   {
     checkLogIsEnabledForWrite();
-    sharedLock.lock();
+    // no lock is taken so that records can be appended while the file is forced:
+    // callers ensure the file is not closed concurrently
     try
     {
       writer.sync();
@@ -330,10 +331,6 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
     {
       throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_SYNC.get(getPath()), e);
     }
-    finally
-    {
-      sharedLock.unlock();
-    }
   }
 
   /**
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.RandomAccessFile;
 
 import org.opends.server.replication.server.changelog.api.ChangelogException;
+import org.opends.server.replication.server.changelog.file.BlockLogReader.BlockIndex;
 import org.opends.server.util.StaticUtils;
 
 import static org.opends.messages.ReplicationMessages.*;
@@ -40,6 +41,9 @@ class LogReaderPool<K extends Comparable<K>, V>
 
   private final RecordParser<K, V> parser;
 
+  /** The index shared by the readers of a read-only file, {@code null} if the file is write-enabled. */
+  private final BlockIndex<K> blockIndex;
+
   /**
    * Creates a pool of readers for provided file.
    *
@@ -47,11 +51,15 @@ class LogReaderPool<K extends Comparable<K>, V>
    *          The file to read.
    * @param parser
    *          The parser to decode the records read.
+   * @param isWriteEnabled
+   *          {@code true} if the file is write-enabled, {@code false} if it is
+   *          read-only and can be indexed.
    */
-  LogReaderPool(File file, RecordParser<K, V> parser)
+  LogReaderPool(File file, RecordParser<K, V> parser, boolean isWriteEnabled)
   {
     this.file = file;
     this.parser = parser;
+    this.blockIndex = isWriteEnabled ? null : new BlockIndex<K>();
   }
 
   /**
@@ -88,7 +96,7 @@ class LogReaderPool<K extends Comparable<K>, V>
   {
     try
     {
-      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser) ;
+      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser, blockIndex);
     }
     catch (Exception e)
     {
@@ -286,6 +286,30 @@ class ReplicationEnvironment implements ChangelogStateProvider
     }
   }
 
+  /**
+   * Synchronizes with the file system the logs in use which have records not yet persisted.
+   *
+   * @throws ChangelogException
+   *           If the synchronization of a log fails.
+   */
+  void syncLogs() throws ChangelogException
+  {
+    for (Log<CSN, UpdateMsg> log : logsReplicaDB)
+    {
+      if (log.hasRecordsToSync())
+      {
+        log.syncToFileSystem();
+      }
+    }
+    for (Log<Long, ChangeNumberIndexRecord> log : logsCNIndexDB)
+    {
+      if (log.hasRecordsToSync())
+      {
+        log.syncToFileSystem();
+      }
+    }
+  }
+
   /**
    * Returns the state of the replication changelog.
    *
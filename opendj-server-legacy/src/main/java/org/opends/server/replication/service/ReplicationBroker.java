@@ -1207,6 +1207,8 @@ public class ReplicationBroker
 
       // Read the TopologyMsg that should come back.
       final TopologyMsg topologyMsg = (TopologyMsg) session.receive();
+      // The RS decides whether the session is compressed
+      session.setCompressionEnabled(topologyMsg.isCompressionEnabled());
 
       if (logger.isTraceEnabled())
       {
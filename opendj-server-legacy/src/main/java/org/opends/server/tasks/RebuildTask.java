@@ -57,6 +57,7 @@ public class RebuildTask extends Task
   private String tmpDirectory;
   private RebuildMode rebuildMode = RebuildMode.USER_DEFINED;
   private boolean isClearDegradedState;
+  private boolean isOnline;
 
   @Override
   public LocalizableMessage getDisplayName()
@@ -88,6 +89,7 @@ public class RebuildTask extends Task
     tmpDirectory = asString(taskEntry, ATTR_REBUILD_TMP_DIRECTORY);
     final String val = asString(taskEntry, ATTR_REBUILD_INDEX_CLEARDEGRADEDSTATE);
     isClearDegradedState = Boolean.parseBoolean(val);
+    isOnline = Boolean.parseBoolean(asString(taskEntry, ATTR_REBUILD_ONLINE));
     indexes = TaskUtils.getMultiValueString(taskEntry.getAllAttributes(ATTR_REBUILD_INDEX));
 
     rebuildMode = getRebuildMode(indexes);
@@ -146,6 +148,7 @@ public class RebuildTask extends Task
     // The degraded state is set(if present in args)
     // during the initialization.
     rebuildConfig.isClearDegradedState(isClearDegradedState);
+    rebuildConfig.setOnline(isOnline);
     boolean isBackendNeedToBeEnabled = false;
 
     if (tmpDirectory == null)
@@ -174,8 +177,9 @@ public class RebuildTask extends Task
     StringBuilder failureReason = new StringBuilder();
 
     // Disable the backend
-    // Except in 'cleardegradedstate' mode we don't need to disable it.
-    if (!isClearDegradedState)
+    // Except in 'cleardegradedstate' and online modes we don't need to disable it.
+    final boolean keepBackendEnabled = isClearDegradedState || isOnline;
+    if (!keepBackendEnabled)
     {
       try
       {
@@ -272,7 +276,7 @@ public class RebuildTask extends Task
     // The backend must be enabled only if the task is successful
     // for prevent potential risks of database corruption.
     if ((returnCode == TaskState.COMPLETED_SUCCESSFULLY || isBackendNeedToBeEnabled)
-        && !isClearDegradedState)
+        && !keepBackendEnabled)
     {
       // Enable the backend.
       try
@@ -0,0 +1,284 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.forgerock.opendj.reactive;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.reactive.LDAPClientConnection2.DemandDrivenSubscription.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.responses.Response;
+import org.forgerock.opendj.ldap.responses.Responses;
+import org.forgerock.opendj.reactive.LDAPClientConnection2.DemandDrivenSubscription;
+import org.opends.server.DirectoryServerTestCase;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(sequential = true)
+public class DemandDrivenSubscriptionTestCase extends DirectoryServerTestCase {
+    /** The write time limit of the tested streams, long enough to never expire unless a test expects it. */
+    private static final long WRITE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private Subscription upstreamSubscription;
+    private RecordingSubscriber downstream;
+
+    @BeforeMethod
+    public void setUp() {
+        upstreamSubscription = mock(Subscription.class);
+        downstream = new RecordingSubscriber();
+    }
+
+    @Test
+    public void testUpstreamIsRequestedWithoutBound() {
+        newSubscription(WRITE_TIMEOUT_MILLIS);
+
+        verify(upstreamSubscription).request(Long.MAX_VALUE);
+        assertThat(downstream.subscription).isNotNull();
+    }
+
+    @Test
+    public void testResponsesAreNotEmittedWithoutDemand() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+
+        stream.onNext(newResponse());
+        stream.onNext(newResponse());
+        stream.onNext(newResponse());
+
+        assertThat(downstream.responses).isEmpty();
+    }
+
+    @Test
+    public void testResponsesAreEmittedUpToTheRequestedDemand() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        final Response first = newResponse();
+        final Response second = newResponse();
+        final Response third = newResponse();
+        stream.onNext(first);
+        stream.onNext(second);
+        stream.onNext(third);
+
+        downstream.request(2);
+        assertThat(downstream.responses).containsExactly(first, second);
+
+        downstream.request(1);
+        assertThat(downstream.responses).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void testUnusedDemandIsKeptForLaterResponses() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        final Response first = newResponse();
+        final Response second = newResponse();
+        final Response third = newResponse();
+        stream.onNext(first);
+
+        downstream.request(2);
+        downstream.request(1);
+        assertThat(downstream.responses).containsExactly(first);
+
+        // the two remaining requests are served as soon as the responses are produced
+        stream.onNext(second);
+        stream.onNext(third);
+        assertThat(downstream.responses).containsExactly(first, second, third);
+
+        // then the demand is exhausted again
+        stream.onNext(newResponse());
+        assertThat(downstream.responses).hasSize(3);
+    }
+
+    @Test
+    public void testUnboundedDemandEmitsAllResponses() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        stream.onNext(newResponse());
+
+        downstream.request(Long.MAX_VALUE);
+        for (int i = 0; i < 2 * MAX_QUEUED_RESPONSES; i++) {
+            stream.onNext(newResponse());
+        }
+
+        assertThat(downstream.responses).hasSize(2 * MAX_QUEUED_RESPONSES + 1);
+    }
+
+    @Test
+    public void testCompletionIsForwardedOnceQueuedResponsesAreEmitted() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        stream.onNext(newResponse());
+        stream.onNext(newResponse());
+        stream.onComplete();
+
+        downstream.request(1);
+        assertThat(downstream.responses).hasSize(1);
+        assertThat(downstream.completed).isFalse();
+
+        downstream.request(1);
+        assertThat(downstream.responses).hasSize(2);
+        assertThat(downstream.completed).isTrue();
+        assertThat(downstream.error).isNull();
+    }
+
+    @Test
+    public void testErrorIsForwardedOnceQueuedResponsesAreEmitted() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        final Exception error = new Exception("test");
+        stream.onNext(newResponse());
+        stream.onError(error);
+        assertThat(downstream.error).isNull();
+
+        downstream.request(1);
+        assertThat(downstream.responses).hasSize(1);
+        assertThat(downstream.error).isSameAs(error);
+        assertThat(downstream.completed).isFalse();
+    }
+
+    @Test
+    public void testResponsesAreDroppedOnceCancelled() {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        stream.onNext(newResponse());
+
+        downstream.subscription.cancel();
+        verify(upstreamSubscription).cancel();
+
+        stream.onNext(newResponse());
+        downstream.request(Long.MAX_VALUE);
+        assertThat(downstream.responses).isEmpty();
+    }
+
+    @Test(timeOut = 30000)
+    public void testProducerIsSuspendedUntilQueuedResponsesAreDrained() throws Exception {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        final Thread producer = startProducer(stream, MAX_QUEUED_RESPONSES);
+
+        waitUntilSuspended(producer);
+        assertThat(downstream.responses).isEmpty();
+
+        // the producer is resumed only once the queue is back to the resume threshold
+        downstream.request(MAX_QUEUED_RESPONSES - RESUME_QUEUED_RESPONSES - 1);
+        assertThat(producer.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+
+        downstream.request(1);
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(producer.isAlive()).isFalse();
+        assertThat(downstream.responses).hasSize(MAX_QUEUED_RESPONSES - RESUME_QUEUED_RESPONSES);
+        assertThat(downstream.error).isNull();
+        verify(upstreamSubscription, never()).cancel();
+    }
+
+    @Test(timeOut = 30000)
+    public void testCancellationResumesSuspendedProducer() throws Exception {
+        final DemandDrivenSubscription stream = newSubscription(WRITE_TIMEOUT_MILLIS);
+        final Thread producer = startProducer(stream, MAX_QUEUED_RESPONSES);
+        waitUntilSuspended(producer);
+
+        downstream.subscription.cancel();
+
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(producer.isAlive()).isFalse();
+        verify(upstreamSubscription).cancel();
+        assertThat(downstream.responses).isEmpty();
+    }
+
+    @Test(timeOut = 30000)
+    public void testStalledStreamFailsAndCancelsUpstream() throws Exception {
+        final DemandDrivenSubscription stream = newSubscription(100);
+        final Thread producer = startProducer(stream, MAX_QUEUED_RESPONSES);
+
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(producer.isAlive()).isFalse();
+        verify(upstreamSubscription).cancel();
+
+        // the queued responses are still written before the failure is reported
+        downstream.request(Long.MAX_VALUE);
+        assertThat(downstream.responses).hasSize(MAX_QUEUED_RESPONSES);
+        assertThat(downstream.error).isInstanceOf(ClosedChannelException.class);
+    }
+
+    private DemandDrivenSubscription newSubscription(final long writeTimeoutMillis) {
+        final DemandDrivenSubscription stream = new DemandDrivenSubscription(writeTimeoutMillis,
+                new Publisher<Response>() {
+                    @Override
+                    public void subscribe(final Subscriber<? super Response> subscriber) {
+                        subscriber.onSubscribe(upstreamSubscription);
+                    }
+                });
+        stream.subscribe(downstream);
+        return stream;
+    }
+
+    private static Thread startProducer(final DemandDrivenSubscription stream, final int nbResponses) {
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < nbResponses; i++) {
+                    stream.onNext(newResponse());
+                }
+            }
+        }, "DemandDrivenSubscription producer");
+        producer.start();
+        return producer;
+    }
+
+    private static void waitUntilSuspended(final Thread producer) throws InterruptedException {
+        while (producer.getState() != Thread.State.TIMED_WAITING) {
+            assertThat(producer.isAlive()).as("the producer must be suspended").isTrue();
+            Thread.sleep(10);
+        }
+    }
+
+    private static Response newResponse() {
+        return Responses.newResult(ResultCode.SUCCESS);
+    }
+
+    /** A subscriber recording the signals it receives, which only requests responses when told to. */
+    private static final class RecordingSubscriber implements Subscriber<Response> {
+        private final List<Response> responses = new CopyOnWriteArrayList<>();
+        private volatile Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(final Response response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        void request(final long n) {
+            subscription.request(n);
+        }
+    }
+}
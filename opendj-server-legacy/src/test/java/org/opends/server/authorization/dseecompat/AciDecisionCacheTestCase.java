@@ -0,0 +1,123 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.authorization.dseecompat;
+
+import static org.opends.server.config.ConfigConstants.ATTR_AUTHZ_GLOBAL_ACI;
+import static org.testng.Assert.*;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.core.AccessControlConfigManager;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.protocols.internal.Requests;
+import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.types.AuthenticationInfo;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Test the caching of ACI evaluation results. */
+@SuppressWarnings("javadoc")
+public class AciDecisionCacheTestCase extends AciTestCase {
+
+  private static final String peopleBase = "ou=People,o=test";
+  private static final String user5 = "uid=user.5,ou=People,o=test";
+  private static final String group1DN = "cn=group 1,ou=Nested Groups,o=test";
+
+  private static final String groupAci = "(targetattr=\"*\")" +
+        "(version 3.0; acl \"group ACI\"; " +
+        "allow (all) " +
+        "groupdn=\"ldap:///" + group1DN + "\";)";
+
+  private static final String userAci = "(targetattr=\"*\")" +
+        "(version 3.0; acl \"user ACI\"; " +
+        "allow (all) " +
+        "userdn=\"ldap:///uid=user.*,ou=People,o=test\";)";
+
+  @BeforeClass
+  public void setupClass() throws Exception {
+    deleteAttrFromAdminEntry(ACCESS_HANDLER_DN, ATTR_AUTHZ_GLOBAL_ACI);
+    addEntries("o=test");
+  }
+
+  @BeforeMethod
+  public void clearBackend() throws Exception {
+    deleteAttrFromEntry(peopleBase, "aci");
+    deleteAttrFromEntry(group1DN, "member");
+    getDecisionCache().enabled = true;
+  }
+
+  @Test
+  public void testGroupMembershipChangesAreApplied() throws Exception {
+    LDIFModify(makeAddLDIF("aci", peopleBase, groupAci), DIR_MGR_DN, PWD);
+    assertEquals(searchUser5(), "");
+
+    LDIFModify(makeAddLDIF("member", group1DN, user5), DIR_MGR_DN, PWD);
+    assertNotEquals(searchUser5(), "");
+    assertTrue(getDecisionCache().size() > 0);
+
+    LDIFModify(makeDelLDIF("member", group1DN, user5), DIR_MGR_DN, PWD);
+    assertEquals(searchUser5(), "");
+  }
+
+  @Test
+  public void testAciChangesClearTheCache() throws Exception {
+    LDIFModify(makeAddLDIF("aci", peopleBase, userAci), DIR_MGR_DN, PWD);
+    assertNotEquals(searchUser5(), "");
+    assertTrue(getDecisionCache().size() > 0);
+
+    deleteAttrFromEntry(peopleBase, "aci");
+    assertEquals(getDecisionCache().size(), 0);
+    assertEquals(searchUser5(), "");
+  }
+
+  /**
+   * This test should be disabled.
+   * Enable it locally when you need to have an rough idea of the per-entry cost of ACI evaluation.
+   */
+  @Test(enabled=false)
+  public void perEntryAciCost() throws Exception {
+    LDIFModify(makeAddLDIF("aci", peopleBase, groupAci, userAci), DIR_MGR_DN, PWD);
+    LDIFModify(makeAddLDIF("member", group1DN, user5), DIR_MGR_DN, PWD);
+    final InternalClientConnection conn =
+        new InternalClientConnection(new AuthenticationInfo(DirectoryServer.getEntry(DN.valueOf(user5)), false));
+    final SearchRequest request = Requests.newSearchRequest(DN.valueOf(peopleBase), SearchScope.WHOLE_SUBTREE);
+
+    final AciDecisionCache cache = getDecisionCache();
+    for (boolean enabled : new boolean[] { false, true }) {
+      cache.enabled = enabled;
+      cache.clear();
+      long nbEntries = 0;
+      final long start = System.nanoTime();
+      for (int i = 0; i < 10000; i++) {
+        final InternalSearchOperation search = conn.processSearch(request);
+        nbEntries += search.getSearchEntries().size();
+      }
+      final long durationNanos = System.nanoTime() - start;
+      System.out.println("cache enabled=" + enabled + ": " + (durationNanos / nbEntries) + " ns per entry");
+    }
+  }
+
+  private String searchUser5() {
+    return LDAPSearchParams(user5, PWD, null, null, null, user5, filter, null);
+  }
+
+  private static AciDecisionCache getDecisionCache() {
+    return ((AciHandler) AccessControlConfigManager.getInstance().getAccessControlHandler()).getDecisionCache();
+  }
+}
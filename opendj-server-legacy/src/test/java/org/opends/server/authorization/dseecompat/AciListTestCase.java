@@ -0,0 +1,140 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.authorization.dseecompat;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.types.Entry;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Test the tree of ACIs kept by the ACI list. */
+@SuppressWarnings("javadoc")
+public class AciListTestCase extends DirectoryServerTestCase
+{
+  private static final DN CONFIG_DN = DN.valueOf("cn=Access Control Handler,cn=config");
+
+  private AciList aciList;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void createAciList() throws Exception
+  {
+    aciList = new AciList(CONFIG_DN);
+    final LinkedList<LocalizableMessage> failedAcis = new LinkedList<>();
+    final int validAcis = aciList.addAci(Arrays.asList(
+        entryWithAci("o=test", "test"),
+        entryWithAci("ou=People,o=test", "people"),
+        entryWithAci("uid=user.1,ou=People,o=test", "user.1")), failedAcis);
+    assertThat(validAcis).isEqualTo(3);
+    assertThat(failedAcis).isEmpty();
+  }
+
+  @Test
+  public void testCandidateAcisAreGatheredFromTheClosestEntry() throws Exception
+  {
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"))))
+        .containsExactly("user.1", "people", "test");
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("uid=user.2,ou=People,o=test"))))
+        .containsExactly("people", "test");
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("ou=Groups,o=test")))).containsExactly("test");
+    assertThat(aciList.getCandidateAcis(DN.valueOf("o=other"))).isEmpty();
+    assertThat(aciList.getCandidateAcis(null)).isEmpty();
+  }
+
+  @Test
+  public void testCandidateAcisOfASingleEntryAreShared() throws Exception
+  {
+    final List<Aci> acis = aciList.getCandidateAcis(DN.valueOf("ou=Groups,o=test"));
+    assertThat(aciList.getCandidateAcis(DN.valueOf("cn=group,ou=Groups,o=test"))).isSameAs(acis);
+  }
+
+  @Test
+  public void testReadersKeepTheirSnapshot() throws Exception
+  {
+    final List<Aci> acis = aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"));
+
+    assertThat(aciList.removeAci(entryWithAci("ou=People,o=test", "people"), true, false)).isTrue();
+
+    assertThat(aclNames(acis)).containsExactly("user.1", "people", "test");
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"))))
+        .containsExactly("test");
+  }
+
+  @Test
+  public void testModifyAcis() throws Exception
+  {
+    final Entry oldEntry = entryWithAci("ou=People,o=test", "people");
+    final Entry newEntry = entryWithAci("ou=People,o=test", "new people");
+    aciList.modAciOldNewEntry(oldEntry, newEntry, true, false);
+
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"))))
+        .containsExactly("user.1", "new people", "test");
+  }
+
+  @Test
+  public void testRenameAcis() throws Exception
+  {
+    aciList.renameAci(DN.valueOf("ou=People,o=test"), DN.valueOf("ou=Users,o=test"));
+
+    assertThat(aclNames(aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"))))
+        .containsExactly("test");
+    final List<Aci> acis = aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=Users,o=test"));
+    assertThat(aclNames(acis)).containsExactly("user.1", "people", "test");
+    assertThat(acis.get(0).getDN()).isEqualTo(DN.valueOf("uid=user.1,ou=Users,o=test"));
+  }
+
+  @Test
+  public void testRemoveAcisOfASubtree() throws Exception
+  {
+    assertThat(aciList.removeAci(entryWithAci("o=test", "test"), true, false)).isTrue();
+    assertThat(aciList.getCandidateAcis(DN.valueOf("uid=user.1,ou=People,o=test"))).isEmpty();
+    assertThat(aciList.removeAci(entryWithAci("o=test", "test"), true, false)).isFalse();
+  }
+
+  private static Entry entryWithAci(String dn, String aclName) throws Exception
+  {
+    return TestCaseUtils.makeEntry(
+        "dn: " + dn,
+        "objectClass: top",
+        "objectClass: extensibleObject",
+        "aci: (targetattr=\"*\")(version 3.0; acl \"" + aclName + "\"; allow (all) userdn=\"ldap:///anyone\";)");
+  }
+
+  private static String[] aclNames(List<Aci> acis)
+  {
+    final String[] names = new String[acis.size()];
+    for (int i = 0; i < names.length; i++)
+    {
+      names[i] = acis.get(i).getName();
+    }
+    return names;
+  }
+}
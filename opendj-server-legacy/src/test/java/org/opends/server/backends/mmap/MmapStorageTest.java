@@ -0,0 +1,367 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mmap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MmapBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MmapStorageTest extends DirectoryServerTestCase
+{
+  private static final int NB_RECORDS = 2000;
+
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private MmapBackendCfg backendCfg;
+  private MmapStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    backendCfg = createBackendCfg("MmapStorageTest");
+    StaticUtils.recursiveDelete(getDBDirectory(backendCfg.getDBDirectory(), backendCfg.getBackendId()));
+    storage = openStorage(backendCfg);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testRecordsArePersistedAcrossRestarts() throws Exception
+  {
+    putRecords(0, 10);
+
+    restart();
+
+    assertThat(readKeys()).isEqualTo(keys(0, 10));
+    assertThat(read(key(5))).isEqualTo(value(5));
+    assertThat(storage.listTrees()).containsOnly(treeName);
+  }
+
+  @Test
+  public void testSegmentsAreWrittenAndMerged() throws Exception
+  {
+    for (int i = 0; i < NB_RECORDS; i += 10)
+    {
+      putRecords(i, i + 10);
+    }
+    deleteRecords(0, NB_RECORDS / 2);
+    assertThat(readKeys()).isEqualTo(keys(NB_RECORDS / 2, NB_RECORDS));
+
+    restart();
+
+    assertThat(readKeys()).isEqualTo(keys(NB_RECORDS / 2, NB_RECORDS));
+    assertThat(getRecordCount()).isEqualTo(NB_RECORDS / 2);
+    assertThat(read(key(0))).isNull();
+    assertThat(read(key(NB_RECORDS - 1))).isEqualTo(value(NB_RECORDS - 1));
+    assertThat(getStorageFiles("segment.")).isNotEmpty();
+  }
+
+  @Test
+  public void testCursorSeeksAcrossLevels() throws Exception
+  {
+    putRecords(0, 100);
+    restart();
+    // Hide records of the segment with records of the active layer
+    deleteRecords(10, 20);
+    putRecords(50, 60);
+
+    final List<ByteString> lastKeys = storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.positionToKey(key(15))).isFalse();
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(20));
+          assertThat(cursor.positionToKeyOrNext(key(10))).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(20));
+          assertThat(cursor.positionToKey(key(55))).isTrue();
+          assertThat(cursor.getValue()).isEqualTo(value(55));
+          assertThat(cursor.positionToIndex(10)).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(20));
+
+          final List<ByteString> keys = new ArrayList<>();
+          assertThat(cursor.positionToLastKey()).isTrue();
+          keys.add(cursor.getKey());
+          assertThat(cursor.next()).isFalse();
+          return keys;
+        }
+      }
+    });
+    assertThat(lastKeys).containsExactly(key(99));
+  }
+
+  @Test
+  public void testReadAllAcrossLevels() throws Exception
+  {
+    putRecords(0, 100);
+    restart();
+    deleteRecords(10, 20);
+
+    final List<ByteString> values = storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        return txn.readAll(treeName, Arrays.asList(key(50), key(15), key(200), key(5)));
+      }
+    });
+    assertThat(values).containsExactly(value(50), null, null, value(5));
+  }
+
+  @Test
+  public void testDeletedTreesAreNotListed() throws Exception
+  {
+    putRecords(0, 10);
+    restart();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.deleteTree(treeName);
+      }
+    });
+    assertThat(storage.listTrees()).isEmpty();
+    assertThat(readKeys()).isEmpty();
+
+    restart();
+
+    assertThat(storage.listTrees()).isEmpty();
+    putRecords(0, 2);
+    assertThat(readKeys()).isEqualTo(keys(0, 2));
+  }
+
+  @Test
+  public void testJournalIsReplayedAfterAbnormalTermination() throws Exception
+  {
+    putRecords(0, 10);
+    deleteRecords(0, 5);
+
+    // Simulate a crash by copying the files of the running storage, with an incomplete transaction at the end
+    final MmapBackendCfg copyCfg = createBackendCfg("MmapStorageTestCopy");
+    final File copyDirectory = getDBDirectory(copyCfg.getDBDirectory(), copyCfg.getBackendId());
+    StaticUtils.recursiveDelete(copyDirectory);
+    copyDirectory.mkdirs();
+    final List<File> journals = getStorageFiles("journal.");
+    assertThat(journals).isNotEmpty();
+    for (File journal : journals)
+    {
+      Files.copy(journal.toPath(), new File(copyDirectory, journal.getName()).toPath());
+    }
+    appendGarbage(new File(copyDirectory, journals.get(journals.size() - 1).getName()));
+
+    final MmapStorage copy = openStorage(copyCfg);
+    try
+    {
+      assertThat(readKeys(copy)).isEqualTo(keys(5, 10));
+    }
+    finally
+    {
+      copy.close();
+      copy.removeStorageFiles();
+    }
+  }
+
+  private MmapBackendCfg createBackendCfg(String backendId)
+  {
+    MmapBackendCfg cfg = mockCfg(MmapBackendCfg.class);
+    when(cfg.getBackendId()).thenReturn(backendId);
+    when(cfg.getDBDirectory()).thenReturn(backendId);
+    when(cfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(cfg.isDBTxnNoSync()).thenReturn(true);
+    when(cfg.getDBWriteBufferSize()).thenReturn(4096L);
+    return cfg;
+  }
+
+  private static MmapStorage openStorage(MmapBackendCfg cfg) throws Exception
+  {
+    ServerContext serverContext = mock(ServerContext.class);
+    when(serverContext.getDiskSpaceMonitor()).thenReturn(mock(DiskSpaceMonitor.class));
+    final MmapStorage storage = new MmapStorage(cfg, serverContext);
+    storage.open(AccessMode.READ_WRITE);
+    return storage;
+  }
+
+  private void restart() throws Exception
+  {
+    storage.close();
+    storage = openStorage(backendCfg);
+  }
+
+  private List<File> getStorageFiles(final String prefix)
+  {
+    final List<File> files = new ArrayList<>();
+    for (File file : storage.getDirectory().listFiles())
+    {
+      if (file.getName().matches(prefix.replace(".", "\\.") + "\\d+"))
+      {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  private static void appendGarbage(File file) throws IOException
+  {
+    try (FileOutputStream out = new FileOutputStream(file, true))
+    {
+      out.write(new byte[] { 0, 0, 1, 0, 1, 2, 3 });
+    }
+  }
+
+  private void putRecords(final int from, final int to) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        for (int i = from; i < to; i++)
+        {
+          txn.put(treeName, key(i), value(i));
+        }
+      }
+    });
+  }
+
+  private void deleteRecords(final int from, final int to) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (int i = from; i < to; i++)
+        {
+          assertThat(txn.delete(treeName, key(i))).isTrue();
+        }
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private long getRecordCount() throws Exception
+  {
+    return storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return txn.getRecordCount(treeName);
+      }
+    });
+  }
+
+  private List<ByteString> readKeys() throws Exception
+  {
+    return readKeys(storage);
+  }
+
+  private List<ByteString> readKeys(MmapStorage storage) throws Exception
+  {
+    return storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        final List<ByteString> keys = new ArrayList<>();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey());
+          }
+        }
+        return keys;
+      }
+    });
+  }
+
+  private static List<ByteString> keys(int from, int to)
+  {
+    final List<ByteString> keys = new ArrayList<>();
+    for (int i = from; i < to; i++)
+    {
+      keys.add(key(i));
+    }
+    return keys;
+  }
+
+  private static ByteString key(int i)
+  {
+    return valueOfInt(i);
+  }
+
+  private static ByteString value(int i)
+  {
+    return valueOfUtf8("value" + i);
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.util.CollectionUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.server.config.server.BackendIndexCfg;
+import org.forgerock.opendj.server.config.server.PDBBackendCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.AddOperation;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.CanceledOperationException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Returns the candidate entries of indexed searches decoded by the search entry fetch threads of a real backend. */
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class CandidateEntryFetcherTest extends DirectoryServerTestCase
+{
+  private static final String BACKEND_NAME = "CandidateEntryFetcherTest";
+  /** Enough candidates for several batches of increasing sizes. */
+  private static final int NB_PEOPLE = 300;
+  private static final String FILTER = "(sn=fetched)";
+
+  private final DN baseDN = DN.valueOf("dc=candidate-fetcher,dc=com");
+  /** The people of the backend, by ascending entry IDs. */
+  private final List<DN> people = new ArrayList<>();
+  private PDBBackend backend;
+  private EntryContainer entryContainer;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+
+    final BackendIndexCfg indexCfg = mock(BackendIndexCfg.class);
+    when(indexCfg.getIndexType()).thenReturn(newTreeSet(EQUALITY));
+    when(indexCfg.getAttribute()).thenReturn(getServerContext().getSchema().getAttributeType("sn"));
+    when(indexCfg.getIndexEntryLimit()).thenReturn(4000);
+
+    final PDBBackendCfg backendCfg = mockCfg(PDBBackendCfg.class);
+    when(backendCfg.dn()).thenReturn(baseDN);
+    when(backendCfg.getBackendId()).thenReturn(BACKEND_NAME);
+    when(backendCfg.getBaseDN()).thenReturn(newTreeSet(baseDN));
+    when(backendCfg.listBackendIndexes()).thenReturn(new String[] { "sn" });
+    when(backendCfg.getBackendIndex("sn")).thenReturn(indexCfg);
+    when(backendCfg.listBackendVLVIndexes()).thenReturn(new String[0]);
+    when(backendCfg.getDBDirectory()).thenReturn(BACKEND_NAME);
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.getDBCacheSize()).thenReturn(0L);
+    when(backendCfg.getDBCachePercent()).thenReturn(20);
+    when(backendCfg.getSearchEntryFetchThreads()).thenReturn(2);
+
+    backend = new PDBBackend();
+    backend.setBackendID(BACKEND_NAME);
+    backend.configureBackend(backendCfg, getServerContext());
+    backend.openBackend();
+    entryContainer = backend.getRootContainer().getEntryContainer(baseDN);
+    assertThat(backend.getRootContainer().getSearchFetchExecutor()).isNotNull();
+
+    final AddOperation addOperation = mock(AddOperation.class);
+    backend.addEntry(makeEntry("dn: " + baseDN, "objectClass: top", "objectClass: domain"), addOperation);
+    for (int i = 0; i < NB_PEOPLE; i++)
+    {
+      final DN dn = DN.valueOf("uid=user." + i + "," + baseDN);
+      backend.addEntry(makeEntry(
+          "dn: " + dn,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: user." + i,
+          "cn: User " + i,
+          "sn: fetched"), addOperation);
+      people.add(dn);
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception
+  {
+    backend.finalizeBackend();
+    backend = null;
+  }
+
+  @Test
+  public void testEntriesAreReturnedInCandidateOrder() throws Exception
+  {
+    final List<DN> returnedDNs = new ArrayList<>();
+    backend.search(createSearchOperation(returnedDNs, NB_PEOPLE, NB_PEOPLE));
+
+    assertThat(returnedDNs).isEqualTo(people);
+  }
+
+  @Test
+  public void testSearchStopsWhenTheEntriesAreNotReturnedAnymore() throws Exception
+  {
+    // Stop in the middle of the second batch, as the size limit does
+    final int sizeLimit = 40;
+    final List<DN> returnedDNs = new ArrayList<>();
+    final SearchOperation searchOperation = createSearchOperation(returnedDNs, sizeLimit, NB_PEOPLE);
+
+    backend.search(searchOperation);
+
+    assertThat(returnedDNs).isEqualTo(people.subList(0, sizeLimit));
+    verify(searchOperation, times(sizeLimit)).returnEntry(any(Entry.class), any(List.class));
+  }
+
+  @Test
+  public void testSearchStopsWhenCanceled() throws Exception
+  {
+    final int cancelAfter = 10;
+    final List<DN> returnedDNs = new ArrayList<>();
+
+    try
+    {
+      backend.search(createSearchOperation(returnedDNs, NB_PEOPLE, cancelAfter));
+      failBecauseExceptionWasNotThrown(CanceledOperationException.class);
+    }
+    catch (CanceledOperationException expected)
+    {
+      // The search has been canceled when reading the next batch
+      assertThat(returnedDNs.size()).isBetween(cancelAfter, NB_PEOPLE - 1);
+      assertThat(returnedDNs).isEqualTo(people.subList(0, returnedDNs.size()));
+    }
+  }
+
+  @Test
+  public void testEntriesWhichCannotBeDecodedAreSkipped() throws Exception
+  {
+    // In the second batch, which a fetch thread decodes while the entries of the first batch are returned
+    final int corrupted = 50;
+    final EntryID entryID = getEntryID(people.get(corrupted));
+    final ByteString record = readRecord(entryID);
+    writeRecord(entryID, ByteString.valueOfUtf8("not an entry"));
+    try
+    {
+      final List<DN> returnedDNs = new ArrayList<>();
+      backend.search(createSearchOperation(returnedDNs, NB_PEOPLE, NB_PEOPLE));
+
+      final List<DN> expectedDNs = new ArrayList<>(people);
+      expectedDNs.remove(corrupted);
+      assertThat(returnedDNs).isEqualTo(expectedDNs);
+    }
+    finally
+    {
+      writeRecord(entryID, record);
+    }
+  }
+
+  /**
+   * Creates a search of all the people, which stops returning entries once the size limit is reached, and which is
+   * canceled once the provided number of entries has been returned.
+   */
+  private SearchOperation createSearchOperation(final List<DN> returnedDNs, final int sizeLimit,
+      final int cancelAfter) throws Exception
+  {
+    final SearchOperation searchOperation = mock(SearchOperation.class);
+    when(searchOperation.getBaseDN()).thenReturn(baseDN);
+    when(searchOperation.getScope()).thenReturn(SearchScope.WHOLE_SUBTREE);
+    when(searchOperation.getFilter()).thenReturn(SearchFilter.createFilterFromString(FILTER));
+    when(searchOperation.getClientConnection()).thenReturn(new ClientConnectionStub());
+    doAnswer(new Answer<Boolean>()
+    {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable
+      {
+        returnedDNs.add(invocation.getArgumentAt(0, Entry.class).getName());
+        return returnedDNs.size() < sizeLimit;
+      }
+    }).when(searchOperation).returnEntry(any(Entry.class), any(List.class));
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        if (returnedDNs.size() >= cancelAfter)
+        {
+          throw new CanceledOperationException(null);
+        }
+        return null;
+      }
+    }).when(searchOperation).checkIfCanceled(anyBoolean());
+    return searchOperation;
+  }
+
+  private EntryID getEntryID(final DN dn) throws Exception
+  {
+    return backend.getRootContainer().getStorage().read(new ReadOperation<EntryID>()
+    {
+      @Override
+      public EntryID run(ReadableTransaction txn) throws Exception
+      {
+        return entryContainer.getDN2ID().get(txn, dn);
+      }
+    });
+  }
+
+  private ByteString readRecord(final EntryID entryID) throws Exception
+  {
+    return backend.getRootContainer().getStorage().read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return entryContainer.getID2Entry().read(txn, entryID);
+      }
+    });
+  }
+
+  private void writeRecord(final EntryID entryID, final ByteString record) throws Exception
+  {
+    backend.getRootContainer().getStorage().write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        entryContainer.getID2Entry().put(txn, entryID, record);
+      }
+    });
+  }
+}
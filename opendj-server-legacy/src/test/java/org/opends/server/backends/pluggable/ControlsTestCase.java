@@ -18,6 +18,7 @@ package org.opends.server.backends.pluggable;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 import static org.forgerock.opendj.config.ConfigurationMock.mockCfg;
+import static org.forgerock.opendj.ldap.requests.Requests.newModifyRequest;
 import static org.opends.server.TestCaseUtils.makeEntry;
 import static org.opends.server.protocols.internal.InternalClientConnection.getRootConnection;
 import static org.opends.server.protocols.internal.Requests.newSearchRequest;
@@ -34,6 +35,7 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ModificationType;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.opends.server.DirectoryServerTestCase;
@@ -42,16 +44,20 @@ import org.forgerock.opendj.server.config.meta.BackendVLVIndexCfgDefn.Scope;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
 import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.controls.PagedResultsControl;
 import org.opends.server.controls.ServerSideSortRequestControl;
 import org.opends.server.controls.ServerSideSortResponseControl;
 import org.opends.server.controls.VLVRequestControl;
 import org.opends.server.controls.VLVResponseControl;
 import org.opends.server.core.AddOperation;
 import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ModifyOperation;
+import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
 import org.opends.server.protocols.ldap.LDAPControl;
 import org.opends.server.protocols.ldap.LDAPResultCode;
+import org.opends.server.types.AuthenticationInfo;
 import org.opends.server.types.Control;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
@@ -562,6 +568,43 @@ public class ControlsTestCase extends DirectoryServerTestCase
     vlvByOffset(sortOrder, beforeCount, afterCount, offset, expectedOrder);
   }
 
+  @Test
+  public void unindexedSortedPagedSearchShouldReturnEntriesFollowingEntriesHiddenByAcis() throws Exception
+  {
+    // Hide the second entry of the first page from anonymous users
+    final String aci = "(targetfilter=\"(employeeNumber=6)\")(targetattr=\"*\")"
+        + "(version 3.0; acl \"Hide employee 6\"; deny (all) userdn=\"ldap:///anyone\";)";
+    modifyBaseEntryAci(ModificationType.ADD, aci);
+    try
+    {
+      final InternalClientConnection anonymous = new InternalClientConnection(new AuthenticationInfo());
+      final LinkedList<SearchResultEntry> entries = new LinkedList<>();
+      ByteString cookie = ByteString.empty();
+      int pages = 0;
+      do
+      {
+        final SearchRequest request =
+            newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER).addControl(
+                new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3))).addControl(
+                new PagedResultsControl(true, 3, cookie));
+        final InternalSearchOperation internalSearch = anonymous.processSearch(request);
+        assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        assertThat(internalSearch.getSearchEntries().size()).isLessThanOrEqualTo(3);
+        entries.addAll(internalSearch.getSearchEntries());
+        cookie = getPagedResultsControl(internalSearch.getResponseControls()).getCookie();
+        pages++;
+      }
+      while (cookie.length() != 0 && pages <= CONTENT_COUNT);
+
+      assertThat(pages).isEqualTo(3);
+      assertThat(getDNs(entries)).isEqualTo(getDNs(Arrays.asList(4, 1, 7, 3, 8, 5, 2, 0)));
+    }
+    finally
+    {
+      modifyBaseEntryAci(ModificationType.DELETE, aci);
+    }
+  }
+
   @AfterClass
   public void afterClass() throws Exception
   {
@@ -657,6 +700,30 @@ public class ControlsTestCase extends DirectoryServerTestCase
     return null;
   }
 
+  private void modifyBaseEntryAci(final ModificationType modificationType, final String aci)
+  {
+    final ModifyOperation modifyOperation = getRootConnection().processModify(
+        newModifyRequest(BACKEND_BASE_DN).addModification(modificationType, "aci", aci));
+    assertThat(modifyOperation.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+  }
+
+  private PagedResultsControl getPagedResultsControl(final List<Control> responseControls) throws DirectoryException
+  {
+    for (final Control c : responseControls)
+    {
+      if (c.getOID().equals(OID_PAGED_RESULTS_CONTROL))
+      {
+        if (c instanceof LDAPControl)
+        {
+          return PagedResultsControl.DECODER.decode(c.isCritical(), ((LDAPControl) c).getValue());
+        }
+        return (PagedResultsControl) c;
+      }
+    }
+    fail("Expected to find PagedResultsControl");
+    return null;
+  }
+
   private VLVResponseControl getVLVResponseControl(final Control c) throws DirectoryException
   {
     if (c instanceof LDAPControl)
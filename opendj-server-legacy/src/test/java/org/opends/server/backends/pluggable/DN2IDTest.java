@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
 import static org.opends.server.util.CollectionUtils.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -172,6 +173,23 @@ public class DN2IDTest extends DirectoryServerTestCase
 
   }
 
+  @Test
+  public void testGetSeveralDNs() throws Exception
+  {
+    populate();
+
+    final List<EntryID> ids = storage.read(new ReadOperation<List<EntryID>>()
+    {
+      @Override
+      public List<EntryID> run(ReadableTransaction txn) throws Exception
+      {
+        return dn2ID.get(txn, Arrays.asList(dn("cn=dev1,cn=bar,ou=People,dc=example,dc=com"), null,
+            dn("dc=non,dc=existing"), dn("dc=example,dc=com"), dn("cn=foo,ou=People,dc=example,dc=com")));
+      }
+    });
+    assertThat(ids).containsExactly(id(10), null, null, id(1), id(5));
+  }
+
   @Test
   public void testGetNonExistingDNReturnNull() throws Exception
   {
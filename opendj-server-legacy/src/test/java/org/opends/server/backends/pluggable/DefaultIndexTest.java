@@ -98,6 +98,34 @@ public class DefaultIndexTest extends DirectoryServerTestCase
     assertThat(txn.read(index.getName(), valueOfUtf8("key"))).isNull();
   }
 
+  @Test
+  public void testUntrustedIndexDoesNotAddMissingKeys() {
+    index = newIndex("untrusted", 5, EnumSet.of(COMPACTED));
+    index.open(txn, true);
+    update(null, newDefinedSet(1, 2));
+
+    assertThat(getFromDb()).isNull();
+    assertThat(index.get(txn, valueOfUtf8("key")).isDefined()).isFalse();
+  }
+
+  @Test
+  public void testRebuildingIndexIsUpdatedButNotReadable() {
+    index = newIndex("rebuilding", 5, EnumSet.of(COMPACTED));
+    index.open(txn, true);
+    index.setRebuilding(txn);
+    update(null, newDefinedSet(1, 2));
+    update(newDefinedSet(3), newDefinedSet(4));
+
+    assertIdsEquals(get(), 1, 2, 4);
+    assertThat(index.isTrusted()).isFalse();
+    assertThat(index.get(txn, valueOfUtf8("key")).isDefined()).isFalse();
+    assertThat(index.get(txn, valueOfUtf8("missing")).isDefined()).isFalse();
+
+    index.setTrusted(txn, true);
+    assertThat(index.isRebuilding()).isFalse();
+    assertIdsEquals(index.get(txn, valueOfUtf8("key")), 1, 2, 4);
+  }
+
   private void update(EntryIDSet deletedIDSet, EntryIDSet addedIDSet) {
     index.update(txn, valueOfUtf8("key"), deletedIDSet, addedIDSet);
   }
@@ -197,10 +225,9 @@ public class DefaultIndexTest extends DirectoryServerTestCase
         @Override
         public boolean positionToKey(ByteSequence key)
         {
-          current = null;
-
           it = tree.tailMap(key.toByteString()).entrySet().iterator();
-          return it.hasNext() && it.next().getKey().equals(key.toByteString());
+          current = it.hasNext() ? it.next() : null;
+          return current != null && current.getKey().equals(key.toByteString());
         }
 
         @Override
@@ -290,9 +290,95 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testBitmapCodecReadsLegacyValues()
+  {
+    assertIdsEquals(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(4, 6, 8))), 4, 6, 8);
+    assertThat(CODEC_V4.decode(KEY, CODEC_V2.encode(newUndefinedSet())).isDefined()).isFalse();
+
+    final EntryIDSetCodec codec = newEntryIDSetCodecV4(CODEC_V1);
+    assertIdsEquals(codec.decode(KEY, CODEC_V1.encode(newDefinedSet(4, 6, 8))), 4, 6, 8);
+    assertThat(codec.decode(KEY, CODEC_V1.encode(newUndefinedSet())).isDefined()).isFalse();
+    assertThat(CODEC_V1.decode(KEY, codec.encode(newUndefinedSet())).isDefined()).isFalse();
+  }
+
+  @Test
+  public void testBitmapCodecSpanningContainers()
+  {
+    final long[] ids = new long[10000];
+    for (int i = 0; i < ids.length; i++)
+    {
+      // Dense chunk followed by sparse IDs in the next chunks
+      ids[i] = i < 5000 ? i : 65536L * (i - 4999) + i;
+    }
+    final EntryIDSet decoded = CODEC_V4.decode(KEY, CODEC_V4.encode(newDefinedSet(ids)));
+    assertThat(decoded.size()).isEqualTo(ids.length);
+    assertThat(decoded.toLongArray()).isEqualTo(ids);
+  }
+
+  @Test
+  public void testBitmapAddRemove()
+  {
+    final EntryIDSet set = newBitmapSet(EntryIDBitmap.valueOf(6, 8, 10, 12));
+
+    assertThat(set.add(id(4))).isTrue();
+    assertThat(set.add(id(70000))).isTrue();
+    assertThat(set.add(id(10))).isFalse();
+    assertIdsEquals(set, 4, 6, 8, 10, 12, 70000);
+
+    assertThat(set.remove(id(70000))).isTrue();
+    assertThat(set.remove(id(11))).isFalse();
+    assertThat(set.contains(id(70000))).isFalse();
+    assertThat(set.contains(id(12))).isTrue();
+    assertThat(set.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void testBitmapSetOperations()
+  {
+    EntryIDSet set = newBitmapSet(EntryIDBitmap.valueOf(2, 4, 6, 8, 70000));
+    set.retainAll(newBitmapSet(EntryIDBitmap.valueOf(1, 2, 3, 6, 7, 8, 70000)));
+    assertThat(set.toLongArray()).containsExactly(2, 6, 8, 70000);
+
+    set.retainAll(newDefinedSet(1, 2, 8, 9));
+    assertThat(set.toLongArray()).containsExactly(2, 8);
+
+    set.addAll(newBitmapSet(EntryIDBitmap.valueOf(1, 8, 140000)));
+    assertThat(set.toLongArray()).containsExactly(1, 2, 8, 140000);
+
+    set.removeAll(newDefinedSet(2, 140000));
+    assertThat(set.toLongArray()).containsExactly(1, 8);
+
+    set = newDefinedSet(1, 2, 3, 4);
+    set.retainAll(newBitmapSet(EntryIDBitmap.valueOf(2, 4, 9)));
+    assertThat(set.toLongArray()).containsExactly(2, 4);
+
+    set = newDefinedSet(1, 5);
+    set.addAll(newBitmapSet(EntryIDBitmap.valueOf(2, 5, 9)));
+    assertThat(set.toLongArray()).containsExactly(1, 2, 5, 9);
+
+    set = newDefinedSet(1, 2, 5);
+    set.removeAll(newBitmapSet(EntryIDBitmap.valueOf(2, 9)));
+    assertThat(set.toLongArray()).containsExactly(1, 5);
+  }
+
+  @Test
+  public void testBitmapUnionAndUndefinedRetain()
+  {
+    final EntryIDSet bitmap = newBitmapSet(EntryIDBitmap.valueOf(3, 70000));
+    final EntryIDSet union = newSetFromUnion(Arrays.asList(newDefinedSet(1, 7), bitmap, newDefinedSet()));
+    assertThat(union.toLongArray()).containsExactly(1, 3, 7, 70000);
+
+    final EntryIDSet retained = newUndefinedSet();
+    retained.retainAll(bitmap);
+    retained.add(id(5));
+    assertThat(retained.toLongArray()).containsExactly(3, 5, 70000);
+    assertThat(bitmap.toLongArray()).containsExactly(3, 70000);
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
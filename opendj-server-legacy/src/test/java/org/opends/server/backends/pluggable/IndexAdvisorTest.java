@@ -0,0 +1,187 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend" }, sequential = true)
+public class IndexAdvisorTest extends DirectoryServerTestCase
+{
+  private IndexAdvisor advisor;
+  private final List<Runnable> submittedTasks = new ArrayList<>();
+  private EntryContainer entryContainer;
+  private AttributeType cn;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    cn = DirectoryServer.getInstance().getServerContext().getSchema().getAttributeType("cn");
+  }
+
+  @BeforeMethod
+  public void setUp()
+  {
+    entryContainer = mock(EntryContainer.class);
+    when(entryContainer.getBaseDN()).thenReturn(DN.valueOf("dc=example,dc=com"));
+    submittedTasks.clear();
+    advisor = new IndexAdvisor("userRoot", new Executor()
+    {
+      @Override
+      public void execute(Runnable command)
+      {
+        submittedTasks.add(command);
+      }
+    });
+    advisor.setEnabled(true, false);
+  }
+
+  @Test
+  public void testFilterShapesIgnoreAssertionValues() throws Exception
+  {
+    assertThat(shapeOf("(&(mail=john@example.com)(objectClass=person))")).isEqualTo("(&(mail=?)(objectclass=?))");
+    assertThat(shapeOf("(|(cn=jo*)(!(sn>=a))(uid=*))")).isEqualTo("(|(cn=?*)(!(sn>=?))(uid=*))");
+
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=a@example.com)"), true);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=b@example.com)"), false);
+    assertThat(advisor.getFilterShapeValues()).containsExactly("(mail=?) searches:2 unindexed:1");
+  }
+
+  @Test
+  public void testLeastSearchedShapesAreRemoved() throws Exception
+  {
+    advisor.setMaxShapes(2);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=a)"), true);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=b)"), true);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(cn=a)"), true);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(sn=a)"), true);
+
+    assertThat(advisor.getFilterShapeValues()).hasSize(2).contains("(mail=?) searches:2 unindexed:0");
+  }
+
+  @Test
+  public void testRecommendCreatingMissingIndex() throws Exception
+  {
+    final SearchFilter filter = SearchFilter.createFilterFromString("(&(mail=john@example.com)(objectClass=*))");
+    for (int i = 0; i < IndexAdvisor.RECOMMENDATION_THRESHOLD; i++)
+    {
+      advisor.recordSearch(entryContainer, filter, false);
+    }
+
+    assertThat(advisor.getRecommendations()).containsExactly(
+        "create-index base-dn:dc=example,dc=com attribute:mail index-type:equality unindexed-searches:10");
+  }
+
+  @Test
+  public void testRecommendRebuildingUntrustedIndex() throws Exception
+  {
+    final AttributeIndex index = mockAttributeIndex(cn, false, 4000);
+    when(index.isIndexed(IndexType.SUBSTRING)).thenReturn(true);
+    final SearchFilter filter = SearchFilter.createFilterFromString("(cn=jo*)");
+    for (int i = 0; i < IndexAdvisor.RECOMMENDATION_THRESHOLD - 1; i++)
+    {
+      advisor.recordSearch(entryContainer, filter, false);
+    }
+    assertThat(advisor.getRecommendations()).isEmpty();
+
+    advisor.recordSearch(entryContainer, filter, false);
+    assertThat(advisor.getRecommendations()).containsExactly("rebuild-index base-dn:dc=example,dc=com attribute:cn"
+        + " index-type:substring unindexed-searches:10 rebuild-scheduled:false");
+  }
+
+  @Test
+  public void testRebuildIsScheduledOutsideOfTheSearch() throws Exception
+  {
+    advisor.setEnabled(true, true);
+    final AttributeIndex index = mockAttributeIndex(cn, false, 4000);
+    when(index.isIndexed(IndexType.SUBSTRING)).thenReturn(true);
+    final SearchFilter filter = SearchFilter.createFilterFromString("(cn=jo*)");
+    for (int i = 0; i < 2 * IndexAdvisor.RECOMMENDATION_THRESHOLD; i++)
+    {
+      advisor.recordSearch(entryContainer, filter, false);
+    }
+
+    // The rebuild task is handed over to the executor once, instead of being added by the search
+    assertThat(submittedTasks).hasSize(1);
+    assertThat(advisor.getRecommendations()).containsExactly("rebuild-index base-dn:dc=example,dc=com attribute:cn"
+        + " index-type:substring unindexed-searches:20 rebuild-scheduled:true");
+  }
+
+  @Test
+  public void testRecommendRaisingIndexEntryLimit() throws Exception
+  {
+    final AttributeIndex index = mockAttributeIndex(cn, true, 4000);
+    when(index.isIndexed(IndexType.EQUALITY)).thenReturn(true);
+    advisor.recordLookup(entryContainer, IndexFilterType.EQUALITY, cn, newDefinedSet(1, 2, 3));
+    for (int i = 0; i < IndexAdvisor.RECOMMENDATION_THRESHOLD; i++)
+    {
+      advisor.recordLookup(entryContainer, IndexFilterType.EQUALITY, cn,
+          newUndefinedSetWithKey(ByteString.valueOfUtf8("john")));
+    }
+    // Not indexed lookups are not counted
+    advisor.recordLookup(entryContainer, IndexFilterType.EQUALITY, cn, newUndefinedSet());
+
+    assertThat(advisor.getRecommendations()).containsExactly(
+        "raise-index-entry-limit base-dn:dc=example,dc=com attribute:cn index-type:equality"
+        + " index-entry-limit:4000 recommended-index-entry-limit:8192 limit-exceeded:10 lookups:11");
+  }
+
+  @Test
+  public void testDisablingClearsStatistics() throws Exception
+  {
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=a)"), false);
+    advisor.setEnabled(false, false);
+    advisor.recordSearch(entryContainer, SearchFilter.createFilterFromString("(mail=a)"), false);
+
+    assertThat(advisor.isEnabled()).isFalse();
+    assertThat(advisor.getFilterShapeValues()).isEmpty();
+    assertThat(advisor.getIndexValues()).isEmpty();
+  }
+
+  private AttributeIndex mockAttributeIndex(AttributeType attributeType, boolean trusted, int indexEntryLimit)
+  {
+    final AttributeIndex index = mock(AttributeIndex.class);
+    when(index.isTrusted()).thenReturn(trusted);
+    when(index.getIndexEntryLimit()).thenReturn(indexEntryLimit);
+    when(entryContainer.getAttributeIndex(attributeType)).thenReturn(index);
+    return index;
+  }
+
+  private static String shapeOf(String filter) throws Exception
+  {
+    return IndexAdvisor.toShape(SearchFilter.createFilterFromString(filter), new StringBuilder()).toString();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class LZ4BlockCodecTest extends DirectoryServerTestCase
+{
+  private static final byte[] NO_DICTIONARY = new byte[0];
+
+  @Test
+  public void testRoundTripWithoutDictionary() throws Exception
+  {
+    final Random random = new Random(0);
+    final int[] hashTable = LZ4BlockCodec.newHashTable(NO_DICTIONARY);
+    for (int i = 0; i < 1000; i++)
+    {
+      final byte[] data = randomData(random, random.nextInt(2048));
+      assertThat(decompress(NO_DICTIONARY, compress(NO_DICTIONARY, hashTable, data), data.length)).isEqualTo(data);
+    }
+  }
+
+  @Test
+  public void testRoundTripWithDictionary() throws Exception
+  {
+    final Random random = new Random(0);
+    final List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 500; i++)
+    {
+      samples.add(sampleEntry(random, i));
+    }
+    final EntryCompressionDictionary dictionary = new EntryCompressionDictionary(1,
+        EntryCompressionDictionary.train(samples, EntryCompressionDictionary.MAX_DICTIONARY_SIZE));
+    assertThat(dictionary.getBytes().length).isPositive();
+
+    final int[] noDictionaryHashTable = LZ4BlockCodec.newHashTable(NO_DICTIONARY);
+    for (int i = 1000; i < 1100; i++)
+    {
+      final byte[] entry = sampleEntry(random, i);
+      final byte[] compressed = compress(dictionary.getBytes(), dictionary.getLZ4HashTable(), entry);
+      assertThat(decompress(dictionary.getBytes(), compressed, entry.length)).isEqualTo(entry);
+      // The dictionary is the whole point: entries must compress better with it
+      assertThat(compressed.length).isLessThan(compress(NO_DICTIONARY, noDictionaryHashTable, entry).length);
+    }
+  }
+
+  @Test
+  public void testTrainWithoutSamples()
+  {
+    assertThat(EntryCompressionDictionary.train(new ArrayList<byte[]>(), 1024)).isEmpty();
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testTruncatedBlock() throws Exception
+  {
+    final byte[] data = randomData(new Random(0), 1024);
+    final byte[] compressed = compress(NO_DICTIONARY, LZ4BlockCodec.newHashTable(NO_DICTIONARY), data);
+    decompress(NO_DICTIONARY, Arrays.copyOf(compressed, compressed.length / 2), data.length);
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testWrongLength() throws Exception
+  {
+    final byte[] data = randomData(new Random(0), 1024);
+    final byte[] compressed = compress(NO_DICTIONARY, LZ4BlockCodec.newHashTable(NO_DICTIONARY), data);
+    decompress(NO_DICTIONARY, compressed, data.length + 1);
+  }
+
+  private static byte[] compress(byte[] dictionary, int[] hashTable, byte[] data)
+  {
+    final ByteStringBuilder compressed = new ByteStringBuilder();
+    LZ4BlockCodec.compress(dictionary, hashTable, data, data.length, compressed);
+    return compressed.toByteArray();
+  }
+
+  private static byte[] decompress(byte[] dictionary, byte[] compressed, int length) throws DataFormatException
+  {
+    final byte[] data = new byte[length];
+    LZ4BlockCodec.decompress(dictionary, compressed, compressed.length, data);
+    return data;
+  }
+
+  /** Returns data with some repetitions, so that it partly compresses. */
+  private static byte[] randomData(Random random, int length)
+  {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++)
+    {
+      data[i] = i > 8 && random.nextBoolean() ? data[i - 1 - random.nextInt(8)] : (byte) random.nextInt(16);
+    }
+    return data;
+  }
+
+  private static byte[] sampleEntry(Random random, int i)
+  {
+    return ("dn: uid=user." + i + ",ou=People,dc=example,dc=com\n"
+        + "objectClass: top\nobjectClass: person\nobjectClass: organizationalPerson\nobjectClass: inetOrgPerson\n"
+        + "cn: User " + random.nextInt(100000) + "\nsn: Surname" + random.nextInt(1000) + "\n"
+        + "mail: user." + i + "@example.com\ntelephoneNumber: +1 555 " + random.nextInt(10000) + "\n").getBytes();
+  }
+}
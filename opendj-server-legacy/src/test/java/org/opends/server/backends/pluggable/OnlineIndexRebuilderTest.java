@@ -0,0 +1,332 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.TestCaseUtils.*;
+import static org.opends.server.util.CollectionUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.BackendIndexCfg;
+import org.forgerock.opendj.server.config.server.PDBBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.RebuildConfig;
+import org.opends.server.backends.RebuildConfig.RebuildMode;
+import org.opends.server.backends.VerifyConfig;
+import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.AddOperation;
+import org.opends.server.core.DeleteOperation;
+import org.opends.server.util.TestTimer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Rebuilds an attribute index of a real backend while it keeps being updated. */
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class OnlineIndexRebuilderTest extends DirectoryServerTestCase
+{
+  private static final String BACKEND_NAME = "OnlineIndexRebuilderTest";
+  private static final String INDEXED_ATTRIBUTE = "employeeNumber";
+  private static final int NB_PEOPLE = 1000;
+
+  private final DN baseDN = DN.valueOf("dc=online-rebuild,dc=com");
+  /** The people of the backend, by ascending entry IDs. */
+  private final List<DN> people = new ArrayList<>();
+  private int nextEmployeeNumber;
+  private PDBBackendCfg backendCfg;
+  private PDBBackend backend;
+  private EntryContainer entryContainer;
+  private AttributeIndex attributeIndex;
+  private MatchingRuleIndex index;
+  private ExecutorService executor;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+
+    final BackendIndexCfg indexCfg = mock(BackendIndexCfg.class);
+    when(indexCfg.getIndexType()).thenReturn(newTreeSet(EQUALITY));
+    when(indexCfg.getAttribute()).thenReturn(getServerContext().getSchema().getAttributeType(INDEXED_ATTRIBUTE));
+    when(indexCfg.getIndexEntryLimit()).thenReturn(4000);
+
+    backendCfg = mockCfg(PDBBackendCfg.class);
+    when(backendCfg.dn()).thenReturn(baseDN);
+    when(backendCfg.getBackendId()).thenReturn(BACKEND_NAME);
+    when(backendCfg.getBaseDN()).thenReturn(newTreeSet(baseDN));
+    when(backendCfg.listBackendIndexes()).thenReturn(new String[] { INDEXED_ATTRIBUTE });
+    when(backendCfg.getBackendIndex(INDEXED_ATTRIBUTE)).thenReturn(indexCfg);
+    when(backendCfg.listBackendVLVIndexes()).thenReturn(new String[0]);
+    when(backendCfg.getDBDirectory()).thenReturn(BACKEND_NAME);
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.getDBCacheSize()).thenReturn(0L);
+    when(backendCfg.getDBCachePercent()).thenReturn(20);
+
+    backend = new PDBBackend();
+    backend.setBackendID(BACKEND_NAME);
+    backend.configureBackend(backendCfg, getServerContext());
+    backend.openBackend();
+
+    entryContainer = backend.getRootContainer().getEntryContainer(baseDN);
+    attributeIndex = entryContainer.getAttributeIndex(
+        getServerContext().getSchema().getAttributeType(INDEXED_ATTRIBUTE));
+    assertThat(attributeIndex.getNameToIndexes()).hasSize(1);
+    index = attributeIndex.getNameToIndexes().values().iterator().next();
+
+    backend.addEntry(makeEntry("dn: " + baseDN, "objectClass: top", "objectClass: domain"), mock(AddOperation.class));
+    for (int i = 0; i < NB_PEOPLE; i++)
+    {
+      addPerson();
+    }
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception
+  {
+    executor.shutdownNow();
+    backend.finalizeBackend();
+    backend = null;
+  }
+
+  @Test
+  public void testRebuildFillsTheIndex() throws Exception
+  {
+    setMaxEntriesPerSecond(0);
+    clearIndex();
+    assertThat(getIndexRecordCount()).isEqualTo(0);
+
+    rebuildOnline();
+
+    assertThat(index.isTrusted()).isTrue();
+    assertThat(index.isRebuilding()).isFalse();
+    assertIndexIsConsistent();
+  }
+
+  @Test
+  public void testIndexIsNotTrustedDuringTheRebuild() throws Exception
+  {
+    setMaxEntriesPerSecond(NB_PEOPLE / 2);
+    final Future<Void> rebuild = startRebuildOnline();
+    waitUntilRebuilding();
+
+    assertThat(index.isTrusted()).isFalse();
+    assertThat(attributeIndex.isTrusted()).isFalse();
+    assertThat(rebuild.isDone()).as("the rebuild must still be running").isFalse();
+
+    rebuild.get();
+    assertThat(index.isTrusted()).isTrue();
+    assertThat(attributeIndex.isTrusted()).isTrue();
+    assertThat(index.isRebuilding()).isFalse();
+  }
+
+  @Test
+  public void testUpdatesDuringTheScanAreReflectedInTheIndex() throws Exception
+  {
+    // 2 batches per phase, each one followed by a pause of one second
+    setMaxEntriesPerSecond(NB_PEOPLE / 2);
+    final Future<Void> rebuild = startRebuildOnline();
+    waitUntilRebuilding();
+    // The index is first cleared, then refilled by the scan of the entries
+    waitUntilIndexRecordCount(false);
+    waitUntilIndexRecordCount(true);
+
+    // The first entries have already been indexed by the scan, contrary to the last ones
+    for (int i = 0; i < 10; i++)
+    {
+      deletePerson(0);
+      deletePerson(people.size() - 1);
+    }
+    for (int i = 0; i < 20; i++)
+    {
+      addPerson();
+    }
+    assertThat(rebuild.isDone()).as("the updates must happen during the scan").isFalse();
+
+    rebuild.get();
+    assertThat(index.isTrusted()).isTrue();
+    assertIndexIsConsistent();
+  }
+
+  @Test
+  public void testRebuildIsThrottled() throws Exception
+  {
+    final int maxEntriesPerSecond = NB_PEOPLE;
+    setMaxEntriesPerSecond(maxEntriesPerSecond);
+    // the index records are first cleared, then each person and the base entry are indexed
+    final long expectedMinDurationMs = SECONDS.toMillis(getIndexRecordCount() + people.size()) / maxEntriesPerSecond;
+
+    final long startTime = System.currentTimeMillis();
+    rebuildOnline();
+
+    assertThat(System.currentTimeMillis() - startTime).isGreaterThanOrEqualTo(expectedMinDurationMs);
+    assertIndexIsConsistent();
+  }
+
+  private void setMaxEntriesPerSecond(int maxEntriesPerSecond)
+  {
+    when(backendCfg.getOnlineIndexRebuildMaxEntriesPerSecond()).thenReturn(maxEntriesPerSecond);
+  }
+
+  private void rebuildOnline() throws Exception
+  {
+    final RebuildConfig rebuildConfig = new RebuildConfig();
+    rebuildConfig.setBaseDN(baseDN);
+    rebuildConfig.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConfig.addRebuildIndex(INDEXED_ATTRIBUTE);
+    rebuildConfig.setOnline(true);
+    backend.rebuildBackend(rebuildConfig, getServerContext());
+  }
+
+  private Future<Void> startRebuildOnline()
+  {
+    return executor.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        rebuildOnline();
+        return null;
+      }
+    });
+  }
+
+  private void waitUntilRebuilding() throws Exception
+  {
+    newTimer().repeatUntilSuccess(new TestTimer.CallableVoid()
+    {
+      @Override
+      public void call() throws Exception
+      {
+        assertThat(index.isRebuilding()).isTrue();
+      }
+    });
+  }
+
+  private void waitUntilIndexRecordCount(final boolean isNotEmpty) throws Exception
+  {
+    newTimer().repeatUntilSuccess(new TestTimer.CallableVoid()
+    {
+      @Override
+      public void call() throws Exception
+      {
+        assertThat(getIndexRecordCount() > 0).isEqualTo(isNotEmpty);
+      }
+    });
+  }
+
+  private static TestTimer newTimer()
+  {
+    return new TestTimer.Builder()
+        .maxSleep(30, SECONDS)
+        .sleepTimes(10, MILLISECONDS)
+        .toTimer();
+  }
+
+  private void addPerson() throws Exception
+  {
+    final int employeeNumber = nextEmployeeNumber++;
+    final DN dn = DN.valueOf("uid=user." + employeeNumber + "," + baseDN);
+    backend.addEntry(makeEntry(
+        "dn: " + dn,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user." + employeeNumber,
+        "cn: User " + employeeNumber,
+        "sn: " + employeeNumber,
+        "employeeNumber: " + employeeNumber), mock(AddOperation.class));
+    people.add(dn);
+  }
+
+  private void deletePerson(int position) throws Exception
+  {
+    backend.deleteEntry(people.remove(position), mock(DeleteOperation.class));
+  }
+
+  private long getIndexRecordCount() throws Exception
+  {
+    return backend.getRootContainer().getStorage().read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return index.getRecordCount(txn);
+      }
+    });
+  }
+
+  private void clearIndex() throws Exception
+  {
+    backend.getRootContainer().getStorage().write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        final List<ByteString> keys = new ArrayList<>();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(index.getName()))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey());
+          }
+        }
+        for (ByteString key : keys)
+        {
+          txn.delete(index.getName(), key);
+        }
+      }
+    });
+  }
+
+  /** Each person has its own employee number, which must be indexed, and nothing else. */
+  private void assertIndexIsConsistent() throws Exception
+  {
+    assertThat(getIndexRecordCount()).isEqualTo(people.size());
+
+    final VerifyConfig completeConfig = new VerifyConfig();
+    completeConfig.setBaseDN(baseDN);
+    completeConfig.addCompleteIndex(INDEXED_ATTRIBUTE);
+    assertThat(backend.verifyBackend(completeConfig)).isEqualTo(0);
+
+    final VerifyConfig cleanConfig = new VerifyConfig();
+    cleanConfig.setBaseDN(baseDN);
+    cleanConfig.addCleanIndex(INDEXED_ATTRIBUTE);
+    assertThat(backend.verifyBackend(cleanConfig)).isEqualTo(0);
+  }
+}
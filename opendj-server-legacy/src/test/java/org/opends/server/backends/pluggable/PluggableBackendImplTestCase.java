@@ -154,6 +154,8 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     when(backendCfg.getBaseDN()).thenReturn(newTreeSet(testBaseDN));
     when(backendCfg.listBackendIndexes()).thenReturn(backendIndexes.keySet().toArray(new String[0]));
     when(backendCfg.listBackendVLVIndexes()).thenReturn(backendVlvIndexes);
+    when(backendCfg.getSortMemoryLimit()).thenReturn(16L * 1024 * 1024);
+    when(backendCfg.getSearchEntryFetchThreads()).thenReturn(2);
 
     for (Map.Entry<String, IndexType[]> index : backendIndexes.entrySet())
     {
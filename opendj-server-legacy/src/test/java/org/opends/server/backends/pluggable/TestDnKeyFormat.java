@@ -29,6 +29,7 @@ import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.ObjectClass;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionCodec;
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
 import org.opends.server.backends.pluggable.spi.TreeName;
@@ -313,14 +314,27 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     }
   }
 
+  @DataProvider
+  public Object[][] dataConfigs()
+  {
+    return new Object[][] {
+      { new DataConfig.Builder().compress(false).encode(false).build() },
+      { new DataConfig.Builder().compress(true).encode(false).build() },
+      { new DataConfig.Builder().compress(true).compressionCodec(EntriesCompressionCodec.LZ4).encode(false).build() },
+      { new DataConfig.Builder().compress(true).compressionDictionary(true).encode(false).build() },
+    };
+  }
+
   /**
    * Test entry.
    *
+   * @param dataConfig
+   *          the configuration used to store the entries
    * @throws Exception
    *           If the test failed unexpectedly.
    */
-  @Test
-  public void testEntryToAndFromDatabase() throws Exception {
+  @Test(dataProvider = "dataConfigs")
+  public void testEntryToAndFromDatabase(DataConfig dataConfig) throws Exception {
     ensureServerIsUpAndRunning();
 
     // Convert the test LDIF string to a byte array
@@ -329,7 +343,6 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     try (final LDIFReader reader = new LDIFReader(new LDIFImportConfig(new ByteArrayInputStream(originalLDIFBytes))))
     {
       Entry entryBefore, entryAfter;
-      DataConfig dataConfig = new DataConfig.Builder().compress(false).encode(false).build();
       ID2Entry id2entry = new ID2Entry(new TreeName("o=test", "id2entry"), dataConfig);
       while ((entryBefore = reader.readEntry(false)) != null) {
         ByteString bytes = id2entry.entryToDatabase(entryBefore, dataConfig);
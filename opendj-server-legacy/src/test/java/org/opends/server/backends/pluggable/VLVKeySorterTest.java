@@ -0,0 +1,139 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class VLVKeySorterTest extends DirectoryServerTestCase
+{
+  private static final int NB_KEYS = 10000;
+
+  private File sortDirectory;
+
+  @BeforeClass
+  public void createSortDirectory() throws IOException
+  {
+    sortDirectory = TestCaseUtils.createTemporaryDirectory("vlv-sort-test");
+  }
+
+  @AfterClass
+  public void deleteSortDirectory() throws IOException
+  {
+    TestCaseUtils.deleteDirectory(sortDirectory);
+  }
+
+  @DataProvider
+  public Object[][] sorterParameters()
+  {
+    return new Object[][] {
+      // memory limit, limit
+      { 1024L * 1024, Integer.MAX_VALUE },
+      { 1024L * 1024, 10 },
+      { 1024L, Integer.MAX_VALUE },
+      { 1024L, 10 },
+      { 1024L, 5000 },
+      { 1024L, NB_KEYS * 2 },
+      { 0L, 100 },
+    };
+  }
+
+  @Test(dataProvider = "sorterParameters")
+  public void testSortedKeys(long memoryLimit, int limit)
+  {
+    final List<ByteString> keys = randomKeys();
+    try (VLVKeySorter sorter = new VLVKeySorter(sortDirectory, memoryLimit, limit))
+    {
+      for (ByteString key : keys)
+      {
+        sorter.add(key);
+      }
+      assertThat(sorter.size()).isEqualTo(keys.size());
+
+      Collections.sort(keys);
+      final List<ByteString> expected = keys.subList(0, Math.min(limit, keys.size()));
+      assertThat(sorter).containsExactlyElementsOf(expected);
+      // The sorted keys can be read several times
+      assertThat(sorter).containsExactlyElementsOf(expected);
+    }
+    assertThat(sortDirectory.list()).isEmpty();
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    try (VLVKeySorter sorter = new VLVKeySorter(sortDirectory, 1024, Integer.MAX_VALUE))
+    {
+      assertThat(sorter.size()).isZero();
+      assertThat(sorter).isEmpty();
+    }
+  }
+
+  @Test
+  public void testRunsAreOnlyReadableByTheirOwner() throws IOException
+  {
+    final File directory = new File(sortDirectory, "runs");
+    try (VLVKeySorter sorter = new VLVKeySorter(directory, 0, Integer.MAX_VALUE))
+    {
+      sorter.add(ByteString.valueOfUtf8("key"));
+
+      final File[] runFiles = directory.listFiles();
+      assertThat(runFiles).hasSize(1);
+      if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+      {
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())))
+            .isEqualTo("rwx------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(runFiles[0].toPath())))
+            .isEqualTo("rw-------");
+      }
+    }
+    assertThat(directory.list()).isEmpty();
+  }
+
+  private static List<ByteString> randomKeys()
+  {
+    final Random random = new Random(0);
+    final List<ByteString> keys = new ArrayList<>(NB_KEYS);
+    for (long entryID = 0; entryID < NB_KEYS; entryID++)
+    {
+      // Like VLV keys, the keys are made unique by appending the entry ID
+      final byte[] sortValue = new byte[random.nextInt(16)];
+      random.nextBytes(sortValue);
+      keys.add(new ByteStringBuilder().appendBytes(sortValue).appendLong(entryID).toByteString());
+    }
+    return keys;
+  }
+}
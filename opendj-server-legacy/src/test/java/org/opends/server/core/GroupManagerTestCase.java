@@ -16,11 +16,13 @@
  */
 package org.opends.server.core;
 
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ModificationType;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.RDN;
 import org.forgerock.opendj.ldap.SearchScope;
@@ -50,6 +52,7 @@ import static org.forgerock.opendj.ldap.requests.Requests.*;
 import static org.opends.server.protocols.internal.InternalClientConnection.*;
 import static org.opends.server.protocols.internal.Requests.*;
 import static org.opends.server.types.NullOutputStream.nullPrintStream;
+import static org.opends.server.util.CollectionUtils.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.testng.Assert.*;
 
@@ -2297,6 +2300,61 @@ public class GroupManagerTestCase
    *
    * @throws Exception If a problem adding the entries occurs.
    */
+  /**
+   * Tests that the groups of a user are looked up in the membership index,
+   * which is kept up to date by the modifications of the groups.
+   *
+   * @throws Exception If an unexpected problem occurs.
+   */
+  @Test
+  public void testGroupsOfMemberAreIndexed() throws Exception {
+    TestCaseUtils.initializeTestBackend(true);
+    GroupManager groupManager = DirectoryServer.getGroupManager();
+    groupManager.deregisterAllGroups();
+    addNestedGroupTestEntries();
+    DN group1DN = DN.valueOf("cn=group 1,ou=Groups,o=test");
+    DN group2DN = DN.valueOf("cn=group 2,ou=Groups,o=test");
+    DN group4DN = DN.valueOf("cn=group 4,ou=Groups,o=test");
+    DN user1DN = DN.valueOf("uid=user.1,ou=People,o=test");
+    Entry user1Entry = DirectoryServer.getEntry(user1DN);
+    Entry user5Entry = DirectoryServer.getEntry(DN.valueOf("uid=user.5,ou=People,o=test"));
+    //Group 1 contains group 2, which contains user 1 and the dynamic group 4.
+    modifyMembers(group1DN, ADD, "cn=group 2,ou=Groups,o=test");
+    modifyMembers(group2DN, ADD, "uid=user.1,ou=People,o=test", "cn=group 4,ou=Groups,o=test");
+
+    assertEquals(getGroupDNs(groupManager.getGroupsOfMember(user1Entry)), newHashSet(group1DN, group2DN));
+    assertEquals(getGroupDNs(groupManager.getGroupsOfMember(user5Entry)),
+        newHashSet(group1DN, group2DN, group4DN));
+    assertTrue(groupManager.getGroupInstance(group1DN).isMember(user1DN));
+    assertTrue(groupManager.dependsOnComputedMembership(groupManager.getGroupInstance(group2DN)));
+
+    long membershipVersion = groupManager.getMembershipVersion();
+    modifyMembers(group2DN, DELETE, "uid=user.1,ou=People,o=test");
+    assertTrue(groupManager.getMembershipVersion() > membershipVersion);
+    assertTrue(groupManager.getGroupsOfMember(user1Entry).isEmpty());
+    assertFalse(groupManager.getGroupInstance(group1DN).isMember(user1DN));
+
+    DeleteOperation deleteOperation = getRootConnection().processDelete(group2DN);
+    assertEquals(deleteOperation.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(getGroupDNs(groupManager.getGroupsOfMember(user5Entry)), newHashSet(group4DN));
+    assertFalse(groupManager.dependsOnComputedMembership(groupManager.getGroupInstance(group1DN)));
+  }
+
+  private void modifyMembers(DN groupDN, ModificationType modType, String... memberDNs) {
+    final ModifyRequest modifyRequest = newModifyRequest(groupDN)
+        .addModification(modType, "member", (Object[]) memberDNs);
+    ModifyOperation modifyOperation = getRootConnection().processModify(modifyRequest);
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+  }
+
+  private Set<DN> getGroupDNs(Set<Group<?>> groups) {
+    Set<DN> groupDNs = new HashSet<>();
+    for (Group<?> group : groups) {
+      groupDNs.add(group.getGroupDN());
+    }
+    return groupDNs;
+  }
+
   private void addNestedGroupTestEntries() throws Exception {
 
     TestCaseUtils.addEntries(
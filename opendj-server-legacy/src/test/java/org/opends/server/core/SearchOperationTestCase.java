@@ -26,6 +26,7 @@ import static org.testng.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -33,6 +34,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.assertj.core.api.SoftAssertions;
 import org.forgerock.opendj.ldap.ByteString;
@@ -42,6 +46,9 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.ObjectClass;
 import org.opends.server.TestCaseUtils;
+import org.opends.server.api.plugin.InternalDirectoryServerPlugin;
+import org.opends.server.api.plugin.PluginResult;
+import org.opends.server.api.plugin.PluginType;
 import org.opends.server.controls.MatchedValuesControl;
 import org.opends.server.controls.MatchedValuesFilter;
 import org.opends.server.controls.SubentriesControl;
@@ -67,6 +74,7 @@ import org.opends.server.types.Entry;
 import org.opends.server.types.Operation;
 import org.opends.server.types.SearchResultEntry;
 import org.opends.server.types.SearchResultReference;
+import org.opends.server.types.operation.SearchEntrySearchOperation;
 import org.opends.server.util.StaticUtils;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -389,6 +397,95 @@ public class SearchOperationTestCase extends OperationTestCase
         "ou=level2,ou=level1," + BASE);
   }
 
+  @Test
+  public void testSearchExternalCoalescesEntriesWrites() throws Exception
+  {
+    try (RemoteConnection conn = new RemoteConnection("localhost", TestCaseUtils.getServerLdapPort()))
+    {
+      bindAsManager(conn);
+      assertTrue(DirectoryServer.getWorkQueue().waitUntilIdle(10000));
+
+      long socketWrites = ldapStatistics.getSocketWrites();
+      long searchEntries = ldapStatistics.getSearchResultEntries();
+
+      conn.search(BASE, SearchScope.WHOLE_SUBTREE, "(objectclass=*)");
+      List<SearchResultEntryProtocolOp> entries = new ArrayList<>();
+      LDAPMessage message;
+      while ((message = conn.readMessage()) != null
+          && message.getProtocolOpType() != LDAPConstants.OP_TYPE_SEARCH_RESULT_DONE)
+      {
+        if (message.getProtocolOpType() == LDAPConstants.OP_TYPE_SEARCH_RESULT_ENTRY)
+        {
+          entries.add(message.getSearchResultEntryProtocolOp());
+        }
+      }
+      assertThat(entries).hasSize(4);
+
+      TestCaseUtils.quiesceServer();
+      assertEquals(ldapStatistics.getSearchResultEntries(), searchEntries + 4);
+      // The entries are written along with the search result done
+      assertThat(ldapStatistics.getSocketWrites() - socketWrites).isLessThan(5);
+    }
+  }
+
+  @Test
+  public void testSearchExternalWritesCoalescedEntriesOfStalledSearch() throws Exception
+  {
+    final CountDownLatch resumeSearch = new CountDownLatch(1);
+    final AtomicInteger searchEntries = new AtomicInteger();
+    InternalDirectoryServerPlugin stallingPlugin = new InternalDirectoryServerPlugin(
+        DN.valueOf("cn=Stalling Search Plugin"), EnumSet.of(PluginType.SEARCH_RESULT_ENTRY), false)
+    {
+      @Override
+      public PluginResult.IntermediateResponse processSearchEntry(
+          SearchEntrySearchOperation searchOperation, SearchResultEntry searchEntry)
+      {
+        // Stall the search once its first entry has been sent
+        if (searchEntries.incrementAndGet() == 2)
+        {
+          try
+          {
+            resumeSearch.await(30, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return PluginResult.IntermediateResponse.continueOperationProcessing(true);
+      }
+    };
+
+    try (RemoteConnection conn = new RemoteConnection("localhost", TestCaseUtils.getServerLdapPort()))
+    {
+      bindAsManager(conn);
+      DirectoryServer.registerInternalPlugin(stallingPlugin);
+      try
+      {
+        conn.search(BASE, SearchScope.WHOLE_SUBTREE, "(objectclass=*)");
+        // The first entry is written by the coalesced writes flusher while the search is stalled
+        LDAPMessage message = conn.readMessage();
+        assertEquals(message.getProtocolOpType(), LDAPConstants.OP_TYPE_SEARCH_RESULT_ENTRY);
+        assertEquals(resumeSearch.getCount(), 1);
+        assertEquals(searchEntries.get(), 2);
+      }
+      finally
+      {
+        resumeSearch.countDown();
+        DirectoryServer.deregisterInternalPlugin(stallingPlugin);
+      }
+
+      LDAPMessage message;
+      while ((message = conn.readMessage()) != null
+          && message.getProtocolOpType() != LDAPConstants.OP_TYPE_SEARCH_RESULT_DONE)
+      {
+        assertEquals(message.getProtocolOpType(), LDAPConstants.OP_TYPE_SEARCH_RESULT_ENTRY);
+      }
+      assertNotNull(message);
+      assertEquals(message.getSearchResultDoneProtocolOp().getResultCode(), LDAPResultCode.SUCCESS);
+    }
+  }
+
   private List<String> getEntryNames(InternalSearchOperation searchOp)
   {
     List<SearchResultEntry> entries = searchOp.getSearchEntries();
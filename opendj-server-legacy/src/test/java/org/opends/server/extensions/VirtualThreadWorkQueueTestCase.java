@@ -0,0 +1,117 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.opendj.server.config.server.VirtualThreadWorkQueueCfg;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the virtual thread work queue. */
+@SuppressWarnings("javadoc")
+public class VirtualThreadWorkQueueTestCase extends WorkQueueTestCase<VirtualThreadWorkQueueCfg, VirtualThreadWorkQueue>
+{
+  @Override
+  protected VirtualThreadWorkQueue newWorkQueue()
+  {
+    return new VirtualThreadWorkQueue();
+  }
+
+  @Test
+  public void testBlockedOperationsDoNotPreventOthersFromRunning() throws Exception
+  {
+    workQueue = createWorkQueue(10, 100);
+    final CountDownLatch started = new CountDownLatch(5);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch processed = new CountDownLatch(5);
+
+    for (int i = 0; i < 5; i++)
+    {
+      workQueue.submitOperation(mockOperation(started, release));
+    }
+    assertThat(started.await(10, SECONDS)).isTrue();
+    for (int i = 0; i < 5; i++)
+    {
+      workQueue.submitOperation(mockOperation(null, processed));
+    }
+    assertThat(processed.await(10, SECONDS)).isTrue();
+    assertThat(workQueue.getOperationsInProgress()).isGreaterThanOrEqualTo(5);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(10);
+  }
+
+  @Test
+  public void testConcurrencyLimit() throws Exception
+  {
+    workQueue = createWorkQueue(2, 100);
+    final CountDownLatch started = new CountDownLatch(2);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    for (int i = 0; i < 5; i++)
+    {
+      workQueue.submitOperation(mockOperation(started, release));
+    }
+    assertThat(started.await(10, SECONDS)).isTrue();
+    assertThat(workQueue.getOperationsInProgress()).isEqualTo(2);
+    assertThat(workQueue.size()).isEqualTo(3);
+
+    // Raising the limit starts the pending operations
+    workQueue.applyConfigurationChange(newCfg(5, 100));
+    assertThat(workQueue.getNumWorkerThreads()).isEqualTo(5);
+    assertThat(workQueue.size()).isEqualTo(0);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  @Test
+  public void testTrySubmitRejectsOperationsWhenFull() throws Exception
+  {
+    workQueue = createWorkQueue(1, 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    workQueue.submitOperation(mockOperation(started, release));
+    assertThat(started.await(10, SECONDS)).isTrue();
+    assertThat(workQueue.trySubmitOperation(mockOperation(null, null))).isTrue();
+    assertThat(workQueue.trySubmitOperation(mockOperation(null, null))).isFalse();
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  private VirtualThreadWorkQueue createWorkQueue(int maxConcurrentOperations, int maxCapacity) throws Exception
+  {
+    return createWorkQueue(newCfg(maxConcurrentOperations, maxCapacity));
+  }
+
+  private static VirtualThreadWorkQueueCfg newCfg(int maxConcurrentOperations, int maxCapacity)
+  {
+    final VirtualThreadWorkQueueCfg cfg = mockCfg(VirtualThreadWorkQueueCfg.class);
+    when(cfg.getMaxConcurrentOperations()).thenReturn(maxConcurrentOperations);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    return cfg;
+  }
+}
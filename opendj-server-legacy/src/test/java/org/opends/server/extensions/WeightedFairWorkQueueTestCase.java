@@ -0,0 +1,218 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.meta.WeightedFairWorkQueueCfgDefn.SchedulingCriteria;
+import org.forgerock.opendj.server.config.server.WeightedFairWorkQueueCfg;
+import org.opends.server.extensions.WeightedFairWorkQueue.SchedulingClass;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the weighted fair work queue. */
+@SuppressWarnings("javadoc")
+public class WeightedFairWorkQueueTestCase extends WorkQueueTestCase<WeightedFairWorkQueueCfg, WeightedFairWorkQueue>
+{
+  @Override
+  protected WeightedFairWorkQueue newWorkQueue()
+  {
+    return new WeightedFairWorkQueue();
+  }
+
+  @Test
+  public void testClassesAreServedInProportionToTheirWeights() throws Exception
+  {
+    workQueue = createWorkQueue(newCfg(100, "100:search"));
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<OperationType> processed = Collections.synchronizedList(new ArrayList<OperationType>());
+
+    // Let the queue estimate the cost of both classes
+    for (int i = 0; i < 10; i++)
+    {
+      workQueue.submitOperation(mockOperation(OperationType.MODIFY, null, null, null));
+      workQueue.submitOperation(mockOperation(OperationType.SEARCH, null, null, null));
+    }
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+
+    // Keep the only worker thread busy while the other operations are queued
+    workQueue.submitOperation(mockOperation(OperationType.ADD, started, release, null));
+    assertThat(started.await(10, SECONDS)).isTrue();
+    for (int i = 0; i < 10; i++)
+    {
+      workQueue.submitOperation(mockOperation(OperationType.MODIFY, null, null, processed));
+      workQueue.submitOperation(mockOperation(OperationType.SEARCH, null, null, processed));
+    }
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+
+    assertThat(processed).hasSize(20);
+    assertThat(Collections.frequency(processed.subList(0, 10), OperationType.SEARCH)).isGreaterThanOrEqualTo(8);
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(41);
+  }
+
+  @Test
+  public void testClassQueueLimitRejectsOperations() throws Exception
+  {
+    workQueue = createWorkQueue(newCfg(2));
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    workQueue.submitOperation(mockOperation(OperationType.ADD, started, release, null));
+    assertThat(started.await(10, SECONDS)).isTrue();
+    workQueue.submitOperation(mockOperation(OperationType.SEARCH, null, null, null));
+    assertThat(workQueue.trySubmitOperation(mockOperation(OperationType.SEARCH, null, null, null))).isTrue();
+    try
+    {
+      workQueue.trySubmitOperation(mockOperation(OperationType.SEARCH, null, null, null));
+      fail("Expected the operation to be rejected");
+    }
+    catch (DirectoryException e)
+    {
+      assertThat(e.getResultCode()).isEqualTo(ResultCode.BUSY);
+    }
+    // Other classes are not affected
+    workQueue.submitOperation(mockOperation(OperationType.MODIFY, null, null, null));
+    assertThat(workQueue.size()).isEqualTo(3);
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+    assertThat(getSchedulingClass("search").getOpsRejected()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  @Test
+  public void testCostAndLatenciesAreTrackedPerClass() throws Exception
+  {
+    workQueue = createWorkQueue(newCfg(100));
+    final CountDownLatch processed = new CountDownLatch(5);
+    for (int i = 0; i < 5; i++)
+    {
+      workQueue.submitOperation(mockSlowOperation(OperationType.SEARCH, 20, processed));
+    }
+    assertThat(processed.await(10, SECONDS)).isTrue();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+
+    final SchedulingClass search = getSchedulingClass("search");
+    assertThat(search.getOpsSubmitted()).isEqualTo(5);
+    assertThat(search.getEstimatedCost()).isGreaterThanOrEqualTo(20000);
+    assertThat(search.getServiceTimePercentile(0.5)).isGreaterThanOrEqualTo(20000);
+    assertThat(search.getServiceTimePercentile(0.99)).isGreaterThanOrEqualTo(search.getServiceTimePercentile(0.5));
+    // The last operation waited for the first four
+    assertThat(search.getWaitTimePercentile(0.99)).isGreaterThanOrEqualTo(60000);
+  }
+
+  @Test
+  public void testInvalidWeightsAreRejected() throws Exception
+  {
+    workQueue = createWorkQueue(newCfg(100));
+    final List<LocalizableMessage> reasons = new ArrayList<>();
+    assertThat(workQueue.isConfigurationChangeAcceptable(newCfg(100, "search"), reasons)).isFalse();
+    assertThat(workQueue.isConfigurationChangeAcceptable(newCfg(100, "0:search"), reasons)).isFalse();
+    assertThat(reasons).hasSize(2);
+    assertThat(workQueue.isConfigurationChangeAcceptable(newCfg(100, "2:search", "3:modify"), reasons)).isTrue();
+
+    workQueue.applyConfigurationChange(newCfg(100, "2:search"));
+    workQueue.submitOperation(mockOperation(OperationType.SEARCH, null, null, null));
+    assertThat(getSchedulingClass("search").getWeight()).isEqualTo(2);
+  }
+
+  private SchedulingClass getSchedulingClass(String name)
+  {
+    for (SchedulingClass c : workQueue.getSchedulingClasses())
+    {
+      if (c.getName().equals(name))
+      {
+        return c;
+      }
+    }
+    throw new AssertionError("No scheduling class " + name);
+  }
+
+  /** Returns the configuration of a queue with a single worker thread, classifying operations by type. */
+  private static WeightedFairWorkQueueCfg newCfg(int maxQueuedOperationsPerClass, String... weights)
+  {
+    final WeightedFairWorkQueueCfg cfg = mockCfg(WeightedFairWorkQueueCfg.class);
+    when(cfg.getNumWorkerThreads()).thenReturn(1);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(1000);
+    when(cfg.getSchedulingCriteria()).thenReturn(SchedulingCriteria.OPERATION_TYPE);
+    when(cfg.getSchedulingClassWeight()).thenReturn(new TreeSet<>(Arrays.asList(weights)));
+    when(cfg.getDefaultSchedulingClassWeight()).thenReturn(1);
+    when(cfg.getMaxQueuedOperationsPerClass()).thenReturn(maxQueuedOperationsPerClass);
+    return cfg;
+  }
+
+  /**
+   * Returns an operation which counts down the first latch when it starts, then waits for the second latch, or
+   * adds its type to the list of processed operations.
+   */
+  private static Operation mockOperation(final OperationType type, CountDownLatch started, CountDownLatch release,
+      final List<OperationType> processed)
+  {
+    final Operation operation;
+    if (started == null && processed != null)
+    {
+      operation = mockOperation(new Callable<Void>()
+      {
+        @Override
+        public Void call()
+        {
+          processed.add(type);
+          return null;
+        }
+      });
+    }
+    else
+    {
+      operation = mockOperation(started, release);
+    }
+    when(operation.getOperationType()).thenReturn(type);
+    return operation;
+  }
+
+  /** Returns an operation which sleeps for the provided duration, then counts down the latch. */
+  private static Operation mockSlowOperation(OperationType type, final long millis, final CountDownLatch processed)
+  {
+    final Operation operation = mockOperation(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        Thread.sleep(millis);
+        processed.countDown();
+        return null;
+      }
+    });
+    when(operation.getOperationType()).thenReturn(type);
+    return operation;
+  }
+}
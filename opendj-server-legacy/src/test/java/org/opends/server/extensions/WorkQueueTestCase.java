@@ -0,0 +1,155 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.server.config.server.WorkQueueCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.Operation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+
+/**
+ * An abstract base class for the work queue test cases, which creates the
+ * tested work queue and finalizes it after each test.
+ *
+ * @param <C> The type of work queue configuration.
+ * @param <Q> The type of work queue.
+ */
+public abstract class WorkQueueTestCase<C extends WorkQueueCfg, Q extends WorkQueue<C>>
+       extends ExtensionsTestCase
+{
+  /** The monitor of the server's work queue, replaced by the monitor of the tested work queue. */
+  private MonitorProvider<?> workQueueMonitor;
+  /** The tested work queue, finalized after each test. */
+  protected Q workQueue;
+
+  /**
+   * Ensures that the Directory Server is running.
+   *
+   * @throws Exception If an unexpected problem occurs.
+   */
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  /** Saves the monitor of the server's work queue. */
+  @BeforeMethod
+  public void saveWorkQueueMonitor()
+  {
+    workQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+  }
+
+  /** Finalizes the tested work queue and restores the monitor of the server's work queue. */
+  @AfterMethod
+  public void tearDown()
+  {
+    if (workQueue != null)
+    {
+      workQueue.finalizeWorkQueue(LocalizableMessage.raw("test"));
+      workQueue = null;
+    }
+    if (workQueueMonitor != null)
+    {
+      DirectoryServer.registerMonitorProvider(workQueueMonitor);
+    }
+  }
+
+  /**
+   * Returns a new work queue, not initialized yet.
+   *
+   * @return a new work queue
+   */
+  protected abstract Q newWorkQueue();
+
+  /**
+   * Creates a work queue and initializes it with the provided configuration.
+   *
+   * @param cfg The configuration of the work queue.
+   * @return the initialized work queue
+   * @throws Exception If the work queue cannot be initialized.
+   */
+  protected Q createWorkQueue(C cfg) throws Exception
+  {
+    final Q queue = newWorkQueue();
+    queue.initializeWorkQueue(cfg);
+    return queue;
+  }
+
+  /**
+   * Returns an operation which counts down the first latch when it starts, then waits for the second latch, or
+   * counts it down if the first latch is {@code null}.
+   *
+   * @param started The latch counted down when the operation starts, or {@code null}.
+   * @param latch The latch the operation waits for, or counts down if {@code started} is {@code null}.
+   * @return the mocked operation
+   */
+  protected static Operation mockOperation(final CountDownLatch started, final CountDownLatch latch)
+  {
+    return mockOperation(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        if (started != null)
+        {
+          started.countDown();
+          latch.await(10, SECONDS);
+        }
+        else if (latch != null)
+        {
+          latch.countDown();
+        }
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Returns an operation which calls the provided task when it is run.
+   *
+   * @param task The task called when the operation is run.
+   * @return the mocked operation
+   */
+  protected static Operation mockOperation(final Callable<Void> task)
+  {
+    final Operation operation = mock(Operation.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        return task.call();
+      }
+    }).when(operation).run();
+    return operation;
+  }
+}
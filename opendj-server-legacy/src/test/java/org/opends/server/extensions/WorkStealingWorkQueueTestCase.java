@@ -0,0 +1,200 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.opendj.server.config.server.WorkStealingWorkQueueCfg;
+import org.opends.server.types.Operation;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the work stealing work queue. */
+@SuppressWarnings("javadoc")
+public class WorkStealingWorkQueueTestCase extends WorkQueueTestCase<WorkStealingWorkQueueCfg, WorkStealingWorkQueue>
+{
+  @Override
+  protected WorkStealingWorkQueue newWorkQueue()
+  {
+    return new WorkStealingWorkQueue();
+  }
+
+  @Test
+  public void testOperationsAreStolenFromBusyWorkerThread() throws Exception
+  {
+    workQueue = createWorkQueue(2, 100);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch processed = new CountDownLatch(10);
+
+    workQueue.submitOperation(mockOperation(0, started, release));
+    assertThat(started.await(10, SECONDS)).isTrue();
+    final List<WorkStealingWorkerThread> threads = workQueue.getWorkerThreads();
+    final int busy = threads.get(0).isActive() ? 0 : 1;
+    final WorkStealingWorkerThread idleThread = threads.get(1 - busy);
+    final long stolenBefore = idleThread.getOperationsStolen();
+
+    // The operations of a connection go to the deque of the worker thread having the affinity with it
+    for (int i = 0; i < 10; i++)
+    {
+      workQueue.submitOperation(mockOperation(busy, null, processed));
+    }
+
+    // The other worker thread processes them while the first one is busy
+    assertThat(processed.await(10, SECONDS)).isTrue();
+    assertThat(idleThread.getOperationsStolen() - stolenBefore).isEqualTo(10);
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(11);
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    assertThat(sum(workQueue.getWaitTimeHistogram())).isEqualTo(11);
+  }
+
+  @Test
+  public void testOldestOperationsOfBusyWorkerThreadAreStolenFirst() throws Exception
+  {
+    workQueue = createWorkQueue(2, 100);
+    final CountDownLatch busyStarted = new CountDownLatch(1);
+    final CountDownLatch releaseBusy = new CountDownLatch(1);
+    final CountDownLatch otherStarted = new CountDownLatch(1);
+    final CountDownLatch releaseOther = new CountDownLatch(1);
+
+    workQueue.submitOperation(mockOperation(0, busyStarted, releaseBusy));
+    assertThat(busyStarted.await(10, SECONDS)).isTrue();
+    final List<WorkStealingWorkerThread> threads = workQueue.getWorkerThreads();
+    final int busy = threads.get(0).isActive() ? 0 : 1;
+    final WorkStealingWorkerThread otherThread = threads.get(1 - busy);
+    workQueue.submitOperation(mockOperation(1 - busy, otherStarted, releaseOther));
+    assertThat(otherStarted.await(10, SECONDS)).isTrue();
+    final long stolenBefore = otherThread.getOperationsStolen();
+
+    // Both worker threads are busy, the operations wait in the deque of the first one
+    final List<Integer> processingOrder = new CopyOnWriteArrayList<>();
+    final CountDownLatch processed = new CountDownLatch(5);
+    for (int i = 0; i < 5; i++)
+    {
+      workQueue.submitOperation(mockOperation(busy, recordProcessing(i, processingOrder, processed)));
+    }
+
+    // Once free, the other worker thread takes them over, oldest first
+    releaseOther.countDown();
+    assertThat(processed.await(10, SECONDS)).isTrue();
+    assertThat(processingOrder).containsExactly(0, 1, 2, 3, 4);
+    assertThat(otherThread.getOperationsStolen() - stolenBefore).isEqualTo(5);
+    releaseBusy.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  @Test
+  public void testTrySubmitRejectsOperationsWhenFull() throws Exception
+  {
+    workQueue = createWorkQueue(1, 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    workQueue.submitOperation(mockOperation(0, started, release));
+    assertThat(started.await(10, SECONDS)).isTrue();
+    assertThat(workQueue.trySubmitOperation(mockOperation(1, null, null))).isTrue();
+    assertThat(workQueue.trySubmitOperation(mockOperation(2, null, null))).isFalse();
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+    assertThat(workQueue.size()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+  }
+
+  @Test
+  public void testNumberOfWorkerThreadsCanBeChanged() throws Exception
+  {
+    workQueue = createWorkQueue(4, 100);
+    workQueue.applyConfigurationChange(newCfg(1, 100));
+    assertThat(workQueue.getNumWorkerThreads()).isEqualTo(1);
+
+    final CountDownLatch processed = new CountDownLatch(20);
+    for (int i = 0; i < 20; i++)
+    {
+      workQueue.submitOperation(mockOperation(i, null, processed));
+    }
+    assertThat(processed.await(10, SECONDS)).isTrue();
+
+    workQueue.applyConfigurationChange(newCfg(3, 100));
+    assertThat(workQueue.getNumWorkerThreads()).isEqualTo(3);
+  }
+
+  private WorkStealingWorkQueue createWorkQueue(int numWorkerThreads, int maxCapacity) throws Exception
+  {
+    return createWorkQueue(newCfg(numWorkerThreads, maxCapacity));
+  }
+
+  private static WorkStealingWorkQueueCfg newCfg(int numWorkerThreads, int maxCapacity)
+  {
+    final WorkStealingWorkQueueCfg cfg = mockCfg(WorkStealingWorkQueueCfg.class);
+    when(cfg.getNumWorkerThreads()).thenReturn(numWorkerThreads);
+    when(cfg.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    return cfg;
+  }
+
+  /**
+   * Returns an operation of the provided connection, which behaves as
+   * {@link #mockOperation(CountDownLatch, CountDownLatch)}.
+   */
+  private static Operation mockOperation(long connectionID, CountDownLatch started, CountDownLatch latch)
+  {
+    final Operation operation = mockOperation(started, latch);
+    when(operation.getConnectionID()).thenReturn(connectionID);
+    return operation;
+  }
+
+  /** Returns an operation of the provided connection, which calls the provided task when it is run. */
+  private static Operation mockOperation(long connectionID, Callable<Void> task)
+  {
+    final Operation operation = mockOperation(task);
+    when(operation.getConnectionID()).thenReturn(connectionID);
+    return operation;
+  }
+
+  private static Callable<Void> recordProcessing(final int index, final List<Integer> processingOrder,
+      final CountDownLatch processed)
+  {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        processingOrder.add(index);
+        processed.countDown();
+        return null;
+      }
+    };
+  }
+
+  private static long sum(long[] values)
+  {
+    long sum = 0;
+    for (long value : values)
+    {
+      sum += value;
+    }
+    return sum;
+  }
+}
@@ -16,12 +16,21 @@
  */
 package org.opends.server.protocols.ldap;
 
+import static org.testng.Assert.*;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.channels.Channels;
 import java.nio.channels.IllegalBlockingModeException;
+import java.util.Arrays;
 
+import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Reader;
+import org.forgerock.opendj.io.ASN1Writer;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 /** Test class for ASN1ByteChannelReader. */
@@ -288,4 +297,104 @@ public class ASN1ByteChannelReaderTestCase extends ASN1ReaderTestCase
   {
     super.testSkipElementIncompleteRead();
   }
+
+  @DataProvider
+  public Object[][] valueLengths()
+  {
+    return new Object[][] { { 0 }, { 100 }, { 200 }, { 70000 }, { 20000000 } };
+  }
+
+  /**
+   * Tests the <CODE>readElement</CODE> method with elements spanning several
+   * reads from the channel.
+   *
+   * @param  valueLength  The length of the octet string in the element.
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "valueLengths")
+  public void testReadElement(int valueLength)
+      throws Exception
+  {
+    byte[] bytes = new byte[valueLength];
+    Arrays.fill(bytes, (byte) 'a');
+    ByteString value = ByteString.wrap(bytes);
+
+    ByteStringBuilder builder = new ByteStringBuilder();
+    ASN1Writer writer = ASN1.getWriter(builder);
+    writer.writeStartSequence();
+    writer.writeInteger(42);
+    writer.writeOctetString(value);
+    writer.writeEndSequence();
+    writer.writeNull();
+
+    ASN1ByteChannelReader reader = new ASN1ByteChannelReader(
+        Channels.newChannel(new ByteArrayInputStream(builder.toByteArray())), 1024, 0);
+    while (!reader.elementAvailable())
+    {
+      assertTrue(reader.processChannelData() > 0);
+    }
+
+    ASN1Reader element = reader.readElement();
+    element.readStartSequence();
+    assertEquals(element.readInteger(), 42);
+    assertEquals(element.readOctetString(), value);
+    element.readEndSequence();
+    assertFalse(element.hasNextElement());
+
+    // The reader is positioned on the next element
+    while (!reader.elementAvailable())
+    {
+      assertTrue(reader.processChannelData() > 0);
+    }
+    reader.readNull();
+    assertFalse(reader.hasRemainingData());
+  }
+
+  /**
+   * Tests that the <CODE>readElement</CODE> method only returns the large
+   * octet strings as views over the element, and copies the small ones.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test
+  public void testReadElementCopiesSmallValues()
+      throws Exception
+  {
+    byte[] bytes = new byte[10000];
+    Arrays.fill(bytes, (byte) 'a');
+    ByteString largeValue = ByteString.wrap(bytes);
+    ByteString smallValue = ByteString.valueOfUtf8("cn=small,dc=example,dc=com");
+
+    ByteStringBuilder builder = new ByteStringBuilder();
+    ASN1Writer writer = ASN1.getWriter(builder);
+    writer.writeStartSequence();
+    writer.writeOctetString(smallValue);
+    writer.writeOctetString(largeValue);
+    writer.writeEndSequence();
+
+    ASN1ByteChannelReader reader = new ASN1ByteChannelReader(
+        Channels.newChannel(new ByteArrayInputStream(builder.toByteArray())), 1024, 0);
+    while (!reader.elementAvailable())
+    {
+      assertTrue(reader.processChannelData() > 0);
+    }
+
+    ASN1Reader element = reader.readElement();
+    element.readStartSequence();
+    ByteString readSmallValue = element.readOctetString();
+    ByteString readLargeValue = element.readOctetString();
+    element.readEndSequence();
+
+    assertEquals(readSmallValue, smallValue);
+    assertEquals(getBackingArray(readSmallValue).length, smallValue.length());
+    assertEquals(readLargeValue, largeValue);
+    assertTrue(getBackingArray(readLargeValue).length > largeValue.length());
+  }
+
+  private static byte[] getBackingArray(ByteString value) throws Exception
+  {
+    Field buffer = ByteString.class.getDeclaredField("buffer");
+    buffer.setAccessible(true);
+    return (byte[]) buffer.get(value);
+  }
 }
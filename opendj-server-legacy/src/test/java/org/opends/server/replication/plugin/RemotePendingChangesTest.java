@@ -0,0 +1,102 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.common.ServerState;
+import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Test the dependency tracking of RemotePendingChanges. */
+@SuppressWarnings("javadoc")
+public class RemotePendingChangesTest extends ReplicationTestCase
+{
+  private ServerState state;
+  private RemotePendingChanges pendingChanges;
+
+  @BeforeMethod
+  public void createPendingChanges()
+  {
+    state = new ServerState();
+    pendingChanges = new RemotePendingChanges(state);
+  }
+
+  @Test
+  public void testModifyDNWaitsForDeleteOfItsNewDN() throws Exception
+  {
+    LDAPUpdateMsg delete = replay(new DeleteMsg(DN.valueOf("ou=new,o=test"), new CSN(1, 0, 1), "uuid1"));
+    ModifyDNMsg modDn = new ModifyDNMsg(DN.valueOf("ou=old,o=test"), new CSN(2, 0, 1), "uuid2", null, false,
+        null, "ou=new");
+    replay(modDn);
+
+    assertThat(pendingChanges.checkDependencies(modDn)).isTrue();
+    assertThat(pendingChanges.getDependentChangesSize()).isEqualTo(1);
+    assertThat(pendingChanges.getNextUpdate()).isNull();
+
+    pendingChanges.commit(delete.getCSN());
+    assertThat(pendingChanges.getNextUpdate()).isSameAs(modDn);
+    assertThat(pendingChanges.getDependentChangesSize()).isEqualTo(0);
+    assertThat(pendingChanges.getNextUpdate()).isNull();
+  }
+
+  @Test
+  public void testChangesOnUnrelatedEntriesAreIndependent() throws Exception
+  {
+    replay(new DeleteMsg(DN.valueOf("ou=a,o=test"), new CSN(1, 0, 1), "uuid1"));
+    replay(new DeleteMsg(DN.valueOf("ou=child,ou=b,o=test"), new CSN(2, 0, 1), "uuid2"));
+    ModifyDNMsg modDn = new ModifyDNMsg(DN.valueOf("ou=c,o=test"), new CSN(3, 0, 1), "uuid3", null, false,
+        null, "ou=d");
+    replay(modDn);
+
+    assertThat(pendingChanges.checkDependencies(modDn)).isFalse();
+    assertThat(pendingChanges.getDependentChangesSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDependentChangeIsReleasedBeforeOlderUnrelatedChangesAreCommitted() throws Exception
+  {
+    LDAPUpdateMsg delete = replay(new DeleteMsg(DN.valueOf("ou=new,o=test"), new CSN(1, 0, 1), "uuid1"));
+    LDAPUpdateMsg unrelated = replay(new DeleteMsg(DN.valueOf("ou=other,o=test"), new CSN(2, 0, 1), "uuid2"));
+    ModifyDNMsg modDn = new ModifyDNMsg(DN.valueOf("ou=old,o=test"), new CSN(3, 0, 1), "uuid3", null, false,
+        null, "ou=new");
+    replay(modDn);
+    assertThat(pendingChanges.checkDependencies(modDn)).isTrue();
+
+    pendingChanges.commit(delete.getCSN());
+    // The unrelated change is still in progress
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(2);
+    assertThat(pendingChanges.getNextUpdate()).isSameAs(modDn);
+
+    pendingChanges.commit(modDn.getCSN());
+    pendingChanges.commit(unrelated.getCSN());
+    assertThat(pendingChanges.getQueueSize()).isEqualTo(0);
+    assertThat(state.getCSN(1)).isEqualTo(modDn.getCSN());
+  }
+
+  private LDAPUpdateMsg replay(LDAPUpdateMsg msg)
+  {
+    assertThat(pendingChanges.putRemoteUpdate(msg)).isTrue();
+    pendingChanges.markInProgress(msg);
+    return msg;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.replication.protocol;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.replication.protocol.ProtocolVersion.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.util.StaticUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Test the framing of the messages sent over a replication session. */
+@SuppressWarnings("javadoc")
+public class SessionTest extends ReplicationTestCase
+{
+  private static final int TIMEOUT_MS = 10000;
+  /**
+   * Small socket buffers make the session thread block while the messages
+   * are published, so that they wait in the send queue and get batched.
+   */
+  private static final int SOCKET_BUFFER_SIZE = 4096;
+
+  private Session client;
+  private Session server;
+
+  @BeforeMethod
+  public void createSessions() throws Exception
+  {
+    final ReplSessionSecurity security = getReplSessionSecurity();
+    try (final ServerSocket listenSocket = TestCaseUtils.bindFreePort())
+    {
+      listenSocket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+      final FutureTask<Session> serverSession = new FutureTask<>(new Callable<Session>()
+      {
+        @Override
+        public Session call() throws Exception
+        {
+          return security.createServerSession(listenSocket.accept(), TIMEOUT_MS);
+        }
+      });
+      new Thread(serverSession).start();
+
+      final Socket socket = new Socket();
+      socket.setSendBufferSize(SOCKET_BUFFER_SIZE);
+      socket.connect(listenSocket.getLocalSocketAddress(), TIMEOUT_MS);
+      client = security.createClientSession(socket, TIMEOUT_MS);
+      server = serverSession.get(TIMEOUT_MS, MILLISECONDS);
+    }
+    server.setSoTimeout(TIMEOUT_MS);
+  }
+
+  @AfterMethod
+  public void closeSessions()
+  {
+    StaticUtils.close(client, server);
+  }
+
+  @Test
+  public void testBatchedMessagesAreReceivedInOrder() throws Exception
+  {
+    client.setCompressionEnabled(true);
+    publishAndReceiveMessages(getCurrentVersion());
+
+    assertThat(client.getBatchFramesSent()).isGreaterThan(0);
+    assertThat(client.getFramesSent()).isLessThan(510);
+    // The entries are larger than the compression threshold
+    assertThat(client.getCompressedFramesSent()).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  public void testMessagesAreNotCompressedUnlessNegotiated() throws Exception
+  {
+    publishAndReceiveMessages(getCurrentVersion());
+
+    assertThat(client.getBatchFramesSent()).isGreaterThan(0);
+    assertThat(client.getCompressedFramesSent()).isEqualTo(0);
+  }
+
+  @Test
+  public void testMessagesAreNotBatchedForOlderPeers() throws Exception
+  {
+    client.setCompressionEnabled(true);
+    publishAndReceiveMessages(REPLICATION_PROTOCOL_V8);
+
+    assertThat(client.getFramesSent()).isEqualTo(510);
+    assertThat(client.getBatchFramesSent()).isEqualTo(0);
+    assertThat(client.getCompressedFramesSent()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLargeMessagesAreCompressed() throws Exception
+  {
+    client.setCompressionEnabled(true);
+    publishAndReceiveLargeMessages();
+
+    assertThat(client.getFramesSent()).isEqualTo(10);
+    assertThat(client.getCompressedFramesSent()).isEqualTo(10);
+  }
+
+  @Test
+  public void testLargeMessagesAreNotCompressedUnlessNegotiated() throws Exception
+  {
+    publishAndReceiveLargeMessages();
+
+    assertThat(client.getFramesSent()).isEqualTo(10);
+    assertThat(client.getBatchFramesSent()).isEqualTo(0);
+    assertThat(client.getCompressedFramesSent()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPublishAfterCloseFails() throws Exception
+  {
+    setProtocolVersion(getCurrentVersion());
+    client.close();
+    try
+    {
+      client.publish(new EntryMsg(1, 2, newEntryBytes(100), 1));
+      fail("Expected an IOException");
+    }
+    catch (IOException expected)
+    {
+      // The deflater has been ended by close()
+    }
+  }
+
+  private void publishAndReceiveLargeMessages() throws Exception
+  {
+    setProtocolVersion(getCurrentVersion());
+    final byte[] entry = newEntryBytes(100);
+    for (int i = 0; i < 10; i++)
+    {
+      client.publish(new EntryMsg(1, 2, entry, i));
+    }
+    for (int i = 0; i < 10; i++)
+    {
+      final EntryMsg msg = (EntryMsg) server.receive();
+      assertThat(msg.getMsgId()).isEqualTo(i);
+      assertThat(msg.getEntryBytes()).isEqualTo(entry);
+    }
+  }
+
+  private void publishAndReceiveMessages(short protocolVersion) throws Exception
+  {
+    setProtocolVersion(protocolVersion);
+    client.start();
+    client.waitForStartup();
+
+    final byte[] entry = newEntryBytes(20);
+    for (int i = 1; i <= 500; i++)
+    {
+      client.publish(new DeleteMsg(DN.valueOf("uid=user." + i + ",o=test"), new CSN(i, 0, 1), "uuid" + i));
+      if (i % 50 == 0)
+      {
+        client.publish(new EntryMsg(1, 2, entry, i));
+      }
+    }
+
+    for (int i = 1; i <= 500; i++)
+    {
+      final DeleteMsg delete = (DeleteMsg) server.receive();
+      assertThat(delete.getCSN()).isEqualTo(new CSN(i, 0, 1));
+      assertThat(delete.getDN()).isEqualTo(DN.valueOf("uid=user." + i + ",o=test"));
+      if (i % 50 == 0)
+      {
+        final EntryMsg msg = (EntryMsg) server.receive();
+        assertThat(msg.getMsgId()).isEqualTo(i);
+        assertThat(msg.getEntryBytes()).isEqualTo(entry);
+      }
+    }
+  }
+
+  private void setProtocolVersion(short protocolVersion)
+  {
+    client.setProtocolVersion(protocolVersion);
+    server.setProtocolVersion(protocolVersion);
+  }
+
+  private static byte[] newEntryBytes(int nbValues)
+  {
+    final StringBuilder ldif = new StringBuilder("dn: uid=user.0,o=test\nobjectClass: inetOrgPerson\n");
+    for (int i = 0; i < nbValues; i++)
+    {
+      ldif.append("description: value number ").append(i).append(" of the description attribute\n");
+    }
+    return ldif.toString().getBytes();
+  }
+}
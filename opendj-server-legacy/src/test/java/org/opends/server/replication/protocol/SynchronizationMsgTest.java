@@ -854,6 +854,20 @@ public class SynchronizationMsgTest extends ReplicationTestCase
     assertEquals(msg.getRsInfos(), newMsg.getRsInfos());
   }
 
+  /**
+   * Test the compression negotiated by TopologyMsg is only encoded since V9.
+   */
+  @Test
+  public void topologyMsgCompressionTest() throws Exception
+  {
+    TopologyMsg msg = new TopologyMsg(null, null, true);
+    assertTrue(msg.isCompressionEnabled());
+    assertTrue(new TopologyMsg(msg.getBytes(REPLICATION_PROTOCOL_V9), REPLICATION_PROTOCOL_V9).isCompressionEnabled());
+    assertFalse(new TopologyMsg(msg.getBytes(REPLICATION_PROTOCOL_V8), REPLICATION_PROTOCOL_V8).isCompressionEnabled());
+    assertFalse(new TopologyMsg(new TopologyMsg(null, null).getBytes(REPLICATION_PROTOCOL_V9),
+        REPLICATION_PROTOCOL_V9).isCompressionEnabled());
+  }
+
   /**
    * Provider for the StartSessionMsg test.
    */
@@ -261,6 +261,18 @@ public class ReplServerFakeConfiguration implements ReplicationServerCfg
     this.monitoringPeriod = monitoringPeriod;
   }
 
+  @Override
+  public long getChangelogSyncInterval()
+  {
+    return 0;
+  }
+
+  @Override
+  public boolean isCompressionEnabled()
+  {
+    return false;
+  }
+
   @Override
   public boolean isComputeChangeNumber()
   {
@@ -251,6 +251,62 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
     }
   }
 
+  @Test
+  public void testSeekToRecordWithBlockIndex() throws Exception
+  {
+    final int blockSize = 256;
+    final int numberOfRecords = 10000;
+    writeRecordsToReachFileSize(blockSize, numberOfRecords * INT_RECORD_SIZE);
+
+    final BlockIndex<Integer> blockIndex = new BlockIndex<>();
+    // the second pass performs the first steps of the binary searches with the index
+    for (int pass = 0; pass < 2; pass++)
+    {
+      try (BlockLogReader<Integer, Integer> reader = newReader(blockSize, blockIndex))
+      {
+        for (int key = 1; key <= numberOfRecords; key += 7)
+        {
+          Pair<Boolean, Record<Integer, Integer>> result =
+              reader.seekToRecord(key, GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY);
+          assertThat(result.getFirst()).isTrue();
+          assertThat(result.getSecond()).isEqualTo(record(key));
+          assertThat(reader.readRecord()).isEqualTo(key < numberOfRecords ? record(key + 1) : null);
+        }
+      }
+    }
+    assertThat(blockIndex.size()).isGreaterThan(0).isLessThanOrEqualTo(BlockIndex.MAX_INDEXED_BLOCKS);
+  }
+
+  @Test
+  public void testReadRecordsAppendedAfterReachingEndOfFile() throws Exception
+  {
+    final int blockSize = 256;
+    // records span several chunks of the reader
+    final List<Record<Integer, Integer>> records = new ArrayList<>();
+    for (int i = 1; i <= 3000; i++)
+    {
+      records.add(record(i));
+    }
+    writeRecords(blockSize, records.subList(0, 1000));
+
+    try (BlockLogReader<Integer, Integer> reader = newReader(blockSize))
+    {
+      for (int i = 0; i < 1000; i++)
+      {
+        assertThat(reader.readRecord()).isEqualTo(records.get(i));
+      }
+      assertThat(reader.readRecord()).isNull();
+
+      writeRecords(blockSize, records.subList(1000, 3000));
+      for (int i = 1000; i < 3000; i++)
+      {
+        assertThat(reader.readRecord()).isEqualTo(records.get(i));
+      }
+      assertThat(reader.readRecord()).isNull();
+      assertThat(reader.getFilePosition()).isEqualTo(TEST_FILE.length());
+    }
+  }
+
   @Test
   public void testGetClosestBlockStartBeforeOrAtPosition() throws Exception
   {
@@ -518,6 +574,13 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
         RECORD_PARSER, blockSize);
   }
 
+  private BlockLogReader<Integer, Integer> newReader(int blockSize, BlockIndex<Integer> blockIndex)
+      throws FileNotFoundException
+  {
+    return BlockLogReader.newReaderForTests(TEST_FILE, new RandomAccessFile(TEST_FILE, "r"),
+        RECORD_PARSER, blockSize, blockIndex);
+  }
+
   private BlockLogReader<Integer, Integer> newReaderWithNullFile(int blockSize) throws FileNotFoundException
   {
     return BlockLogReader.newReaderForTests(null, null, RECORD_PARSER, blockSize);
@@ -18,6 +18,7 @@ package org.opends.server.replication.server.changelog.file;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.assertj.core.api.SoftAssertions;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -412,6 +413,70 @@ public class FileReplicaDBTest extends ReplicationTestCase
     testGetOldestNewestCSNs(4000, 10000);
   }
 
+  /**
+   * This test is intended to be run only manually to measure the throughput of cursors
+   * reading the replica DB sequentially, and of cursors positioned on random changes.
+   */
+  @Test(enabled=false)
+  public void cursorThroughput() throws Exception
+  {
+    // You may change these values
+    final int numberOfChanges = 500000;
+    final int numberOfCursorsToPosition = 20000;
+
+    ReplicationServer replicationServer = null;
+    FileReplicaDB replicaDB = null;
+    try
+    {
+      TestCaseUtils.startServer();
+      replicationServer = configureReplicationServer(100000, 10);
+      replicaDB = newReplicaDB(replicationServer);
+
+      final CSN[] csns = generateCSNs(1, System.currentTimeMillis(), numberOfChanges);
+      for (CSN csn : csns)
+      {
+        replicaDB.add(new DeleteMsg(TEST_ROOT_DN, csn, "uid"));
+      }
+      waitChangesArePersisted(replicaDB, numberOfChanges);
+
+      long t0 = System.nanoTime();
+      int count = 0;
+      try (DBCursor<UpdateMsg> cursor = replicaDB.generateCursorFrom(
+          csns[0], GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY))
+      {
+        while (cursor.next())
+        {
+          count++;
+        }
+      }
+      long elapsedMillis = Math.max(1, (System.nanoTime() - t0) / 1000000);
+      assertEquals(count, numberOfChanges);
+      System.out.println("Sequential read: " + count + " changes in " + elapsedMillis + " milliseconds, "
+          + (count * 1000L / elapsedMillis) + " changes/s");
+
+      final Random random = new Random();
+      t0 = System.nanoTime();
+      for (int i = 0; i < numberOfCursorsToPosition; i++)
+      {
+        final CSN csn = csns[random.nextInt(numberOfChanges)];
+        try (DBCursor<UpdateMsg> cursor = replicaDB.generateCursorFrom(
+            csn, GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY))
+        {
+          assertTrue(cursor.next());
+          assertEquals(cursor.getRecord().getCSN(), csn);
+        }
+      }
+      elapsedMillis = Math.max(1, (System.nanoTime() - t0) / 1000000);
+      System.out.println("Positioned cursors: " + numberOfCursorsToPosition + " cursors in " + elapsedMillis
+          + " milliseconds, " + (numberOfCursorsToPosition * 1000L / elapsedMillis) + " cursors/s");
+    }
+    finally
+    {
+      shutdown(replicaDB);
+      remove(replicationServer);
+    }
+  }
+
   private void testGetOldestNewestCSNs(final int max, final int counterWindow) throws Exception
   {
     String tn = "testDBCount("+max+","+counterWindow+")";
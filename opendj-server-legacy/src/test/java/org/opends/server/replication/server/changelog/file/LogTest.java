@@ -22,6 +22,9 @@ import static org.opends.server.replication.server.changelog.api.DBCursor.Positi
 import static org.opends.server.replication.server.changelog.file.LogFileTest.*;
 
 import java.io.File;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
@@ -288,6 +291,78 @@ public class LogTest extends DirectoryServerTestCase
     }
   }
 
+  @Test
+  public void testSyncToFileSystem() throws Exception
+  {
+    try (Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      assertThat(log.hasRecordsToSync()).isFalse();
+
+      log.append(Record.from("key011", "value11"));
+      assertThat(log.hasRecordsToSync()).isTrue();
+      log.syncToFileSystem();
+      assertThat(log.hasRecordsToSync()).isFalse();
+    }
+  }
+
+  @Test
+  public void testConcurrentSyncToFileSystem() throws Exception
+  {
+    try (final Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      final Thread[] writers = new Thread[4];
+      final Exception[] errors = new Exception[writers.length];
+      final AtomicLong syncsBeforeLastRound = new AtomicLong();
+      // once all the writers appended their last record, the first sync persists the records of all of them
+      final CyclicBarrier lastRound = new CyclicBarrier(writers.length, new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          syncsBeforeLastRound.set(log.getNumberOfSyncs());
+        }
+      });
+      for (int i = 0; i < writers.length; i++)
+      {
+        final int writerIndex = i;
+        writers[i] = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            try
+            {
+              for (int j = 0; j < 50; j++)
+              {
+                // keys from different writers may be appended out of order, which is harmless here
+                log.append(Record.from(String.format("key%d%03d", writerIndex + 1, j), "value" + j));
+                log.syncToFileSystem();
+              }
+              log.append(Record.from(String.format("key%d%03d", writerIndex + 1, 50), "value50"));
+              lastRound.await(10, TimeUnit.SECONDS);
+              log.syncToFileSystem();
+            }
+            catch (Exception e)
+            {
+              errors[writerIndex] = e;
+            }
+          }
+        });
+        writers[i].start();
+      }
+      for (Thread writer : writers)
+      {
+        writer.join();
+      }
+
+      assertThat(errors).containsOnlyNulls();
+      assertThat(log.hasRecordsToSync()).isFalse();
+      assertThat(log.getNumberOfSyncs()).isLessThanOrEqualTo(writers.length * 50 + 1);
+      assertThat(log.getNumberOfSyncs() - syncsBeforeLastRound.get())
+          .as("concurrent syncs of the last round must be coalesced").isEqualTo(1);
+    }
+  }
+
   @Test
   public void testWriteWhenCursorIsOpenedAndAheadLogFileIsRotated() throws Exception
   {
@@ -20,11 +20,16 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import org.forgerock.opendj.ldap.DN;
 import org.opends.server.TestCaseUtils;
+import org.opends.server.api.LocalBackend;
 import org.opends.server.backends.task.TaskState;
 import org.opends.server.types.Entry;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.opends.server.TestCaseUtils.getServerContext;
+
 public class TestRebuildTask extends TasksTestCase
 {
   private static String suffix="dc=rebuild,dc=jeb";
@@ -125,6 +130,21 @@ public class TestRebuildTask extends TasksTestCase
               ),
               TaskState.STOPPED_BY_ERROR
          },
+         // System indexes cannot be rebuilt while the backend is enabled
+         {
+              TestCaseUtils.makeEntry(
+                   "dn: ds-task-id=" + UUID.randomUUID() +
+                        ",cn=Scheduled Tasks,cn=Tasks",
+                   "objectclass: top",
+                   "objectclass: ds-task",
+                   "objectclass: ds-task-rebuild",
+                   "ds-task-class-name: org.opends.server.tasks.RebuildTask",
+                   "ds-task-rebuild-base-dn: " + suffix,
+                   "ds-task-rebuild-index: dn2id",
+                   "ds-task-rebuild-online: true"
+              ),
+              TaskState.STOPPED_BY_ERROR
+         },
     };
   }
 
@@ -134,4 +154,30 @@ public class TestRebuildTask extends TasksTestCase
   {
     testTask(taskEntry, expectedState, 60);
  }
+
+  @Test(groups = "slow")
+  public void testOnlineRebuildTaskKeepsTheBackendEnabled() throws Exception
+  {
+    final LocalBackend<?> backend = getBackend();
+    final Entry taskEntry = TestCaseUtils.makeEntry(
+        "dn: ds-task-id=" + UUID.randomUUID() + ",cn=Scheduled Tasks,cn=Tasks",
+        "objectclass: top",
+        "objectclass: ds-task",
+        "objectclass: ds-task-rebuild",
+        "ds-task-class-name: org.opends.server.tasks.RebuildTask",
+        "ds-task-rebuild-base-dn: " + suffix,
+        "ds-task-rebuild-index: mail",
+        "ds-task-rebuild-index: employeeNumber",
+        "ds-task-rebuild-online: true");
+
+    testTask(taskEntry, TaskState.COMPLETED_SUCCESSFULLY, 60);
+
+    // An offline rebuild disables the backend, which is then enabled again as a new instance
+    assertThat(getBackend()).isSameAs(backend);
+  }
+
+  private LocalBackend<?> getBackend()
+  {
+    return getServerContext().getBackendConfigManager().getLocalBackendWithBaseDN(DN.valueOf(suffix));
+  }
 }